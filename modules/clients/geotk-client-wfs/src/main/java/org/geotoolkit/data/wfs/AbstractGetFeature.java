@@ -62,6 +62,7 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
     private QName typeName       = null;
     private Filter filter        = null;
     private Integer maxFeatures  = null;
+    private Integer startIndex   = null;
     private Name[] propertyNames = null;
     private String outputFormat  = null;
 
@@ -118,6 +119,22 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
         maxFeatures = max;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Integer getStartIndex(){
+        return startIndex;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void setStartIndex(final Integer index){
+        startIndex = index;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -162,6 +179,9 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
         if(maxFeatures != null){
             requestParameters.put("MAXFEATURES", maxFeatures.toString());
         }
+        if(startIndex != null){
+            requestParameters.put("STARTINDEX", startIndex.toString());
+        }
 
         if(typeName != null){
             final StringBuilder sbN = new StringBuilder();
@@ -274,6 +294,9 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
         final Query query = WFSXmlFactory.buildQuery(version, xmlFilter, typeNames, "1.1.0", null, null, propName);
 
         final GetFeature request = WFSXmlFactory.buildGetFeature(version, "WFS", null, maxFeatures, query, ResultTypeType.RESULTS, outputFormat);
+        if(startIndex != null && request instanceof org.geotoolkit.wfs.xml.v200.GetFeatureType){
+            ((org.geotoolkit.wfs.xml.v200.GetFeatureType)request).setStartIndex(startIndex);
+        }
 
         final URL url = new URL(serverURL);
         URLConnection conec = url.openConnection();
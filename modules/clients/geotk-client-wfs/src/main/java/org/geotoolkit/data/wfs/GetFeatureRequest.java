@@ -64,6 +64,21 @@ public interface GetFeatureRequest extends Request{
      */
     void setMaxFeatures(Integer max);
 
+    /**
+     * @return Integer : index of the first feature returned by this request,
+     *  null to start at the first feature.
+     */
+    Integer getStartIndex();
+
+    /**
+     * Set the index of the first returned feature, used to page through large
+     * results. This parameter is defined by WFS 2.0, older servers may ignore it.
+     *
+     * @param index : index of the first feature returned by this request,
+     *  null to start at the first feature.
+     */
+    void setStartIndex(Integer index);
+
     /**
      * @return String[] : array of requested properties,
      *  null if all properties, empty for only the id.
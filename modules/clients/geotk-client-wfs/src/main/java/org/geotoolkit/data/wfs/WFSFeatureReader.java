@@ -0,0 +1,365 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.wfs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.feature.type.Name;
+import org.geotoolkit.feature.xml.jaxp.JAXPStreamFeatureReader;
+import org.geotoolkit.internal.Threads;
+import org.opengis.filter.Filter;
+
+/**
+ * Feature reader on WFS GetFeature responses. Features are parsed while the
+ * response is downloaded, the collection is never loaded in memory.
+ * <p>
+ * When a page size is defined, features are requested page by page using the
+ * STARTINDEX parameter. The following page is downloaded in background while
+ * the current one is being read. Iteration stops when a page is not full, when
+ * the maximum number of features is reached or when the server returns the same
+ * page twice, which happens with servers ignoring the start index.
+ * <p>
+ * POST requests can only carry a start index in WFS 2.0.0. With older versions
+ * paging is disabled and the features before the start index are requested
+ * and skipped by the reader.
+ *
+ * @author agent
+ * @module pending
+ */
+final class WFSFeatureReader implements FeatureReader<FeatureType,Feature> {
+
+    private final WebFeatureClient server;
+    private final Logger logger;
+    private final boolean usePost;
+    private final QName typeName;
+    private final FeatureType type;
+    private final Filter filter;
+    private final Name[] propertyNames;
+    private final Integer pageSize;
+    private final Integer maxFeatures;
+
+    /** Server index of the current page first feature. */
+    private int pageStart;
+    /** Number of features requested for the current page. */
+    private int pageRequested;
+    /** Number of features read in the current page. */
+    private int pageCount;
+    /** Number of features returned by this reader. */
+    private int count = 0;
+    /** Number of features to skip because the start index could not be sent. */
+    private int skip = 0;
+    private String pageFirstId = null;
+    private String previousFirstId = null;
+
+    private InputStream stream = null;
+    private JAXPStreamFeatureReader xmlReader = null;
+    private FeatureReader<FeatureType,Feature> page = null;
+    private FutureTask<byte[]> prefetch = null;
+    private Feature next = null;
+
+    /**
+     * @param server WFS client
+     * @param logger logger used to report requests
+     * @param usePost true to send requests by POST
+     * @param typeName requested type name
+     * @param type expected feature type, already reduced to the requested properties
+     * @param filter request filter, can be null
+     * @param propertyNames requested properties, null for all
+     * @param startIndex index of the first feature
+     * @param maxFeatures maximum number of features, null for no limit
+     * @param pageSize number of features per request, null to send a single request
+     */
+    WFSFeatureReader(final WebFeatureClient server, final Logger logger, final boolean usePost,
+            final QName typeName, final FeatureType type, final Filter filter, final Name[] propertyNames,
+            final int startIndex, final Integer maxFeatures, final Integer pageSize) throws IOException {
+        this.server        = server;
+        this.logger        = logger;
+        this.usePost       = usePost;
+        this.typeName      = typeName;
+        this.type          = type;
+        this.filter        = filter;
+        this.propertyNames = propertyNames;
+        this.maxFeatures   = maxFeatures;
+        this.pageStart     = startIndex;
+
+        final boolean startIndexSupported = !usePost || server.getVersion() == org.geotoolkit.wfs.xml.WFSVersion.v200;
+        if (pageSize != null && !startIndexSupported) {
+            logger.log(Level.INFO, "[WFS Client] paging is not supported by POST requests in version {0}, "
+                    + "features will be requested at once.", server.getVersion().getCode());
+            this.pageSize = null;
+        } else {
+            this.pageSize = pageSize;
+        }
+
+        if (this.pageSize == null) {
+            // single request, the start index is sent only when needed
+            pageRequested = (maxFeatures == null) ? -1 : maxFeatures;
+            if (startIndex > 0 && !startIndexSupported) {
+                skip = startIndex;
+                final Integer max = (maxFeatures == null) ? null : (int) Math.min(Integer.MAX_VALUE, (long) maxFeatures + startIndex);
+                openPage(openStream(createRequest(null, max)));
+            } else {
+                openPage(openStream(createRequest((startIndex > 0) ? startIndex : null, maxFeatures)));
+            }
+        } else {
+            final int size = nextPageSize(0);
+            if (size > 0) {
+                pageRequested = size;
+                openPage(openStream(createRequest(pageStart, size)));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public FeatureType getFeatureType() {
+        return type;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean hasNext() throws FeatureStoreRuntimeException {
+        while (next == null && page != null) {
+            if (maxFeatures != null && count >= maxFeatures) {
+                close();
+                break;
+            }
+
+            if (page.hasNext()) {
+                final Feature candidate = page.next();
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                if (pageCount == 0) {
+                    pageFirstId = candidate.getIdentifier().getID();
+                    if (previousFirstId != null && previousFirstId.equals(pageFirstId)) {
+                        logger.log(Level.WARNING, "[WFS Client] server returned the same page twice, "
+                                + "STARTINDEX parameter is likely not supported. Stop reading.");
+                        close();
+                        break;
+                    }
+                }
+                pageCount++;
+                count++;
+                next = candidate;
+            } else {
+                nextPage();
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Feature next() throws FeatureStoreRuntimeException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features.");
+        }
+        final Feature f = next;
+        next = null;
+        return f;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void close() {
+        next = null;
+        if (prefetch != null) {
+            prefetch.cancel(true);
+            prefetch = null;
+        }
+        closePage();
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Close the current page and open the following one if there is one.
+     */
+    private void nextPage() throws FeatureStoreRuntimeException {
+        closePage();
+        final FutureTask<byte[]> task = prefetch;
+        prefetch = null;
+
+        if (pageSize == null || pageCount != pageRequested || task == null) {
+            //last page, or server not honoring the requested count
+            if (task != null) {
+                task.cancel(true);
+            }
+            return;
+        }
+
+        final byte[] data;
+        try {
+            data = task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FeatureStoreRuntimeException(ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new FeatureStoreRuntimeException(cause);
+        }
+
+        pageStart += pageRequested;
+        pageRequested = nextPageSize(count);
+        previousFirstId = pageFirstId;
+        try {
+            openPage(new ByteArrayInputStream(data));
+        } catch (IOException ex) {
+            throw new FeatureStoreRuntimeException(ex);
+        }
+    }
+
+    /**
+     * Start parsing the given page and, when paging, start downloading the
+     * following one.
+     */
+    private void openPage(final InputStream in) throws IOException {
+        stream = in;
+        pageCount = 0;
+        pageFirstId = null;
+        xmlReader = new JAXPStreamFeatureReader(type);
+        xmlReader.getProperties().put(JAXPStreamFeatureReader.SKIP_UNEXPECTED_PROPERTY_TAGS, true);
+        try {
+            page = xmlReader.readAsStream(in);
+        } catch (XMLStreamException ex) {
+            closePage();
+            throw new IOException(ex);
+        }
+
+        if (pageSize != null) {
+            final int size = nextPageSize(count + pageRequested);
+            if (size > 0) {
+                prefetch = download(createRequest(pageStart + pageRequested, size));
+            }
+        }
+    }
+
+    private void closePage() throws FeatureStoreRuntimeException {
+        if (page != null) {
+            page.close();
+            page = null;
+        }
+        xmlReader = null;
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            } finally {
+                stream = null;
+            }
+        }
+    }
+
+    /**
+     * @param delivered number of features returned before the page
+     * @return number of features to request for the page, 0 if maximum is reached
+     */
+    private int nextPageSize(final int delivered) {
+        if (maxFeatures == null) {
+            return pageSize;
+        }
+        return Math.max(0, Math.min(pageSize, maxFeatures - delivered));
+    }
+
+    private GetFeatureRequest createRequest(final Integer startIndex, final Integer max) {
+        final GetFeatureRequest request = server.createGetFeature();
+        request.setTypeName(typeName);
+        request.setFilter((filter == null) ? Filter.INCLUDE : filter);
+        if (max != null) {
+            request.setMaxFeatures(max);
+        }
+        request.setStartIndex(startIndex);
+        request.setPropertyNames(propertyNames);
+        return request;
+    }
+
+    private InputStream openStream(final GetFeatureRequest request) throws IOException {
+        if (usePost) {
+            logger.log(Level.INFO, "[WFS Client] request feature by POST.");
+            return request.getResponseStream();
+        } else {
+            final URL url = request.getURL();
+            logger.log(Level.INFO, "[WFS Client] request feature : {0}", url);
+            return url.openStream();
+        }
+    }
+
+    /**
+     * Download a complete response in background.
+     */
+    private FutureTask<byte[]> download(final GetFeatureRequest request) {
+        final FutureTask<byte[]> task = new FutureTask<>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                try (InputStream in = openStream(request)) {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    final byte[] buffer = new byte[8192];
+                    int nb;
+                    while ((nb = in.read(buffer)) >= 0) {
+                        if (Thread.interrupted()) {
+                            throw new InterruptedIOException("Page download cancelled.");
+                        }
+                        out.write(buffer, 0, nb);
+                    }
+                    return out.toByteArray();
+                }
+            }
+        });
+        Threads.executeWork(task);
+        return task;
+    }
+
+}
@@ -35,7 +35,6 @@ import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLStreamException;
 
 import org.geotoolkit.data.AbstractFeatureStore;
 import org.geotoolkit.data.FeatureStoreFactory;
@@ -45,9 +44,7 @@ import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.FeatureReader;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureWriter;
-import org.geotoolkit.data.memory.GenericEmptyFeatureIterator;
 import org.geotoolkit.data.memory.GenericReprojectFeatureIterator;
-import org.geotoolkit.data.memory.GenericWrapFeatureIterator;
 import org.geotoolkit.data.query.DefaultQueryCapabilities;
 import org.geotoolkit.data.query.Query;
 import org.geotoolkit.data.query.QueryCapabilities;
@@ -58,9 +55,7 @@ import org.geotoolkit.feature.type.DefaultName;
 import org.geotoolkit.feature.FeatureTypeBuilder;
 import org.geotoolkit.feature.FeatureTypeUtilities;
 import org.geotoolkit.feature.SchemaException;
-import org.geotoolkit.feature.xml.XmlFeatureReader;
 import org.geotoolkit.feature.xml.jaxb.JAXBFeatureTypeReader;
-import org.geotoolkit.feature.xml.jaxp.JAXPStreamFeatureReader;
 import org.apache.sis.geometry.GeneralEnvelope;
 import org.geotoolkit.ows.xml.BoundingBox;
 import org.geotoolkit.parameter.Parameters;
@@ -211,6 +206,14 @@ public class WFSFeatureStore extends AbstractFeatureStore{
         return Parameters.getOrCreate(WFSFeatureStoreFactory.LONGITUDE_FIRST, parameters).booleanValue();
     }
 
+    /**
+     * @return number of features requested per GetFeature, null if features
+     *         are requested at once.
+     */
+    public Integer getPageSize(){
+        return Parameters.value(WFSFeatureStoreFactory.PAGE_SIZE, parameters);
+    }
+
     @Override
     public FeatureStoreFactory getFactory() {
         return FeatureStoreFinder.getFactoryById(WFSFeatureStoreFactory.NAME);
@@ -312,21 +315,17 @@ public class WFSFeatureStore extends AbstractFeatureStore{
         final FeatureType sft = getFeatureType(name);
 
         final QName q = new QName(name.getNamespaceURI(), name.getLocalPart(), prefixes.get(name.getNamespaceURI()));
-        final FeatureCollection<Feature> collection;
+
+        //features are parsed while the response is downloaded, page by page if a page size is set
+        FeatureReader reader;
         try {
-            collection = requestFeature(q, query);
+            final FeatureType type = FeatureTypeUtilities.createSubType(sft, query.getPropertyNames());
+            reader = new WFSFeatureReader(server, getLogger(), getUsePost(), q, type, query.getFilter(),
+                    query.getPropertyNames(), query.getStartIndex(), query.getMaxFeatures(), getPageSize());
         } catch (IOException ex) {
             throw new DataStoreException(ex);
         }
 
-
-        FeatureReader reader;
-        if(collection == null){
-            reader = GenericEmptyFeatureIterator.createReader(sft);
-        }else{
-            reader = GenericWrapFeatureIterator.wrapToReader(collection.iterator(), sft);
-        }
-
         //we handle reprojection ourself, too complex or never done properly for a large
         //majority of wfs server tested.
         if(query.getCoordinateSystemReproject() != null){
@@ -486,70 +485,6 @@ public class WFSFeatureStore extends AbstractFeatureStore{
             throw new IOException(ex);
         }
 
-    }
-
-    private FeatureCollection<Feature> requestFeature(final QName typeName, final Query query) throws IOException {
-        final Name name = new DefaultName(typeName);
-        FeatureType sft = types.get(name);
-        sft = FeatureTypeUtilities.createSubType(sft, query.getPropertyNames());
-
-        final GetFeatureRequest request = server.createGetFeature();
-        request.setTypeName(typeName);
-
-        if(query != null){
-
-            final Filter filter = query.getFilter();
-            if(filter == null){
-                request.setFilter(Filter.INCLUDE);
-            }else{
-                request.setFilter(filter);
-            }
-
-            final Integer max = query.getMaxFeatures();
-            if(max != null){
-                request.setMaxFeatures(max);
-            }
-
-            request.setPropertyNames(query.getPropertyNames());
-        }
-
-        XmlFeatureReader reader = null;
-        try {
-            reader = new JAXPStreamFeatureReader(sft);
-            reader.getProperties().put(JAXPStreamFeatureReader.SKIP_UNEXPECTED_PROPERTY_TAGS, true);
-            final InputStream stream;
-            if (getUsePost()) {
-                getLogger().log(Level.INFO, "[WFS Client] request feature by POST.");
-                stream = request.getResponseStream();
-            } else {
-                final URL url = request.getURL();
-                getLogger().log(Level.INFO, "[WFS Client] request feature : {0}", url);
-                stream = url.openStream();
-            }
-            final Object result = reader.read(stream);
-
-
-            if(result instanceof Feature){
-                final Feature sf = (Feature) result;
-                final FeatureCollection<Feature> col = FeatureStoreUtilities.collection("id", sft);
-                col.add(sf);
-                return col;
-            }else if(result instanceof FeatureCollection){
-                final FeatureCollection<Feature> col = (FeatureCollection<Feature>) result;
-                return col;
-            }else{
-                final FeatureCollection<Feature> col = FeatureStoreUtilities.collection("", sft);
-                return col;
-            }
-
-        }catch (XMLStreamException ex) {
-            throw new IOException(ex);
-        }finally{
-            if(reader != null){
-                reader.dispose();
-            }
-        }
-
     }
 
 	@Override
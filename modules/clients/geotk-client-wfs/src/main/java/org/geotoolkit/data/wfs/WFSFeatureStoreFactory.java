@@ -95,11 +95,20 @@ public class WFSFeatureStoreFactory extends AbstractFeatureStoreFactory implemen
             new DefaultParameterDescriptor<Boolean>("longitudeFirst",
                     new ResourceInternationalString("org/geotoolkit/wfs/bundle", "longitudeFirst"),
                     Boolean.class,false,false);
+    /**
+     * Optional number of features requested per GetFeature, when set features
+     * are requested page by page and the next page is fetched while the current
+     * one is being read.
+     */
+    public static final ParameterDescriptor<Integer> PAGE_SIZE =
+            new DefaultParameterDescriptor<Integer>("pageSize",
+                    new ResourceInternationalString("org/geotoolkit/wfs/bundle", "pageSize"),
+                    Integer.class,null,false);
 
     public static final ParameterDescriptorGroup PARAMETERS_DESCRIPTOR =
             new DefaultParameterDescriptorGroup("WFSParameters",
                 IDENTIFIER, AbstractClientFactory.URL, VERSION, AbstractClientFactory.SECURITY,
-                LONGITUDE_FIRST,POST_REQUEST,AbstractClientFactory.TIMEOUT);
+                LONGITUDE_FIRST,POST_REQUEST,AbstractClientFactory.TIMEOUT,PAGE_SIZE);
 
     @Override
     public Identification getIdentification() {
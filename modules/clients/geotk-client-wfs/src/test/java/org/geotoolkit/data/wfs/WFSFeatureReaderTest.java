@@ -0,0 +1,282 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.wfs;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.namespace.QName;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.FeatureTypeBuilder;
+import org.geotoolkit.feature.type.DefaultName;
+import org.geotoolkit.feature.type.FeatureType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link WFSFeatureReader} paging against a local stub server.
+ *
+ * @author agent
+ * @module pending
+ */
+public class WFSFeatureReaderTest {
+
+    private static final String NAMESPACE = "http://test.geotoolkit.org";
+    private static final QName TYPE_NAME = new QName(NAMESPACE, "TestFeature", "ut");
+    private static final Logger LOGGER = Logger.getLogger("org.geotoolkit.data.wfs");
+
+    private static final FeatureType TYPE;
+    static {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName(NAMESPACE, "TestFeature");
+        ftb.add(new DefaultName(NAMESPACE, "value"), Integer.class);
+        TYPE = ftb.buildSimpleFeatureType();
+    }
+
+    private StubServer stub;
+    private HttpServer server;
+    private WebFeatureClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        stub = new StubServer();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/wfs", stub);
+        server.start();
+        client = new WebFeatureClient(new URL("http://localhost:" + server.getAddress().getPort() + "/wfs"), "1.1.0");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private WFSFeatureReader createReader(final int startIndex, final Integer maxFeatures, final Integer pageSize)
+            throws IOException {
+        return new WFSFeatureReader(client, LOGGER, false, TYPE_NAME, TYPE, null, null,
+                startIndex, maxFeatures, pageSize);
+    }
+
+    /**
+     * Returns the values of all features, closing the reader.
+     */
+    private static List<Integer> readAll(final WFSFeatureReader reader) {
+        final List<Integer> values = new ArrayList<>();
+        try {
+            while (reader.hasNext()) {
+                final Feature feature = reader.next();
+                values.add((Integer) feature.getProperty("value").getValue());
+            }
+        } finally {
+            reader.close();
+        }
+        return values;
+    }
+
+    private static List<Integer> range(final int start, final int end) {
+        final List<Integer> values = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    /**
+     * Pages are requested until a page is not full.
+     */
+    @Test
+    public void testPaging() throws Exception {
+        stub.total = 25;
+        assertEquals(range(0, 25), readAll(createReader(0, null, 10)));
+        final List<String> requests = stub.getRequests();
+        assertTrue(requests.size() >= 3);
+        assertEquals(Arrays.asList("0/10", "10/10", "20/10"), requests.subList(0, 3));
+    }
+
+    /**
+     * An empty page stops the iteration when the total is a multiple of the page size.
+     */
+    @Test
+    public void testEmptyLastPage() throws Exception {
+        stub.total = 20;
+        assertEquals(range(0, 20), readAll(createReader(0, null, 10)));
+        assertEquals(Arrays.asList("0/10", "10/10", "20/10"), stub.getRequests().subList(0, 3));
+    }
+
+    /**
+     * The last page is reduced to the maximum number of features,
+     * and no page is requested beyond it.
+     */
+    @Test
+    public void testMaxFeatures() throws Exception {
+        stub.total = 100;
+        assertEquals(range(5, 20), readAll(createReader(5, 15, 10)));
+        assertEquals(Arrays.asList("5/10", "15/5"), stub.getRequests());
+    }
+
+    /**
+     * The following page is downloaded while the current one is being read.
+     */
+    @Test
+    public void testPrefetch() throws Exception {
+        stub.total = 25;
+        final WFSFeatureReader reader = createReader(0, null, 10);
+        try {
+            assertTrue(reader.hasNext());
+            assertEquals(Integer.valueOf(0), reader.next().getProperty("value").getValue());
+            final long end = System.currentTimeMillis() + 10000;
+            while (stub.getRequests().size() < 2) {
+                assertTrue("Next page not requested.", System.currentTimeMillis() < end);
+                Thread.sleep(10);
+            }
+            assertEquals(Arrays.asList("0/10", "10/10"), stub.getRequests());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * A server ignoring the start index returns the same page twice, reading stops.
+     */
+    @Test
+    public void testStartIndexIgnored() throws Exception {
+        stub.total = 25;
+        stub.ignoreStartIndex = true;
+        assertEquals(range(0, 10), readAll(createReader(0, null, 10)));
+    }
+
+    /**
+     * Without page size, a single request is sent with the start index and maximum.
+     */
+    @Test
+    public void testUnpaged() throws Exception {
+        stub.total = 25;
+        assertEquals(range(5, 8), readAll(createReader(5, 3, null)));
+        assertEquals(Collections.singletonList("5/3"), stub.getRequests());
+
+        stub.requests.clear();
+        assertEquals(range(0, 25), readAll(createReader(0, null, null)));
+        assertEquals(Collections.singletonList("null/null"), stub.getRequests());
+    }
+
+    /**
+     * POST requests in version 1.1.0 can not carry the start index : paging is
+     * disabled and the features before the start index are skipped by the reader.
+     */
+    @Test
+    public void testPostStartIndex() throws Exception {
+        stub.total = 25;
+        final WFSFeatureReader reader = new WFSFeatureReader(client, LOGGER, true, TYPE_NAME, TYPE, null, null,
+                5, 3, 10);
+        assertEquals(range(5, 8), readAll(reader));
+        assertEquals(Collections.singletonList("null/8"), stub.getRequests());
+    }
+
+    /**
+     * GetFeature stub returning the features of the requested range,
+     * recording requests as "STARTINDEX/MAXFEATURES".
+     * Parameters of POST requests are read from the XML attributes.
+     */
+    private static final class StubServer implements HttpHandler {
+
+        private static final Pattern ATTRIBUTE = Pattern.compile("(maxFeatures|startIndex)=\"(\\d+)\"");
+
+        private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        private volatile int total;
+        private volatile boolean ignoreStartIndex;
+
+        private List<String> getRequests() {
+            synchronized (requests) {
+                return new ArrayList<>(requests);
+            }
+        }
+
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            final Map<String,String> params = new HashMap<>();
+            final String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String param : query.split("&")) {
+                    final int split = param.indexOf('=');
+                    if (split > 0) {
+                        params.put(param.substring(0, split).toUpperCase(),
+                                URLDecoder.decode(param.substring(split + 1), "UTF-8"));
+                    }
+                }
+            }
+            if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                final Matcher matcher = ATTRIBUTE.matcher(readBody(exchange.getRequestBody()));
+                while (matcher.find()) {
+                    params.put(matcher.group(1).toUpperCase(), matcher.group(2));
+                }
+            }
+            final String start = params.get("STARTINDEX");
+            final String max = params.get("MAXFEATURES");
+            requests.add(start + "/" + max);
+
+            int first = (start == null || ignoreStartIndex) ? 0 : Integer.parseInt(start);
+            int last = (max == null) ? total : Math.min(total, first + Integer.parseInt(max));
+
+            final StringBuilder sb = new StringBuilder();
+            sb.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+            sb.append("<wfs:FeatureCollection xmlns:gml=\"http://www.opengis.net/gml\"")
+              .append(" xmlns:wfs=\"http://www.opengis.net/wfs\" xmlns:ut=\"").append(NAMESPACE).append("\">\n");
+            for (int i = first; i < last; i++) {
+                sb.append("<gml:featureMember><ut:TestFeature gml:id=\"f-").append(i).append("\">")
+                  .append("<ut:value>").append(i).append("</ut:value>")
+                  .append("</ut:TestFeature></gml:featureMember>\n");
+            }
+            sb.append("</wfs:FeatureCollection>");
+
+            final byte[] data = sb.toString().getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "text/xml");
+            exchange.sendResponseHeaders(200, data.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+        }
+
+        private static String readBody(final InputStream in) throws IOException {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int nb;
+            while ((nb = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, nb);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+}
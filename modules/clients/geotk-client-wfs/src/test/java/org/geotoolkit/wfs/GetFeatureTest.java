@@ -60,4 +60,23 @@ public class GetFeatureTest {
         assertTrue("was:" + sUrl, sUrl.contains("%3Cgml%3AlowerCorner%3E-180.0+-90.0%3C%2Fgml%3AlowerCorner%3E"));
         assertTrue("was:" + sUrl, sUrl.contains("%3Cgml%3AupperCorner%3E180.0+90.0%3C%2Fgml%3AupperCorner%3E"));
     }
+
+    /**
+     * Ensures the paging parameters are written in the {@link GetFeature110#getURL()} url.
+     */
+    @Test
+    public void testGetFeature110Paging() throws MalformedURLException {
+        final GetFeature110 getFeat110 = new GetFeature110("http://test.com",null);
+        getFeat110.setTypeName(new QName("http://myqnametest.com", "value", "ut"));
+        getFeat110.setMaxFeatures(100);
+        getFeat110.setStartIndex(200);
+
+        final String sUrl = getFeat110.getURL().toString();
+        assertTrue("was:" + sUrl, sUrl.contains("MAXFEATURES=100"));
+        assertTrue("was:" + sUrl, sUrl.contains("STARTINDEX=200"));
+
+        final GetFeature110 unpaged = new GetFeature110("http://test.com",null);
+        unpaged.setTypeName(new QName("http://myqnametest.com", "value", "ut"));
+        assertFalse(unpaged.getURL().toString().contains("STARTINDEX"));
+    }
 }
@@ -23,6 +23,10 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.LogRecord;
@@ -120,6 +124,10 @@ import static org.geotoolkit.internal.InternalUtilities.debugEquals;
  * caching is the responsibility of {@link Element} implementations. Note that this simple
  * caching mechanism is sufficient if {@code evaluate(...)} methods are invoked with increasing
  * <var>z</var> values.
+ * <p>
+ * When series are extracted at many positions, the {@link #evaluate(double[], NumberRange,
+ * ExecutorService)} method loads each element only once for all positions, optionally
+ * loading the next element in a background thread.
  *
  * @author Martin Desruisseaux (IRD, Geomatys)
  * @author Johann Sorel (Geomatys)
@@ -426,6 +434,97 @@ public class CoverageStack extends AbstractCoverage {
         }
     }
 
+    /**
+     * The values sampled by {@link CoverageStack#evaluate(double[], NumberRange, ExecutorService)}
+     * at many positions over many elements of a stack. Values are stored in a single packed array
+     * where each element of the stack is a block of <var>numPoints</var> &times; <var>numBands</var>
+     * values, in the order of the positions given to the {@code evaluate} method.
+     *
+     * @author agent
+     * @version 4.0-M2
+     *
+     * @since 4.0-M2
+     * @module
+     */
+    public static final class Series {
+        /**
+         * The <var>z</var> values of the evaluated elements, in increasing order.
+         */
+        private final double[] z;
+
+        /**
+         * The sampled values.
+         */
+        private final double[] values;
+
+        /**
+         * The number of positions and the number of sample dimensions.
+         */
+        private final int numPoints, numBands;
+
+        /**
+         * Creates a new series for the given values.
+         */
+        Series(final double[] z, final double[] values, final int numPoints, final int numBands) {
+            this.z         = z;
+            this.values    = values;
+            this.numPoints = numPoints;
+            this.numBands  = numBands;
+        }
+
+        /**
+         * Returns the <var>z</var> values of the evaluated elements, in increasing order.
+         * This is the {@linkplain Element#getZCenter() center} of each element.
+         *
+         * @return The <var>z</var> values of the evaluated elements.
+         */
+        public double[] getZValues() {
+            return z.clone();
+        }
+
+        /**
+         * Returns the number of evaluated positions.
+         *
+         * @return The number of positions.
+         */
+        public int getNumPoints() {
+            return numPoints;
+        }
+
+        /**
+         * Returns the number of values for each position.
+         *
+         * @return The number of sample dimensions.
+         */
+        public int getNumSampleDimensions() {
+            return numBands;
+        }
+
+        /**
+         * Returns the value of the given sample dimension at the given position and element.
+         *
+         * @param  slice Index of the element, from 0 inclusive to the length of {@link #getZValues()}.
+         * @param  point Index of the position, from 0 inclusive to {@link #getNumPoints()}.
+         * @param  band  Index of the sample dimension.
+         * @return The sampled value, or {@link Double#NaN NaN} if the position was outside the element.
+         */
+        public double getValue(final int slice, final int point, final int band) {
+            return values[(slice*numPoints + point)*numBands + band];
+        }
+
+        /**
+         * Returns the packed array of all values. The value of band <var>b</var> at position
+         * <var>p</var> in element <var>s</var> is at index
+         * (<var>s</var>&times;<var>numPoints</var> + <var>p</var>)&times;<var>numBands</var> + <var>b</var>.
+         * The array is returned directly without copy, since it may be large.
+         *
+         * @return The sampled values.
+         */
+        public double[] getValues() {
+            return values;
+        }
+    }
+
     /**
      * Coverage elements in this stack. Elements may be shared by more than one
      * instances of {@code CoverageStack}.
@@ -1123,10 +1222,24 @@ public class CoverageStack extends AbstractCoverage {
      */
     private Coverage load(final Element element) throws IOException {
         assert Thread.holdsLock(this);
+        return load(element, interpolationEnabled);
+    }
+
+    /**
+     * Loads a single coverage for the specified element. This method does not require
+     * synchronization, so it can be invoked from a background thread for loading the
+     * next elements in advance.
+     *
+     * @param  element     The coverage to load.
+     * @param  interpolate The value of {@link #interpolationEnabled}.
+     * @return The loaded coverage.
+     * @throws IOException if an error occurred while loading image.
+     */
+    private Coverage load(final Element element, final boolean interpolate) throws IOException {
         Coverage coverage = element.getCoverage(listeners);
         if (coverage instanceof GridCoverage2D) {
             final GridCoverage2D coverage2D = (GridCoverage2D) coverage;
-            if (interpolationEnabled) {
+            if (interpolate) {
                 if (coverage2D.getInterpolation() instanceof InterpolationNearest) {
                     coverage = Interpolator2D.create(coverage2D);
                 }
@@ -1568,6 +1681,130 @@ public class CoverageStack extends AbstractCoverage {
         return Arrays.asList(new Coverage[] {lower, upper});
     }
 
+    /**
+     * Evaluates many positions in every element of this stack which intersect the given range
+     * of <var>z</var> values. This method is much faster than invoking
+     * {@link #evaluate(DirectPosition, double[])} in a loop when extracting series at many
+     * locations, since each element is loaded only once and all positions are evaluated
+     * in a single pass over the element.
+     * <p>
+     * The positions are given as packed coordinate tuples of {@link #zDimension} ordinates, i.e.
+     * the coordinates in the dimensions before the <var>z</var> dimension. Each element is
+     * evaluated at its {@linkplain Element#getZCenter() center}; no interpolation is performed
+     * between elements. Positions outside an element give {@link Double#NaN NaN} values.
+     * <p>
+     * If an executor is given, then the next element is loaded in a background thread while
+     * the positions are evaluated in the current element.
+     *
+     * @param  coordinates The positions as packed tuples of {@code zDimension} ordinates.
+     * @param  zRange      The range of <var>z</var> values, or {@code null} for all elements.
+     * @param  prefetcher  The executor where to load the next element in advance,
+     *                     or {@code null} for loading all elements in the current thread.
+     * @return The values at the given positions for every element in the given range.
+     * @throws CannotEvaluateException if an element can not be loaded.
+     *
+     * @since 4.0-M2
+     */
+    public synchronized Series evaluate(final double[] coordinates, final NumberRange<?> zRange,
+            final ExecutorService prefetcher) throws CannotEvaluateException
+    {
+        final int numPoints = coordinates.length / zDimension;
+        final int numBands  = numSampleDimensions;
+        final Element[] slices;
+        final double[] z;
+        try {
+            int count = 0;
+            final Element[] selected = new Element[elements.length];
+            for (final Element element : elements) {
+                if (zRange == null || zRange.intersectsAny(element.getZRange())) {
+                    selected[count++] = element;
+                }
+            }
+            slices = ArraysExt.resize(selected, count);
+            z = new double[count];
+            for (int i=0; i<count; i++) {
+                z[i] = getZ(slices[i]);
+            }
+        } catch (IOException exception) {
+            throw cannotLoad(exception);
+        }
+        final double[] values = new double[slices.length * numPoints * numBands];
+        final boolean interpolate = interpolationEnabled;
+        Future<Coverage> next = null;
+        try {
+            for (int s=0; s<slices.length; s++) {
+                final Coverage coverage;
+                if (next != null) {
+                    coverage = next.get();
+                    next = null;
+                } else {
+                    logLoading(Vocabulary.Keys.LOADING_IMAGE_1, new String[] {slices[s].getName()});
+                    coverage = load(slices[s], interpolate);
+                }
+                if (prefetcher != null && s+1 < slices.length) {
+                    final Element element = slices[s+1];
+                    next = prefetcher.submit(new Callable<Coverage>() {
+                        @Override public Coverage call() throws IOException {
+                            return load(element, interpolate);
+                        }
+                    });
+                }
+                /*
+                 * Evaluates all positions in the current element. If the coverage has the same
+                 * dimension than this stack, the z ordinate is set to the center of the element.
+                 */
+                final int dimension = coverage.getCoordinateReferenceSystem().getCoordinateSystem().getDimension();
+                final GeneralDirectPosition position = new GeneralDirectPosition(dimension);
+                if (dimension > zDimension) {
+                    Arrays.fill(position.ordinates, zDimension, dimension, z[s]);
+                }
+                double[] buffer = null;
+                int src = 0;
+                int dst = s * numPoints * numBands;
+                for (int p=0; p<numPoints; p++) {
+                    System.arraycopy(coordinates, src, position.ordinates, 0, zDimension);
+                    src += zDimension;
+                    try {
+                        buffer = coverage.evaluate(position, buffer);
+                        System.arraycopy(buffer, 0, values, dst, numBands);
+                    } catch (PointOutsideCoverageException exception) {
+                        Arrays.fill(values, dst, dst + numBands, NaN);
+                    }
+                    dst += numBands;
+                }
+            }
+        } catch (IOException exception) {
+            throw cannotLoad(exception);
+        } catch (ExecutionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw cannotLoad((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new CannotEvaluateException(cause.toString(), cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new CannotEvaluateException(exception.toString(), exception);
+        } finally {
+            if (next != null) {
+                next.cancel(true);
+            }
+        }
+        return new Series(z, values, numPoints, numBands);
+    }
+
+    /**
+     * Wraps the given exception in an exception for the {@code evaluate} methods.
+     */
+    private static CannotEvaluateException cannotLoad(final IOException exception) {
+        String message = exception.getLocalizedMessage();
+        if (message == null) {
+            message = Classes.getShortClassName(exception);
+        }
+        return new CannotEvaluateException(message, exception);
+    }
+
     /**
      * Returns the crs dimension index from where the <var>z</var> varies.
      * This information is mandatory.
@@ -18,10 +18,13 @@
 package org.geotoolkit.coverage;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.sis.measure.NumberRange;
 import org.geotoolkit.coverage.grid.GridCoverage2D;
 import org.geotoolkit.coverage.grid.GridCoverageBuilder;
@@ -155,6 +158,53 @@ public class GridCoverageStackTest {
 
     }
 
+    /**
+     * Verify batch evaluation of many positions over a range of slices.
+     */
+    @Test
+    public void testSeries() throws FactoryException, IOException, TransformException{
+
+        final CoordinateReferenceSystem horizontal = CommonCRS.WGS84.normalizedGeographic();
+        final CoordinateReferenceSystem vertical = CommonCRS.Vertical.ELLIPSOIDAL.crs();
+        final CoordinateReferenceSystem crs = new DefaultCompoundCRS(name("wgs84+ele"), horizontal, vertical);
+
+        final GridCoverage2D slice0 = createSlice3D(10, 10, 10, crs);
+        final GridCoverage2D slice1 = createSlice3D(10, 10, 20, crs);
+        final GridCoverage2D slice2 = createSlice3D(10, 10, 50, crs);
+        final GridCoverage2D[] slices = {slice0, slice1, slice2};
+        final int[] values = {10, 20, 50};
+        for (int i=0; i<slices.length; i++) {
+            final WritableRaster raster = ((BufferedImage) slices[i].getRenderedImage()).getRaster();
+            final int value = values[i];
+            for (int y=0; y<raster.getHeight(); y++) {
+                for (int x=0; x<raster.getWidth(); x++) {
+                    raster.setSample(x, y, 0, value);
+                }
+            }
+        }
+        final GridCoverageStack stack = new GridCoverageStack(null, Arrays.asList(slice0,slice1,slice2), 2);
+        final double[] positions = {2.5, 3.5,  200, 200,  6.5, 5.5};
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (final ExecutorService prefetcher : Arrays.asList(null, executor)) {
+                final CoverageStack.Series series = stack.evaluate(positions, NumberRange.create(15.0, true, 60.0, true), prefetcher);
+                final double[] z = series.getZValues();
+                assertEquals(2, z.length);
+                assertTrue(z[0] >= 15 && z[0] < z[1] && z[1] <= 60);
+                assertEquals(3, series.getNumPoints());
+                assertEquals(20, series.getValue(0, 0, 0), DELTA);
+                assertTrue(Double.isNaN(series.getValue(0, 1, 0)));
+                assertEquals(20, series.getValue(0, 2, 0), DELTA);
+                assertEquals(50, series.getValue(1, 0, 0), DELTA);
+                assertTrue(Double.isNaN(series.getValue(1, 1, 0)));
+                assertEquals(50, series.getValue(1, 2, 0), DELTA);
+                assertEquals(2 * 3 * series.getNumSampleDimensions(), series.getValues().length);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private static GridCoverageStack createCube4D(int width, int height, CoordinateReferenceSystem crs)
             throws IOException, TransformException, FactoryException{
         final GridCoverageStack slice0 = createSubStack3D(width, height, 3, crs);
@@ -108,6 +108,14 @@ public final class GO2Hints extends Static {
      * If you need a better implementation using a different placement/rendering algorithm
      * then you can provide the label renderer with this hint.
      * The given class must be an instance of org.geotoolkit.display2d.style.labeling.LabelRenderer
+     * <p>
+     * Available implementations are :
+     * <ul>
+     *   <li>org.geotoolkit.display2d.style.labeling.decimate.DecimationLabelRenderer : removes overlapping labels</li>
+     *   <li>org.geotoolkit.display2d.style.labeling.decimate.GridDecimationLabelRenderer : removes overlapping labels
+     *   by layer priority, using a grid index, faster on dense layers</li>
+     *   <li>org.geotoolkit.display2d.ext.labeling.DisplacementLabelRenderer : displaces labels to avoid overlaps</li>
+     * </ul>
      */
     public static final Key KEY_LABEL_RENDERER_CLASS = new NamedKey(Class.class, "GO2 - Label Renderer");
 
@@ -152,6 +160,27 @@ public final class GO2Hints extends Static {
      */
     public static final Key KEY_ELEVATION_MODEL = new NamedKey(ElevationModel.class, "GO2 - Default Elevation Model");
     
+    /**
+     * Single band coverages without color map are rendered with a grey ramp
+     * between the coverage minimum and maximum values. When this ratio is set,
+     * the ramp is stretched between the given percentile and its opposite,
+     * for example 0.02 for a 2% - 98% stretch. Percentiles are estimated
+     * from the coverage histogram.
+     *
+     * Default value is null, minimum and maximum values are used.
+     */
+    public static final Key KEY_STRETCH_PERCENTILE = new NamedKey(Number.class, "GO2 - Stretch percentile");
+
+    /**
+     * Pyramidal coverage tiles are read and styled one after the other by default.
+     * When activated, each tile is styled in a separate buffer by a pool of threads,
+     * buffers are then painted in the tile reception order. Styled tiles are reused
+     * when the same view is painted again.
+     *
+     * Default value is false.
+     */
+    public static final Key KEY_PARALLEL_TILES = new NamedKey(Boolean.class, "GO2 - Parallel tiles");
+
     /**
      * Configure the PyramidalCoverageReference view, false by default in stateless mode, 
      * true in statefull mode.
@@ -184,6 +213,8 @@ public final class GO2Hints extends Static {
     public static final Boolean COVERAGE_WRITER_OFF = Boolean.FALSE;
     public static final Boolean PARALLAL_BUFFER_ON = Boolean.TRUE;
     public static final Boolean PARALLAL_BUFFER_OFF = Boolean.FALSE;
+    public static final Boolean PARALLEL_TILES_ON = Boolean.TRUE;
+    public static final Boolean PARALLEL_TILES_OFF = Boolean.FALSE;
     public static final Boolean VIEW_TILE_ON  = Boolean.TRUE;
     public static final Boolean VIEW_TILE_OFF = Boolean.FALSE;
 
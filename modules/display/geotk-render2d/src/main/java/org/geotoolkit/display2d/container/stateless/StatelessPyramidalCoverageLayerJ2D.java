@@ -49,6 +49,7 @@ import org.geotoolkit.display2d.style.CachedSymbolizer;
 import org.geotoolkit.display2d.style.renderer.DefaultRasterSymbolizerRenderer;
 import org.geotoolkit.feature.type.Name;
 import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.internal.Threads;
 import org.geotoolkit.internal.referencing.CRSUtilities;
 import org.geotoolkit.map.CoverageMapLayer;
 import org.geotoolkit.map.GraphicBuilder;
@@ -62,33 +63,67 @@ import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
+import org.opengis.style.Symbolizer;
 import org.opengis.util.FactoryException;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
+import org.apache.sis.internal.referencing.j2d.AffineTransform2D;
 import org.geotoolkit.coverage.finder.DefaultCoverageFinder;
 
 /**
  * Graphic for pyramidal coverage layers.
+ * <p>
+ * Tiles are styled one after the other in the rendering thread, unless the
+ * {@link GO2Hints#KEY_PARALLEL_TILES} hint is set. In this case, each tile is styled
+ * in its own buffer by a pool of threads and buffers are painted in the tile reception
+ * order. Styled tiles of the last completed rendering are kept and reused when the same
+ * view is painted again, for example when another layer changes.
  *
  * @author Johann Sorel (Geomatys)
  * @module pending
  */
 public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<CoverageMapLayer> implements CoverageStoreListener{
 
+    /**
+     * Executor styling tiles in parallel mode. This is not the shared worker pool
+     * since styling operations may submit their own work in it and wait for it.
+     */
+    private static final ThreadPoolExecutor TILE_EXECUTOR;
+    static {
+        final int n = Runtime.getRuntime().availableProcessors();
+        TILE_EXECUTOR = new ThreadPoolExecutor(n, n, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), Threads.createThreadFactory("Tile renderer #"));
+        TILE_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     protected CoverageStoreListener.Weak weakStoreListener = new CoverageStoreListener.Weak(this);
 
     private final PyramidalCoverageReference model;
     private final double tolerance;
     private final CoverageFinder coverageFinder;
 
+    /** Styled tiles of the last completed parallel rendering. */
+    private volatile Map<List<Object>,StyledTile> previousTiles = Collections.emptyMap();
+
     public StatelessPyramidalCoverageLayerJ2D(final J2DCanvas canvas, final CoverageMapLayer layer){
         super(canvas, layer, false);
         this.coverageFinder = new DefaultCoverageFinder();
@@ -119,6 +154,11 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
             return;
         }
         
+        //world wrap repetitions are not supported by tile buffers
+        final ParallelTiles parallel = (context2D.wraps == null && GO2Hints.PARALLEL_TILES_ON.equals(
+                context2D.getRenderingHints().get(GO2Hints.KEY_PARALLEL_TILES)))
+                ? new ParallelTiles(context2D, result) : null;
+
         //tiles to render
         final Map<Point,MathTransform> queries = new HashMap<Point,MathTransform>();
         final Map hints = new HashMap(item.getUserProperties());
@@ -131,6 +171,10 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
                 }
 
                 final Point pt = new Point(tileCol, tileRow);
+                if(parallel != null && parallel.reuse(pt)){
+                    //tile already styled for this view
+                    continue;
+                }
                 final MathTransform trs = AbstractGridMosaic.getTileGridToCRS(result.mosaic, pt);
                 queries.put(pt,trs);
             }
@@ -139,6 +183,9 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
         //paint tiles ----------------------------------------------------------
         if(queries.isEmpty()){
             //bypass if no queries
+            if(parallel != null){
+                parallel.finish();
+            }
             return;
         }
         Integer maxTiles = (Integer)context2D.getRenderingHints().get(GO2Hints.KEY_MAX_TILES);
@@ -170,7 +217,10 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
                 if(queue instanceof Cancellable){
                     ((Cancellable)queue).cancel();
                 }
-                break;
+                if(parallel != null){
+                    parallel.cancel();
+                }
+                return;
             }
 
             if(obj == GridMosaic.END_OF_QUEUE){
@@ -179,14 +229,25 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
 
             if(obj instanceof TileReference){
                 final TileReference tile = (TileReference)obj;
-                try {
-                    paintTile(context2D, params, result.rules, result.pyramid.getId(), result.mosaic.getId(), tile);
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Error on tile : "+tile.getPosition()+". Input is : "+tile.getInput(), e);
+                if(parallel != null){
+                    parallel.submit(params, tile);
+                }else{
+                    try {
+                        paintTile(context2D, params, result.rules, result.pyramid.getId(), result.mosaic.getId(), tile);
+                    } catch (Exception e) {
+                        LOGGER.log(Level.WARNING, "Error on tile : "+tile.getPosition()+". Input is : "+tile.getInput(), e);
+                    }
                 }
             }
+
+            if(parallel != null){
+                parallel.paintDone();
+            }
         }
 
+        if(parallel != null){
+            parallel.finish();
+        }
     }
 
     /**
@@ -436,21 +497,30 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
         return new ProjectedCoverage(params, tilelayer);
     }
     
-    private void paintTile(final RenderingContext2D context, StatelessContextParams params, CachedRule[] rules,
+    /**
+     * @return true if the tile has been styled without error
+     */
+    private boolean paintTile(final RenderingContext2D context, StatelessContextParams params, CachedRule[] rules,
             final String pyramidId, final String mosaicId, final TileReference tile) {
         final PyramidalCoverageReference covRef = (PyramidalCoverageReference) item.getCoverageReference();
         
         final ProjectedCoverage projectedCoverage = asCoverage(context, 
                 params, covRef, pyramidId, mosaicId, tile);
+        if(projectedCoverage == null){
+            return false;
+        }
+        boolean success = true;
         for(final CachedRule rule : rules){
             for(final CachedSymbolizer symbol : rule.symbolizers()){
                 try {
                     GO2Utilities.portray(projectedCoverage, symbol, context);
                 } catch (PortrayalException ex) {
                     context.getMonitor().exceptionOccured(ex, Level.WARNING);
+                    success = false;
                 }
             }
         }
+        return success;
     }
 
     @Override
@@ -459,6 +529,7 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
 
     @Override
     public void contentChanged(CoverageStoreContentEvent event) {
+        previousTiles = Collections.emptyMap();
         if(item.isVisible() && getCanvas().isAutoRepaint()){
             //TODO should call a repaint only on this graphic
             getCanvas().repaint();
@@ -466,6 +537,203 @@ public class StatelessPyramidalCoverageLayerJ2D extends StatelessMapLayerJ2D<Cov
     }
 
     
+    /**
+     * A tile styled in its own buffer.
+     */
+    private static final class StyledTile {
+        /** Tile display area. */
+        private final Rectangle bounds;
+        private final BufferedImage image;
+
+        private StyledTile(final Rectangle bounds, final BufferedImage image) {
+            this.bounds = bounds;
+            this.image = image;
+        }
+    }
+
+    /**
+     * Style tiles of a rendering in parallel and paint them in submission order.
+     * All methods must be called from the rendering thread.
+     */
+    private final class ParallelTiles {
+
+        private final RenderingContext2D context;
+        private final TileSetResult result;
+        /** Everything except the tile position which changes the styled tile. */
+        private final List<Object> view;
+        private final Map<List<Object>,StyledTile> tiles = new HashMap<>();
+        private final LinkedList<Future<StyledTile>> pending = new LinkedList<>();
+
+        private ParallelTiles(final RenderingContext2D context, final TileSetResult result) {
+            this.context = context;
+            this.result = result;
+
+            final List<Symbolizer> symbolizers = new ArrayList<>();
+            for(final CachedRule rule : result.rules){
+                for(final CachedSymbolizer symbol : rule.symbolizers()){
+                    symbolizers.add((Symbolizer)symbol.getSource());
+                }
+            }
+            this.view = Arrays.asList(
+                    result.pyramid.getId(), result.mosaic.getId(), symbolizers,
+                    new AffineTransform2D(context.getObjectiveToDisplay()),
+                    new Rectangle(context.getCanvasDisplayBounds()),
+                    Arrays.asList(context.getTemporalRange().clone()),
+                    Arrays.asList(context.getElevationRange().clone()),
+                    DefaultRasterSymbolizerRenderer.extractQuery(item),
+                    item.getElevationModel());
+        }
+
+        private List<Object> key(final Point position){
+            return Arrays.asList(view, position);
+        }
+
+        /**
+         * Paint the tile if it has been styled in the previous rendering.
+         *
+         * @return true if tile has been painted
+         */
+        private boolean reuse(final Point position){
+            final List<Object> key = key(position);
+            final StyledTile tile = previousTiles.get(key);
+            if(tile == null){
+                return false;
+            }
+            synchronized(tiles){
+                tiles.put(key, tile);
+            }
+            paint(tile);
+            return true;
+        }
+
+        /**
+         * Start styling a tile. The tile is kept for the next rendering only if it
+         * has been styled without error, a failed tile is styled again next time.
+         */
+        private void submit(final StatelessContextParams params, final TileReference tile){
+            final Rectangle bounds = getDisplayBounds(tile.getPosition());
+            if(bounds.isEmpty()){
+                return;
+            }
+            final List<Object> key = key(new Point(tile.getPosition()));
+            final BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D g = image.createGraphics();
+            g.translate(-bounds.x, -bounds.y);
+            //context copy is made in the rendering thread, where the canvas graphics is used
+            final RenderingContext2D tileContext = context.create(g);
+
+            pending.add(TILE_EXECUTOR.submit(new Callable<StyledTile>() {
+                @Override
+                public StyledTile call() {
+                    boolean success = false;
+                    try {
+                        success = paintTile(tileContext, params, result.rules, result.pyramid.getId(), result.mosaic.getId(), tile);
+                    } catch (Exception e) {
+                        LOGGER.log(Level.WARNING, "Error on tile : "+tile.getPosition()+". Input is : "+tile.getInput(), e);
+                    } finally {
+                        tileContext.dispose();
+                    }
+                    final StyledTile styled = new StyledTile(bounds, image);
+                    if(success){
+                        synchronized(tiles){
+                            tiles.put(key, styled);
+                        }
+                    }
+                    return styled;
+                }
+            }));
+        }
+
+        /**
+         * Paint the styled tiles, stops at the first tile not styled yet.
+         */
+        private void paintDone(){
+            while(!pending.isEmpty() && pending.getFirst().isDone()){
+                paint(pending.removeFirst());
+            }
+        }
+
+        /**
+         * Wait for all tiles and paint them. Rendering is stopped if the monitor requests it.
+         */
+        private void finish(){
+            final CanvasMonitor monitor = context.getMonitor();
+            while(!pending.isEmpty()){
+                if(monitor.stopRequested()){
+                    cancel();
+                    return;
+                }
+                try {
+                    pending.getFirst().get(50, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException ex) {
+                    //execution error is logged when painting
+                } catch (InterruptedException ex) {
+                    monitor.exceptionOccured(ex, Level.INFO);
+                    cancel();
+                    return;
+                }
+                paintDone();
+            }
+            synchronized(tiles){
+                previousTiles = new HashMap<>(tiles);
+            }
+        }
+
+        /**
+         * Stop styling remaining tiles.
+         */
+        private void cancel(){
+            for(final Iterator<Future<StyledTile>> ite = pending.iterator(); ite.hasNext();){
+                ite.next().cancel(true);
+                ite.remove();
+            }
+        }
+
+        private void paint(final Future<StyledTile> future){
+            try {
+                paint(future.get());
+            } catch (InterruptedException | ExecutionException ex) {
+                context.getMonitor().exceptionOccured(ex, Level.WARNING);
+            }
+        }
+
+        private void paint(final StyledTile tile){
+            context.switchToDisplayCRS();
+            final Graphics2D g = context.getGraphics();
+            final Composite composite = g.getComposite();
+            try {
+                g.setComposite(AlphaComposite.SrcOver);
+                g.drawImage(tile.image, tile.bounds.x, tile.bounds.y, null);
+            } finally {
+                g.setComposite(composite);
+            }
+        }
+
+        /**
+         * Tile area on the canvas, with one pixel margin for reprojection and
+         * interpolation. Whole canvas if tile envelope can not be transformed.
+         */
+        private Rectangle getDisplayBounds(final Point position){
+            final Rectangle canvasBounds = context.getCanvasDisplayBounds();
+            try {
+                final Envelope env = result.mosaic.getEnvelope(position.x, position.y);
+                final GeneralEnvelope env2D = new GeneralEnvelope(result.pyramidCRS2D);
+                env2D.setRange(0, env.getMinimum(0), env.getMaximum(0));
+                env2D.setRange(1, env.getMinimum(1), env.getMaximum(1));
+                final Envelope objEnv = CRS.transform(env2D, context.getObjectiveCRS2D());
+                final Envelope dispEnv = CRS.transform(context.getObjectiveToDisplay(), objEnv);
+                final int minX = (int)Math.floor(dispEnv.getMinimum(0)) - 1;
+                final int minY = (int)Math.floor(dispEnv.getMinimum(1)) - 1;
+                final int maxX = (int)Math.ceil(dispEnv.getMaximum(0)) + 1;
+                final int maxY = (int)Math.ceil(dispEnv.getMaximum(1)) + 1;
+                return new Rectangle(minX, minY, maxX-minX, maxY-minY).intersection(canvasBounds);
+            } catch (TransformException ex) {
+                LOGGER.log(Level.FINE, ex.getMessage(), ex);
+                return new Rectangle(canvasBounds);
+            }
+        }
+    }
+
     private static class TileSetResult{
         //style informations
         private CachedRule[] rules;
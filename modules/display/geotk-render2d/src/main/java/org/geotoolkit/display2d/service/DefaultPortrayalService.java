@@ -313,6 +313,26 @@ public final class DefaultPortrayalService implements PortrayalService{
         return new PortrayalRenderedImage(canvasDef, sceneDef, viewDef, gridSize, tileSize, scale);
     }
 
+    /**
+     * Create a rendered image which tile model maps the given definition.
+     * Tiles are rendered by blocks of metaTileSize*metaTileSize tiles, which shares
+     * data queries and label placement between the block tiles.
+     *
+     * @param canvasDef
+     * @param sceneDef
+     * @param viewDef
+     * @param gridSize
+     * @param tileSize
+     * @param scale
+     * @param metaTileSize number of tiles on each axis rendered at once
+     * @return RenderedImage , never null
+     * @see PortrayalRenderedImage
+     */
+    public static RenderedImage prepareImage(final CanvasDef canvasDef, final SceneDef sceneDef, final ViewDef viewDef,
+            final Dimension gridSize, final Dimension tileSize, final double scale, final int metaTileSize) throws PortrayalException{
+        return new PortrayalRenderedImage(canvasDef, sceneDef, viewDef, gridSize, tileSize, scale, metaTileSize);
+    }
+
     /**
      * Manipulate a MapContext as if it was an ARGB coverage of infinite resolution.
      *
@@ -25,6 +25,8 @@ import java.awt.geom.Point2D;
 import java.awt.image.*;
 import java.util.Deque;
 import java.util.EventListener;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.logging.Level;
@@ -41,6 +43,12 @@ import org.opengis.referencing.operation.TransformException;
 
 /**
  * On the fly calculated image.
+ * <p>
+ * Tiles can be rendered by blocks of N*N tiles, called metatiles. A metatile is
+ * rendered once then cut in tiles : data queries and style preparation are shared
+ * by all tiles of the metatile and labels are placed once, they are not cut at the
+ * tile borders inside the metatile. Metatile tiles not requested yet are kept for
+ * a few metatiles, callers should request tiles in row order.
  *
  * @author Johann Sorel (Geomatys)
  * @module pending
@@ -55,9 +63,10 @@ public class PortrayalRenderedImage implements RenderedImage{
     private final Dimension tileSize;
     private final double scale;
     private final Point2D upperleft;
-//    private final J2DCanvasBuffered canvas;
-    private final int nbtileonwidth;
-    private final int nbtileonheight;
+    /** number of tiles on each axis of a metatile. */
+    private final int metaTileSize;
+    /** rendered metatiles, in access order. */
+    private final Map<Point,MetaTile> metaTiles;
 
     private final CoordinateReferenceSystem crs;
     private final CanvasDef canvasDef;
@@ -79,6 +88,23 @@ public class PortrayalRenderedImage implements RenderedImage{
      */
     public PortrayalRenderedImage(final CanvasDef canvasDef, final SceneDef sceneDef, final ViewDef viewDef,
             final Dimension gridSize, final Dimension tileSize, final double scale) throws PortrayalException{
+        this(canvasDef, sceneDef, viewDef, gridSize, tileSize, scale, 1);
+    }
+
+    /**
+     *
+     * @param canvasDef : canvas size will be ignored
+     * @param sceneDef
+     * @param viewDef
+     * @param gridSize
+     * @param tileSize
+     * @param metaTileSize : number of tiles on each axis rendered at once, 1 to render tiles one by one
+     */
+    public PortrayalRenderedImage(final CanvasDef canvasDef, final SceneDef sceneDef, final ViewDef viewDef,
+            final Dimension gridSize, final Dimension tileSize, final double scale, final int metaTileSize) throws PortrayalException{
+        if(metaTileSize < 1){
+            throw new IllegalArgumentException("Metatile size must be at least 1 : "+metaTileSize);
+        }
         this.gridSize = gridSize;
         this.tileSize = tileSize;
         this.scale = scale;
@@ -95,25 +121,22 @@ public class PortrayalRenderedImage implements RenderedImage{
                 envelope.getMinimum(0),
                 envelope.getMaximum(1));
 
-        //prepare a J2DCanvas to render several tiles in the same tile
-        //we consider a 2000*2000 size to be the maximum, which is 16Mb in memory
-        //we expect the user to access tile lines by lines.
-//        final int maxNbTile = (2000*2000) / (tileSize.width*tileSize.height);
-
-//        if(maxNbTile < gridSize.width){
-//            //we can not generate a full line
-//            nbtileonwidth = maxNbTile;
-//            nbtileonheight = 1;
-//        }else{
-//            //we can generate more than one line
-//            nbtileonwidth = gridSize.width;
-//            nbtileonheight = maxNbTile / gridSize.width;
-//        }
-//
-        nbtileonheight = 1;
-        nbtileonwidth = 1;
-
+        //keep enough metatiles for a line of metatiles written in parallel
+        this.metaTileSize = metaTileSize;
+        final int maxMetaTiles = Math.max(2, Runtime.getRuntime().availableProcessors()) * 2;
+        this.metaTiles = new LinkedHashMap<Point,MetaTile>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Point,MetaTile> eldest) {
+                return size() > maxMetaTiles;
+            }
+        };
+    }
 
+    /**
+     * @return number of tiles on each axis rendered at once
+     */
+    public int getMetaTileSize() {
+        return metaTileSize;
     }
 
     /**
@@ -294,17 +317,51 @@ public class PortrayalRenderedImage implements RenderedImage{
 
     @Override
     public Raster getTile(int col, int row) {
+        final Raster data;
+        if(metaTileSize == 1){
+            data = render(col, row)[0];
+        }else{
+            final Point key = new Point(col/metaTileSize, row/metaTileSize);
+            MetaTile meta;
+            synchronized(metaTiles){
+                meta = metaTiles.get(key);
+                if(meta == null){
+                    meta = new MetaTile(key.x*metaTileSize, key.y*metaTileSize);
+                    metaTiles.put(key, meta);
+                }
+            }
+            data = meta.getTile(col, row);
+            if(meta.isConsumed()){
+                synchronized(metaTiles){
+                    if(metaTiles.get(key) == meta){
+                        metaTiles.remove(key);
+                    }
+                }
+            }
+        }
+        fireTileCreated(col,row);
+        return data;
+    }
 
+    /**
+     * Render a metatile.
+     *
+     * @param col first tile column
+     * @param row first tile row
+     * @return metatile tiles in row order, null for tiles outside of the grid
+     */
+    private Raster[] render(final int col, final int row){
+        final int nbTiles = metaTileSize;
         final double tilespanX = scale*tileSize.width;
         final double tilespanY = scale*tileSize.height;
 
         final GeneralEnvelope canvasEnv = new GeneralEnvelope(crs);
         canvasEnv.setRange(0,
                 upperleft.getX() + (col)*tilespanX,
-                upperleft.getX() + (col+nbtileonwidth)*tilespanX
+                upperleft.getX() + (col+nbTiles)*tilespanX
                 );
         canvasEnv.setRange(1,
-                upperleft.getY() - (row+nbtileonheight)*tilespanY,
+                upperleft.getY() - (row+nbTiles)*tilespanY,
                 upperleft.getY() - (row)*tilespanY
                 );
 
@@ -313,7 +370,7 @@ public class PortrayalRenderedImage implements RenderedImage{
         try {
             if(cvs == null){
                 cvs = new J2DCanvasBuffered(
-                    crs, new Dimension(tileSize.width,tileSize.height));
+                    crs, new Dimension(tileSize.width*nbTiles,tileSize.height*nbTiles));
                 cvs.setRenderingHint(GO2Hints.KEY_COLOR_MODEL, colorModel);
                 DefaultPortrayalService.prepareCanvas(cvs, canvasDef, sceneDef, viewDef);
             }
@@ -326,10 +383,19 @@ public class PortrayalRenderedImage implements RenderedImage{
         //cut the canvas buffer in pieces
         cvs.repaint();
         final BufferedImage canvasBuffer = cvs.getSnapShot();
-        final Raster data = canvasBuffer.getData(); // make a copy since we will reuse canvas
-        fireTileCreated(col,row);
+        final Raster[] tiles = new Raster[nbTiles*nbTiles];
+        for(int y=0; y<nbTiles; y++){
+            for(int x=0; x<nbTiles; x++){
+                //first tile is the requested one, others are skipped outside the grid
+                if((x > 0 || y > 0) && (col+x >= gridSize.width || row+y >= gridSize.height)) continue;
+                // make a copy since we will reuse canvas
+                tiles[y*nbTiles+x] = canvasBuffer.getData(new Rectangle(
+                        x*tileSize.width, y*tileSize.height, tileSize.width, tileSize.height))
+                        .createTranslatedChild(0, 0);
+            }
+        }
         canvas.push(cvs);
-        return data;
+        return tiles;
     }
 
     @Override
@@ -370,8 +436,8 @@ public class PortrayalRenderedImage implements RenderedImage{
         //calculate the first and last tiles index we will need
         final int startTileX = xsect.x / getTileWidth();
         final int startTileY = xsect.y / getTileHeight();
-        final int endTileX = (xsect.x+xsect.width) / getTileWidth();
-        final int endTileY = (xsect.y+xsect.height) / getTileHeight();
+        final int endTileX = (xsect.x+xsect.width-1) / getTileWidth();
+        final int endTileY = (xsect.y+xsect.height-1) / getTileHeight();
 
         //loop on each tile
         for (int j = startTileY; j <= endTileY; j++) {
@@ -408,6 +474,47 @@ public class PortrayalRenderedImage implements RenderedImage{
         listeners.remove(ProgressListener.class, listener);
     }
 
+    /**
+     * A block of tiles rendered at once, rendering is made by the first thread
+     * requesting one of its tiles.
+     */
+    private final class MetaTile {
+
+        private final int col;
+        private final int row;
+        private Raster[] tiles;
+        private boolean[] consumed;
+        private int nbConsumed = 0;
+
+        private MetaTile(final int col, final int row) {
+            this.col = col;
+            this.row = row;
+        }
+
+        private synchronized Raster getTile(final int tileCol, final int tileRow){
+            if(tiles == null){
+                tiles = render(col, row);
+                consumed = new boolean[tiles.length];
+            }
+            final int index = (tileRow-row)*metaTileSize + (tileCol-col);
+            if(!consumed[index]){
+                consumed[index] = true;
+                nbConsumed++;
+            }
+            return tiles[index];
+        }
+
+        /**
+         * @return true if all tiles of the metatile have been requested
+         */
+        private synchronized boolean isConsumed(){
+            if(tiles == null) return false;
+            final int nbX = Math.min(metaTileSize, gridSize.width-col);
+            final int nbY = Math.min(metaTileSize, gridSize.height-row);
+            return nbConsumed >= nbX*nbY;
+        }
+    }
+
     public static interface ProgressListener extends EventListener{
 
         void tileCreated(int x, int y);
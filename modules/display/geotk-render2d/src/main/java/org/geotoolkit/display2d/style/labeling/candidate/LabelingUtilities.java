@@ -20,6 +20,7 @@ package org.geotoolkit.display2d.style.labeling.candidate;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
@@ -212,17 +213,15 @@ public class LabelingUtilities {
         if(rect.intersectsLine(p4.getX(), p4.getY(), p3.getX(), p3.getY())) return true;
         if(rect.intersectsLine(p3.getX(), p3.getY(), p1.getX(), p1.getY())) return true;
 
-        //check that the polygon is not contained in the other
-        double minx = Math.min( Math.min(p1.getX(), p2.getX()), Math.min(p3.getX(), p4.getX()) );
-        double maxx = Math.max( Math.max(p1.getX(), p2.getX()), Math.max(p3.getX(), p4.getX()) );
-        double miny = Math.min( Math.min(p1.getY(), p2.getY()), Math.min(p3.getY(), p4.getY()) );
-        double maxy = Math.max( Math.max(p1.getY(), p2.getY()), Math.max(p3.getY(), p4.getY()) );
-
-        if(minx <=0 && maxx >= label1.width && miny <=0 && maxy >= label1Height){
-            return true;
-        }
-
-        return false;
+        //check that label1 is not contained in label2
+        //borders do not intersect, so testing a single point is enough
+        final Path2D quad = new Path2D.Double();
+        quad.moveTo(p1.getX(), p1.getY());
+        quad.lineTo(p2.getX(), p2.getY());
+        quad.lineTo(p4.getX(), p4.getY());
+        quad.lineTo(p3.getX(), p3.getY());
+        quad.closePath();
+        return quad.contains(label1.width/2.0, label1Height/2.0);
     }
 
     public static boolean intersects(final LinearCandidate linear, final PointCandidate point){
@@ -0,0 +1,154 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.style.labeling.decimate;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.geotoolkit.display2d.canvas.RenderingContext2D;
+import org.geotoolkit.display2d.style.labeling.DefaultLabelLayer;
+import org.geotoolkit.display2d.style.labeling.DefaultLabelRenderer;
+import org.geotoolkit.display2d.style.labeling.LabelDescriptor;
+import org.geotoolkit.display2d.style.labeling.LabelLayer;
+import org.geotoolkit.display2d.style.labeling.LinearLabelDescriptor;
+import org.geotoolkit.display2d.style.labeling.PointLabelDescriptor;
+import org.geotoolkit.display2d.style.labeling.candidate.Candidate;
+import org.geotoolkit.display2d.style.labeling.candidate.LinearCandidate;
+import org.geotoolkit.display2d.style.labeling.candidate.PointCandidate;
+
+/**
+ * Label renderer that remove overlapping labels, like {@link DecimationLabelRenderer},
+ * using a grid index of placed labels for collision tests.
+ * <p>
+ * Candidates are placed by priority : labels of the first appended layers are
+ * placed first, then in the order they were added in their layer. A candidate
+ * overlapping an already placed label is removed.
+ * <p>
+ * This renderer can be used with the {@link org.geotoolkit.display2d.GO2Hints#KEY_LABEL_RENDERER_CLASS}
+ * rendering hint.
+ *
+ * @author agent
+ * @module pending
+ */
+public class GridDecimationLabelRenderer extends DefaultLabelRenderer{
+
+    /**
+     * Order candidates by decreasing priority, keeps insertion order otherwise.
+     */
+    private static final Comparator<Candidate> PRIORITY_COMPARATOR = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate c1, Candidate c2) {
+            return c2.getPriority() - c1.getPriority();
+        }
+    };
+
+    private final List<LabelLayer> layers = new ArrayList<LabelLayer>();
+
+    private PointLabelCandidateRenderer pointRenderer;
+    private LinearLabelCandidateRenderer linearRenderer;
+
+    public GridDecimationLabelRenderer() {
+    }
+
+    @Override
+    public LabelLayer createLabelLayer() {
+        return new DefaultLabelLayer(false, true);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void setRenderingContext(final RenderingContext2D context){
+        super.setRenderingContext(context);
+        linearRenderer = new LinearLabelCandidateRenderer(context);
+        pointRenderer = new PointLabelCandidateRenderer(context);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public RenderingContext2D getRenderingContext() {
+        return context;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void append(final LabelLayer layer) {
+        layers.add(layer);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void portrayLabels(){
+        final Graphics2D g2 = context.getGraphics();
+        //enable antialiasing for labels
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        final List<Candidate> candidates = new ArrayList<Candidate>();
+
+        //generate all the candidates
+        //priority is in the order of the layers provided.
+        int priority = layers.size();
+        for(final LabelLayer layer : layers){
+            if(!layer.isLabelled()) continue;
+            for(LabelDescriptor label : layer.labels()){
+                final Candidate[] cs;
+                if(label instanceof PointLabelDescriptor){
+                    cs = pointRenderer.generateCandidat((PointLabelDescriptor) label);
+                }else if(label instanceof LinearLabelDescriptor){
+                    cs = linearRenderer.generateCandidat((LinearLabelDescriptor) label);
+                }else{
+                    cs = null;
+                }
+
+                if(cs != null){
+                    for(Candidate c : cs){
+                        if(c == null) continue;
+                        c.setPriority(priority);
+                        candidates.add(c);
+                    }
+                }
+            }
+            priority--;
+        }
+        layers.clear();
+
+        //place candidates, sort is stable so labels keep their layer order
+        Collections.sort(candidates, PRIORITY_COMPARATOR);
+        final LabelCollisionGrid grid = new LabelCollisionGrid();
+        for(Candidate candidate : candidates){
+            if(candidate instanceof PointCandidate){
+                if(grid.addIfFree((PointCandidate) candidate)){
+                    pointRenderer.render(candidate);
+                }
+            }else if(candidate instanceof LinearCandidate){
+                //linear labels are not tested for collisions, as in decimation renderer
+                linearRenderer.render(candidate);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.style.labeling.decimate;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.geotoolkit.display2d.style.labeling.candidate.LabelingUtilities;
+import org.geotoolkit.display2d.style.labeling.candidate.PointCandidate;
+
+/**
+ * Spatial hash of placed point label candidates, in display coordinates.
+ * Each placed label is registered in all the grid cells its bounds overlaps,
+ * a collision test only compares the new candidate with labels sharing a cell,
+ * instead of all placed labels.
+ * <p>
+ * Exact collision tests are delegated to {@link LabelingUtilities#intersects(PointCandidate, PointCandidate)},
+ * results are the same as a linear scan over all placed labels.
+ *
+ * @author agent
+ * @module pending
+ */
+public class LabelCollisionGrid {
+
+    /** Default cell size in pixels, about the size of a short label. */
+    public static final int DEFAULT_CELL_SIZE = 64;
+
+    private final int cellSize;
+    private final Map<Long,List<Entry>> cells = new HashMap<Long, List<Entry>>();
+    /** Increment at each query, used to test each entry only once. */
+    private int query = 0;
+    private int size = 0;
+
+    public LabelCollisionGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize grid cell size in pixels
+     */
+    public LabelCollisionGrid(final int cellSize) {
+        if(cellSize <= 0){
+            throw new IllegalArgumentException("Cell size must be positive : "+cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * @return number of labels in the grid
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all labels.
+     */
+    public void clear() {
+        cells.clear();
+        size = 0;
+    }
+
+    /**
+     * Test if the candidate intersects a label of the grid.
+     *
+     * @param candidate tested candidate
+     * @return true if candidate overlaps a placed label
+     */
+    public boolean intersects(final PointCandidate candidate) {
+        return intersects(candidate, getBounds(candidate));
+    }
+
+    /**
+     * Add the candidate in the grid.
+     *
+     * @param candidate candidate to place
+     */
+    public void add(final PointCandidate candidate) {
+        add(candidate, getBounds(candidate));
+    }
+
+    /**
+     * Add the candidate in the grid if it doesn't intersect a placed label.
+     *
+     * @param candidate candidate to place
+     * @return true if candidate has been added
+     */
+    public boolean addIfFree(final PointCandidate candidate) {
+        final Rectangle2D bounds = getBounds(candidate);
+        if(intersects(candidate, bounds)){
+            return false;
+        }
+        add(candidate, bounds);
+        return true;
+    }
+
+    private boolean intersects(final PointCandidate candidate, final Rectangle2D bounds) {
+        query++;
+        final int minX = cell(bounds.getMinX());
+        final int maxX = cell(bounds.getMaxX());
+        final int minY = cell(bounds.getMinY());
+        final int maxY = cell(bounds.getMaxY());
+        for(int y=minY; y<=maxY; y++){
+            for(int x=minX; x<=maxX; x++){
+                final List<Entry> entries = cells.get(key(x, y));
+                if(entries == null) continue;
+                for(int i=0,n=entries.size(); i<n; i++){
+                    final Entry entry = entries.get(i);
+                    if(entry.query == query) continue;
+                    entry.query = query;
+                    if(entry.bounds.intersects(bounds)
+                            && LabelingUtilities.intersects(candidate, entry.candidate)){
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void add(final PointCandidate candidate, final Rectangle2D bounds) {
+        final Entry entry = new Entry(candidate, bounds);
+        final int minX = cell(bounds.getMinX());
+        final int maxX = cell(bounds.getMaxX());
+        final int minY = cell(bounds.getMinY());
+        final int maxY = cell(bounds.getMaxY());
+        for(int y=minY; y<=maxY; y++){
+            for(int x=minX; x<=maxX; x++){
+                final Long key = key(x, y);
+                List<Entry> entries = cells.get(key);
+                if(entries == null){
+                    entries = new ArrayList<Entry>(4);
+                    cells.put(key, entries);
+                }
+                entries.add(entry);
+            }
+        }
+        size++;
+    }
+
+    private int cell(final double coord) {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    private static long key(final int x, final int y) {
+        return (((long) x) << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Compute the display bounds of a candidate, including its rotation.
+     * Bounds are enlarged by one pixel since labels touching each other are not
+     * considered as intersecting by the exact test.
+     *
+     * @param candidate point candidate
+     * @return candidate bounds in display coordinates
+     */
+    static Rectangle2D getBounds(final PointCandidate candidate) {
+        final double rotation = Math.toRadians(candidate.getDescriptor().getRotation());
+        final double x = candidate.getCorrectedX();
+        final double y = candidate.getCorrectedY();
+        final double[] corners = new double[]{
+            0,               -candidate.upper,
+            candidate.width, -candidate.upper,
+            0,                candidate.lower,
+            candidate.width,  candidate.lower
+        };
+        if(rotation != 0){
+            AffineTransform.getRotateInstance(rotation).transform(corners, 0, corners, 0, 4);
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(int i=0; i<corners.length; i+=2){
+            minX = Math.min(minX, corners[i]);
+            maxX = Math.max(maxX, corners[i]);
+            minY = Math.min(minY, corners[i+1]);
+            maxY = Math.max(maxY, corners[i+1]);
+        }
+        return new Rectangle2D.Double(x+minX-1, y+minY-1, maxX-minX+2, maxY-minY+2);
+    }
+
+    private static final class Entry {
+
+        private final PointCandidate candidate;
+        private final Rectangle2D bounds;
+        private int query;
+
+        private Entry(final PointCandidate candidate, final Rectangle2D bounds) {
+            this.candidate = candidate;
+            this.bounds = bounds;
+        }
+    }
+
+}
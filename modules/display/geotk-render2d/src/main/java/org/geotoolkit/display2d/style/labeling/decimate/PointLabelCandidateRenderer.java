@@ -18,12 +18,15 @@
 package org.geotoolkit.display2d.style.labeling.decimate;
 
 import java.awt.BasicStroke;
+import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
 import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geotoolkit.display2d.canvas.RenderingContext2D;
@@ -33,6 +36,10 @@ import org.geotoolkit.display2d.style.labeling.candidate.PointCandidate;
 import org.opengis.referencing.operation.TransformException;
 
 /**
+ * Point label candidate generator and renderer.
+ * Text widths and glyph vectors are cached by text, font and font render context,
+ * they are computed only once for all candidates of a same label text. Caches keep
+ * the most recently used entries only.
  *
  * @author Johann Sorel (Geomatys)
  * @module pending
@@ -41,6 +48,11 @@ public class PointLabelCandidateRenderer implements LabelCandidateRenderer<Point
 
     private final RenderingContext2D context;
     private final Graphics2D g2;
+    /** Maximum number of entries in each text cache. */
+    private static final int CACHE_SIZE = 512;
+
+    private final Map<TextKey,Integer> widths = new LRUCache<Integer>();
+    private final Map<TextKey,GlyphVector> glyphs = new LRUCache<GlyphVector>();
 
     public PointLabelCandidateRenderer(final RenderingContext2D context) {
         this.context = context;
@@ -60,14 +72,15 @@ public class PointLabelCandidateRenderer implements LabelCandidateRenderer<Point
         if(shapes == null) return null;
 
         final Candidate[] candidates = new Candidate[shapes.length];
-        
+
+        final FontMetrics metric = context.getFontMetrics(label.getTextFont());
+        final int textUpper = metric.getAscent();
+        final int textLower = metric.getDescent();
+        final int textWidth = getTextWidth(metric, label.getTextFont(), label.getText());
+
         for(int i=0; i<shapes.length; i++){
             Shape shape = shapes[i];
 
-            final FontMetrics metric = context.getFontMetrics(label.getTextFont());
-            final int textUpper = metric.getAscent();
-            final int textLower = metric.getDescent();
-            final int textWidth = metric.stringWidth(label.getText());
             final Rectangle2D rect = shape.getBounds2D();
             if(rect == null) return null;
 
@@ -129,8 +142,7 @@ public class PointLabelCandidateRenderer implements LabelCandidateRenderer<Point
         //paint halo------------------------------------------------------------
         final float haloWidth = label.getHaloWidth();
         if(haloWidth > 0){
-            final FontRenderContext fontContext = g2.getFontRenderContext();
-            final GlyphVector glyph = label.getTextFont().createGlyphVector(fontContext, label.getText());
+            final GlyphVector glyph = getGlyphVector(label.getTextFont(), label.getText());
             final Shape shape = glyph.getOutline(pointCandidate.getCorrectedX(), pointCandidate.getCorrectedY());
             g2.setPaint(label.getHaloPaint());
             g2.setStroke(new BasicStroke(haloWidth*2,BasicStroke.CAP_ROUND,BasicStroke.JOIN_ROUND));
@@ -149,4 +161,74 @@ public class PointLabelCandidateRenderer implements LabelCandidateRenderer<Point
         
     }
 
+    private int getTextWidth(final FontMetrics metric, final Font font, final String text){
+        final TextKey key = new TextKey(font, metric.getFontRenderContext(), text);
+        synchronized(widths){
+            Integer width = widths.get(key);
+            if(width == null){
+                width = metric.stringWidth(text);
+                widths.put(key, width);
+            }
+            return width;
+        }
+    }
+
+    private GlyphVector getGlyphVector(final Font font, final String text){
+        final FontRenderContext fontContext = g2.getFontRenderContext();
+        final TextKey key = new TextKey(font, fontContext, text);
+        synchronized(glyphs){
+            GlyphVector glyph = glyphs.get(key);
+            if(glyph == null){
+                glyph = font.createGlyphVector(fontContext, text);
+                glyphs.put(key, glyph);
+            }
+            return glyph;
+        }
+    }
+
+    /**
+     * Text, font and font render context, used as cache key.
+     * The render context is part of the key since widths and glyphs
+     * depend on the transform and hints of the graphics.
+     */
+    private static final class TextKey {
+
+        private final Font font;
+        private final FontRenderContext fontContext;
+        private final String text;
+
+        private TextKey(final Font font, final FontRenderContext fontContext, final String text) {
+            this.font = font;
+            this.fontContext = fontContext;
+            this.text = text;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * font.hashCode() + fontContext.hashCode()) + text.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if(!(obj instanceof TextKey)) return false;
+            final TextKey other = (TextKey) obj;
+            return text.equals(other.text) && font.equals(other.font) && fontContext.equals(other.fontContext);
+        }
+    }
+
+    /**
+     * Access ordered map dropping the least recently used entry beyond {@link #CACHE_SIZE}.
+     */
+    private static final class LRUCache<V> extends LinkedHashMap<TextKey,V> {
+
+        private LRUCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<TextKey,V> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    }
+
 }
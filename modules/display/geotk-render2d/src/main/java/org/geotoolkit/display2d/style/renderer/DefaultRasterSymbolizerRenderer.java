@@ -50,6 +50,7 @@ import org.geotoolkit.coverage.io.GridCoverageReader;
 import org.geotoolkit.coverage.processing.CoverageProcessingException;
 import org.geotoolkit.data.query.Query;
 import org.geotoolkit.display.PortrayalException;
+import org.geotoolkit.display2d.GO2Hints;
 import org.geotoolkit.display2d.GO2Utilities;
 import org.geotoolkit.display2d.canvas.RenderingContext2D;
 import org.geotoolkit.display2d.primitive.ProjectedCoverage;
@@ -73,6 +74,7 @@ import org.geotoolkit.map.ElevationModel;
 import org.geotoolkit.parameter.ParametersExt;
 import org.geotoolkit.process.ProcessDescriptor;
 import org.geotoolkit.process.ProcessException;
+import org.geotoolkit.process.coverage.statistics.CoverageStatisticsProvider;
 import org.geotoolkit.process.coverage.statistics.ImageStatistics;
 import org.geotoolkit.process.coverage.statistics.StatisticOp;
 import org.geotoolkit.process.coverage.resample.ResampleDescriptor;
@@ -317,7 +319,7 @@ public class DefaultRasterSymbolizerRenderer extends AbstractCoverageSymbolizerR
             // 4 - Apply style                                                //
             ////////////////////////////////////////////////////////////////////
 
-            RenderedImage dataImage = applyStyle(dataCoverage, elevationCoverage, coverageLayer.getElevationModel(), sourceSymbol, hints, isReprojected);
+            RenderedImage dataImage = applyStyle(coverageLayer.getCoverageReference(), dataCoverage, elevationCoverage, coverageLayer.getElevationModel(), sourceSymbol, hints, isReprojected);
             final MathTransform2D trs2D = dataCoverage.getGridGeometry().getGridToCRS2D(PixelOrientation.UPPER_LEFT);
 
             ////////////////////////////////////////////////////////////////////
@@ -699,6 +701,24 @@ public class DefaultRasterSymbolizerRenderer extends AbstractCoverageSymbolizerR
      */
     public static RenderedImage applyStyle(GridCoverage2D coverage, GridCoverage2D elevationCoverage, final ElevationModel elevationModel, final RasterSymbolizer styleElement,
                 final RenderingHints hints, boolean isReprojected) throws PortrayalException, ProcessException, FactoryException, TransformException, IOException {
+        return applyStyle(null, coverage, elevationCoverage, elevationModel, styleElement, hints, isReprojected);
+    }
+
+    /**
+     *
+     * @param ref : coverage reference, used to get the coverage statistics when
+     *       the style requieres them, can be null
+     * @param coverage
+     * @param styleElement
+     * @param hints
+     * @param isReprojected : if the coverage was rerprojected, this implies some
+     *       black borders might have been added on the image
+     * @return
+     * @throws PortrayalException
+     */
+    public static RenderedImage applyStyle(CoverageReference ref, GridCoverage2D coverage, GridCoverage2D elevationCoverage, final ElevationModel elevationModel,
+                final RasterSymbolizer styleElement, final RenderingHints hints, boolean isReprojected)
+                throws PortrayalException, ProcessException, FactoryException, TransformException, IOException {
 
         //band select ----------------------------------------------------------
         //works as a JAI operation
@@ -717,12 +737,23 @@ public class DefaultRasterSymbolizerRenderer extends AbstractCoverageSymbolizerR
                 break recolorCase;
             }
             ri = coverage.view(ViewType.GEOPHYSICS).getRenderedImage();
-            final ImageStatistics analyse = Statistics.analyse(ri, true);
-            final ImageStatistics.Band band0 = analyse.getBand(0);
+            final ImageStatistics.Band band0 = getStatistics(ref, ri).getBand(0);
+            double min = band0.getMin();
+            double max = band0.getMax();
+            final Object percentile = (hints == null) ? null : hints.get(GO2Hints.KEY_STRETCH_PERCENTILE);
+            if (percentile instanceof Number) {
+                final double ratio = ((Number) percentile).doubleValue();
+                final Double low = band0.getPercentile(ratio);
+                final Double high = band0.getPercentile(1 - ratio);
+                if (low != null && high != null && low < high) {
+                    min = low;
+                    max = high;
+                }
+            }
             final List<InterpolationPoint> values = new ArrayList<InterpolationPoint>();
             values.add( GO2Utilities.STYLE_FACTORY.interpolationPoint(Float.NaN, GO2Utilities.STYLE_FACTORY.literal(new Color(0,0,0,0))));
-            values.add( GO2Utilities.STYLE_FACTORY.interpolationPoint(band0.getMin(), GO2Utilities.STYLE_FACTORY.literal(Color.BLACK)));
-            values.add( GO2Utilities.STYLE_FACTORY.interpolationPoint(band0.getMax(), GO2Utilities.STYLE_FACTORY.literal(Color.WHITE)));
+            values.add( GO2Utilities.STYLE_FACTORY.interpolationPoint(min, GO2Utilities.STYLE_FACTORY.literal(Color.BLACK)));
+            values.add( GO2Utilities.STYLE_FACTORY.interpolationPoint(max, GO2Utilities.STYLE_FACTORY.literal(Color.WHITE)));
             final Expression lookup = StyleConstants.DEFAULT_CATEGORIZE_LOOKUP;
             final Literal fallback = StyleConstants.DEFAULT_FALLBACK;
             final Function function = GO2Utilities.STYLE_FACTORY.interpolateFunction(
@@ -901,6 +932,28 @@ public class DefaultRasterSymbolizerRenderer extends AbstractCoverageSymbolizerR
         return new ShadedReliefOp(img, null, null, null);
     }
 
+    /**
+     * Get the statistics of the whole coverage if possible, statistics of the
+     * given image otherwise.
+     *
+     * @param ref coverage reference, can be null
+     * @param image geophysics image to analyse if coverage statistics are not available
+     */
+    private static ImageStatistics getStatistics(final CoverageReference ref, final RenderedImage image) throws ProcessException {
+        if (ref != null) {
+            try {
+                final ImageStatistics stats = CoverageStatisticsProvider.getStatistics(ref);
+                //band selection may have been applied on multiple bands coverages
+                if (stats.getBands().length == 1) {
+                    return stats;
+                }
+            } catch (ProcessException ex) {
+                LOGGER.log(Level.INFO, ex.getMessage(), ex);
+            }
+        }
+        return Statistics.analyse(image, true);
+    }
+
     private static GridCoverage2D selectBand(GridCoverage2D coverage, final int[] indices){
         if(coverage.getNumSampleDimensions() < indices.length){
             //not enough bands in the image
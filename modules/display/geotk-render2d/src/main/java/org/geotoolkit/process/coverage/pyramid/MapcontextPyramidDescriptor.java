@@ -80,6 +80,16 @@ public final class MapcontextPyramidDescriptor extends AbstractProcessDescriptor
             new DefaultParameterDescriptor<Integer>("painters",
             "Number of threads painting images.",Integer.class,null,false);
     
+    /**
+     * Optional - Number of tiles on each axis rendered at once.
+     * Metatiles share data queries and label placement between their tiles,
+     * but use metatile size * metatile size more memory. Default is 1, tiles
+     * are rendered one by one.
+     */
+    public static final ParameterDescriptor<Integer> IN_METATILE_SIZE =
+            new DefaultParameterDescriptor<Integer>("metatile",
+            "Number of tiles on each axis rendered at once.",Integer.class,1,false);
+
     /**
      * Mandatory - Container which will receive the tiles.
      */
@@ -96,7 +106,7 @@ public final class MapcontextPyramidDescriptor extends AbstractProcessDescriptor
     
     public static final ParameterDescriptorGroup INPUT_DESC =
             new DefaultParameterDescriptorGroup(NAME+"InputParameters",
-                IN_MAPCONTEXT,IN_EXTENT,IN_TILE_SIZE,IN_SCALES,IN_NBPAINTER,IN_CONTAINER,IN_HINTS);
+                IN_MAPCONTEXT,IN_EXTENT,IN_TILE_SIZE,IN_SCALES,IN_NBPAINTER,IN_METATILE_SIZE,IN_CONTAINER,IN_HINTS);
 
     public static final ParameterDescriptor<PyramidalCoverageReference> OUT_CONTAINER =
             new DefaultParameterDescriptor<PyramidalCoverageReference>("outContainer",
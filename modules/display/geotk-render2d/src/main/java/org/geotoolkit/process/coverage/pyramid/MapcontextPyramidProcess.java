@@ -86,11 +86,15 @@ public final class MapcontextPyramidProcess extends AbstractProcess {
         final Dimension tileSize = value(IN_TILE_SIZE, inputParameters);
         final double[] scales = value(IN_SCALES, inputParameters);
         Integer nbpainter = value(IN_NBPAINTER, inputParameters);
+        Integer metaTileSize = value(IN_METATILE_SIZE, inputParameters);
         final PyramidalCoverageReference container = value(IN_CONTAINER, inputParameters);
 
         if(nbpainter == null){
             nbpainter = Runtime.getRuntime().availableProcessors();
         }
+        if(metaTileSize == null){
+            metaTileSize = 1;
+        }
 
         Hints hints = null;
         try{
@@ -185,7 +189,7 @@ public final class MapcontextPyramidProcess extends AbstractProcess {
                 }
                 final PortrayalRenderedImage image = new PortrayalRenderedImage(
                         canvasDef, sceneDef, viewDef,
-                        mosaic.getGridSize(), mosaic.getTileSize(), scale);
+                        mosaic.getGridSize(), mosaic.getTileSize(), scale, metaTileSize);
                 image.addProgressListener(new PortrayalRenderedImage.ProgressListener() {
                     @Override
                     public void tileCreated(int x, int y) {
@@ -208,7 +212,25 @@ public final class MapcontextPyramidProcess extends AbstractProcess {
                 final int endTileY   = ((int)(ctxExtent.getMaximum(heightAxis) + tileSize.height - 1) / tileSize.height) - startTileY;
                 final Rectangle area = new Rectangle(startTileX, startTileY, endTileX, endTileY);
 
-                container.writeTiles(pyramid.getId(), mosaic.getId(), image, area, false, new MapcontextPyramidMonitor(this));
+                final MapcontextPyramidMonitor monitor = new MapcontextPyramidMonitor(this);
+                if (metaTileSize == 1) {
+                    container.writeTiles(pyramid.getId(), mosaic.getId(), image, area, false, monitor);
+                } else {
+                    //metatiles are kept until all their tiles are written, write a few metatiles at a time
+                    for (int y = area.y, maxY = area.y + area.height; y < maxY; ) {
+                        final int nextY = Math.min(maxY, (y / metaTileSize + 1) * metaTileSize);
+                        for (int x = area.x, maxX = area.x + area.width; x < maxX; ) {
+                            if (isCanceled()) {
+                                throw new CancellationException();
+                            }
+                            final int nextX = Math.min(maxX, (x / metaTileSize + nbpainter) * metaTileSize);
+                            container.writeTiles(pyramid.getId(), mosaic.getId(), image,
+                                    new Rectangle(x, y, nextX - x, nextY - y), false, monitor);
+                            x = nextX;
+                        }
+                        y = nextY;
+                    }
+                }
                 if (isCanceled()) {
                     throw new CancellationException();
                 }
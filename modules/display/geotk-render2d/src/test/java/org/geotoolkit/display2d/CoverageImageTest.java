@@ -80,6 +80,7 @@ public class CoverageImageTest {
     int proportionalityCoefficient;
     Envelope resEnv;
     Hints hints;
+    boolean parallelTiles;
     int srcWidth;
     int srcHeight;
 
@@ -165,6 +166,9 @@ public class CoverageImageTest {
         outputImgDim.setSize(proportionalityCoefficient * srcWidth, proportionalityCoefficient * srcHeight);
 
         hints = new Hints(GO2Hints.KEY_COLOR_MODEL, sourceImage.getColorModel());
+        if (parallelTiles) {
+            hints.put(GO2Hints.KEY_PARALLEL_TILES, GO2Hints.PARALLEL_TILES_ON);
+        }
 
         cdef.setDimension(outputImgDim);
         sdef.setContext(context);
@@ -221,6 +225,24 @@ public class CoverageImageTest {
         testImageLayer(img, cl);
     }
 
+    /**
+     * Same as {@link #pyramidtest() } with tiles styled in parallel.
+     *
+     * @throws PortrayalException
+     * @throws DataStoreException
+     * @throws TransformException
+     * @throws FactoryException
+     */
+    @Test
+    public void pyramidParallelTest() throws PortrayalException, DataStoreException, TransformException, FactoryException {
+        parallelTiles = true;
+        try {
+            pyramidtest();
+        } finally {
+            parallelTiles = false;
+        }
+    }
+
     /**
      * Test between output image from renderer and source image within {@link GridCoverage2D}.
      *
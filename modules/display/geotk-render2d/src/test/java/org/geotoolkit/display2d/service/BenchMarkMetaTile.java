@@ -0,0 +1,135 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.service;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.image.ColorModel;
+import java.util.Random;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.math.Statistics;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStoreUtilities;
+import org.geotoolkit.display2d.GO2Hints;
+import org.geotoolkit.factory.FactoryFinder;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.FeatureTypeBuilder;
+import org.geotoolkit.feature.FeatureUtilities;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.map.MapBuilder;
+import org.geotoolkit.map.MapContext;
+import org.geotoolkit.referencing.CRS;
+import org.geotoolkit.style.DefaultStyleFactory;
+import org.geotoolkit.style.MutableStyle;
+import org.geotoolkit.style.MutableStyleFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory;
+
+/**
+ * Compare tile rendering one by one and by metatiles.
+ *
+ * @author agent
+ * @module pending
+ */
+public class BenchMarkMetaTile {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+    private static final MutableStyleFactory SF = new DefaultStyleFactory();
+    private static final FilterFactory FF = FactoryFinder.getFilterFactory(null);
+
+    private static final int NB_FEATURES = 5000;
+    private static final Dimension TILE_SIZE = new Dimension(256, 256);
+    private static final Dimension GRID_SIZE = new Dimension(8, 8);
+
+    /**
+     * Map of random points with labels.
+     */
+    private final SceneDef sceneDef;
+    private final ViewDef viewDef;
+    private final double scale;
+
+    public BenchMarkMetaTile() throws Exception {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("test");
+        ftb.add("geom", Point.class, CRS.decode("CRS:84"));
+        ftb.add("name", String.class);
+        ftb.setDefaultGeometry("geom");
+        final FeatureType type = ftb.buildFeatureType();
+
+        final Random random = new Random(42);
+        final Feature[] features = new Feature[NB_FEATURES];
+        for(int i=0; i<NB_FEATURES; i++){
+            features[i] = FeatureUtilities.defaultFeature(type, String.valueOf(i));
+            features[i].getProperty("geom").setValue(GF.createPoint(new Coordinate(
+                    random.nextDouble()*360 - 180, random.nextDouble()*180 - 90)));
+            features[i].getProperty("name").setValue("label "+i);
+        }
+        final FeatureCollection collection = FeatureStoreUtilities.collection(features);
+
+        final MutableStyle style = SF.style(SF.pointSymbolizer(), SF.textSymbolizer(
+                SF.fill(Color.BLACK), SF.font(12), SF.halo(Color.WHITE, 1),
+                FF.property("name"), SF.pointPlacement(), null));
+
+        final MapContext context = MapBuilder.createContext();
+        context.layers().add(MapBuilder.createFeatureLayer(collection, style));
+
+        final GeneralEnvelope env = new GeneralEnvelope(CRS.decode("CRS:84"));
+        env.setRange(0, -180, +180);
+        env.setRange(1, -90, +90);
+
+        final Hints hints = new Hints();
+        hints.put(GO2Hints.KEY_COLOR_MODEL, ColorModel.getRGBdefault());
+        sceneDef = new SceneDef(context, hints);
+        viewDef = new ViewDef(env);
+        scale = 360.0 / (GRID_SIZE.width*TILE_SIZE.width);
+    }
+
+    private long render(final int metaTileSize) throws Exception {
+        final PortrayalRenderedImage image = new PortrayalRenderedImage(
+                new CanvasDef(new Dimension(1, 1), null), sceneDef, viewDef,
+                GRID_SIZE, TILE_SIZE, scale, metaTileSize);
+        final long t0 = System.currentTimeMillis();
+        for(int y=0; y<GRID_SIZE.height; y++){
+            for(int x=0; x<GRID_SIZE.width; x++){
+                image.getTile(x, y);
+            }
+        }
+        return System.currentTimeMillis() - t0;
+    }
+
+    @Test
+    @Ignore
+    public void benchMetaTileTest() throws Exception {
+        for(int metaTileSize : new int[]{1, 2, 4, 8}){
+            final Statistics stats = new Statistics("metatile "+metaTileSize);
+            int n = 0;
+            while (n++ < 15) {
+                final long t = render(metaTileSize);
+                if (n > 5) {
+                    stats.accept(t);
+                }
+            }
+            System.out.println("stats metatile "+metaTileSize+" : "+stats);
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.service;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.RenderingHints;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStoreUtilities;
+import org.geotoolkit.display2d.GO2Hints;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.FeatureTypeBuilder;
+import org.geotoolkit.feature.FeatureUtilities;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.map.MapBuilder;
+import org.geotoolkit.map.MapContext;
+import org.geotoolkit.referencing.CRS;
+import org.geotoolkit.style.DefaultStyleFactory;
+import org.geotoolkit.style.MutableStyleFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test tiles rendered by metatiles are the same as tiles rendered one by one.
+ *
+ * @author agent
+ * @module pending
+ */
+public class PortrayalRenderedImageTest {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+    private static final MutableStyleFactory SF = new DefaultStyleFactory();
+
+    /** pixel size in degrees. */
+    private static final double SCALE = 2.25;
+    private static final Dimension TILE_SIZE = new Dimension(32, 32);
+    private static final Dimension GRID_SIZE = new Dimension(5, 4);
+
+    /**
+     * Rectangle aligned on pixels, coordinates in pixels.
+     */
+    private static Polygon box(int minX, int minY, int maxX, int maxY){
+        final double x1 = -180 + minX*SCALE;
+        final double x2 = -180 + maxX*SCALE;
+        final double y1 = 90 - maxY*SCALE;
+        final double y2 = 90 - minY*SCALE;
+        return GF.createPolygon(GF.createLinearRing(new Coordinate[]{
+            new Coordinate(x1, y1), new Coordinate(x1, y2), new Coordinate(x2, y2),
+            new Coordinate(x2, y1), new Coordinate(x1, y1)}), null);
+    }
+
+    private static PortrayalRenderedImage createImage(final int metaTileSize) throws Exception{
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("test");
+        ftb.add("geom", Polygon.class, CRS.decode("CRS:84"));
+        ftb.setDefaultGeometry("geom");
+        final FeatureType type = ftb.buildFeatureType();
+
+        final Polygon[] boxes = {box(10, 5, 70, 50), box(20, 30, 150, 40), box(100, 0, 160, 128), box(31, 31, 33, 97)};
+        final List<Feature> features = new ArrayList<>();
+        for(int i=0; i<boxes.length; i++){
+            final Feature feature = FeatureUtilities.defaultFeature(type, String.valueOf(i));
+            feature.getProperty("geom").setValue(boxes[i]);
+            features.add(feature);
+        }
+        final FeatureCollection collection = FeatureStoreUtilities.collection(features.toArray(new Feature[features.size()]));
+
+        final MapContext context = MapBuilder.createContext();
+        context.layers().add(MapBuilder.createFeatureLayer(collection,
+                SF.style(SF.polygonSymbolizer(SF.stroke(Color.BLACK, 1), SF.fill(Color.BLUE), null))));
+
+        final GeneralEnvelope env = new GeneralEnvelope(CRS.decode("CRS:84"));
+        env.setRange(0, -180, +180);
+        env.setRange(1, -90, +90);
+
+        final Hints hints = new Hints();
+        hints.put(GO2Hints.KEY_COLOR_MODEL, ColorModel.getRGBdefault());
+        hints.put(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+
+        return new PortrayalRenderedImage(new CanvasDef(new Dimension(1, 1), null),
+                new SceneDef(context, hints), new ViewDef(env), GRID_SIZE, TILE_SIZE, SCALE, metaTileSize);
+    }
+
+    @Test
+    public void metaTileTest() throws Exception{
+        final PortrayalRenderedImage single = createImage(1);
+        final PortrayalRenderedImage meta = createImage(3);
+
+        final int[] expected = new int[TILE_SIZE.width*TILE_SIZE.height*4];
+        final int[] result = new int[TILE_SIZE.width*TILE_SIZE.height*4];
+        for(int y=0; y<GRID_SIZE.height; y++){
+            for(int x=0; x<GRID_SIZE.width; x++){
+                final Raster expectedTile = single.getTile(x, y);
+                final Raster tile = meta.getTile(x, y);
+                assertEquals(0, tile.getMinX());
+                assertEquals(0, tile.getMinY());
+                assertEquals(TILE_SIZE.width, tile.getWidth());
+                assertEquals(TILE_SIZE.height, tile.getHeight());
+                expectedTile.getPixels(0, 0, TILE_SIZE.width, TILE_SIZE.height, expected);
+                tile.getPixels(0, 0, TILE_SIZE.width, TILE_SIZE.height, result);
+                assertArrayEquals("tile "+x+" "+y, expected, result);
+            }
+        }
+
+        //tiles requested again
+        meta.getTile(4, 3).getPixels(0, 0, TILE_SIZE.width, TILE_SIZE.height, result);
+        single.getTile(4, 3).getPixels(0, 0, TILE_SIZE.width, TILE_SIZE.height, expected);
+        assertArrayEquals(expected, result);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidMetaTileTest() throws Exception{
+        createImage(0);
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.style.labeling.decimate;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.geotoolkit.display2d.style.labeling.DefaultPointLabelDescriptor;
+import org.geotoolkit.display2d.style.labeling.candidate.LabelingUtilities;
+import org.geotoolkit.display2d.style.labeling.candidate.PointCandidate;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test label collision grid gives the same results as a linear scan.
+ *
+ * @author agent
+ * @module pending
+ */
+public class LabelCollisionGridTest {
+
+    private static final Font FONT = new Font("Arial", Font.PLAIN, 12);
+
+    private static PointCandidate createCandidate(final float x, final float y, final int width, final float rotation){
+        final DefaultPointLabelDescriptor desc = new DefaultPointLabelDescriptor(
+                "label", FONT, Color.BLACK, 0, Color.WHITE, 0, 0, 0, 0, rotation, null, null);
+        return new PointCandidate(desc, width, 10, 3, x, y);
+    }
+
+    @Test
+    public void simpleTest(){
+        final LabelCollisionGrid grid = new LabelCollisionGrid(16);
+        assertTrue(grid.addIfFree(createCandidate(10, 20, 50, 0)));
+        //overlaps the first label
+        assertFalse(grid.addIfFree(createCandidate(40, 25, 50, 0)));
+        //far away, negative coordinates
+        assertTrue(grid.addIfFree(createCandidate(-300, -200, 50, 0)));
+        //rotated label reaching the first one
+        assertFalse(grid.addIfFree(createCandidate(30, 90, 100, -90)));
+        assertEquals(2, grid.size());
+
+        grid.clear();
+        assertEquals(0, grid.size());
+        assertTrue(grid.addIfFree(createCandidate(40, 25, 50, 0)));
+    }
+
+    @Test
+    public void linearScanTest(){
+        final Random random = new Random(42);
+        final LabelCollisionGrid grid = new LabelCollisionGrid();
+        final List<PointCandidate> placed = new ArrayList<PointCandidate>();
+
+        for(int i=0; i<2000; i++){
+            final PointCandidate candidate = createCandidate(
+                    random.nextFloat()*1000, random.nextFloat()*1000,
+                    10 + random.nextInt(150),
+                    (random.nextInt(4) == 0) ? random.nextFloat()*360 : 0);
+
+            final boolean expected = !LabelingUtilities.intersects(candidate, placed);
+            assertEquals(expected, grid.addIfFree(candidate));
+            if(expected){
+                placed.add(candidate);
+            }
+        }
+        assertEquals(placed.size(), grid.size());
+    }
+
+}
@@ -20,22 +20,17 @@ import com.jogamp.opengl.util.texture.TextureData;
 import com.jogamp.opengl.util.texture.awt.AWTTextureData;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
-import java.awt.image.Raster;
 
-import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.storage.DataStoreException;
 import javax.measure.converter.ConversionException;
 import javax.media.opengl.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
+import javax.vecmath.Point3i;
 import javax.vecmath.Vector2d;
 import javax.vecmath.Vector3d;
 import org.geotoolkit.display.PortrayalException;
@@ -45,8 +40,7 @@ import org.geotoolkit.display3d.Map3D;
 import org.geotoolkit.display3d.scene.camera.Camera;
 import org.geotoolkit.display3d.scene.camera.TrackBallCamera;
 import org.geotoolkit.display3d.scene.component.Tile3D;
-import org.geotoolkit.display3d.scene.loader.ElevationLoader;
-import org.geotoolkit.display3d.scene.loader.ImageLoader;
+import org.geotoolkit.display3d.scene.loader.TileLoadService;
 import org.geotoolkit.display3d.scene.quadtree.JQuadView;
 import org.geotoolkit.display3d.scene.quadtree.QuadTree;
 import org.geotoolkit.display3d.scene.quadtree.QuadTreeNode;
@@ -101,8 +95,7 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
 
         };
 
-    private final BlockingQueue queue = new ArrayBlockingQueue(1024);
-    private final ThreadPoolExecutor executor;
+    private final TileLoadService loadService;
     private final boolean debug = false;
     private JQuadView debugQuad;
 
@@ -134,9 +127,8 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
         //create all core threads now
         int nbThread = Runtime.getRuntime().availableProcessors();
         if(nbThread >= 4) nbThread -= 1; //keep a free thread for rendering
-        executor = new ThreadPoolExecutor(
-            nbThread, nbThread, 1, TimeUnit.MINUTES, queue);
-        executor.prestartAllCoreThreads();
+        final QuadTree quadTree = terrain.getQuadTree();
+        loadService = new TileLoadService(quadTree.getGeneralEnvelope(), quadTree.getTileSize(), nbThread);
 
         if(debug){
             debugQuad = new JQuadView();
@@ -145,6 +137,13 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
         loader.start();
     }
 
+    /**
+     * Service loading the tiles elevation and image in background.
+     */
+    public TileLoadService getLoadService() {
+        return loadService;
+    }
+
     @Override
     public void forceUpdate() {
         needUpdate = true;
@@ -161,8 +160,6 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
 
     public void updateScene() throws DataStoreException, TransformException, ConversionException {
 
-        //remove all tasks not done yet.
-        queue.clear();
         nodes.clear();
 
         final TrackBallCamera camera = this.map3d.getCamera();
@@ -171,6 +168,8 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
         final double cameraLength = camera.getLength();
         final double viewScale = camera.getViewScale(cameraLength);
         final double viewDist = camera.getProjectionLength(cameraLength)/2.0;
+        //camera distance to the terrain, in crs units
+        final double cameraHeight = cameraLength / (camera.getScale3d().x/100.0);
         final int indexScale = terrain.getNearestScaleIndex(viewScale);
 
         final QuadTree quadTree = terrain.getQuadTree();
@@ -184,6 +183,15 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
         nodes.addAll(viewPts);
         final int viewSize = viewPts.size();
 
+        //cancel requests of tiles which are not visible anymore
+        final Set<Point3i> visible = new HashSet<>();
+        for(QuadTreeNode node : viewPts){
+            visible.add(node.getPosition());
+        }
+        loadService.setElevationLoader(terrain.getElevationLoader());
+        loadService.setImageLoader(terrain.getImageLoader());
+        loadService.retain(visible);
+
         //loop on terrain node and remove tiles which are not in the list
         final List<SceneNode> tiles = terrain.getChildren();
         final List<QuadTreeNode> removeNodes = new ArrayList<>();
@@ -211,44 +219,20 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
                 node.getOrCreateData();
                 tiles.add(node);
 
-                if(!node.isDataMNTLoaded()){
-                    final Runnable loader = new Runnable() {
-                        @Override
-                        public void run() {
-                            //retest, maybe another thread did the job
-                            if(!node.isDataMNTLoaded()){
-                                try {
-                                    updateMntOn(node);
-                                } catch (Exception ex) {
-                                    terrain.getCanvas().getMonitor().exceptionOccured(ex, Level.WARNING);
-                                }
-                            }
-                        }
-                    };
-                    executor.execute(loader);
-                }
-
-                if(!node.isDataImageLoaded()) {
-                    final Runnable loader = new Runnable() {
-                        @Override
-                        public void run() {
-                            //retest, maybe another thread did the job
-                            if(!node.isDataImageLoaded()){
-                                try {
-                                    updateImageOn(node);
-                                } catch (Exception ex) {
-                                    terrain.getCanvas().getMonitor().exceptionOccured(ex, Level.WARNING);
-                                }
-                            }
-                        }
-                    };
-                    executor.execute(loader);
+                if(!node.isDataMNTLoaded() || !node.isDataImageLoaded()){
+                    final TileLoadService.Listener listener = new NodeListener(node);
+                    if(!node.isDataMNTLoaded()){
+                        loadService.loadElevation(node.getPosition(), lastCameraPos.x, lastCameraPos.y, cameraHeight, listener);
+                    }
+                    if(!node.isDataImageLoaded()){
+                        loadService.loadImage(node.getPosition(), lastCameraPos.x, lastCameraPos.y, cameraHeight, listener);
+                    }
                 }
             }
         }
 
         if (debug) {
-            System.out.println("3D terrain update queue size : "+viewSize+" "+ queue.size());
+            System.out.println("3D terrain update queue size : "+viewSize+" "+ loadService.getQueueSize());
         }
 
         //remove obsolete tiles
@@ -269,19 +253,25 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
     }
 
     public void updateMntOn(final QuadTreeNode node) throws PortrayalException {
+        loadService.setElevationLoader(terrain.getElevationLoader());
+        applyMnt(node, loadService.getElevation(node.getPosition()));
+    }
+
+    /**
+     * Copy the elevation grid of the node tile in the node vertices.
+     *
+     * @param node node to update
+     * @param grid elevation samples of tile size, in row order
+     */
+    private void applyMnt(final QuadTreeNode node, final float[] grid) {
 
         if (node.isData()) {
             final SceneNode3D sceneNode3d  = node.getData();
 
             if (sceneNode3d instanceof Tile3D) {
                 final Tile3D tile3d = (Tile3D) sceneNode3d;
-                final GeneralEnvelope tileEnv = (node.getEnvelope() instanceof GeneralEnvelope)?((GeneralEnvelope)node.getEnvelope()):(new GeneralEnvelope(node.getEnvelope()));
                 final Dimension textureDimension = node.getTileSize();
 
-                final ElevationLoader loaderMNT = terrain.getElevationLoader();
-                final BufferedImage targetImage = loaderMNT.getBufferedImageOf(tileEnv, textureDimension);
-                final Raster rasterMNT = targetImage.getTile(0, 0);
-
                 float[] vertices = tile3d.getVerticesAsArray();
                 final Dimension ptsSize = tile3d.getPtsNumber();
                 final Dimension axisSize = tile3d.getAxisNumber();
@@ -300,10 +290,7 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
                         final int coord = x + y * ptsSize.width;
                         final int coordZ = coord *3 + 2;
 
-                        vertices[coordZ] = rasterMNT.getSampleFloat(pixel0,pixel1,0);
-                        if(Float.isNaN(vertices[coordZ])){
-                            vertices[coordZ] = (float)loaderMNT.getMinimumElevation();
-                        }
+                        vertices[coordZ] = grid[pixel0 + pixel1 * textureDimension.width];
 
                         if (x == 0 || y == 0 || x == ptsSize.width-1 || y == ptsSize.height-1) {
                             vertices[coordZ] += Tile3D.borderZTranslate;
@@ -320,12 +307,12 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
     }
 
     public void updateImageOn(final QuadTreeNode node) throws PortrayalException {
-        if (node.isData()) {
-            final Envelope tileEnv = node.getEnvelope();
-            final Dimension textureDimension = node.getTileSize();
-            final ImageLoader loaderImg = terrain.getImageLoader();
+        loadService.setImageLoader(terrain.getImageLoader());
+        applyImage(node, loadService.getImage(node.getPosition()));
+    }
 
-            final BufferedImage targetImage = loaderImg.getBufferedImageOf(tileEnv, textureDimension);
+    private void applyImage(final QuadTreeNode node, final BufferedImage targetImage) {
+        if (node.isData()) {
             final TextureData data = new AWTTextureData(glProfile, 0, 0, false, targetImage);
             node.setDataImage(data);
         } else {
@@ -351,7 +338,6 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
         if(!needUpdate) return;
         needUpdate = false;
 
-        queue.clear();
         updating.set(true);
         synchronized(LOCK){
             LOCK.notifyAll();
@@ -359,7 +345,7 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
     }
 
     public void stopUpdate(boolean awaitTermination) throws InterruptedException {
-        executor.shutdown();
+        loadService.dispose();
     }
 
 //    /**
@@ -394,6 +380,37 @@ public class TerrainUpdater implements PropertyChangeListener, Updater {
         }
     }
 
+    /**
+     * Apply the loaded elevation and image on the node.
+     */
+    private class NodeListener implements TileLoadService.Listener {
+
+        private final QuadTreeNode node;
+
+        private NodeListener(QuadTreeNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public void elevationLoaded(Point3i position, float[] grid) {
+            if(!node.isDataMNTLoaded()){
+                applyMnt(node, grid);
+            }
+        }
+
+        @Override
+        public void imageLoaded(Point3i position, BufferedImage image) {
+            if(!node.isDataImageLoaded()){
+                applyImage(node, image);
+            }
+        }
+
+        @Override
+        public void loadFailed(Point3i position, Exception ex) {
+            terrain.getCanvas().getMonitor().exceptionOccured(ex, Level.WARNING);
+        }
+    }
+
     private final Object LOCK = new Object();
     private class Loader extends Thread{
 
@@ -0,0 +1,489 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display3d.scene.loader;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import javax.vecmath.Point3i;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.geotoolkit.display.PortrayalException;
+import org.geotoolkit.display3d.Map3D;
+import org.geotoolkit.internal.Threads;
+import org.opengis.geometry.Envelope;
+
+/**
+ * Asynchronous loader of terrain tiles elevation and image.
+ * <p>
+ * Tiles are identified by their position in the pyramid (x, y, depth), y going down
+ * from the top of the root envelope. Requests wait in a priority queue, visible tiles
+ * first, ordered by decreasing screen-space error then increasing distance to the camera.
+ * The distance is measured in three dimensions, the camera altitude above the terrain
+ * included, so a high camera does not favour the finest tiles under it.
+ * Requests of tiles which are not visible anymore can be cancelled with
+ * {@link #retain(java.util.Collection) }.
+ * <p>
+ * Each visible elevation request prefetches the parent and the four neighbours of the tile,
+ * with a lower priority. Decoded elevation grids are kept in a bounded cache, the least
+ * recently used grids are dropped first.
+ * <p>
+ * The service does not need an OpenGL context, results are given to the request listener
+ * in a worker thread. Loaders are not required to be thread safe, each loader is used
+ * by one thread at a time.
+ *
+ * @author agent
+ * @module pending
+ */
+public class TileLoadService {
+
+    /**
+     * Receive the results of the requests, called by the worker threads.
+     */
+    public static interface Listener {
+
+        void elevationLoaded(Point3i position, float[] grid);
+
+        void imageLoaded(Point3i position, BufferedImage image);
+
+        void loadFailed(Point3i position, Exception ex);
+    }
+
+    public static final int DEFAULT_CACHE_CAPACITY = 128;
+
+    private static final int ELEVATION = 0;
+    private static final int IMAGE = 1;
+
+    /**
+     * Visible tiles first, then highest screen-space error, then nearest,
+     * then oldest request.
+     */
+    private static final Comparator<Request> ORDER = new Comparator<Request>() {
+        @Override
+        public int compare(Request r1, Request r2) {
+            if (r1.prefetch != r2.prefetch) {
+                return r1.prefetch ? +1 : -1;
+            }
+            int c = Double.compare(r2.error, r1.error);
+            if (c != 0) return c;
+            c = Double.compare(r1.distance, r2.distance);
+            if (c != 0) return c;
+            return Long.compare(r1.sequence, r2.sequence);
+        }
+    };
+
+    private final GeneralEnvelope rootEnvelope;
+    private final Dimension tileSize;
+    private volatile ElevationLoader elevationLoader;
+    private volatile ImageLoader imageLoader;
+
+    private final PriorityBlockingQueue<Request> queue = new PriorityBlockingQueue<>(64, ORDER);
+    /** Requests waiting or running, by kind and position, guarded by itself. */
+    private final List<Map<Point3i,Request>> pending = new ArrayList<>(2);
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService workers;
+
+    /** Decoded elevation grids, in access order, guarded by itself. */
+    private final LinkedHashMap<Point3i,float[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+
+    /**
+     *
+     * @param rootEnvelope envelope of the pyramid root tile
+     * @param tileSize size of the loaded elevation grids and images
+     * @param nbThreads number of worker threads
+     */
+    public TileLoadService(Envelope rootEnvelope, Dimension tileSize, int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive : "+nbThreads);
+        }
+        this.rootEnvelope = new GeneralEnvelope(rootEnvelope);
+        this.tileSize = new Dimension(tileSize);
+        pending.add(new HashMap<Point3i,Request>());
+        pending.add(new HashMap<Point3i,Request>());
+
+        workers = Executors.newFixedThreadPool(nbThreads, Threads.createThreadFactory("TileLoadService #"));
+        for (int i = 0; i < nbThreads; i++) {
+            workers.submit(new Worker());
+        }
+    }
+
+    public ElevationLoader getElevationLoader() {
+        return elevationLoader;
+    }
+
+    /**
+     * Set the elevation loader, cached grids are dropped if the loader changes.
+     */
+    public void setElevationLoader(ElevationLoader loader) {
+        if (elevationLoader != loader) {
+            elevationLoader = loader;
+            synchronized (cache) {
+                cache.clear();
+            }
+        }
+    }
+
+    public ImageLoader getImageLoader() {
+        return imageLoader;
+    }
+
+    public void setImageLoader(ImageLoader loader) {
+        imageLoader = loader;
+    }
+
+    /**
+     * Set the maximum number of decoded elevation grids kept in memory.
+     */
+    public void setCacheCapacity(int capacity) {
+        synchronized (cache) {
+            cacheCapacity = capacity;
+            trimCache();
+        }
+    }
+
+    public int getCacheCapacity() {
+        synchronized (cache) {
+            return cacheCapacity;
+        }
+    }
+
+    /**
+     * Number of requests waiting in the queue.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Request the elevation grid of a tile, the grid is given to the listener
+     * once loaded, immediately if cached.
+     *
+     * @param position tile position in the pyramid
+     * @param x camera position on first axis
+     * @param y camera position on second axis
+     * @param z camera altitude above the terrain, in the same unit than the first axes
+     * @param listener receive the elevation grid
+     */
+    public void loadElevation(Point3i position, double x, double y, double z, Listener listener) {
+        final float[] grid = getCachedElevation(position);
+        if (grid != null) {
+            listener.elevationLoaded(position, grid);
+        } else {
+            submit(ELEVATION, position, x, y, z, listener);
+        }
+        prefetch(position, x, y, z);
+    }
+
+    /**
+     * Request the image of a tile, the image is given to the listener once loaded.
+     *
+     * @param position tile position in the pyramid
+     * @param x camera position on first axis
+     * @param y camera position on second axis
+     * @param z camera altitude above the terrain, in the same unit than the first axes
+     * @param listener receive the image
+     */
+    public void loadImage(Point3i position, double x, double y, double z, Listener listener) {
+        submit(IMAGE, position, x, y, z, listener);
+    }
+
+    /**
+     * Cancel the requests of tiles which are not in the given positions,
+     * including prefetch requests.
+     *
+     * @param visible positions of the tiles still needed
+     */
+    public void retain(Collection<Point3i> visible) {
+        final Set<Point3i> keep = (visible instanceof Set) ? (Set<Point3i>) visible : new HashSet<>(visible);
+        synchronized (pending) {
+            for (Map<Point3i,Request> requests : pending) {
+                for (Iterator<Request> ite = requests.values().iterator(); ite.hasNext();) {
+                    final Request request = ite.next();
+                    if (request.prefetch || !keep.contains(request.position)) {
+                        request.cancelled = true;
+                        queue.remove(request);
+                        ite.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancel the requests of a tile.
+     */
+    public void cancel(Point3i position) {
+        synchronized (pending) {
+            for (Map<Point3i,Request> requests : pending) {
+                final Request request = requests.remove(position);
+                if (request != null) {
+                    request.cancelled = true;
+                    queue.remove(request);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a decoded elevation grid if it is in the cache.
+     *
+     * @return grid of tile size samples in row order, null if not cached
+     */
+    public float[] getCachedElevation(Point3i position) {
+        synchronized (cache) {
+            return cache.get(position);
+        }
+    }
+
+    /**
+     * Get the elevation grid of a tile, loaded in the calling thread if not cached.
+     *
+     * @return grid of tile size samples in row order, NaN replaced by the minimum elevation
+     */
+    public float[] getElevation(Point3i position) throws PortrayalException {
+        float[] grid = getCachedElevation(position);
+        if (grid == null) {
+            final ElevationLoader loader = elevationLoader;
+            if (loader == null) {
+                throw new PortrayalException("No elevation loader.");
+            }
+            final GeneralEnvelope env = getEnvelope(position);
+            final BufferedImage image;
+            final double min;
+            synchronized (loader) {
+                //may have been loaded while waiting for the loader
+                grid = getCachedElevation(position);
+                if (grid != null) return grid;
+                image = loader.getBufferedImageOf(env, tileSize);
+                min = loader.getMinimumElevation();
+            }
+            final Raster raster = image.getTile(0, 0);
+            grid = raster.getSamples(raster.getMinX(), raster.getMinY(), tileSize.width, tileSize.height, 0, (float[]) null);
+            for (int i = 0; i < grid.length; i++) {
+                if (Float.isNaN(grid[i])) grid[i] = (float) min;
+            }
+            synchronized (cache) {
+                cache.put(new Point3i(position), grid);
+                trimCache();
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Get the image of a tile, loaded in the calling thread.
+     */
+    public BufferedImage getImage(Point3i position) throws PortrayalException {
+        final ImageLoader loader = imageLoader;
+        if (loader == null) {
+            throw new PortrayalException("No image loader.");
+        }
+        final GeneralEnvelope env = getEnvelope(position);
+        synchronized (loader) {
+            return loader.getBufferedImageOf(env, tileSize);
+        }
+    }
+
+    /**
+     * Compute the envelope of a tile.
+     */
+    public GeneralEnvelope getEnvelope(Point3i position) {
+        final double nb = 1L << position.z;
+        final double spanX = rootEnvelope.getSpan(0) / nb;
+        final double spanY = rootEnvelope.getSpan(1) / nb;
+        final GeneralEnvelope env = new GeneralEnvelope(rootEnvelope);
+        final double minX = rootEnvelope.getMinimum(0) + position.x * spanX;
+        final double maxY = rootEnvelope.getMaximum(1) - position.y * spanY;
+        env.setRange(0, minX, minX + spanX);
+        env.setRange(1, maxY - spanY, maxY);
+        return env;
+    }
+
+    /**
+     * Stop the worker threads, waiting requests are dropped.
+     */
+    public void dispose() {
+        workers.shutdownNow();
+        synchronized (pending) {
+            for (Map<Point3i,Request> requests : pending) {
+                for (Request request : requests.values()) {
+                    request.cancelled = true;
+                }
+                requests.clear();
+            }
+        }
+        queue.clear();
+    }
+
+    /**
+     * Queue the parent and the neighbours elevation grids.
+     */
+    private void prefetch(Point3i position, double x, double y, double z) {
+        final int nb = 1 << position.z;
+        if (position.z > 0) {
+            prefetchOne(new Point3i(position.x/2, position.y/2, position.z-1), x, y, z);
+        }
+        if (position.x > 0)    prefetchOne(new Point3i(position.x-1, position.y, position.z), x, y, z);
+        if (position.x < nb-1) prefetchOne(new Point3i(position.x+1, position.y, position.z), x, y, z);
+        if (position.y > 0)    prefetchOne(new Point3i(position.x, position.y-1, position.z), x, y, z);
+        if (position.y < nb-1) prefetchOne(new Point3i(position.x, position.y+1, position.z), x, y, z);
+    }
+
+    private void prefetchOne(Point3i candidate, double x, double y, double z) {
+        if (getCachedElevation(candidate) == null) {
+            submit(ELEVATION, candidate, x, y, z, null);
+        }
+    }
+
+    /**
+     * Queue a request, or update the priority of the waiting request of the tile.
+     */
+    private void submit(int kind, Point3i position, double x, double y, double z, Listener listener) {
+        final GeneralEnvelope env = getEnvelope(position);
+        final Request request = new Request(kind, new Point3i(position), listener);
+        request.distance = distance(env, x, y, z);
+        //size of a pixel in crs units, seen at the camera distance
+        final double pixelSize = env.getSpan(0) / tileSize.width;
+        request.error = pixelSize / Math.max(request.distance, pixelSize);
+        request.sequence = sequence.incrementAndGet();
+
+        synchronized (pending) {
+            final Map<Point3i,Request> requests = pending.get(kind);
+            final Request previous = requests.get(request.position);
+            if (previous != null) {
+                if (listener == null) {
+                    //already requested, keep the current priority
+                    return;
+                }
+                if (queue.remove(previous)) {
+                    previous.cancelled = true;
+                } else if (previous.listener != null) {
+                    //already running, result will be given to the previous listener
+                    return;
+                }
+                //else a running prefetch, the new request will find the grid in the cache
+            }
+            requests.put(request.position, request);
+            queue.add(request);
+        }
+    }
+
+    private void finished(Request request) {
+        synchronized (pending) {
+            final Map<Point3i,Request> requests = pending.get(request.kind);
+            if (requests.get(request.position) == request) {
+                requests.remove(request.position);
+            }
+        }
+    }
+
+    /**
+     * Distance from the camera to a tile laying on the terrain.
+     *
+     * @param z camera altitude above the terrain
+     */
+    private static double distance(Envelope env, double x, double y, double z) {
+        final double dx = Math.max(0, Math.max(env.getMinimum(0) - x, x - env.getMaximum(0)));
+        final double dy = Math.max(0, Math.max(env.getMinimum(1) - y, y - env.getMaximum(1)));
+        return Math.sqrt(dx*dx + dy*dy + z*z);
+    }
+
+    /**
+     * Remove least recently used grids, must be called with the cache lock.
+     */
+    private void trimCache() {
+        for (Iterator<Point3i> ite = cache.keySet().iterator(); cache.size() > cacheCapacity && ite.hasNext();) {
+            ite.next();
+            ite.remove();
+        }
+    }
+
+    private static final class Request {
+
+        private final int kind;
+        private final Point3i position;
+        /** Null for prefetch requests. */
+        private final Listener listener;
+        private final boolean prefetch;
+        private double error;
+        private double distance;
+        private long sequence;
+        private volatile boolean cancelled;
+
+        private Request(int kind, Point3i position, Listener listener) {
+            this.kind = kind;
+            this.position = position;
+            this.listener = listener;
+            this.prefetch = (listener == null);
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Request request;
+                try {
+                    request = queue.take();
+                } catch (InterruptedException ex) {
+                    //service disposed
+                    return;
+                }
+                if (request.cancelled) continue;
+
+                try {
+                    if (request.kind == ELEVATION) {
+                        final float[] grid = getElevation(request.position);
+                        if (request.listener != null && !request.cancelled) {
+                            request.listener.elevationLoaded(request.position, grid);
+                        }
+                    } else {
+                        final BufferedImage image = getImage(request.position);
+                        if (!request.cancelled) {
+                            request.listener.imageLoaded(request.position, image);
+                        }
+                    }
+                } catch (Exception ex) {
+                    if (request.listener != null) {
+                        request.listener.loadFailed(request.position, ex);
+                    } else {
+                        Map3D.LOGGER.log(Level.FINE, ex.getMessage(), ex);
+                    }
+                } finally {
+                    finished(request);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,345 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display3d.scene.loader;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.vecmath.Point3i;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.CommonCRS;
+import org.geotoolkit.display.PortrayalException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link TileLoadService} with stub loaders and a single worker thread.
+ *
+ * @author agent
+ * @module pending
+ */
+public class TileLoadServiceTest {
+
+    private static final long TIMEOUT = 10000;
+
+    /** Camera position, in the upper left tile of any depth. */
+    private static final double X = 10;
+    private static final double Y = 90;
+
+    private static final Point3i ROOT = new Point3i(0, 0, 0);
+    /** Depth 2 tile under the camera. */
+    private static final Point3i NEAR = new Point3i(0, 0, 2);
+    /** Depth 2 tile far from the camera. */
+    private static final Point3i FAR = new Point3i(3, 3, 2);
+    /** Depth 1 tile, lower resolution than depth 2 tiles. */
+    private static final Point3i COARSE = new Point3i(1, 1, 1);
+
+    private StubLoader loader;
+    private RecordListener listener;
+    private TileLoadService service;
+
+    @Before
+    public void setUp() {
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, 0, 100);
+        env.setRange(1, 0, 100);
+        loader = new StubLoader();
+        listener = new RecordListener();
+        service = new TileLoadService(env, new Dimension(4, 4), 1);
+        service.setElevationLoader(loader);
+        service.setImageLoader(loader);
+    }
+
+    @After
+    public void tearDown() {
+        service.dispose();
+    }
+
+    /**
+     * Block the worker on a first request, so the following ones wait in the queue.
+     */
+    private void blockWorker() throws InterruptedException {
+        loader.blockNext();
+        service.loadImage(ROOT, X, Y, 0, listener);
+        assertTrue(loader.started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Requests are processed by decreasing screen-space error.
+     */
+    @Test
+    public void testPriority() throws Exception {
+        blockWorker();
+        service.loadImage(FAR, X, Y, 0, listener);
+        service.loadImage(COARSE, X, Y, 0, listener);
+        service.loadImage(NEAR, X, Y, 0, listener);
+        assertEquals(3, service.getQueueSize());
+        loader.release.countDown();
+
+        listener.waitFor(4);
+        assertEquals(Arrays.asList(ROOT, NEAR, COARSE, FAR), listener.images);
+    }
+
+    /**
+     * The camera altitude lowers the error of fine tiles under the camera.
+     */
+    @Test
+    public void testAltitude() throws Exception {
+        final Point3i parent = new Point3i(0, 0, 1);
+        blockWorker();
+        service.loadImage(NEAR, X, Y, 0, listener);
+        service.loadImage(parent, X, Y, 0, listener);
+        loader.release.countDown();
+        listener.waitFor(3);
+        //same error at ground level, oldest first
+        assertEquals(Arrays.asList(ROOT, NEAR, parent), listener.images);
+
+        listener.images.clear();
+        blockWorker();
+        service.loadImage(NEAR, X, Y, 100, listener);
+        service.loadImage(parent, X, Y, 100, listener);
+        loader.release.countDown();
+        listener.waitFor(3);
+        assertEquals(Arrays.asList(ROOT, parent, NEAR), listener.images);
+    }
+
+    /**
+     * Requests of tiles not retained are cancelled.
+     */
+    @Test
+    public void testRetain() throws Exception {
+        blockWorker();
+        service.loadImage(NEAR, X, Y, 0, listener);
+        service.loadImage(FAR, X, Y, 0, listener);
+        service.retain(Collections.singleton(NEAR));
+        assertEquals(1, service.getQueueSize());
+        loader.release.countDown();
+
+        listener.waitFor(1);
+        //the running root request has been cancelled too, its result is not given
+        assertEquals(Collections.singletonList(NEAR), listener.images);
+        assertFalse(loader.isRequested(service.getEnvelope(FAR)));
+    }
+
+    /**
+     * An elevation request prefetches the parent and the neighbours.
+     */
+    @Test
+    public void testPrefetch() throws Exception {
+        final Point3i position = new Point3i(1, 1, 2);
+        service.loadElevation(position, X, Y, 0, listener);
+        listener.waitFor(1);
+        assertEquals(Collections.singletonList(position), listener.elevations);
+
+        final List<Point3i> prefetched = Arrays.asList(
+                new Point3i(0, 0, 1),
+                new Point3i(0, 1, 2), new Point3i(2, 1, 2),
+                new Point3i(1, 0, 2), new Point3i(1, 2, 2));
+        waitCached(prefetched);
+        //prefetched grids are not given to the listener
+        assertEquals(1, listener.elevations.size());
+        assertEquals(6, loader.requests.size());
+    }
+
+    /**
+     * Cached grids are not loaded again, the least recently used grid is dropped first.
+     */
+    @Test
+    public void testCache() throws Exception {
+        final Point3i p1 = new Point3i(0, 0, 1);
+        final Point3i p2 = new Point3i(1, 0, 1);
+        final Point3i p3 = new Point3i(0, 1, 1);
+        service.setCacheCapacity(2);
+
+        final float[] grid = service.getElevation(p1);
+        assertEquals(16, grid.length);
+        service.getElevation(p2);
+        assertSame(grid, service.getElevation(p1));
+        assertEquals(2, loader.requests.size());
+
+        service.getElevation(p3);
+        assertEquals(3, loader.requests.size());
+        assertNotNull(service.getCachedElevation(p1));
+        assertNull(service.getCachedElevation(p2));
+        assertNotNull(service.getCachedElevation(p3));
+
+        //cached grid is given immediately, in the calling thread
+        service.loadElevation(p1, X, Y, 0, listener);
+        assertEquals(Collections.singletonList(p1), listener.elevations);
+    }
+
+    /**
+     * A visible request of a tile being prefetched is queued again
+     * and gets the prefetched grid without loading it twice.
+     */
+    @Test
+    public void testReplaceRunningPrefetch() throws Exception {
+        final Point3i position = new Point3i(1, 1, 2);
+        service.getElevation(position);
+        loader.requests.clear();
+
+        //cached, only prefetches are queued, the worker blocks on the first one
+        loader.blockNext();
+        service.loadElevation(position, X, Y, 0, listener);
+        assertTrue(loader.started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        final Envelope running = loader.requests.get(0);
+        Point3i prefetched = null;
+        for (Point3i candidate : Arrays.asList(new Point3i(0, 0, 1),
+                new Point3i(0, 1, 2), new Point3i(2, 1, 2), new Point3i(1, 0, 2), new Point3i(1, 2, 2))) {
+            if (service.getEnvelope(candidate).equals(running)) {
+                prefetched = candidate;
+            }
+        }
+        assertNotNull(prefetched);
+
+        service.loadElevation(prefetched, X, Y, 0, listener);
+        loader.release.countDown();
+        listener.waitFor(2);
+        assertEquals(Arrays.asList(position, prefetched), listener.elevations);
+
+        //the prefetched tile has been loaded once
+        int count = 0;
+        synchronized (loader.requests) {
+            for (Envelope env : loader.requests) {
+                if (env.equals(running)) count++;
+            }
+        }
+        assertEquals(1, count);
+    }
+
+    private void waitCached(final List<Point3i> positions) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        for (Point3i position : positions) {
+            while (service.getCachedElevation(position) == null) {
+                assertTrue("Tile not loaded : " + position, System.currentTimeMillis() < end);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * Elevation and image loader recording the requested envelopes.
+     */
+    private static final class StubLoader implements ElevationLoader, ImageLoader {
+
+        private final List<Envelope> requests = Collections.synchronizedList(new ArrayList<Envelope>());
+        private final AtomicBoolean block = new AtomicBoolean();
+        private volatile CountDownLatch started;
+        private volatile CountDownLatch release;
+
+        /**
+         * The next request will wait for {@link #release}.
+         */
+        private void blockNext() {
+            started = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+            block.set(true);
+        }
+
+        private boolean isRequested(final Envelope env) {
+            return requests.contains(env);
+        }
+
+        @Override
+        public BufferedImage getBufferedImageOf(Envelope outputEnv, Dimension outputDimension) throws PortrayalException {
+            requests.add(new GeneralEnvelope(outputEnv));
+            if (block.compareAndSet(true, false)) {
+                started.countDown();
+                try {
+                    if (!release.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        throw new PortrayalException("Loader not released.");
+                    }
+                } catch (InterruptedException ex) {
+                    throw new PortrayalException(ex);
+                }
+            }
+            return new BufferedImage(outputDimension.width, outputDimension.height, BufferedImage.TYPE_BYTE_GRAY);
+        }
+
+        @Override
+        public double getMinimumElevation() {
+            return 0;
+        }
+
+        @Override
+        public double getMaximumElevation() {
+            return 0;
+        }
+
+        @Override
+        public void setOutputCRS(CoordinateReferenceSystem outputCrs) throws PortrayalException {
+        }
+
+        @Override
+        public double getSmoothValueOf(DirectPosition position, double scale) throws PortrayalException {
+            return 0;
+        }
+
+        @Override
+        public double getValueOf(DirectPosition position, double scale) throws PortrayalException {
+            return 0;
+        }
+    }
+
+    /**
+     * Listener recording the loaded tiles in order.
+     */
+    private static final class RecordListener implements TileLoadService.Listener {
+
+        private final List<Point3i> elevations = Collections.synchronizedList(new ArrayList<Point3i>());
+        private final List<Point3i> images = Collections.synchronizedList(new ArrayList<Point3i>());
+
+        @Override
+        public void elevationLoaded(Point3i position, float[] grid) {
+            elevations.add(new Point3i(position));
+        }
+
+        @Override
+        public void imageLoaded(Point3i position, BufferedImage image) {
+            images.add(new Point3i(position));
+        }
+
+        @Override
+        public void loadFailed(Point3i position, Exception ex) {
+            throw new AssertionError(ex);
+        }
+
+        /**
+         * Wait until the given number of results has been received.
+         */
+        private void waitFor(final int count) throws InterruptedException {
+            final long end = System.currentTimeMillis() + TIMEOUT;
+            while (elevations.size() + images.size() < count) {
+                assertTrue("Timeout, received " + elevations + " " + images, System.currentTimeMillis() < end);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.style.function;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.ImagingOpException;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotoolkit.internal.Threads;
+
+/**
+ * ARGB image of the first band of a source image colored by a {@link CompiledColorMap}.
+ * Image has the same tile layout as the source image, tile colors are written
+ * directly in an integer buffer.
+ *
+ * @author agent
+ * @module pending
+ */
+final class ColorMapImage implements RenderedImage {
+
+    private static final int[] MASKS = {0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000};
+    private static final DirectColorModel COLOR_MODEL = (DirectColorModel) ColorModel.getRGBdefault();
+
+    private final RenderedImage source;
+    private final CompiledColorMap colorMap;
+    private final SampleModel sampleModel;
+
+    ColorMapImage(final RenderedImage source, final CompiledColorMap colorMap) {
+        this.source = source;
+        this.colorMap = colorMap;
+        this.sampleModel = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT,
+                source.getTileWidth(), source.getTileHeight(), MASKS);
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        final Vector<RenderedImage> sources = new Vector<>(1);
+        sources.add(source);
+        return sources;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return source.getProperty(name);
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return source.getPropertyNames();
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return COLOR_MODEL;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return source.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return source.getHeight();
+    }
+
+    @Override
+    public int getMinX() {
+        return source.getMinX();
+    }
+
+    @Override
+    public int getMinY() {
+        return source.getMinY();
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return source.getNumXTiles();
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return source.getNumYTiles();
+    }
+
+    @Override
+    public int getMinTileX() {
+        return source.getMinTileX();
+    }
+
+    @Override
+    public int getMinTileY() {
+        return source.getMinTileY();
+    }
+
+    @Override
+    public int getTileWidth() {
+        return source.getTileWidth();
+    }
+
+    @Override
+    public int getTileHeight() {
+        return source.getTileHeight();
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return source.getTileGridXOffset();
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return source.getTileGridYOffset();
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        final Raster tile = source.getTile(tileX, tileY);
+        final Rectangle bounds = tile.getBounds();
+        final WritableRaster raster = createRaster(bounds);
+        fill(tile, bounds, raster);
+        return raster;
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(getMinX(), getMinY(), getWidth(), getHeight()));
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        final WritableRaster raster = createRaster(rect);
+        compute(raster);
+        return raster;
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            return (WritableRaster) getData();
+        }
+        raster.setRect(getData(raster.getBounds()));
+        return raster;
+    }
+
+    /**
+     * Colors the raster area, tiles are computed in parallel.
+     * Raster must have been created by {@link #createRaster(java.awt.Rectangle) }.
+     */
+    private void compute(final WritableRaster target) {
+        final Rectangle area = target.getBounds().intersection(
+                new Rectangle(getMinX(), getMinY(), getWidth(), getHeight()));
+        if (area.isEmpty()) {
+            return;
+        }
+
+        final int tw = getTileWidth();
+        final int th = getTileHeight();
+        final int minTX = floorDiv(area.x - getTileGridXOffset(), tw);
+        final int minTY = floorDiv(area.y - getTileGridYOffset(), th);
+        final int maxTX = floorDiv(area.x + area.width - 1 - getTileGridXOffset(), tw);
+        final int maxTY = floorDiv(area.y + area.height - 1 - getTileGridYOffset(), th);
+        final int nbX = maxTX - minTX + 1;
+        final int nbTiles = nbX * (maxTY - minTY + 1);
+
+        final AtomicInteger next = new AtomicInteger();
+        final Runnable work = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = next.getAndIncrement(); i < nbTiles; i = next.getAndIncrement()) {
+                    final int tx = minTX + i % nbX;
+                    final int ty = minTY + i / nbX;
+                    final Rectangle tileArea = new Rectangle(
+                            tx * tw + getTileGridXOffset(), ty * th + getTileGridYOffset(), tw, th).intersection(area);
+                    fill(source.getData(tileArea), tileArea, target);
+                }
+            }
+        };
+
+        //caller thread works too, workers find no tile left if they start late
+        final int nbWorkers = Math.min(nbTiles, Runtime.getRuntime().availableProcessors()) - 1;
+        final List<FutureTask<Object>> tasks = new ArrayList<>(nbWorkers);
+        for (int i = 0; i < nbWorkers; i++) {
+            final FutureTask<Object> task = new FutureTask<>(work, null);
+            tasks.add(task);
+            Threads.executeWork(task);
+        }
+        work.run();
+
+        try {
+            for (FutureTask<Object> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ImagingOpException("Image coloring interrupted.");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ImagingOpException(cause.getMessage());
+        }
+    }
+
+    private static int floorDiv(final int a, final int b) {
+        final int d = a / b;
+        return (a % b != 0 && (a < 0)) ? d - 1 : d;
+    }
+
+    private static WritableRaster createRaster(final Rectangle bounds) {
+        return Raster.createPackedRaster(new DataBufferInt(bounds.width * bounds.height),
+                bounds.width, bounds.height, bounds.width, MASKS, new Point(bounds.x, bounds.y));
+    }
+
+    /**
+     * Color an area of the source raster in the target raster.
+     * Target raster must have been created by {@link #createRaster(java.awt.Rectangle) }.
+     */
+    private void fill(final Raster src, final Rectangle area, final WritableRaster target) {
+        final int[] argb = ((DataBufferInt) target.getDataBuffer()).getData();
+        final int scanline = target.getWidth();
+        final double[] samples = new double[area.width];
+        for (int y = area.y, maxY = area.y + area.height; y < maxY; y++) {
+            src.getSamples(area.x, y, area.width, 1, 0, samples);
+            int index = (y - target.getMinY()) * scanline + (area.x - target.getMinX());
+            for (int x = 0; x < area.width; x++) {
+                argb[index++] = colorMap.evaluate(samples[x]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.style.function;
+
+import java.awt.Color;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.util.List;
+import java.util.Map;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+
+/**
+ * Categorize or Interpolate color map compiled in primitive arrays.
+ * <p>
+ * Thresholds and colors are evaluated once, a sample color is then found with a
+ * binary search, without expression evaluation nor object allocation.
+ * Results are the same as {@link CompatibleColorModel#getRGB(java.lang.Object) }
+ * with the original function.
+ *
+ * @author agent
+ * @module pending
+ */
+public final class CompiledColorMap {
+
+    private static final int TRANSLUCENT = new Color(255, 255, 255, 0).getRGB();
+
+    /** Ascending thresholds or interpolation points data, NaN excluded. */
+    private final double[] values;
+    /** ARGB colors of each value. */
+    private final int[] colors;
+    /** ARGB color of NaN samples. */
+    private final int nanColor;
+    /** true for interpolate, false for categorize. */
+    private final boolean interpolate;
+    /** Categorize only, true if a sample equal to a threshold belongs to this threshold category. */
+    private final boolean inclusive;
+
+    private CompiledColorMap(double[] values, int[] colors, int nanColor, boolean interpolate, boolean inclusive) {
+        this.values = values;
+        this.colors = colors;
+        this.nanColor = nanColor;
+        this.interpolate = interpolate;
+        this.inclusive = inclusive;
+    }
+
+    /**
+     * Compile a color map function.
+     *
+     * @param function Categorize or Interpolate function
+     * @return compiled color map, null if function can not be compiled
+     */
+    public static CompiledColorMap compile(final Function function) {
+        if (function instanceof DefaultCategorize) {
+            return compile((DefaultCategorize) function);
+        } else if (function instanceof DefaultInterpolate) {
+            return compile((DefaultInterpolate) function);
+        }
+        return null;
+    }
+
+    private static CompiledColorMap compile(final DefaultCategorize function) {
+        final Map<Expression,Expression> thresholds = function.getThresholds();
+        final double[] values = new double[thresholds.size()];
+        final int[] colors = new int[thresholds.size()];
+        int nanColor = 0;
+        int n = 0;
+        for (Map.Entry<Expression,Expression> entry : thresholds.entrySet()) {
+            //NaN samples are in the last category, NaN thresholds are sorted last
+            nanColor = toARGB(entry.getValue().evaluate(null, Color.class));
+            final double value;
+            if (n == 0) {
+                //categorize less infinity, always first
+                value = Double.NEGATIVE_INFINITY;
+            } else {
+                final Double d = entry.getKey().evaluate(null, Double.class);
+                if (d == null) return null;
+                value = d;
+                //NaN thresholds never match a sample
+                if (Double.isNaN(value)) continue;
+                if (value <= values[n-1]) return null;
+            }
+            values[n] = value;
+            colors[n] = nanColor;
+            n++;
+        }
+        final boolean inclusive = function.getBelongTo() != ThreshholdsBelongTo.SUCCEEDING;
+        return new CompiledColorMap(trim(values, n), trim(colors, n), nanColor, false, inclusive);
+    }
+
+    private static CompiledColorMap compile(final DefaultInterpolate function) {
+        final List<InterpolationPoint> points = function.getInterpolationPoints();
+        final double[] values = new double[points.size()];
+        final int[] colors = new int[points.size()];
+        int nanColor = 0;
+        int n = 0;
+        for (int i = 0, nb = points.size(); i < nb; i++) {
+            final InterpolationPoint point = points.get(i);
+            final Color color = point.getValue().evaluate(null, Color.class);
+            if (color == null) return null;
+            final double value = point.getData().doubleValue();
+            if (i == 0) {
+                //NaN samples take the first point color
+                nanColor = color.getRGB();
+            }
+            if (Double.isNaN(value)) continue;
+            if (n > 0 && value < values[n-1]) return null;
+            values[n] = value;
+            colors[n] = color.getRGB();
+            n++;
+        }
+        return new CompiledColorMap(trim(values, n), trim(colors, n), nanColor, true, false);
+    }
+
+    private static int toARGB(final Color color) {
+        return (color == null) ? TRANSLUCENT : color.getRGB();
+    }
+
+    private static double[] trim(final double[] array, final int length) {
+        if (array.length == length) return array;
+        final double[] copy = new double[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static int[] trim(final int[] array, final int length) {
+        if (array.length == length) return array;
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    /**
+     * Compute the color of a sample.
+     *
+     * @param value sample value
+     * @return ARGB color
+     */
+    public int evaluate(final double value) {
+        if (Double.isNaN(value)) {
+            return nanColor;
+        }
+        return interpolate ? interpolate(value) : categorize(value);
+    }
+
+    private int categorize(final double value) {
+        //last category with a threshold lower than value, first category is always included
+        int low = 1;
+        int high = values.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final double t = values[mid];
+            if (t < value || (inclusive && t == value)) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return colors[low - 1];
+    }
+
+    private int interpolate(final double value) {
+        final int n = values.length;
+        if (n == 0) {
+            //no value associated
+            return 0;
+        }
+        //first point with a data greater or equal to value
+        int low = 0;
+        int high = n - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (low == n) {
+            return colors[n-1];
+        } else if (low == 0 || values[low] == value) {
+            return colors[low];
+        }
+        final double d1 = values[low-1];
+        final double pourcent = (value - d1) / (values[low] - d1);
+        return interpolate(colors[low-1], colors[low], pourcent);
+    }
+
+    /**
+     * Same as {@link DefaultInterpolate#interpolate(java.awt.Color, java.awt.Color, double) }
+     * on ARGB values.
+     */
+    private static int interpolate(final int argb1, final int argb2, final double pourcent) {
+        final int lastAlpha     = (argb1>>>24) & 0xFF;
+        final int lastRed       = (argb1>>>16) & 0xFF;
+        final int lastGreen     = (argb1>>> 8) & 0xFF;
+        final int lastBlue      = (argb1>>> 0) & 0xFF;
+        final int alphaInterval = ((argb2>>>24) & 0xFF) - lastAlpha;
+        final int redInterval   = ((argb2>>>16) & 0xFF) - lastRed;
+        final int greenInterval = ((argb2>>> 8) & 0xFF) - lastGreen;
+        final int blueInterval  = ((argb2>>> 0) & 0xFF) - lastBlue;
+
+        final int a = lastAlpha + (int)(pourcent*alphaInterval);
+        final int r = lastRed   + (int)(pourcent*redInterval);
+        final int g = lastGreen + (int)(pourcent*greenInterval);
+        final int b = lastBlue  + (int)(pourcent*blueInterval);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Test if the compiled color map can replace a {@link CompatibleColorModel} on the given image.
+     * Byte and unsigned short samples are read as signed values by the color model, they are not supported.
+     *
+     * @param image image to recolor
+     * @return true if image samples are short, integer, float or double values
+     */
+    public static boolean isSupported(final RenderedImage image) {
+        final int dataType = image.getSampleModel().getDataType();
+        return dataType == DataBuffer.TYPE_SHORT
+            || dataType == DataBuffer.TYPE_INT
+            || dataType == DataBuffer.TYPE_FLOAT
+            || dataType == DataBuffer.TYPE_DOUBLE;
+    }
+
+    /**
+     * Create an ARGB image of the first band of the given image colored with this color map.
+     * Tiles are computed when requested, area requests spanning several tiles are computed in parallel.
+     *
+     * @param image image to recolor
+     * @return recolored image
+     */
+    public RenderedImage apply(final RenderedImage image) {
+        return new ColorMapImage(image, this);
+    }
+
+}
@@ -399,6 +399,14 @@ public class DefaultCategorize extends AbstractExpression implements Categorize
             model = new CompatibleColorModel(candidate.getPixelSize(), this);
         }
 
+        if (model instanceof CompatibleColorModel && CompiledColorMap.isSupported(image)) {
+            //avoid evaluating the function for each pixel, color the image with the compiled map
+            final CompiledColorMap compiled = CompiledColorMap.compile(this);
+            if (compiled != null) {
+                return compiled.apply(image);
+            }
+        }
+
         /*
          * Gives the color model to the image layout and creates a new image using the Null
          * operation, which merely propagates its first source along the operation chain
@@ -0,0 +1,127 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.style.function;
+
+import java.awt.Color;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.media.jai.TiledImage;
+import org.geotoolkit.factory.FactoryFinder;
+import org.geotoolkit.style.StyleConstants;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import static org.junit.Assert.*;
+import static java.awt.Color.*;
+
+/**
+ * Test compiled color maps give the same colors as the functions.
+ *
+ * @author agent
+ */
+public class CompiledColorMapTest {
+
+    private static final FilterFactory FF = FactoryFinder.getFilterFactory(null);
+
+    private static Function createCategorize(final ThreshholdsBelongTo belongTo){
+        final Map<Expression,Expression> values = new HashMap<Expression, Expression>();
+        values.put(StyleConstants.CATEGORIZE_LESS_INFINITY, FF.literal(GREEN));
+        values.put(FF.literal(-10d), FF.literal(RED));
+        values.put(FF.literal(0d), FF.literal(YELLOW));
+        values.put(FF.literal(15.5d), FF.literal(BLUE));
+        values.put(FF.literal(Double.NaN), FF.literal(CYAN));
+        return new DefaultCategorize(StyleConstants.DEFAULT_CATEGORIZE_LOOKUP, values, belongTo, null);
+    }
+
+    private static Function createInterpolate(){
+        final List<InterpolationPoint> points = new ArrayList<InterpolationPoint>();
+        points.add(new DefaultInterpolationPoint(Double.NaN, FF.literal(new Color(0, 0, 0, 0))));
+        points.add(new DefaultInterpolationPoint(-20, FF.literal(BLACK)));
+        points.add(new DefaultInterpolationPoint(0, FF.literal(new Color(255, 0, 0, 128))));
+        points.add(new DefaultInterpolationPoint(0, FF.literal(RED)));
+        points.add(new DefaultInterpolationPoint(50, FF.literal(WHITE)));
+        return new DefaultInterpolate(StyleConstants.DEFAULT_CATEGORIZE_LOOKUP, points, Method.COLOR, Mode.LINEAR, null);
+    }
+
+    private static void compare(final Function function){
+        final CompiledColorMap compiled = CompiledColorMap.compile(function);
+        assertNotNull(compiled);
+        final CompatibleColorModel model = new CompatibleColorModel(32, function);
+
+        final float[] specials = {Float.NaN, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY,
+                                  -20, -10, 0, 15.5f, 50};
+        for(float v : specials){
+            assertEquals(String.valueOf(v), model.getRGB(new float[]{v}), compiled.evaluate(v));
+        }
+        final Random random = new Random(42);
+        for(int i=0; i<10000; i++){
+            final float v = random.nextFloat()*100 - 40;
+            assertEquals(String.valueOf(v), model.getRGB(new float[]{v}), compiled.evaluate(v));
+        }
+    }
+
+    @Test
+    public void categorizeTest(){
+        compare(createCategorize(ThreshholdsBelongTo.SUCCEEDING));
+        compare(createCategorize(ThreshholdsBelongTo.PRECEDING));
+    }
+
+    @Test
+    public void interpolateTest(){
+        compare(createInterpolate());
+    }
+
+    @Test
+    public void imageTest(){
+        final Function function = createInterpolate();
+        final CompatibleColorModel model = new CompatibleColorModel(32, function);
+        final TiledImage image = new TiledImage(0, 0, 100, 70, 0, 0,
+                new BandedSampleModel(DataBuffer.TYPE_FLOAT, 16, 16, 1), model);
+        final Random random = new Random(42);
+        for(int y=0; y<70; y++){
+            for(int x=0; x<100; x++){
+                image.setSample(x, y, 0, random.nextFloat()*100 - 40);
+            }
+        }
+
+        final RenderedImage result = (RenderedImage) function.evaluate(image);
+        assertFalse(result.getColorModel() instanceof CompatibleColorModel);
+        assertEquals(image.getNumXTiles(), result.getNumXTiles());
+        assertEquals(image.getNumYTiles(), result.getNumYTiles());
+
+        final Raster colors = result.getData();
+        final Raster tile = result.getTile(2, 3);
+        for(int y=0; y<70; y++){
+            for(int x=0; x<100; x++){
+                final int expected = model.getRGB(new float[]{image.getSampleFloat(x, y, 0)});
+                assertEquals(expected, result.getColorModel().getRGB(colors.getDataElements(x, y, null)));
+                if(tile.getBounds().contains(x, y)){
+                    assertEquals(expected, result.getColorModel().getRGB(tile.getDataElements(x, y, null)));
+                }
+            }
+        }
+    }
+
+}
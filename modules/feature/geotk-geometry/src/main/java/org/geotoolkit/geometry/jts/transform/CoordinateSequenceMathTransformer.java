@@ -32,7 +32,9 @@ import org.opengis.referencing.operation.TransformException;
  * means that caller are immediately notified if a transformation fails).
  * <p>
  * This transformer support {@linkplain MathTransform math transform} with up to 3 source
- * or target dimensions. This transformer is not thread-safe.
+ * or target dimensions. This transformer is thread-safe: the transformations are performed
+ * in a buffer confined to the calling thread, so the same instance can be shared by many
+ * threads reprojecting features concurrently without blocking each other.
  *
  * @module pending
  * @since 2.1
@@ -53,12 +55,19 @@ public class CoordinateSequenceMathTransformer implements CoordinateSequenceTran
      * buffer will be flushed to the destination array before to continue. We avoid to
      * create a buffer as large than the number of point to transforms, because it would
      * consume a large amount of memory for big geometries.
+     * <p>
+     * There is one buffer per thread, shared by all transformer instances.
      */
-    private final transient double[] buffer = new double[96];
+    private static final ThreadLocal<double[]> BUFFER = new ThreadLocal<double[]>() {
+        @Override
+        protected double[] initialValue() {
+            return new double[96];
+        }
+    };
 
     private final CoordinateSequenceFactory csf;
 
-    private MathTransform transform = null;
+    private volatile MathTransform transform = null;
 
     /**
      * Constructs a default coordinate sequence transformer.
@@ -79,11 +88,11 @@ public class CoordinateSequenceMathTransformer implements CoordinateSequenceTran
         this.transform =transform;
     }
 
-    public synchronized void setTransform(final MathTransform transform) {
+    public void setTransform(final MathTransform transform) {
         this.transform = transform;
     }
 
-    public synchronized MathTransform getTransform() {
+    public MathTransform getTransform() {
         return transform;
     }
 
@@ -91,8 +100,10 @@ public class CoordinateSequenceMathTransformer implements CoordinateSequenceTran
      * {@inheritDoc}
      */
     @Override
-    public synchronized CoordinateSequence transform(final CoordinateSequence sequence, final int minpoints)
+    public CoordinateSequence transform(final CoordinateSequence sequence, final int minpoints)
             throws TransformException {
+        final MathTransform transform = this.transform;
+        final double[] buffer = BUFFER.get();
         final int sourceDim = transform.getSourceDimensions();
         final int targetDim = transform.getTargetDimensions();
         final int size = sequence.size();
@@ -0,0 +1,122 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.geometry.jts.transform;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.impl.CoordinateArraySequenceFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.sis.referencing.CommonCRS;
+import org.geotoolkit.referencing.CRS;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reprojects coordinate sequences from many threads, using the same
+ * {@link CoordinateSequenceMathTransformer} and the transforms cached by
+ * {@link CRS#findMathTransform(CoordinateReferenceSystem, CoordinateReferenceSystem)}.
+ * Verifies that the results are identical to a single-threaded execution and reports
+ * the throughput when the {@code org.geotoolkit.test.verbose} property is set.
+ *
+ * @author agent
+ * @module pending
+ */
+public class ReprojectionStressTest {
+
+    /**
+     * Number of threads running concurrently.
+     */
+    private static final int THREAD_COUNT = 16;
+
+    /**
+     * Number of sequences to reproject in each thread.
+     */
+    private static final int ITERATIONS = 200;
+
+    /**
+     * Number of points in each sequence, larger than the transformer buffer.
+     */
+    private static final int POINT_COUNT = 500;
+
+    @Test
+    public void testConcurrentReprojection() throws Exception {
+        final CoordinateReferenceSystem sourceCRS = CommonCRS.WGS84.normalizedGeographic();
+        final CoordinateReferenceSystem targetCRS = ReprojectTest.getLocalLambertCRS(10, 60);
+        final MathTransform mt = CRS.findMathTransform(sourceCRS, targetCRS);
+        assertSame("The transform shall be cached.", mt, CRS.findMathTransform(sourceCRS, targetCRS));
+
+        final Coordinate[] coords = new Coordinate[POINT_COUNT];
+        for (int i = 0; i < POINT_COUNT; i++) {
+            coords[i] = new Coordinate(i * 0.01, 55 + i * 0.01);
+        }
+        final CoordinateSequence sequence = CoordinateArraySequenceFactory.instance().create(coords);
+        final CoordinateSequenceMathTransformer shared = new CoordinateSequenceMathTransformer(mt);
+        final CoordinateSequence expected = shared.transform(sequence, 0);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            final List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        start.await();
+                        final long time = System.nanoTime();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            final MathTransform trs = CRS.findMathTransform(sourceCRS, targetCRS);
+                            assertSame(mt, trs);
+                            final CoordinateSequence result = shared.transform(sequence, 0);
+                            for (int p = 0; p < POINT_COUNT; p++) {
+                                assertEquals(expected.getX(p), result.getX(p), 0.0);
+                                assertEquals(expected.getY(p), result.getY(p), 0.0);
+                            }
+                        }
+                        return System.nanoTime() - time;
+                    }
+                }));
+            }
+            final long time = System.nanoTime();
+            start.countDown();
+            long cumulative = 0;
+            for (Future<Long> result : results) {
+                cumulative += result.get();
+            }
+            final long elapsed = System.nanoTime() - time;
+            if (Boolean.getBoolean("org.geotoolkit.test.verbose")) {
+                final long points = (long) THREAD_COUNT * ITERATIONS * POINT_COUNT;
+                System.out.println("Threads:             " + THREAD_COUNT);
+                System.out.println("Sequences/thread:    " + ITERATIONS);
+                System.out.println("Overall time (ms):   " + elapsed / 1E+6);
+                System.out.println("Average thread (ms): " + cumulative / THREAD_COUNT / 1E+6);
+                System.out.println("Throughput (pts/ms): " + points / (elapsed / 1E+6));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import org.geotoolkit.internal.tree.Calculator;
 import java.io.IOException;
 import java.util.Arrays;
 import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.ArraysExt;
 import org.apache.sis.util.Classes;
 import static org.geotoolkit.internal.tree.TreeUtilities.*;
 import org.geotoolkit.internal.tree.TreeAccess;
@@ -127,6 +128,37 @@ public abstract class AbstractTree<E> implements Tree<E> {
         return new TreeIntegerIdentifierIterator(treeAccess, regSearch);
     }
     
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public int[] searchNearest(final Envelope regionSearch, final int k) throws StoreIndexException {
+        return searchNearest(regionSearch, k, Double.POSITIVE_INFINITY, null);
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public int[] searchNearest(final Envelope regionSearch, final int k, final double maxDistance,
+            final DistanceRefinement refinement) throws StoreIndexException {
+        ArgumentChecks.ensureNonNull("Envelope regionSearch", regionSearch);
+        ArgumentChecks.ensurePositive("k", k);
+        final double[] regSearch = TreeUtilities.getCoords(regionSearch);
+        if (ArraysExt.hasNaN(regSearch))
+            throw new StoreIndexException("regionSearch parameter should not contain NaN value. region search : "+Arrays.toString(regSearch));
+        final Node root = getRoot();
+        if (k > 0 && root != null && !root.isEmpty()) {
+            try {
+                return treeAccess.searchNearest(root.getNodeId(), regSearch, k, maxDistance, refinement);
+            } catch (IOException ex) {
+                throw new StoreIndexException(this.getClass().getName()+" impossible to find nearest stored elements from "
+                        +Arrays.toString(regSearch)+" region search area.", ex);
+            }
+        }
+        return new int[0];
+    }
+
     /**
      * {@inheritDoc}
      */
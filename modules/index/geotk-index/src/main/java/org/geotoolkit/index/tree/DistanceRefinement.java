@@ -0,0 +1,43 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.index.tree;
+
+import java.io.IOException;
+
+/**
+ * Compute exact distance between search region and a stored data during nearest search.<br/><br/>
+ * Tree only knows data boundaries, so without refinement nearest search results are ordered
+ * by distance between search region and data boundaries. A refinement allows to order them
+ * from the real data shapes, like geometry distances.
+ *
+ * @author agent
+ * @see Tree#searchNearest(org.opengis.geometry.Envelope, int, double, org.geotoolkit.index.tree.DistanceRefinement)
+ */
+public interface DistanceRefinement {
+
+    /**
+     * Return exact distance between search region and data at given tree identifier.<br/>
+     * Returned value must not be lower than {@code boundaryDistance}, which is use as lower bound
+     * to prune tree during search.
+     *
+     * @param treeIdentifier tree identifier of candidate data.
+     * @param boundaryDistance distance between search region and candidate data boundary.
+     * @return exact distance, or {@link Double#NaN} to exclude candidate from results.
+     * @throws IOException if problem during data reading.
+     */
+    double refine(int treeIdentifier, double boundaryDistance) throws IOException;
+}
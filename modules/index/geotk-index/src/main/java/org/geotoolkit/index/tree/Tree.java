@@ -54,6 +54,38 @@ public interface Tree<E> extends Closeable {
      */
     TreeIdentifierIterator search(final Envelope regionSearch) throws StoreIndexException;
     
+    /**
+     * Find the {@code k} tree identifiers whose stored datas are the nearest from {@code regionSearch},
+     * ordered by increasing distance between {@code regionSearch} and data boundaries.
+     * 
+     * @param regionSearch Define area of search, may be a point.
+     * @param k maximum result number.
+     * @return integer table which contain tree identifiers of nearest datas, nearest first.
+     * @throws StoreIndexException if regionSearch own NaN coordinates value or problem during search on stored file.
+     * @see #searchNearest(org.opengis.geometry.Envelope, int, double, org.geotoolkit.index.tree.DistanceRefinement) 
+     */
+    int[] searchNearest(final Envelope regionSearch, final int k) throws StoreIndexException;
+
+    /**
+     * Find the {@code k} tree identifiers whose stored datas are the nearest from {@code regionSearch},
+     * ordered by increasing distance.<br/>
+     * Distances between {@code regionSearch} and data boundaries are refined by the given 
+     * {@link DistanceRefinement}, which is only called on datas which may be part of result.
+     * 
+     * <blockquote><font size=-1>
+     * <strong>NOTE: distances are Euclidean distances expressed in tree CRS units.</strong>
+     * </font></blockquote>
+     * 
+     * @param regionSearch Define area of search, may be a point.
+     * @param k maximum result number.
+     * @param maxDistance datas further than this distance are excluded, may be {@link Double#POSITIVE_INFINITY}.
+     * @param refinement exact distance computing, or {@code null} to use data boundary distances.
+     * @return integer table which contain tree identifiers of nearest datas, nearest first.
+     * @throws StoreIndexException if regionSearch own NaN coordinates value or problem during search on stored file.
+     */
+    int[] searchNearest(final Envelope regionSearch, final int k, final double maxDistance, 
+            final DistanceRefinement refinement) throws StoreIndexException;
+    
     /**
      * Insert an Object into Rtree.
      *
@@ -21,12 +21,16 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 import org.geotoolkit.index.tree.AbstractTree;
+import org.geotoolkit.index.tree.DistanceRefinement;
 import org.geotoolkit.index.tree.Node;
 import org.geotoolkit.index.tree.StoreIndexException;
 import org.geotoolkit.index.tree.basic.SplitCase;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
+import static org.geotoolkit.internal.tree.TreeUtilities.getMinimumDistance;
+
 /**
  * Mechanic to store Tree architecture.<br/><br/>
  * It exist two differents implementation.<br/>
@@ -150,6 +154,61 @@ public abstract class TreeAccess {
         return Arrays.copyOf(tabSearch, currentPosition);
     }
     
+    /**
+     * Find the {@code k} values stored in Tree which are the nearest from region search,
+     * ordered by increasing distance.<br/><br/>
+     * Nodes are travelled best-first, in increasing distance from region search, so only Nodes
+     * which may contain a result are red. Distances are Euclidean distances in Tree CRS units.
+     * When a {@link DistanceRefinement} is given, candidate values are ordered by their refined
+     * distance and Node boundary distances are only use as lower bound.
+     *
+     * @param nodeID Node identifier where search begin. Generaly begin at root node identifier.
+     * @param regionSearch boundary of search region.
+     * @param k maximum result number.
+     * @param maxDistance values further than this distance are excluded.
+     * @param refinement exact distance computing, may be {@code null} to use value boundary distances.
+     * @return integer table which contain nearest value stored in Tree, nearest first.
+     * @throws IOException if read Exception in {@link TreeAccessFile} implementation or during refinement.
+     */
+    public synchronized int[] searchNearest(final int nodeID, final double[] regionSearch, final int k,
+            final double maxDistance, final DistanceRefinement refinement) throws IOException {
+        final PriorityQueue<NearestCandidate> queue = new PriorityQueue<NearestCandidate>();
+        int[] result = new int[Math.min(k, 100)];
+        int count = 0;
+        queue.add(new NearestCandidate(readNode(nodeID), 0));
+        while (count < k && !queue.isEmpty()) {
+            final NearestCandidate candidate = queue.poll();
+            if (candidate.distance > maxDistance) break;
+            final Node node = candidate.node;
+            if (node == null || (node.isData() && refinement == null)) {
+                // candidate has its final distance, no other candidate can be nearer.
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.min(k, count << 1));
+                }
+                result[count++] = (node == null) ? candidate.value : -node.getChildId();// childID is value in data
+            } else if (node.isData()) {
+                final int value = -node.getChildId();
+                final double exact = refinement.refine(value, candidate.distance);
+                if (exact <= maxDistance) {
+                    queue.add(new NearestCandidate(value, Math.max(exact, candidate.distance)));
+                }
+            } else {
+                int sibl = node.getChildId();
+                while (sibl != 0) {
+                    final Node child = readNode(sibl);
+                    if (!child.isEmpty() && child.getBoundary() != null) {
+                        final double dist = getMinimumDistance(regionSearch, child.getBoundary());
+                        if (dist <= maxDistance) {
+                            queue.add(new NearestCandidate(child, dist));
+                        }
+                    }
+                    sibl = child.getSiblingId();
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
     /**
      * Search method adapted for implementation. 
      * 
@@ -325,4 +384,40 @@ public abstract class TreeAccess {
         final int currentID = (recycleID.isEmpty()) ? nodeId++ : recycleID.remove(0);
         return new Node(this, currentID, boundary, properties, parentId, siblingId, childId);
     }
+
+    /**
+     * Element of nearest search queue, a {@link Node} to visit or a value with its refined distance.
+     */
+    private static final class NearestCandidate implements Comparable<NearestCandidate> {
+
+        private final Node node;
+        private final int value;
+        private final double distance;
+
+        NearestCandidate(final Node node, final double distance) {
+            this.node     = node;
+            this.value    = 0;
+            this.distance = distance;
+        }
+
+        NearestCandidate(final int value, final double distance) {
+            this.node     = null;
+            this.value    = value;
+            this.distance = distance;
+        }
+
+        /**
+         * Order by distance, then values before Nodes to end search as soon as possible.
+         */
+        @Override
+        public int compareTo(final NearestCandidate other) {
+            final int c = Double.compare(distance, other.distance);
+            if (c != 0) return c;
+            return rank() - other.rank();
+        }
+
+        private int rank() {
+            return (node == null) ? 0 : node.isData() ? 1 : 2;
+        }
+    }
 }
@@ -158,6 +158,34 @@ public class TreeUtilities {
         return getDistanceBetween2Positions(getMedian(envelopA), getMedian(envelopB));
     }
     
+    /**
+     * Compute minimum Euclidean distance between two "envelopes" in dimension n.<br/>
+     * Distance is zero if envelopes intersect, and NaN if one of them contains NaN coordinates.
+     *
+     * @param envelopA first envelope coordinates.
+     * @param envelopB second envelope coordinates.
+     * @return minimum distance between the two envelopes.
+     */
+    public static double getMinimumDistance(final double[] envelopA, final double[] envelopB) {
+        ArgumentChecks.ensureNonNull("getMinimumDistance : envelopA", envelopA);
+        ArgumentChecks.ensureNonNull("getMinimumDistance : envelopB", envelopB);
+        assert (envelopA.length == envelopB.length) :"getMinimumDistance : envelope should have same dimension number.";
+        final int dim = envelopA.length >> 1;
+        double sum = 0;
+        for (int i = 0, d = dim; i < dim; i++, d++) {
+            double delta = envelopB[i] - envelopA[d];
+            if (!(delta > 0)) {
+                delta = envelopA[i] - envelopB[d];
+                if (!(delta > 0)) {
+                    if (Double.isNaN(delta)) return Double.NaN;
+                    continue;
+                }
+            }
+            sum += delta * delta;
+        }
+        return Math.sqrt(sum);
+    }
+
     /**
      * Compute general boundary of all {@code Envelope} passed in parameter.
      *
@@ -28,6 +28,7 @@ import org.junit.Test;
 import static org.geotoolkit.internal.tree.TreeUtilities.*;
 import static org.geotoolkit.index.tree.TreeTest.createEntry;
 import org.geotoolkit.internal.tree.TreeAccess;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.cs.CoordinateSystem;
@@ -329,6 +330,55 @@ public abstract class AbstractTreeTest extends TreeTest {
         assertTrue(tabResult.length == 0);
     }
     
+    /**
+     * Test nearest search, compared with distances computed from all inserted datas.
+     */
+    @Test
+    public void nearestTest() throws StoreIndexException, IOException {
+        if (tree.getRoot() == null) insert();
+        final double[] point = new double[dimension << 1];
+        for (int i = 0; i < dimension; i++) {
+            point[i] = point[dimension + i] = (minMax[i] + minMax[dimension + i]) / 2;
+        }
+        final GeneralEnvelope rG = new GeneralEnvelope(crs);
+        rG.setEnvelope(point);
+        
+        final double[] expected = new double[lSize];
+        final double[] expectedCenter = new double[lSize];
+        for (int i = 0; i < lSize; i++) {
+            expected[i]       = getMinimumDistance(point, lData.get(i));
+            expectedCenter[i] = getDistanceBetween2Envelopes(point, lData.get(i));
+        }
+        Arrays.sort(expected);
+        Arrays.sort(expectedCenter);
+        
+        final int k = 10;
+        int[] tabResult = tree.searchNearest(rG, k);
+        assertEquals(k, tabResult.length);
+        for (int i = 0; i < k; i++) {
+            assertEquals(expected[i], getMinimumDistance(point, tEM.getObjectFromTreeIdentifier(tabResult[i])), 1E-9);
+        }
+        
+        // distance limit
+        tabResult = tree.searchNearest(rG, lSize, expected[4], null);
+        int expectedNumber = 0;
+        while (expectedNumber < lSize && expected[expectedNumber] <= expected[4]) expectedNumber++;
+        assertEquals(expectedNumber, tabResult.length);
+        
+        // refined distance, from data center
+        final DistanceRefinement refinement = new DistanceRefinement() {
+            @Override
+            public double refine(final int treeIdentifier, final double boundaryDistance) throws IOException {
+                return getDistanceBetween2Envelopes(point, tEM.getObjectFromTreeIdentifier(treeIdentifier));
+            }
+        };
+        tabResult = tree.searchNearest(rG, k, Double.POSITIVE_INFINITY, refinement);
+        assertEquals(k, tabResult.length);
+        for (int i = 0; i < k; i++) {
+            assertEquals(expectedCenter[i], getDistanceBetween2Envelopes(point, tEM.getObjectFromTreeIdentifier(tabResult[i])), 1E-9);
+        }
+    }
+    
     /**
      * Test insertion and deletion in tree.
      *
@@ -1261,7 +1261,7 @@ public class NetCDFExtractor {
         return results;
     }
     
-    private static List<String> parseSeparatorValues(final NCFieldAnalyze analyze) throws IOException {
+    static List<String> parseSeparatorValues(final NCFieldAnalyze analyze) throws IOException {
         final List<String> separators = new ArrayList<>();
         if (analyze.separatorField != null) {
             final Variable separatorVar = analyze.vars.get(analyze.separatorField.label);
@@ -0,0 +1,503 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+
+package org.geotoolkit.sos.netcdf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import org.apache.sis.measure.Longitude;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.gml.xml.AbstractGeometry;
+import org.geotoolkit.observation.xml.AbstractObservation;
+import org.geotoolkit.sampling.xml.SamplingFeature;
+import org.geotoolkit.sos.MeasureStringBuilder;
+import static org.geotoolkit.sos.netcdf.FeatureType.*;
+import static org.geotoolkit.sos.netcdf.NetCDFUtils.*;
+import org.geotoolkit.sos.xml.SOSXmlFactory;
+import org.geotoolkit.swe.xml.AbstractDataRecord;
+import org.geotoolkit.swe.xml.Phenomenon;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.observation.Observation;
+import org.opengis.temporal.Instant;
+import org.opengis.temporal.Period;
+import org.opengis.temporal.TemporalObject;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Extracts the observations of a timeseries or trajectory NetCDF file without loading the whole
+ * variables in memory. The variables are read by chunks along the time dimension, and each chunk
+ * of each procedure is sent as a separated observation to a {@link Handler}, so the memory used
+ * depends on the chunk size and not on the file size.
+ * <p>
+ * The procedure and time window filters are applied before reading the phenomenon variables:
+ * rejected procedures are never read, and only the part of a chunk inside the time window is read.
+ * <p>
+ * If an executor is given, the procedures are extracted in parallel, each one with its own
+ * {@link NetcdfFile} instance. In such case the handler must be thread-safe.
+ * <p>
+ * Profile and grid files are not indexed by time. For those files, this class delegates to
+ * {@link NetCDFExtractor} and sends the resulting observations to the handler. In such case
+ * the time window selects whole observations: the observations whose sampling time intersects
+ * the window are sent with all their values.
+ *
+ * @author agent
+ * @module pending
+ */
+public class NetCDFStreamExtractor {
+
+    private static final Logger LOGGER = Logging.getLogger(NetCDFStreamExtractor.class);
+
+    /**
+     * The default number of time steps read in a single chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    /**
+     * Receives the extracted observations.
+     */
+    public static interface Handler {
+        /**
+         * Invoked for each chunk of each procedure.
+         *
+         * @param procedureID The procedure identifier.
+         * @param observation The observation for a chunk of the procedure time series.
+         * @throws NetCDFParsingException if the observation can not be handled. The extraction is stopped.
+         */
+        void observation(String procedureID, Observation observation) throws NetCDFParsingException;
+    }
+
+    private final NCFieldAnalyze analyze;
+
+    private final int chunkSize;
+
+    private Date startTime;
+
+    private Date endTime;
+
+    /**
+     * Creates a new extractor for a file analyzed by {@link NetCDFExtractor#analyzeResult(java.io.File, java.lang.String)}.
+     *
+     * @param analyze The analyzed file.
+     * @param chunkSize The number of time steps read in a single chunk.
+     */
+    public NetCDFStreamExtractor(final NCFieldAnalyze analyze, final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive : " + chunkSize);
+        }
+        this.analyze   = analyze;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Restricts the extraction to the given time window.
+     *
+     * @param startTime The start of the window (inclusive), or {@code null} for no lower limit.
+     * @param endTime The end of the window (inclusive), or {@code null} for no upper limit.
+     */
+    public void setTimeWindow(final Date startTime, final Date endTime) {
+        this.startTime = startTime;
+        this.endTime   = endTime;
+    }
+
+    /**
+     * Extracts the observations and sends them to the given handler.
+     *
+     * @param procedureID The identifier of the procedure, used as prefix for the sub-procedures.
+     * @param acceptedProcedureIDs The procedures to extract, or {@code null} for all procedures.
+     * @param handler The receiver of the observations.
+     * @param executor The executor for extracting procedures in parallel, or {@code null}
+     *                 for extracting them in the current thread.
+     * @throws NetCDFParsingException if an error occurred while reading the file or in the handler.
+     */
+    public void extract(final String procedureID, final List<String> acceptedProcedureIDs,
+            final Handler handler, final ExecutorService executor) throws NetCDFParsingException {
+        if (analyze.featureType != TIMESERIES && analyze.featureType != TRAJECTORY) {
+            final ExtractionResult result = NetCDFExtractor.getObservationFromNetCDF(analyze, procedureID, acceptedProcedureIDs);
+            if (result != null) {
+                for (Observation observation : result.observations) {
+                    if (!intersectsTimeWindow(observation.getSamplingTime())) {
+                        continue;
+                    }
+                    String id = procedureID;
+                    if (observation instanceof AbstractObservation) {
+                        id = ((AbstractObservation) observation).getProcedure().getHref();
+                    }
+                    handler.observation(id, observation);
+                }
+            }
+            return;
+        }
+        if (analyze.mainField == null) {
+            LOGGER.warning("No main field found");
+            return;
+        }
+        final List<String> separators;
+        final String stationDim;
+        final Array latArray;
+        final Array lonArray;
+        try {
+            separators = NetCDFExtractor.parseSeparatorValues(analyze);
+            if (analyze.separatorField != null) {
+                stationDim = analyze.vars.get(analyze.separatorField.label).getDimension(0).getFullName();
+            } else {
+                stationDim = analyze.dimensionSeparator;
+            }
+            // For timeseries the positions are given by station, so they are small enough to be read fully.
+            if (analyze.featureType == TIMESERIES && analyze.hasSpatial()) {
+                latArray = analyze.getArrayFromField(analyze.latField);
+                lonArray = analyze.getArrayFromField(analyze.lonField);
+            } else {
+                latArray = null;
+                lonArray = null;
+            }
+        } catch (IOException ex) {
+            throw new NetCDFParsingException("error while reading netcdf separators", ex);
+        }
+
+        final List<Callable<Object>> tasks = new ArrayList<>();
+        if (separators.isEmpty()) {
+            if (acceptedProcedureIDs == null || acceptedProcedureIDs.contains(procedureID)) {
+                tasks.add(new Task(-1, null, procedureID, stationDim, latArray, lonArray, handler, executor != null));
+            }
+        } else {
+            for (int j = 0; j < separators.size(); j++) {
+                final String identifier    = separators.get(j);
+                final String currentProcID = procedureID + '-' + identifier;
+                if (acceptedProcedureIDs == null || acceptedProcedureIDs.contains(currentProcID)) {
+                    tasks.add(new Task(j, identifier, currentProcID, stationDim, latArray, lonArray, handler, executor != null));
+                }
+            }
+        }
+
+        if (executor == null) {
+            for (Callable<Object> task : tasks) {
+                try {
+                    task.call();
+                } catch (NetCDFParsingException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new NetCDFParsingException("error while parsing netcdf file", ex);
+                }
+            }
+        } else {
+            final List<Future<Object>> futures = new ArrayList<>();
+            for (Callable<Object> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            try {
+                for (Future<Object> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+                if (cause instanceof NetCDFParsingException) {
+                    throw (NetCDFParsingException) cause;
+                }
+                throw new NetCDFParsingException("error while parsing netcdf file", cause);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new NetCDFParsingException("netcdf extraction interrupted", ex);
+            } finally {
+                for (Future<Object> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given sampling time intersects the time window.
+     * Observations without sampling time are kept.
+     */
+    private boolean intersectsTimeWindow(final TemporalObject time) {
+        final Date begin;
+        final Date end;
+        if (time instanceof Instant) {
+            begin = end = ((Instant) time).getPosition().getDate();
+        } else if (time instanceof Period) {
+            begin = ((Period) time).getBeginning().getPosition().getDate();
+            end   = ((Period) time).getEnding().getPosition().getDate();
+        } else {
+            return true;
+        }
+        return (startTime == null || end   == null || !end.before(startTime))
+            && (endTime   == null || begin == null || !begin.after(endTime));
+    }
+
+    /**
+     * Extraction of a single procedure.
+     */
+    private final class Task implements Callable<Object> {
+
+        private final int station;
+        private final String identifier;
+        private final String procedureID;
+        private final String stationDim;
+        private final Array latArray;
+        private final Array lonArray;
+        private final Handler handler;
+        private final boolean ownFile;
+
+        private Task(final int station, final String identifier, final String procedureID, final String stationDim,
+                final Array latArray, final Array lonArray, final Handler handler, final boolean ownFile) {
+            this.station     = station;
+            this.identifier  = identifier;
+            this.procedureID = procedureID;
+            this.stationDim  = stationDim;
+            this.latArray    = latArray;
+            this.lonArray    = lonArray;
+            this.handler     = handler;
+            this.ownFile     = ownFile;
+        }
+
+        @Override
+        public Object call() throws IOException, InvalidRangeException, NetCDFParsingException {
+            if (!ownFile) {
+                extract(analyze.file);
+                return null;
+            }
+            // NetcdfFile instances can not be read concurrently.
+            final NetcdfFile file = NetcdfFile.open(analyze.file.getLocation());
+            try {
+                extract(file);
+            } finally {
+                file.close();
+            }
+            return null;
+        }
+
+        private void extract(final NetcdfFile file) throws IOException, InvalidRangeException, NetCDFParsingException {
+            final boolean trajectory = analyze.featureType == TRAJECTORY;
+            final Variable timeVar   = file.findVariable(analyze.mainField.label);
+            final String timeUnits   = analyze.mainField.unit;
+            final Dimension timeDim  = getGoodTimeDimension(timeVar, analyze.dimensionSeparator);
+            final int count          = timeDim.getLength();
+
+            final AbstractDataRecord datarecord;
+            if (trajectory) {
+                datarecord = OMUtils.getDataRecordTrajectory("2.0.0", analyze.phenfields);
+            } else {
+                datarecord = OMUtils.getDataRecordTimeSeries("2.0.0", analyze.phenfields);
+            }
+            final Phenomenon phenomenon = OMUtils.getPhenomenon("2.0.0", analyze.phenfields);
+
+            /*
+             * Variables without time dimension (for example a position by station)
+             * hold a single value for all time steps, they are read only once.
+             */
+            final Variable[] phenVars = new Variable[analyze.phenfields.size()];
+            final Array[] phenArrays  = new Array[phenVars.length];
+            for (int f = 0; f < phenVars.length; f++) {
+                phenVars[f] = file.findVariable(analyze.phenfields.get(f).label);
+                if (!isTimeVariable(phenVars[f], timeDim)) {
+                    phenArrays[f] = readChunk(phenVars[f], timeDim, 0, 1);
+                }
+            }
+            Variable latVar = null;
+            Variable lonVar = null;
+            Array latChunk  = null;
+            Array lonChunk  = null;
+            if (trajectory && analyze.hasSpatial()) {
+                latVar = file.findVariable(analyze.latField.label);
+                lonVar = file.findVariable(analyze.lonField.label);
+                if (!isTimeVariable(latVar, timeDim)) {
+                    latChunk = readChunk(latVar, timeDim, 0, 1);
+                    latVar   = null;
+                }
+                if (!isTimeVariable(lonVar, timeDim)) {
+                    lonChunk = readChunk(lonVar, timeDim, 0, 1);
+                    lonVar   = null;
+                }
+            }
+
+            //read geometry for timeseries (assume point)
+            SamplingFeature sp = null;
+            GeoSpatialBound pointBound = null;
+            if (!trajectory && latArray != null) {
+                final double latitude;
+                final double longitude;
+                if (station < 0) {
+                    latitude  = getDoubleValue(latArray, analyze.latField.fillValue);
+                    longitude = Longitude.normalize(getDoubleValue(lonArray, analyze.lonField.fillValue));
+                } else {
+                    latitude  = getDoubleValue(latArray, station, analyze.latField.fillValue);
+                    longitude = Longitude.normalize(getDoubleValue(lonArray, station, analyze.lonField.fillValue));
+                }
+                if (!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+                    sp = OMUtils.buildSamplingPoint(identifier != null ? identifier : UUID.randomUUID().toString(), latitude, longitude);
+                    pointBound = new GeoSpatialBound();
+                    pointBound.addXYCoordinate(longitude, latitude);
+                    pointBound.addGeometry((AbstractGeometry) sp.getGeometry());
+                }
+            }
+
+            final long start = (startTime != null) ? startTime.getTime() : Long.MIN_VALUE;
+            final long end   = (endTime   != null) ? endTime.getTime()   : Long.MAX_VALUE;
+            final long[] millis = new long[chunkSize];
+
+            for (int offset = 0; offset < count; offset += chunkSize) {
+                final int length = Math.min(chunkSize, count - offset);
+                /*
+                 * Reads the time values first, and reads the other variables only for the
+                 * range of time steps inside the time window.
+                 */
+                final Array timeArray = readChunk(timeVar, timeDim, offset, length);
+                int first = -1, last = -1;
+                for (int i = 0; i < length; i++) {
+                    final long t = getTimeValue(timeUnits, timeArray, i);
+                    if (t == 0 || t == ((Integer.MIN_VALUE * -1) + 1) || t < start || t > end) {
+                        millis[i] = Long.MIN_VALUE;
+                        continue;
+                    }
+                    millis[i] = t;
+                    if (first < 0) first = i;
+                    last = i;
+                }
+                if (first < 0) {
+                    continue;
+                }
+                final int size = last - first + 1;
+                for (int f = 0; f < phenVars.length; f++) {
+                    if (isTimeVariable(phenVars[f], timeDim)) {
+                        phenArrays[f] = readChunk(phenVars[f], timeDim, offset + first, size);
+                    }
+                }
+                if (latVar != null) {
+                    latChunk = readChunk(latVar, timeDim, offset + first, size);
+                }
+                if (lonVar != null) {
+                    lonChunk = readChunk(lonVar, timeDim, offset + first, size);
+                }
+
+                final MeasureStringBuilder sb = new MeasureStringBuilder();
+                final GeoSpatialBound gb      = new GeoSpatialBound();
+                final List<DirectPosition> positions = new ArrayList<>();
+                DirectPosition previousPosition = null;
+                int nbBlock = 0;
+                for (int i = 0; i < size; i++) {
+                    final long t = millis[first + i];
+                    if (t == Long.MIN_VALUE) {
+                        continue;
+                    }
+                    gb.addDate(t);
+                    sb.appendDate(t);
+                    if (latChunk != null) {
+                        final double latitude  = getValue(latChunk, i, analyze.latField.fillValue);
+                        final double longitude = Longitude.normalize(getValue(lonChunk, i, analyze.lonField.fillValue));
+                        sb.appendValue(latitude);
+                        sb.appendValue(longitude);
+                        if (!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+                            final DirectPosition position = SOSXmlFactory.buildDirectPosition("2.0.0", null, 2, Arrays.asList(latitude, longitude));
+                            if (!position.equals(previousPosition)) {
+                                positions.add(position);
+                            }
+                            previousPosition = position;
+                            gb.addXYCoordinate(longitude, latitude);
+                        }
+                    }
+                    for (int f = 0; f < phenArrays.length; f++) {
+                        sb.appendValue(getValue(phenArrays[f], i, analyze.phenfields.get(f).fillValue));
+                    }
+                    sb.closeBlock();
+                    nbBlock++;
+                }
+
+                final String obsid = UUID.randomUUID().toString();
+                SamplingFeature foi = sp;
+                if (trajectory) {
+                    foi = OMUtils.buildSamplingCurve(obsid, positions);
+                    gb.addGeometry((AbstractGeometry) foi.getGeometry());
+                } else if (pointBound != null) {
+                    gb.merge(pointBound);
+                }
+                handler.observation(procedureID, OMUtils.buildObservation(obsid,                         // id
+                                                                          foi,                           // foi
+                                                                          phenomenon,                    // phenomenon
+                                                                          procedureID,                   // procedure
+                                                                          nbBlock,                       // result
+                                                                          datarecord,                    // result
+                                                                          sb,                            // result
+                                                                          gb.getTimeObject("2.0.0")));   // time
+            }
+        }
+
+        /**
+         * Returns the value of a chunk at the given time step. Arrays of variables
+         * without time dimension are scalars, holding the value of every time step.
+         */
+        private double getValue(final Array array, final int i, final Number fillValue) {
+            return (array.getRank() == 0) ? getDoubleValue(array, fillValue) : getDoubleValue(array, i, fillValue);
+        }
+
+        /**
+         * Returns {@code true} if the given variable has the time dimension.
+         */
+        private boolean isTimeVariable(final Variable var, final Dimension timeDim) {
+            for (Dimension dim : var.getDimensions()) {
+                if (dim.getFullName().equals(timeDim.getFullName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Reads a range of time steps of the given variable for the station of this task,
+         * as a one dimensional array. Dimensions other than time and station are read
+         * at their first index. Variables without time dimension are read as a scalar.
+         */
+        private Array readChunk(final Variable var, final Dimension timeDim, final int offset, final int length)
+                throws IOException, InvalidRangeException {
+            final List<Dimension> dims = var.getDimensions();
+            final int rank = dims.size();
+            final int[] origin = new int[rank];
+            final int[] shape  = new int[rank];
+            int timeIndex = -1;
+            for (int d = 0; d < rank; d++) {
+                final Dimension dim = dims.get(d);
+                if (timeIndex < 0 && dim.getFullName().equals(timeDim.getFullName())) {
+                    origin[d]  = offset;
+                    shape[d]   = length;
+                    timeIndex  = d;
+                } else {
+                    origin[d] = (station >= 0 && dim.getFullName().equals(stationDim)) ? station : 0;
+                    shape[d]  = 1;
+                }
+            }
+            Array array = var.read(origin, shape);
+            for (int d = rank; --d >= 0;) {
+                if (d != timeIndex) {
+                    array = array.reduce(d);
+                }
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+
+package org.geotoolkit.sos.netcdf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.geotoolkit.swe.xml.DataArrayProperty;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.observation.Observation;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriteable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link NetCDFStreamExtractor} on a trajectory file of 2 trajectories and 25 time steps,
+ * with positions given by trajectory (without time dimension).
+ *
+ * @author agent
+ */
+public class NetCDFStreamExtractorTest {
+
+    private static final int NB_TIME = 25;
+
+    private static final double[] LATITUDES  = {43.5, 44.5};
+    private static final double[] LONGITUDES = {3.5, 4.5};
+
+    private static File file;
+
+    @BeforeClass
+    public static void createFile() throws Exception {
+        file = File.createTempFile("trajectories", ".nc");
+        final NetcdfFileWriteable nc = NetcdfFileWriteable.createNew(file.getPath(), false);
+        nc.addGlobalAttribute("featureType", "trajectory");
+        final Dimension trajectory = nc.addDimension("trajectory", LATITUDES.length);
+        final Dimension time       = nc.addDimension("time", NB_TIME);
+        nc.addVariable("time", DataType.DOUBLE, new Dimension[] {time});
+        nc.addVariableAttribute("time", "units", "seconds since 1970-01-01 00:00:00");
+        nc.addVariable("lat",  DataType.DOUBLE, new Dimension[] {trajectory});
+        nc.addVariable("lon",  DataType.DOUBLE, new Dimension[] {trajectory});
+        nc.addVariable("temp", DataType.DOUBLE, new Dimension[] {trajectory, time});
+        nc.create();
+        try {
+            // A time value of 0 is considered as missing, so steps start at one hour.
+            final ArrayDouble.D1 times = new ArrayDouble.D1(NB_TIME);
+            for (int i = 0; i < NB_TIME; i++) {
+                times.set(i, 3600 * (i + 1));
+            }
+            final ArrayDouble.D1 lat  = new ArrayDouble.D1(LATITUDES.length);
+            final ArrayDouble.D1 lon  = new ArrayDouble.D1(LATITUDES.length);
+            final ArrayDouble.D2 temp = new ArrayDouble.D2(LATITUDES.length, NB_TIME);
+            for (int j = 0; j < LATITUDES.length; j++) {
+                lat.set(j, LATITUDES[j]);
+                lon.set(j, LONGITUDES[j]);
+                for (int i = 0; i < NB_TIME; i++) {
+                    temp.set(j, i, 100 * j + i);
+                }
+            }
+            nc.write("time", times);
+            nc.write("lat",  lat);
+            nc.write("lon",  lon);
+            nc.write("temp", temp);
+        } finally {
+            nc.close();
+        }
+    }
+
+    @AfterClass
+    public static void deleteFile() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Collects the observations and their result blocks by procedure.
+     */
+    private static final class Collector implements NetCDFStreamExtractor.Handler {
+        final Map<String, Integer> observations = new HashMap<>();
+        final Map<String, List<String[]>> blocks = new HashMap<>();
+
+        @Override
+        public synchronized void observation(final String procedureID, final Observation observation) {
+            final Integer count = observations.get(procedureID);
+            observations.put(procedureID, (count == null) ? 1 : count + 1);
+            List<String[]> list = blocks.get(procedureID);
+            if (list == null) {
+                list = new ArrayList<>();
+                blocks.put(procedureID, list);
+            }
+            final String values = ((DataArrayProperty) observation.getResult()).getDataArray().getValues();
+            for (String block : values.split("@@")) {
+                if (!block.isEmpty()) {
+                    list.add(block.split(",", -1));
+                }
+            }
+        }
+    }
+
+    private static Collector extract(final int chunkSize, final Date start, final Date end,
+            final ExecutorService executor) throws Exception {
+        final NCFieldAnalyze analyze = NetCDFExtractor.analyzeResult(file, null);
+        try {
+            final NetCDFStreamExtractor extractor = new NetCDFStreamExtractor(analyze, chunkSize);
+            extractor.setTimeWindow(start, end);
+            final Collector collector = new Collector();
+            extractor.extract("test", null, collector, executor);
+            return collector;
+        } finally {
+            analyze.file.close();
+        }
+    }
+
+    /**
+     * Checks the blocks of a trajectory: latitude and longitude of the trajectory,
+     * then the temperature of each time step from {@code first}.
+     */
+    private static void assertBlocks(final List<String[]> blocks, final int trajectory, final int first, final int count) {
+        assertEquals(count, blocks.size());
+        for (int i = 0; i < count; i++) {
+            final String[] block = blocks.get(i);
+            assertEquals(4, block.length);
+            assertEquals(LATITUDES[trajectory],  Double.parseDouble(block[1]), 0);
+            assertEquals(LONGITUDES[trajectory], Double.parseDouble(block[2]), 0);
+            assertEquals(100 * trajectory + first + i, Double.parseDouble(block[3]), 0);
+        }
+    }
+
+    /**
+     * Tests the extraction by chunks smaller than the time dimension.
+     */
+    @Test
+    public void testChunks() throws Exception {
+        final Collector collector = extract(10, null, null, null);
+        assertEquals(2, collector.observations.size());
+        assertEquals(Integer.valueOf(3), collector.observations.get("test-0"));
+        assertEquals(Integer.valueOf(3), collector.observations.get("test-1"));
+        assertBlocks(collector.blocks.get("test-0"), 0, 0, NB_TIME);
+        assertBlocks(collector.blocks.get("test-1"), 1, 0, NB_TIME);
+    }
+
+    /**
+     * Tests the time window, only the time steps 5 to 14 are extracted.
+     */
+    @Test
+    public void testTimeWindow() throws Exception {
+        final Date start = new Date(3600000L * 6);
+        final Date end   = new Date(3600000L * 15);
+        final Collector collector = extract(10, start, end, null);
+        // Chunks 0-9 and 10-19 have time steps in the window, chunk 20-24 has none.
+        assertEquals(Integer.valueOf(2), collector.observations.get("test-0"));
+        assertBlocks(collector.blocks.get("test-0"), 0, 5, 10);
+        assertBlocks(collector.blocks.get("test-1"), 1, 5, 10);
+    }
+
+    /**
+     * Tests the extraction of the trajectories in parallel.
+     */
+    @Test
+    public void testParallel() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Collector collector = extract(7, null, null, executor);
+            assertEquals(Integer.valueOf(4), collector.observations.get("test-0"));
+            assertEquals(Integer.valueOf(4), collector.observations.get("test-1"));
+            assertBlocks(collector.blocks.get("test-0"), 0, 0, NB_TIME);
+            assertBlocks(collector.blocks.get("test-1"), 1, 0, NB_TIME);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -35,6 +35,8 @@ import javax.xml.stream.XMLStreamReader;
 
 import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
 import org.geotoolkit.feature.xml.Utils;
 import org.geotoolkit.feature.xml.XmlFeatureReader;
 import org.geotoolkit.feature.xml.jaxb.JAXBEventHandler;
@@ -131,6 +133,20 @@ public class JAXPStreamFeatureReader extends StaxStreamReader implements XmlFeat
         return read();
     }
 
+    /**
+     * Open a lazy reader on a feature collection document. Unlike {@link #read(java.lang.Object) }
+     * features are parsed one at a time when requested, the document is never
+     * fully loaded in memory. Closing the returned reader resets this reader,
+     * streams given by the caller remain the caller's responsibility.
+     *
+     * @param xml the feature collection source
+     * @return FeatureReader, never null
+     */
+    public FeatureReader<FeatureType,Feature> readAsStream(final Object xml) throws IOException, XMLStreamException {
+        setInput(xml);
+        return new StreamReader();
+    }
+
     /**
      * Start to read An object from the XML datasource.
      * @return A feature or featureCollection described in the XML stream.
@@ -271,6 +287,53 @@ public class JAXPStreamFeatureReader extends StaxStreamReader implements XmlFeat
         return collection;
     }
 
+    /**
+     * Move the stream to the next feature of a collection and parse it.
+     *
+     * @return next feature or null if the end of the document is reached
+     */
+    private Feature readNextFeature() throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == START_ELEMENT) {
+                final Name name = Utils.getNameFromQname(reader.getName());
+                final String localName = name.getLocalPart();
+
+                if (localName.equals("FeatureCollection") || localName.equals("featureMember")
+                        || localName.equals("featureMembers") || localName.equals("member")) {
+                    continue;
+
+                } else if (localName.equals("boundedBy")) {
+                    toTagEnd("boundedBy");
+
+                } else {
+                    String fid = null;
+                    if (reader.getAttributeCount() > 0) {
+                        fid = reader.getAttributeValue(0);
+                    }
+                    if (fid == null) {
+                        LOGGER.info("Missing feature id : generating a random one");
+                        fid = UUID.randomUUID().toString();
+                    }
+
+                    final StringBuilder expectedFeatureType = new StringBuilder();
+                    for (FeatureType ft : featureTypes) {
+                        if (ft.getName().equals(name)) {
+                            return (Feature) readFeature(fid, ft);
+                        }
+                        expectedFeatureType.append(ft.getName()).append('\n');
+                    }
+
+                    throw new IllegalArgumentException("The xml does not describe the same type of feature: \n "
+                            + "Expected: " + expectedFeatureType.toString() + '\n'
+                            + "But was: " + name);
+                }
+            }
+        }
+        return null;
+    }
+
     private ComplexAttribute readFeature(final String id, final ComplexType featureType) throws XMLStreamException {
 
         /*
@@ -603,4 +666,64 @@ public class JAXPStreamFeatureReader extends StaxStreamReader implements XmlFeat
     public void setReadEmbeddedFeatureType(boolean readEmbeddedFeatureType) {
         this.properties.put(READ_EMBEDDED_FEATURE_TYPE, readEmbeddedFeatureType);
     }
+    /**
+     * Iterate on the features of the current input, parsing them lazily.
+     */
+    private final class StreamReader implements FeatureReader<FeatureType,Feature> {
+
+        private Feature next = null;
+        private boolean done = false;
+
+        @Override
+        public FeatureType getFeatureType() {
+            return featureTypes.isEmpty() ? null : featureTypes.get(0);
+        }
+
+        @Override
+        public boolean hasNext() throws FeatureStoreRuntimeException {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            try {
+                next = readNextFeature();
+            } catch (XMLStreamException ex) {
+                done = true;
+                throw new FeatureStoreRuntimeException(ex);
+            }
+            done = (next == null);
+            return next != null;
+        }
+
+        @Override
+        public Feature next() throws FeatureStoreRuntimeException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more features.");
+            }
+            final Feature f = next;
+            next = null;
+            return f;
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            next = null;
+            try {
+                reset();
+            } catch (IOException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            } catch (XMLStreamException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+    }
+
 }
@@ -43,6 +43,7 @@ import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.logging.Level;
@@ -62,6 +63,7 @@ import javax.xml.transform.stream.StreamResult;
 import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
+import org.geotoolkit.data.FeatureReader;
 import org.geotoolkit.data.query.QueryBuilder;
 import org.geotoolkit.factory.FactoryFinder;
 import org.geotoolkit.feature.type.DefaultName;
@@ -578,6 +580,34 @@ public class XmlFeatureTest {
         resultIte.close();
         expectedIte.close();
     }
+
+    @Test
+    public void testReadSimpleCollectionAsStream() throws IOException, XMLStreamException{
+        final JAXPStreamFeatureReader reader = new JAXPStreamFeatureReader(simpleTypeBasic);
+        final FeatureReader<FeatureType,Feature> ite = reader.readAsStream(XmlFeatureTest.class
+                .getResourceAsStream("/org/geotoolkit/feature/xml/CollectionSimple.xml"));
+
+        final List<Feature> expected = new ArrayList<>();
+        final FeatureIterator expectedIte = collectionSimple.iterator();
+        while (expectedIte.hasNext()) {
+            expected.add(expectedIte.next());
+        }
+        expectedIte.close();
+
+        final List<Feature> result = new ArrayList<>();
+        try {
+            assertEquals(simpleTypeBasic, ite.getFeatureType());
+            while (ite.hasNext()) {
+                result.add(ite.next());
+            }
+            assertFalse(ite.hasNext());
+        } finally {
+            ite.close();
+        }
+
+        assertEquals(expected.size(), result.size());
+        assertTrue(result.containsAll(expected));
+    }
     
     @Ignore
     @Test
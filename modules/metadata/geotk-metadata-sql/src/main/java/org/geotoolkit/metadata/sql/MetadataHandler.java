@@ -21,6 +21,8 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import net.jcip.annotations.ThreadSafe;
 
 import org.geotoolkit.resources.Errors;
@@ -51,7 +53,7 @@ final class MetadataHandler implements InvocationHandler {
      * this metadata entity in the database. This is usually
      * the primary key in the table which contains this entity.
      */
-    private final String identifier;
+    final String identifier;
 
     /**
      * The connection to the database. All metadata handlers
@@ -59,6 +61,14 @@ final class MetadataHandler implements InvocationHandler {
      */
     private final MetadataSource source;
 
+    /**
+     * The records loaded in a single query, or {@code null} if none. Keys are the metadata
+     * interfaces declaring the getter methods, which are mapped to the tables. Values are
+     * the attributes of the record in that table, as returned by
+     * {@link MetadataResult#readRecord(java.sql.ResultSet)}.
+     */
+    private Map<Class<?>, Map<String,Object>> records;
+
     /**
      * Creates a new metadata handler.
      *
@@ -72,6 +82,25 @@ final class MetadataHandler implements InvocationHandler {
         this.source     = source;
     }
 
+    /**
+     * Returns the record loaded for the table of the given interface,
+     * or {@code null} if the attributes of that table are fetched one by one.
+     */
+    final synchronized Map<String,Object> getRecord(final Class<?> type) {
+        return (records != null) ? records.get(type) : null;
+    }
+
+    /**
+     * Sets the record loaded for the table of the given interface.
+     * Getters of that interface will read their value from the record.
+     */
+    final synchronized void setRecord(final Class<?> type, final Map<String,Object> record) {
+        if (records == null) {
+            records = new HashMap<>(4);
+        }
+        records.put(type, record);
+    }
+
     /**
      * Ensures that the given argument array has the expected length.
      */
@@ -108,7 +137,7 @@ final class MetadataHandler implements InvocationHandler {
              * the information should exists in the underlying database.
              */
             try {
-                return source.getValue(type, method, identifier);
+                return source.getValue(type, method, this);
             } catch (SQLException e) {
                 Class<?> rt = method.getReturnType();
                 if (Collection.class.isAssignableFrom(rt)) {
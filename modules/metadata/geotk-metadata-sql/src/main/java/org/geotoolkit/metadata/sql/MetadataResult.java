@@ -19,7 +19,10 @@ package org.geotoolkit.metadata.sql;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 
@@ -135,6 +138,67 @@ final class MetadataResult extends StatementEntry {
         return getResultSet(identifier).getObject(columnName);
     }
 
+    /**
+     * Returns all attribute values of the given record.
+     *
+     * @param  identifier The object identifier, usually the primary key value.
+     * @return The attribute values, as described in {@link #readRecord(ResultSet)}.
+     * @throws SQLException if an SQL operation failed.
+     *
+     * @since 4.0
+     */
+    public Map<String,Object> getRecord(final String identifier) throws SQLException {
+        return readRecord(getResultSet(identifier));
+    }
+
+    /**
+     * Reads all attribute values of the current row of the given result set. Keys are column
+     * names. SQL arrays are read immediately and wrapped in {@link ArrayValue} instances, so
+     * the returned map can still be used after the result set has been closed.
+     *
+     * @param  results The result set positioned on the row to read.
+     * @return The attribute values of the current row.
+     * @throws SQLException if an SQL operation failed.
+     *
+     * @since 4.0
+     */
+    static Map<String,Object> readRecord(final ResultSet results) throws SQLException {
+        final ResultSetMetaData md = results.getMetaData();
+        final int count = md.getColumnCount();
+        final Map<String,Object> record = new HashMap<>(2*count);
+        for (int i=1; i<=count; i++) {
+            Object value = results.getObject(i);
+            if (value instanceof java.sql.Array) {
+                final java.sql.Array array = (java.sql.Array) value;
+                value = new ArrayValue(array.getArray());
+                array.free();
+            }
+            record.put(md.getColumnLabel(i), value);
+        }
+        return record;
+    }
+
+    /**
+     * The content of a SQL array read by {@link MetadataResult#readRecord(ResultSet)}.
+     * This wrapper is used for distinguishing SQL arrays from other values like binary
+     * data, which are also represented by Java arrays.
+     *
+     * @since 4.0
+     */
+    static final class ArrayValue {
+        /**
+         * The array returned by {@link java.sql.Array#getArray()}.
+         */
+        final Object array;
+
+        /**
+         * Wraps the given array.
+         */
+        ArrayValue(final Object array) {
+            this.array = array;
+        }
+    }
+
     /**
      * Closes this statement and free all resources. After this method
      * has been invoked, this object can't be used anymore.
@@ -19,6 +19,7 @@ package org.geotoolkit.metadata.sql;
 
 import java.util.*;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -50,6 +51,7 @@ import org.apache.sis.util.UnconvertibleObjectException;
 import org.apache.sis.util.logging.Logging;
 
 import static org.apache.sis.util.ArgumentChecks.ensureNonNull;
+import static org.apache.sis.util.ArgumentChecks.ensurePositive;
 
 
 /**
@@ -71,6 +73,17 @@ import static org.apache.sis.util.ArgumentChecks.ensureNonNull;
  * can be created for the same {@link DataSource}. The {@link #MetadataSource(MetadataSource)}
  * convenience constructor can be used for this purpose.
  *
+ * {@section Batched loading}
+ * By default, each getter invoked on a metadata entry queries the value of a single attribute.
+ * When many attributes of the same entries are needed, for example for marshalling a whole
+ * metadata tree, the {@linkplain #setEagerLoading(boolean) eager loading} mode fetches all
+ * attributes of a record in one query the first time one of them is requested. The
+ * {@link #prefetch(Class, Collection, int)} method goes further by loading the records
+ * of many entries, and optionally of their dependencies, with one query per table.
+ * The most recently used entries are kept by strong references, up to the
+ * {@linkplain #setCacheCapacity(int) cache capacity}, so their records are not
+ * discarded by the garbage collector between two usages.
+ *
  * @author Touraïvane (IRD)
  * @author Martin Desruisseaux (IRD, Geomatys)
  * @version 3.03
@@ -86,6 +99,18 @@ public class MetadataSource implements AutoCloseable {
      */
     static final String ID_COLUMN = "ID";
 
+    /**
+     * The default number of most recently used entries kept by strong references.
+     */
+    private static final int DEFAULT_CACHE_CAPACITY = 1000;
+
+    /**
+     * The maximal number of identifiers in the {@code IN} clause of a prefetch query.
+     * Larger sets of identifiers are split in many queries, because some databases
+     * limit the length of SQL statements.
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
     /**
      * The metadata standard to be stored in the database.
      */
@@ -130,6 +155,20 @@ public class MetadataSource implements AutoCloseable {
      */
     private final WeakValueHashMap<CacheKey,Object> cache;
 
+    /**
+     * The most recently used objects, kept by strong references in front of the {@link #cache}.
+     * This map is iterated in access order and its eldest entries are removed when its size
+     * exceeds the capacity. Every access to this map must be synchronized on {@link #cache}.
+     */
+    private final RecentEntries recent;
+
+    /**
+     * Whether getters shall load all attributes of a record in one query.
+     *
+     * @see #setEagerLoading(boolean)
+     */
+    private volatile boolean eagerLoading;
+
     /**
      * A buffer used for constructing SQL statements. This buffer is keep for the
      * duration of this {@code MetadataSource} because it contains database metadata,
@@ -181,6 +220,7 @@ public class MetadataSource implements AutoCloseable {
         statements  = new StatementPool<>(10, dataSource);
         tables      = new HashMap<>();
         cache       = new WeakValueHashMap<>(CacheKey.class);
+        recent      = new RecentEntries(DEFAULT_CACHE_CAPACITY);
         loader      = getClass().getClassLoader();
         synchronized (statements) {
             buffer = new SQLBuilder(statements.connection().getMetaData());
@@ -203,6 +243,87 @@ public class MetadataSource implements AutoCloseable {
         tables     = new HashMap<>();
         cache      = new WeakValueHashMap<>(CacheKey.class);
         statements = new StatementPool<>(source.statements);
+        eagerLoading = source.eagerLoading;
+        synchronized (source.cache) {
+            recent = new RecentEntries(source.recent.capacity);
+        }
+    }
+
+    /**
+     * The most recently used objects, in access order. The eldest entries are removed
+     * when the number of entries exceeds the capacity.
+     */
+    @SuppressWarnings("serial")
+    private static final class RecentEntries extends LinkedHashMap<CacheKey,Object> {
+        /**
+         * The maximal number of entries.
+         */
+        int capacity;
+
+        /**
+         * Creates an empty map of the given capacity.
+         */
+        RecentEntries(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Removes the eldest entry if the map has reached its capacity.
+         */
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<CacheKey,Object> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Returns whether getters load all attributes of a record in one query.
+     *
+     * @return {@code true} if the eager loading mode is enabled.
+     *
+     * @since 4.0
+     */
+    public boolean isEagerLoading() {
+        return eagerLoading;
+    }
+
+    /**
+     * Sets whether getters shall load all attributes of a record in one query. If {@code true},
+     * the first getter invoked on an entry fetches the whole record of the table declaring that
+     * getter, and the next getters of the same table read their value from that record without
+     * querying the database. If {@code false} (the default), each getter queries its attribute.
+     * <p>
+     * The records are retained by the entries, so their values are not updated if the database
+     * is modified after the first access.
+     *
+     * @param eager {@code true} for enabling the eager loading mode.
+     *
+     * @since 4.0
+     */
+    public void setEagerLoading(final boolean eager) {
+        eagerLoading = eager;
+    }
+
+    /**
+     * Sets the number of most recently used entries kept by strong references. Other entries
+     * are shared only while they are referenced elsewhere, and their loaded records are lost
+     * when they are garbage collected. The default capacity is {@value #DEFAULT_CACHE_CAPACITY}.
+     *
+     * @param capacity The maximal number of entries kept by strong references, or 0 for none.
+     *
+     * @since 4.0
+     */
+    public void setCacheCapacity(final int capacity) {
+        ensurePositive("capacity", capacity);
+        synchronized (cache) {
+            recent.capacity = capacity;
+            final Iterator<CacheKey> it = recent.keySet().iterator();
+            for (int n = recent.size(); n > capacity; n--) {
+                it.next();
+                it.remove();
+            }
+        }
     }
 
     /**
@@ -462,11 +583,15 @@ public class MetadataSource implements AutoCloseable {
         } else {
             final CacheKey key = new CacheKey(type, identifier);
             synchronized (cache) {
-                value = cache.get(key);
+                value = recent.get(key);
                 if (value == null) {
-                    value = Proxy.newProxyInstance(loader, new Class<?>[] {type, MetadataProxy.class},
-                            new MetadataHandler(identifier, this));
-                    cache.put(key, value);
+                    value = cache.get(key);
+                    if (value == null) {
+                        value = Proxy.newProxyInstance(loader, new Class<?>[] {type, MetadataProxy.class},
+                                new MetadataHandler(identifier, this));
+                        cache.put(key, value);
+                    }
+                    recent.put(key, value);
                 }
             }
         }
@@ -488,20 +613,37 @@ public class MetadataSource implements AutoCloseable {
      *
      * @param  type       The interface class. This is mapped to the table name in the database.
      * @param  method     The method invoked. This is mapped to the column name in the database.
-     * @param  identifier The primary key of the record to search for.
+     * @param  handler    The handler of the entry, which provides the primary key of the record
+     *                    to search for and the record loaded by a previous query, if any.
      * @return The value of the requested attribute.
      * @throws SQLException if the SQL query failed.
      */
-    final Object getValue(final Class<?> type, final Method method, final String identifier) throws SQLException {
+    final Object getValue(final Class<?> type, final Method method, final MetadataHandler handler) throws SQLException {
+        final String   identifier   = handler.identifier;
         final Class<?> valueType    = method.getReturnType();
         final boolean  isCollection = Collection.class.isAssignableFrom(valueType);
         final Class<?> elementType  = isCollection ? Classes.boundOfParameterizedProperty(method) : valueType;
         final boolean  isMetadata   = standard.isMetadata(elementType);
         final String   tableName    = getTableName(type);
         final String   columnName   = getColumnName(method);
-        final boolean  isArray;
+        boolean isArray;
         Object value;
-        synchronized (statements) {
+        Map<String,Object> record = handler.getRecord(type);
+        if (record == null && eagerLoading) {
+            record = getRecord(type, tableName, identifier);
+            handler.setRecord(type, record);
+        }
+        if (record != null) {
+            /*
+             * The whole record has been loaded by a previous query. Columns which
+             * do not exist are not in the record, so their value is null.
+             */
+            value = record.get(columnName);
+            isArray = (value instanceof MetadataResult.ArrayValue);
+            if (isArray) {
+                value = ((MetadataResult.ArrayValue) value).array;
+            }
+        } else synchronized (statements) {
             if (getExistingColumns(tableName).contains(columnName)) {
                 /*
                  * Prepares the statement and executes the SQL query in this synchronized block.
@@ -592,6 +734,200 @@ public class MetadataSource implements AutoCloseable {
         return value;
     }
 
+    /**
+     * Returns all attributes of a record in a table. If the table does not exist,
+     * then this method returns an empty map.
+     *
+     * @param  type       The interface class. This is mapped to the table name in the database.
+     * @param  tableName  The name of the table mapped to the interface.
+     * @param  identifier The primary key of the record to search for.
+     * @return The attributes of the requested record.
+     * @throws SQLException if the SQL query failed.
+     */
+    private Map<String,Object> getRecord(final Class<?> type, final String tableName, final String identifier)
+            throws SQLException
+    {
+        final Map<String,Object> record;
+        synchronized (statements) {
+            if (getExistingColumns(tableName).isEmpty()) {
+                return Collections.emptyMap();
+            }
+            MetadataResult result = (MetadataResult) statements.remove(type);
+            if (result == null) {
+                final String query = buffer.clear().append("SELECT * FROM ")
+                        .appendIdentifier(schema, tableName).append(" WHERE ")
+                        .append(ID_COLUMN).append("=?").toString();
+                result = new MetadataResult(type, statements.connection().prepareStatement(query));
+            }
+            record = result.getRecord(identifier);
+            if (statements.put(type, result) != null) {
+                throw new AssertionError(type);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Returns the entries for the given identifiers, loading their records with one query.
+     * This method is equivalent to invoking {@link #getEntry(Class, String)} for each
+     * identifier, except that the attributes declared by the given interface are fetched
+     * in advance for all entries. If {@code depth} is greater than zero, then the entries
+     * referenced by those attributes are prefetched too with one query per table, up to
+     * the given depth.
+     * <p>
+     * Prefetched records are retained by their entries, so the most recently used entries
+     * (up to the {@linkplain #setCacheCapacity(int) cache capacity}) do not need to be
+     * queried again. Identifiers without record in the database are ignored by this method,
+     * the error will be reported when the attributes of their entry are requested.
+     *
+     * @param  <T> The parameterized type of the {@code type} argument.
+     * @param  type The interface to implement (e.g. {@link org.opengis.metadata.citation.Citation}).
+     * @param  identifiers The primary keys of the records to load.
+     * @param  depth The number of levels of dependencies to prefetch, or 0 for none.
+     * @return The entries for the given identifiers, in iteration order.
+     * @throws SQLException if a SQL query failed.
+     *
+     * @since 4.0
+     */
+    public <T> List<T> prefetch(final Class<T> type, final Collection<String> identifiers, final int depth)
+            throws SQLException
+    {
+        ensureNonNull("type", type);
+        ensureNonNull("identifiers", identifiers);
+        ensurePositive("depth", depth);
+        final List<T> entries = new ArrayList<>(identifiers.size());
+        final Map<String,MetadataHandler> missing = new LinkedHashMap<>();
+        for (final String identifier : identifiers) {
+            final T entry = getEntry(type, identifier);
+            entries.add(entry);
+            if (entry instanceof MetadataProxy) {
+                final MetadataHandler handler = (MetadataHandler) Proxy.getInvocationHandler(entry);
+                if (handler.getRecord(type) == null) {
+                    missing.put(identifier, handler);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            final Map<String, Map<String,Object>> records = getRecords(type, missing.keySet());
+            final Map<Class<?>, Set<String>> dependencies = new LinkedHashMap<>();
+            for (final Map.Entry<String,MetadataHandler> entry : missing.entrySet()) {
+                final Map<String,Object> record = records.get(entry.getKey());
+                if (record != null) {
+                    entry.getValue().setRecord(type, record);
+                    if (depth != 0) {
+                        addDependencies(type, record, dependencies);
+                    }
+                }
+            }
+            for (final Map.Entry<Class<?>, Set<String>> entry : dependencies.entrySet()) {
+                prefetch(entry.getKey(), entry.getValue(), depth - 1);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns all attributes of the records having the given identifiers. This method
+     * executes one query for each group of {@value #MAX_BATCH_SIZE} identifiers. If the
+     * table does not exist, then every record is an empty map.
+     *
+     * @param  type The interface class. This is mapped to the table name in the database.
+     * @param  identifiers The primary keys of the records to search for.
+     * @return The attributes of the records found, by identifier.
+     * @throws SQLException if a SQL query failed.
+     */
+    private Map<String, Map<String,Object>> getRecords(final Class<?> type, final Collection<String> identifiers)
+            throws SQLException
+    {
+        final String tableName = getTableName(type);
+        final Map<String, Map<String,Object>> records = new HashMap<>();
+        synchronized (statements) {
+            if (getExistingColumns(tableName).isEmpty()) {
+                for (final String identifier : identifiers) {
+                    records.put(identifier, Collections.<String,Object>emptyMap());
+                }
+                return records;
+            }
+            final Iterator<String> it = identifiers.iterator();
+            final List<String> batch = new ArrayList<>(Math.min(identifiers.size(), MAX_BATCH_SIZE));
+            while (it.hasNext()) {
+                batch.clear();
+                buffer.clear().append("SELECT * FROM ").appendIdentifier(schema, tableName)
+                        .append(" WHERE ").append(ID_COLUMN).append(" IN (");
+                do {
+                    if (!batch.isEmpty()) {
+                        buffer.append(',');
+                    }
+                    buffer.append('?');
+                    batch.add(it.next());
+                } while (it.hasNext() && batch.size() < MAX_BATCH_SIZE);
+                buffer.append(')');
+                try (PreparedStatement stmt = statements.connection().prepareStatement(buffer.toString())) {
+                    for (int i=0; i<batch.size(); i++) {
+                        stmt.setString(i+1, batch.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            final String identifier = rs.getString(ID_COLUMN);
+                            if (records.put(identifier, MetadataResult.readRecord(rs)) != null) {
+                                Logging.log(MetadataSource.class, "prefetch", Errors.getResources(null).getLogRecord(
+                                        Level.WARNING, Errors.Keys.DUPLICATED_VALUES_FOR_KEY_1, identifier));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Adds the identifiers of the metadata referenced by the given record to the given map.
+     * Only the attributes declared by the given interface are inspected, since they are the
+     * attributes stored in the record table. Code lists are ignored.
+     *
+     * @param type         The interface class mapped to the table of the record.
+     * @param record       The attributes of the record.
+     * @param dependencies Where to add the identifiers, by metadata interface.
+     */
+    private void addDependencies(final Class<?> type, final Map<String,Object> record,
+            final Map<Class<?>, Set<String>> dependencies)
+    {
+        for (final Method method : type.getMethods()) {
+            if (method.getDeclaringClass() != type || method.getParameterTypes().length != 0) {
+                continue;
+            }
+            Object value = record.get(getColumnName(method));
+            if (value == null) {
+                continue;
+            }
+            final Class<?> valueType   = method.getReturnType();
+            final Class<?> elementType = Collection.class.isAssignableFrom(valueType)
+                    ? Classes.boundOfParameterizedProperty(method) : valueType;
+            if (elementType == null || CodeList.class.isAssignableFrom(elementType)
+                    || !standard.isMetadata(elementType))
+            {
+                continue;
+            }
+            Set<String> identifiers = dependencies.get(elementType);
+            if (identifiers == null) {
+                identifiers = new LinkedHashSet<>();
+                dependencies.put(elementType, identifiers);
+            }
+            if (value instanceof MetadataResult.ArrayValue) {
+                value = ((MetadataResult.ArrayValue) value).array;
+                for (int i=Array.getLength(value); --i >= 0;) {
+                    final Object element = Array.get(value, i);
+                    if (element != null) {
+                        identifiers.add(element.toString());
+                    }
+                }
+            } else {
+                identifiers.add(value.toString());
+            }
+        }
+    }
+
     /**
      * Converts the specified non-metadata value into an object of the expected type.
      * The expected value is an instance of a class outside the metadata package, for
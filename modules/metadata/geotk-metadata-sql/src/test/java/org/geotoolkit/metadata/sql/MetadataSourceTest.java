@@ -0,0 +1,314 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.metadata.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+import org.opengis.metadata.citation.Contact;
+import org.opengis.metadata.citation.OnlineResource;
+import org.apache.sis.metadata.MetadataStandard;
+import org.geotoolkit.internal.sql.DefaultDataSource;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the eager loading, prefetching and cache of {@link MetadataSource} on a small
+ * Derby database created by this test, independently of {@link MetadataWriter}.
+ * The number of SQL queries is counted by wrapping the JDBC objects.
+ *
+ * @author agent
+ * @version 4.0
+ *
+ * @since 4.0
+ */
+public final strictfp class MetadataSourceTest {
+    /**
+     * Number of records in each table. Must be greater than the maximal number
+     * of identifiers in a prefetch query, which is 500.
+     */
+    private static final int COUNT = 1200;
+
+    /**
+     * The in-memory database, created once for all tests.
+     */
+    private static DefaultDataSource database;
+
+    /**
+     * The number of queries executed since the beginning of the current test.
+     */
+    private final AtomicInteger queries = new AtomicInteger();
+
+    /**
+     * The source to test, created for each test on a data source counting the queries.
+     */
+    private MetadataSource source;
+
+    /**
+     * Creates a {@code CI_OnlineResource} table and a {@code CI_Contact} table
+     * referencing the online resources.
+     *
+     * @throws SQLException If an error occurred while writing the database.
+     */
+    @BeforeClass
+    public static void createDatabase() throws SQLException {
+        database = new DefaultDataSource("jdbc:derby:memory:MetadataSourceTest;create=true");
+        try (Connection c = database.getConnection(); Statement stmt = c.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE \"CI_OnlineResource\" (ID VARCHAR(10) NOT NULL PRIMARY KEY,"
+                    + " \"linkage\" VARCHAR(60), \"protocol\" VARCHAR(10))");
+            stmt.executeUpdate("CREATE TABLE \"CI_Contact\" (ID VARCHAR(10) NOT NULL PRIMARY KEY,"
+                    + " \"onlineResource\" VARCHAR(10))");
+            try (PreparedStatement resources = c.prepareStatement("INSERT INTO \"CI_OnlineResource\" VALUES (?,?,?)");
+                 PreparedStatement contacts  = c.prepareStatement("INSERT INTO \"CI_Contact\" VALUES (?,?)"))
+            {
+                for (int i=0; i<COUNT; i++) {
+                    resources.setString(1, "R" + i);
+                    resources.setString(2, "http://www.geotoolkit.org/R" + i);
+                    resources.setString(3, "HTTP");
+                    resources.executeUpdate();
+                    contacts.setString(1, "C" + i);
+                    contacts.setString(2, "R" + i);
+                    contacts.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Shutdowns the database.
+     */
+    @AfterClass
+    public static void shutdown() {
+        database.shutdown();
+        database = null;
+    }
+
+    /**
+     * Creates the source to test.
+     *
+     * @throws SQLException If the connection to the database failed.
+     */
+    @Before
+    public void createSource() throws SQLException {
+        source = new MetadataSource(MetadataStandard.ISO_19115, wrap(DataSource.class, database), null);
+        queries.set(0);
+    }
+
+    /**
+     * Closes the source.
+     *
+     * @throws SQLException If an error occurred while closing the connection.
+     */
+    @After
+    public void closeSource() throws SQLException {
+        source.close();
+        source = null;
+    }
+
+    /**
+     * Wraps the given JDBC object in a proxy counting the executed queries.
+     */
+    private <T> T wrap(final Class<T> type, final Object target) {
+        return type.cast(Proxy.newProxyInstance(MetadataSourceTest.class.getClassLoader(),
+                new Class<?>[] {type}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if (method.getName().startsWith("executeQuery")) {
+                    queries.incrementAndGet();
+                }
+                final Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof PreparedStatement) {
+                    return wrap(PreparedStatement.class, result);
+                } else if (result instanceof Statement) {
+                    return wrap(Statement.class, result);
+                } else if (result instanceof Connection) {
+                    return wrap(Connection.class, result);
+                }
+                return result;
+            }
+        }));
+    }
+
+    /**
+     * Returns the expected linkage of the online resource of the given index.
+     */
+    private static String linkage(final int i) {
+        return "http://www.geotoolkit.org/R" + i;
+    }
+
+    /**
+     * Tests the eager loading mode: the first getter loads the whole record, so reading an
+     * other attribute after having read an other entry does not query the database again.
+     *
+     * @throws SQLException If an error occurred while reading the database.
+     */
+    @Test
+    public void testEagerLoading() throws SQLException {
+        final OnlineResource r5 = source.getEntry(OnlineResource.class, "R5");
+        final OnlineResource r6 = source.getEntry(OnlineResource.class, "R6");
+        assertEquals(linkage(5), r5.getLinkage().toString());
+        assertEquals(linkage(6), r6.getLinkage().toString());
+        assertEquals("HTTP", r5.getProtocol());
+        assertEquals("Without eager loading, the R5 record is queried again.", 3, queries.get());
+
+        source.setEagerLoading(true);
+        queries.set(0);
+        final OnlineResource r7 = source.getEntry(OnlineResource.class, "R7");
+        final OnlineResource r8 = source.getEntry(OnlineResource.class, "R8");
+        assertEquals(linkage(7), r7.getLinkage().toString());
+        assertEquals(linkage(8), r8.getLinkage().toString());
+        assertEquals("HTTP", r7.getProtocol());
+        assertNull("Column does not exist.", r7.getName());
+        assertEquals("HTTP", r8.getProtocol());
+        assertEquals("One query per record.", 2, queries.get());
+    }
+
+    /**
+     * Tests the prefetching of the entries referenced by the prefetched entries.
+     *
+     * @throws SQLException If an error occurred while reading the database.
+     */
+    @Test
+    public void testPrefetchWithDepth() throws SQLException {
+        final List<String> identifiers = new ArrayList<>();
+        for (int i=10; i<20; i++) {
+            identifiers.add("C" + i);
+        }
+        List<Contact> contacts = source.prefetch(Contact.class, identifiers, 1);
+        assertEquals("One query per table.", 2, queries.get());
+        assertEquals(identifiers.size(), contacts.size());
+        for (int i=0; i<contacts.size(); i++) {
+            final Contact contact = contacts.get(i);
+            assertSame(contact, source.getEntry(Contact.class, identifiers.get(i)));
+            final OnlineResource resource = contact.getOnlineResource();
+            assertEquals(linkage(i + 10), resource.getLinkage().toString());
+            assertEquals("HTTP", resource.getProtocol());
+        }
+        assertEquals("All values shall be prefetched.", 2, queries.get());
+        /*
+         * Without depth, the referenced online resources are queried by the getters.
+         */
+        identifiers.clear();
+        identifiers.add("C20");
+        identifiers.add("C21");
+        queries.set(0);
+        contacts = source.prefetch(Contact.class, identifiers, 0);
+        assertEquals(1, queries.get());
+        assertEquals(linkage(20), contacts.get(0).getOnlineResource().getLinkage().toString());
+        assertEquals(linkage(21), contacts.get(1).getOnlineResource().getLinkage().toString());
+        assertEquals(3, queries.get());
+        /*
+         * Entries already loaded are not queried again.
+         */
+        queries.set(0);
+        source.prefetch(Contact.class, identifiers, 0);
+        assertEquals(0, queries.get());
+    }
+
+    /**
+     * Tests the prefetching of more identifiers than the maximal number of identifiers in a query.
+     *
+     * @throws SQLException If an error occurred while reading the database.
+     */
+    @Test
+    public void testLargePrefetch() throws SQLException {
+        final List<String> identifiers = new ArrayList<>(COUNT + 1);
+        for (int i=0; i<COUNT; i++) {
+            identifiers.add("R" + i);
+        }
+        identifiers.add("Unknown");
+        final List<OnlineResource> resources = source.prefetch(OnlineResource.class, identifiers, 0);
+        assertEquals("Queries by groups of 500 identifiers.", 3, queries.get());
+        assertEquals(COUNT + 1, resources.size());
+        for (int i=0; i<COUNT; i++) {
+            assertEquals(linkage(i), resources.get(i).getLinkage().toString());
+        }
+        assertEquals("All values shall be prefetched.", 3, queries.get());
+        try {
+            resources.get(COUNT).getLinkage();
+            fail("Missing record shall be reported by the getter.");
+        } catch (MetadataException e) {
+            // This is the expected exception.
+        }
+    }
+
+    /**
+     * Tests the eviction of the least recently used entries from the strong references cache.
+     * Evicted entries are still shared while they are referenced elsewhere.
+     *
+     * @throws Exception If an error occurred while reading the database, or if the test has been interrupted.
+     */
+    @Test
+    public void testCacheCapacity() throws Exception {
+        source.setCacheCapacity(2);
+        source.setEagerLoading(true);
+        final WeakReference<OnlineResource> r1 = new WeakReference<>(source.getEntry(OnlineResource.class, "R1"));
+        final WeakReference<OnlineResource> r2 = new WeakReference<>(source.getEntry(OnlineResource.class, "R2"));
+        final OnlineResource r3 = source.getEntry(OnlineResource.class, "R3");
+        final WeakReference<OnlineResource> r4 = new WeakReference<>(source.getEntry(OnlineResource.class, "R4"));
+        assertEquals(linkage(3), r3.getLinkage().toString());
+        /*
+         * R1 and R2 have been evicted by R3 and R4. Since they are not referenced elsewhere,
+         * the garbage collector shall reclaim them. R4 is still in the cache.
+         */
+        for (int i=0; r1.get() != null || r2.get() != null; i++) {
+            assertTrue("Evicted entries shall be garbage-collected.", i < 100);
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNotNull("Recent entries shall be kept.", r4.get());
+        /*
+         * R3 has been evicted too, but is still shared since we hold a reference to it.
+         * It keeps its record, so reading it does not query the database.
+         */
+        source.getEntry(OnlineResource.class, "R5");
+        final WeakReference<OnlineResource> r6 = new WeakReference<>(source.getEntry(OnlineResource.class, "R6"));
+        queries.set(0);
+        assertSame(r3, source.getEntry(OnlineResource.class, "R3"));
+        assertEquals("HTTP", r3.getProtocol());
+        assertEquals(0, queries.get());
+        /*
+         * Without strong references, no entry is kept.
+         */
+        System.gc();
+        assertNotNull("Recent entries shall be kept.", r6.get());
+        source.setCacheCapacity(0);
+        for (int i=0; r6.get() != null; i++) {
+            assertTrue("Entries shall not be kept with a capacity of 0.", i < 100);
+            System.gc();
+            Thread.sleep(20);
+        }
+    }
+}
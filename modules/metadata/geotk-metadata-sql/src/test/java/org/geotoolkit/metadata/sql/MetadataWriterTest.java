@@ -17,7 +17,9 @@
  */
 package org.geotoolkit.metadata.sql;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.sql.SQLException;
 import org.postgresql.ds.PGSimpleDataSource;
 
@@ -63,6 +65,7 @@ public final strictfp class MetadataWriterTest {
             write();
             search();
             read();
+            readBatched();
         } finally {
             source.close();
             source = null;
@@ -90,6 +93,7 @@ public final strictfp class MetadataWriterTest {
             writeHierarchical();
             search();
             read();
+            readBatched();
         } finally {
             source.close();
             source = null;
@@ -170,6 +174,40 @@ public final strictfp class MetadataWriterTest {
         assertEquals("EPSG", source.search(c));
     }
 
+    /**
+     * Reads known entries in the database with eager loading and prefetching.
+     *
+     * @throws SQLException If an error occurred while reading the database.
+     */
+    private void readBatched() throws SQLException {
+        try (MetadataSource reader = new MetadataSource(source)) {
+            reader.setEagerLoading(true);
+            final List<Citation> citations = reader.prefetch(Citation.class, Arrays.asList("EPSG", "OGC"), 3);
+            assertEquals(2, citations.size());
+            final Citation c = citations.get(0);
+            assertSame(c, reader.getEntry(Citation.class, "EPSG"));
+            assertEquals("European Petroleum Survey Group", c.getTitle().toString());
+            assertEquals("EPSG", extract(c.getAlternateTitles()).toString());
+            assertEquals(PresentationForm.TABLE_DIGITAL, extract(c.getPresentationForms()));
+            assertEquals("http://www.epsg.org", ((ResponsibleParty) extract(c.getCitedResponsibleParties()))
+                    .getContactInfo().getOnlineResource().getLinkage().toString());
+            assertNull(c.getCollectiveTitle());
+            assertTrue(c.getDates().isEmpty());
+            /*
+             * Entries loaded in a single query shall be identical to entries loaded
+             * attribute by attribute.
+             */
+            final Citation ogc = source.getEntry(Citation.class, "OGC");
+            assertEquals(ogc.getTitle(), citations.get(1).getTitle());
+            assertEquals(ogc.getAlternateTitles(), citations.get(1).getAlternateTitles());
+            /*
+             * Without strong references, entries are still shared while they are in use.
+             */
+            reader.setCacheCapacity(0);
+            assertSame(c, reader.getEntry(Citation.class, "EPSG"));
+        }
+    }
+
     /**
      * Returns the single element in the given collection,
      * which is expected to be non-null.
@@ -0,0 +1,231 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.internal.Threads;
+
+/**
+ * Feature reader computing features from an image by strips of rows.
+ * <p>
+ * Strips are computed in parallel with {@link #compute(int, int) }, then merged in order
+ * with {@link #merge(java.lang.Object, int, int, boolean) } which stitches the geometries
+ * crossing the seam with the previous strip and emits the finished features.
+ * Only a few strips are computed ahead and emitted features wait in a bounded queue,
+ * memory use depends on the strips in progress and the geometries crossing the current
+ * seam, not on the whole result.
+ * <p>
+ * Computation starts on the first call to {@link #hasNext() }, the reader must be closed
+ * to stop it before the end.
+ *
+ * @param <R> strip result
+ * @author agent
+ * @module pending
+ */
+public abstract class StripFeatureReader<R> implements FeatureReader<FeatureType,Feature> {
+
+    private static final int NB_THREADS = Runtime.getRuntime().availableProcessors();
+    /** Maximum number of features waiting to be read. */
+    private static final int QUEUE_SIZE = 1000;
+    private static final Object END = new Object();
+
+    private final FeatureType type;
+    private final int size;
+    private final int stripHeight;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private volatile Throwable error;
+    private ExecutorService executor;
+    private Feature next;
+    private boolean finished;
+
+    /**
+     *
+     * @param type type of the features
+     * @param size number of rows to split in strips
+     * @param stripHeight number of rows of a strip
+     */
+    protected StripFeatureReader(final FeatureType type, final int size, final int stripHeight) {
+        if (stripHeight < 1) {
+            throw new IllegalArgumentException("Strip height must be positive : "+stripHeight);
+        }
+        this.type = type;
+        this.size = size;
+        this.stripHeight = stripHeight;
+    }
+
+    /**
+     * Compute a strip, called in parallel.
+     *
+     * @param minY first row of the strip
+     * @param maxY last row of the strip, exclusive
+     * @return strip result
+     */
+    protected abstract R compute(int minY, int maxY) throws Exception;
+
+    /**
+     * Merge a strip with the previous ones, called in strip order by a single thread.
+     * Finished features must be sent with {@link #emit(org.geotoolkit.feature.Feature) }.
+     *
+     * @param strip strip result
+     * @param minY first row of the strip
+     * @param maxY last row of the strip, exclusive
+     * @param last true for the last strip, all remaining features must be emitted
+     */
+    protected abstract void merge(R strip, int minY, int maxY, boolean last) throws Exception;
+
+    /**
+     * Send a finished feature to the reader, waits if too many features are not read yet.
+     *
+     * @param feature finished feature
+     * @throws InterruptedException if the reader has been closed
+     */
+    protected final void emit(final Feature feature) throws InterruptedException {
+        queue.put(feature);
+    }
+
+    private void produce() {
+        try {
+            final Deque<Future<R>> running = new ArrayDeque<>();
+            final Deque<int[]> ranges = new ArrayDeque<>();
+            int minY = 0;
+            while (minY < size || !running.isEmpty()) {
+                //keep a few strips computed ahead
+                while (minY < size && running.size() < NB_THREADS * 2) {
+                    final int stripMin = minY;
+                    final int stripMax = Math.min(size, minY + stripHeight);
+                    running.add(executor.submit(new Callable<R>() {
+                        @Override
+                        public R call() throws Exception {
+                            return compute(stripMin, stripMax);
+                        }
+                    }));
+                    ranges.add(new int[]{stripMin, stripMax});
+                    minY = stripMax;
+                }
+                final R strip = running.removeFirst().get();
+                final int[] range = ranges.removeFirst();
+                merge(strip, range[0], range[1], range[1] == size);
+            }
+        } catch (InterruptedException ex) {
+            //reader closed
+            return;
+        } catch (ExecutionException ex) {
+            error = ex.getCause();
+        } catch (Exception | Error ex) {
+            error = ex;
+        }
+        try {
+            queue.put(END);
+        } catch (InterruptedException ex) {
+            //reader closed
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public FeatureType getFeatureType() {
+        return type;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean hasNext() throws FeatureStoreRuntimeException {
+        if (next != null) {
+            return true;
+        } else if (finished) {
+            return false;
+        }
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(NB_THREADS + 1, Threads.createThreadFactory("StripFeatureReader #"));
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    produce();
+                }
+            });
+        }
+
+        final Object candidate;
+        try {
+            candidate = queue.take();
+        } catch (InterruptedException ex) {
+            close();
+            throw new FeatureStoreRuntimeException(ex);
+        }
+        if (candidate == END) {
+            close();
+            if (error != null) {
+                throw new FeatureStoreRuntimeException(error.getMessage(), error);
+            }
+            return false;
+        }
+        next = (Feature) candidate;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Feature next() throws FeatureStoreRuntimeException {
+        if (!hasNext()) {
+            throw new FeatureStoreRuntimeException("No more features.");
+        }
+        final Feature feature = next;
+        next = null;
+        return feature;
+    }
+
+    /**
+     * Stop the computation if not finished.
+     */
+    @Override
+    public void close() {
+        finished = true;
+        next = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        queue.clear();
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void remove() {
+        throw new FeatureStoreRuntimeException("Strip reader does not support remove operation.");
+    }
+
+}
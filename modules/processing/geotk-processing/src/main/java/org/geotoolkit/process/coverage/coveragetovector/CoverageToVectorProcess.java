@@ -22,6 +22,7 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Polygon;
 
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -32,15 +33,14 @@ import javax.media.jai.iterator.RectIter;
 import javax.media.jai.iterator.RectIterFactory;
 
 import org.geotoolkit.coverage.grid.GridCoverage2D;
-import org.geotoolkit.coverage.grid.ViewType;
-import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
+import org.geotoolkit.feature.type.BasicFeatureTypes;
 import org.geotoolkit.process.AbstractProcess;
 import org.geotoolkit.process.ProcessException;
 import org.apache.sis.util.ArgumentChecks;
 import org.apache.sis.measure.NumberRange;
 
 import org.opengis.parameter.ParameterValueGroup;
-import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.TransformException;
 
 import static org.geotoolkit.parameter.Parameters.*;
@@ -71,9 +71,49 @@ public class CoverageToVectorProcess extends AbstractProcess {
         super(INSTANCE,input);
     }
 
-    public Geometry[] toPolygon(GridCoverage2D coverage, final NumberRange[] ranges, final int band)
+    /**
+     * Compute the polygons of a coverage.
+     * Polygons are computed by strips of rows in parallel with a {@link PolygonReader},
+     * polygons crossing a strip seam are unioned.
+     *
+     * @param coverage coverage to process
+     * @param ranges ranges to regroup
+     * @param band band to process
+     * @return polygons in coverage crs
+     */
+    public Geometry[] toPolygon(final GridCoverage2D coverage, final NumberRange[] ranges, final int band)
             throws IOException, TransformException {
-        coverage = coverage.view(ViewType.GEOPHYSICS);
+        final List<Geometry> polygones = new ArrayList<Geometry>();
+        final PolygonReader reader = new PolygonReader(coverage, ranges, band);
+        try {
+            while (reader.hasNext()) {
+                polygones.add((Geometry) reader.next().getProperty(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME).getValue());
+            }
+        } catch (FeatureStoreRuntimeException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof TransformException) {
+                throw (TransformException) cause;
+            }
+            throw new IOException(ex.getMessage(), ex);
+        } finally {
+            reader.close();
+        }
+        //we dont merge them in a single polygon to avoid to complexe geometries
+        return polygones.toArray(new Polygon[polygones.size()]);
+    }
+
+    /**
+     * Compute the polygons of an image area, in grid coordinates relative to the area upper left corner.
+     *
+     * @param image geophysics image
+     * @param area image area to process, null for the whole image
+     * @param ranges ranges to regroup
+     * @param band band to process
+     * @return polygons of each range, including a range for NaN values
+     */
+    Map<NumberRange, List<Polygon>> toGridPolygons(final RenderedImage image, final Rectangle area,
+            final NumberRange[] ranges, final int band) {
+        polygons.clear();
 
         //add a range for Nan values.
         NumberRange NaNRange = new NaNRange();
@@ -83,12 +123,10 @@ public class CoverageToVectorProcess extends AbstractProcess {
             polygons.put(range, new ArrayList<Polygon>());
         }
 
-        final RenderedImage image = coverage.getRenderedImage();
-        final RectIter iter = RectIterFactory.create(image, null);
-        final MathTransform2D gridToCRS = coverage.getGridGeometry().getGridToCRS2D();
+        final RectIter iter = RectIterFactory.create(image, area);
         final Point gridPosition = new Point(0, 0);
 
-        buffers = new Boundary[2][image.getWidth()];
+        buffers = new Boundary[2][(area == null) ? image.getWidth() : area.width];
 
         int bandNum = -1;
         iter.startBands();
@@ -158,16 +196,7 @@ public class CoverageToVectorProcess extends AbstractProcess {
             } while (!iter.nextBandDone());
         }
 
-        final List<Geometry> polygones = new ArrayList<Geometry>();
-        for (int i=0; i<ranges.length; i++) {
-            final NumberRange range = ranges[i];
-            for(Polygon poly : polygons.get(range)) {
-                polygones.add(JTS.transform(poly, gridToCRS));
-            }
-            //we dont merge them in a single polygon to avoid to complexe geometries
-        }
-
-        return polygones.toArray(new Polygon[polygones.size()]);
+        return polygons;
     }
 
     private void append(final Point point, Number value) {
@@ -409,7 +438,7 @@ public class CoverageToVectorProcess extends AbstractProcess {
 
         Geometry[] result = null;
         try {
-            result = toPolygon(coverage, ranges, 0);
+            result = toPolygon(coverage, ranges, band);
         } catch (IOException ex) {
             throw new ProcessException(ex.getMessage(), this, ex);
         } catch (TransformException ex) {
@@ -0,0 +1,270 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage.coveragetovector;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.util.AffineTransformation;
+import com.vividsolutions.jts.operation.union.CascadedPolygonUnion;
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.apache.sis.measure.NumberRange;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.ViewType;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.FeatureTypeBuilder;
+import org.geotoolkit.feature.FeatureUtilities;
+import org.geotoolkit.feature.type.BasicFeatureTypes;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.process.coverage.StripFeatureReader;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Polygons of a coverage computed in parallel by strips of rows.
+ * <p>
+ * Polygons of a range are regrouped when they share an edge on the seam between two
+ * strips. Only the polygon edges lying on the seam are compared, the polygons of a
+ * group are unioned once, when no polygon of the group touches the last merged seam.
+ * A polygon spanning many strips is therefore unioned in a single cascaded union
+ * instead of growing at every seam. Polygons of a group completed by a strip are
+ * emitted as soon as this strip is merged.
+ *
+ * @author agent
+ * @module pending
+ */
+public class PolygonReader extends StripFeatureReader<Map<NumberRange, List<Polygon>>> {
+
+    /** Number of rows of a strip when the image is not tiled. */
+    private static final int DEFAULT_STRIP_HEIGHT = 256;
+
+    private final RenderedImage image;
+    private final MathTransform2D gridToCRS;
+    private final CoordinateReferenceSystem crs;
+    private final NumberRange[] ranges;
+    private final int band;
+    /** Polygon groups of each range touching the last merged seam, in grid coordinates. */
+    private final Map<NumberRange, List<Group>> pending = new HashMap<>();
+    private int inc = 0;
+
+    /**
+     *
+     * @param coverage coverage to process
+     * @param ranges ranges to regroup
+     * @param band band to process
+     */
+    public PolygonReader(GridCoverage2D coverage, NumberRange[] ranges, int band) {
+        this(coverage.view(ViewType.GEOPHYSICS).getRenderedImage(), coverage, ranges, band);
+    }
+
+    private PolygonReader(RenderedImage image, GridCoverage2D coverage, NumberRange[] ranges, int band) {
+        super(buildPolygonFeatureType(coverage.getCoordinateReferenceSystem2D()), image.getHeight(),
+                image.getNumYTiles() > 1 ? image.getTileHeight() : DEFAULT_STRIP_HEIGHT);
+        this.image = image;
+        this.gridToCRS = coverage.getGridGeometry().getGridToCRS2D();
+        this.crs = coverage.getCoordinateReferenceSystem2D();
+        this.ranges = ranges;
+        this.band = band;
+        for (NumberRange range : ranges) {
+            pending.put(range, new ArrayList<Group>());
+        }
+    }
+
+    /**
+     * Build polygon FeatureType, range bounds are stored in min and max attributes.
+     *
+     * @param crs polygons crs
+     * @return polygon feature type
+     */
+    public static FeatureType buildPolygonFeatureType(CoordinateReferenceSystem crs) {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("polygons");
+        ftb.add(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME, Polygon.class, crs);
+        ftb.add("min", Double.class);
+        ftb.add("max", Double.class);
+        ftb.setDefaultGeometry(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME);
+        return ftb.buildFeatureType();
+    }
+
+    /**
+     * Compute the polygons of rows minY to maxY, in grid coordinates.
+     */
+    @Override
+    protected Map<NumberRange, List<Polygon>> compute(int minY, int maxY) throws Exception {
+        final Rectangle area = new Rectangle(image.getMinX(), image.getMinY() + minY, image.getWidth(), maxY - minY);
+        final CoverageToVectorProcess process = new CoverageToVectorProcess(
+                CoverageToVectorDescriptor.INSTANCE.getInputDescriptor().createValue());
+        final Map<NumberRange, List<Polygon>> polygons = process.toGridPolygons(image, area, ranges, band);
+
+        //strip polygons are relative to the strip upper left corner
+        final AffineTransformation trs = AffineTransformation.translationInstance(0, minY);
+        final Map<NumberRange, List<Polygon>> result = new HashMap<>();
+        for (NumberRange range : ranges) {
+            final List<Polygon> translated = new ArrayList<>();
+            for (Polygon poly : polygons.get(range)) {
+                translated.add((Polygon) trs.transform(poly));
+            }
+            result.put(range, translated);
+        }
+        return result;
+    }
+
+    @Override
+    protected void merge(Map<NumberRange, List<Polygon>> strip, int minY, int maxY, boolean last) throws Exception {
+        for (NumberRange range : ranges) {
+            final List<Group> previous = pending.get(range);
+            final LinkedHashSet<Group> groups = new LinkedHashSet<>(previous);
+
+            //attach each polygon to the groups sharing an edge on the seam with the previous strip
+            for (Polygon poly : strip.get(range)) {
+                Group target = null;
+                if (!previous.isEmpty() && poly.getEnvelopeInternal().getMinY() == minY) {
+                    final List<double[]> edges = seamEdges(poly, minY);
+                    for (Group group : previous) {
+                        if (group.touches(edges)) {
+                            group = group.root();
+                            if (target == null) {
+                                target = group;
+                            } else if (group != target) {
+                                target = target.join(group);
+                            }
+                        }
+                    }
+                }
+                if (target == null) {
+                    target = new Group();
+                }
+                groups.add(target);
+                target.pieces.add(poly);
+                if (!last && poly.getEnvelopeInternal().getMaxY() == maxY) {
+                    target.next.addAll(seamEdges(poly, maxY));
+                }
+            }
+            previous.clear();
+
+            //groups touching the new seam are kept, others are complete
+            for (Group group : groups) {
+                if (group.root() != group) {
+                    continue;
+                }
+                if (!group.next.isEmpty()) {
+                    group.seam = group.next;
+                    group.next = new ArrayList<>();
+                    previous.add(group);
+                } else if (group.pieces.size() == 1) {
+                    emit(toFeature(group.pieces.get(0), range));
+                } else {
+                    final Geometry union = CascadedPolygonUnion.union(group.pieces);
+                    for (int i = 0, n = union.getNumGeometries(); i < n; i++) {
+                        emit(toFeature((Polygon) union.getGeometryN(i), range));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the exterior ring edges of a polygon lying on a horizontal line.
+     * Holes can not lie on the strip borders.
+     *
+     * @return edges as [minX, maxX] arrays
+     */
+    private static List<double[]> seamEdges(Polygon poly, double y) {
+        final List<double[]> edges = new ArrayList<>();
+        final Coordinate[] coords = poly.getExteriorRing().getCoordinates();
+        for (int i = 1; i < coords.length; i++) {
+            final Coordinate c0 = coords[i-1];
+            final Coordinate c1 = coords[i];
+            if (c0.y == y && c1.y == y && c0.x != c1.x) {
+                edges.add(new double[]{Math.min(c0.x, c1.x), Math.max(c0.x, c1.x)});
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Polygons of a range connected through the seams merged so far.
+     * Joined groups point to the group holding their polygons.
+     */
+    private static final class Group {
+
+        private final List<Polygon> pieces = new ArrayList<>();
+        /** Edges of the group polygons on the last merged seam. */
+        private List<double[]> seam = new ArrayList<>();
+        /** Edges of the group polygons on the seam being merged. */
+        private List<double[]> next = new ArrayList<>();
+        /** Group holding the polygons after a join, null if this group is a root. */
+        private Group parent;
+
+        private Group root() {
+            Group group = this;
+            while (group.parent != null) {
+                group = group.parent;
+            }
+            return group;
+        }
+
+        /**
+         * @return true if one of the given edges overlaps a seam edge of this group on a positive length
+         */
+        private boolean touches(final List<double[]> edges) {
+            for (double[] edge : edges) {
+                for (double[] candidate : seam) {
+                    if (Math.min(edge[1], candidate[1]) > Math.max(edge[0], candidate[0])) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Move the polygons of the smaller group in the larger one.
+         *
+         * @return the group holding the polygons of both groups
+         */
+        private Group join(final Group other) {
+            final Group large = (pieces.size() >= other.pieces.size()) ? this : other;
+            final Group small = (large == this) ? other : this;
+            large.pieces.addAll(small.pieces);
+            large.next.addAll(small.next);
+            small.pieces.clear();
+            small.next.clear();
+            small.parent = large;
+            return large;
+        }
+    }
+
+    private Feature toFeature(Polygon poly, NumberRange range) throws TransformException {
+        final Feature f = FeatureUtilities.defaultFeature(getFeatureType(), String.valueOf(inc++));
+        final Geometry geom = JTS.transform(poly, gridToCRS);
+        JTS.setCRS(geom, crs);
+        f.getProperty(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME).setValue(geom);
+        f.getProperty("min").setValue(range.getMinDouble());
+        f.getProperty("max").setValue(range.getMaxDouble());
+        return f;
+    }
+
+}
@@ -138,12 +138,15 @@ public class Isoline2 extends AbstractProcess {
                     image = coverage.getRenderedImage();
                 }
 
-                final PixelIterator ite = PixelIteratorFactory.createDefaultIterator(image);
-                final int width = image.getWidth();
-                final int height = image.getHeight();
-
-                final BlockRunnable runnable = new BlockRunnable(gridtoCRS, ite, width, height, 0);
-                runnable.run();
+                //image strips are computed in parallel
+                final IsolineReader isolines = new IsolineReader(image, gridtoCRS, crs, intervals, type);
+                try {
+                    while (isolines.hasNext()) {
+                        col.add(isolines.next());
+                    }
+                } finally {
+                    isolines.close();
+                }
             }
             coverageRef.recycle(reader);
 
@@ -199,7 +202,8 @@ public class Isoline2 extends AbstractProcess {
                                 final PixelIterator ite = PixelIteratorFactory.createDefaultIterator(image);
                                 final int width = image.getWidth();
                                 final int height = image.getHeight();
-                                final BlockRunnable runnable = new BlockRunnable(gridtoCRS, ite, width, height, 0);
+                                final BlockRunnable runnable = new BlockRunnable(ite, width, height, 0, intervals,
+                                        new CollectionSink(gridtoCRS, 0), this);
                                 exec.submit(runnable);
                             }catch(IOException ex){
                                 throw new ProcessException(ex.getMessage(), this, ex);
@@ -277,13 +281,57 @@ public class Isoline2 extends AbstractProcess {
         return ftb.buildFeatureType();
     }
 
-    private class BlockRunnable implements Runnable {
+    /**
+     * Receive the isolines computed by a {@link BlockRunnable}.
+     */
+    static interface GeometrySink {
+
+        /**
+         * @param geom isoline in image grid coordinates
+         * @param level isoline value
+         */
+        void push(Geometry geom, double level) throws TransformException;
+    }
+
+    /**
+     * Add isolines in the result collection.
+     */
+    private class CollectionSink implements GeometrySink {
 
         private final MathTransform gridtoCRS;
+        private final double scale;
+
+        private CollectionSink(MathTransform gridtoCRS, double scale) {
+            this.gridtoCRS = gridtoCRS;
+            this.scale = scale;
+        }
+
+        @Override
+        public void push(Geometry geom, double level) throws MismatchedDimensionException, TransformException {
+            final Feature f = FeatureUtilities.defaultFeature(type, "0");
+            geom = JTS.transform(geom, gridtoCRS);
+            JTS.setCRS(geom, crs);
+            f.getProperty(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME).setValue(geom);
+            f.getProperty("scale").setValue(scale);
+            f.getProperty("value").setValue(level);
+            col.add(f);
+        }
+    }
+
+    /**
+     * Compute isolines of an image, or of a strip of rows of an image.
+     */
+    static class BlockRunnable implements Runnable {
+
         private final PixelIterator ite;
         private final int width;
         private final int height;
-        private final double scale;
+        /** Grid coordinate of the first row. */
+        private final int offsetY;
+        private final double[] intervals;
+        private final GeometrySink sink;
+        /** Process reported in errors, can be null. */
+        private final Isoline2 process;
 
         //previous triangles informations
         private Boundary[][] line0TopNeighbor; // [level][X] for previous line
@@ -296,12 +344,25 @@ public class Isoline2 extends AbstractProcess {
         private final Coordinate BL = new Coordinate();
         private final Coordinate BR = new Coordinate();
 
-        public BlockRunnable(MathTransform gridtoCRS, PixelIterator ite, int width, int height, double scale) {
+        /**
+         *
+         * @param ite row major iterator on the samples
+         * @param width number of columns
+         * @param height number of rows
+         * @param offsetY grid coordinate of the first row
+         * @param intervals isoline values
+         * @param sink receive isolines in grid coordinates
+         * @param process process reported in errors, can be null
+         */
+        BlockRunnable(PixelIterator ite, int width, int height, int offsetY, double[] intervals,
+                GeometrySink sink, Isoline2 process) {
             this.ite = ite;
             this.width = width;
             this.height = height;
-            this.scale = scale;
-            this.gridtoCRS = gridtoCRS;
+            this.offsetY = offsetY;
+            this.intervals = intervals;
+            this.sink = sink;
+            this.process = process;
         }
 
         @Override
@@ -313,7 +374,7 @@ public class Isoline2 extends AbstractProcess {
             }
         }
 
-        private void computeIsoligne() throws ProcessException{
+        void computeIsoligne() throws ProcessException{
             try{
                 //line buffer
                 leftNeighbor = new Boundary[intervals.length];
@@ -330,10 +391,10 @@ public class Isoline2 extends AbstractProcess {
                         //calculate lines
                         if(y>0 && x>0){
                             //set the 4 corner values
-                            UL.x = x-1;  UL.y = y-1;  UL.z = line0[x-1];
-                            UR.x = x  ;  UR.y = y-1;  UR.z = line0[x  ];
-                            BL.x = x-1;  BL.y = y  ;  BL.z = line1[x-1];
-                            BR.x = x  ;  BR.y = y  ;  BR.z = line1[x  ];
+                            UL.x = x-1;  UL.y = offsetY+y-1;  UL.z = line0[x-1];
+                            UR.x = x  ;  UR.y = offsetY+y-1;  UR.z = line0[x  ];
+                            BL.x = x-1;  BL.y = offsetY+y  ;  BL.z = line1[x-1];
+                            BR.x = x  ;  BR.y = offsetY+y  ;  BR.z = line1[x  ];
 
                             for(int k=0;k<intervals.length;k++){
                                 final double level = intervals[k];
@@ -390,7 +451,7 @@ public class Isoline2 extends AbstractProcess {
                 }
 
             }catch(Exception ex){
-                throw new ProcessException(ex.getMessage(), Isoline2.this, ex);
+                throw new ProcessException(ex.getMessage(), process, ex);
             }
         }
 
@@ -823,13 +884,13 @@ public class Isoline2 extends AbstractProcess {
 
             //algorithm check
             if(SBottom!=null && !SBottom.getLast().equals2D(BL)){
-                throw new ProcessException("Unvalid point at BL",Isoline2.this,null);
+                throw new ProcessException("Unvalid point at BL",process,null);
             }
             if(SMiddle!=null && !SMiddle.getLast().equals2D(crossHp)){
-                throw new ProcessException("Unvalid point at HP",Isoline2.this,null);
+                throw new ProcessException("Unvalid point at HP",process,null);
             }
             if(STop!=null && !STop.getLast().equals2D(UR)){
-                throw new ProcessException("Unvalid point at UR",Isoline2.this,null);
+                throw new ProcessException("Unvalid point at UR",process,null);
             }
         }
 
@@ -965,40 +1026,34 @@ public class Isoline2 extends AbstractProcess {
             if(DEBUG) {
                 //algorithm check, can not have all H or V set
                 if(newBoundary.HMiddle!=null && (newBoundary.HLeft!=null || newBoundary.HRight!=null)){
-                    throw new ProcessException("Logic error, Muplite H set",Isoline2.this,null);
+                    throw new ProcessException("Logic error, Muplite H set",process,null);
                 }
                 if(newBoundary.VMiddle!=null && (newBoundary.VTop!=null || newBoundary.VBottom!=null)){
-                    throw new ProcessException("Logic error, Muplite V set top="+newBoundary.VTop+" bottom="+newBoundary.VBottom,Isoline2.this,null);
+                    throw new ProcessException("Logic error, Muplite V set top="+newBoundary.VTop+" bottom="+newBoundary.VBottom,process,null);
                 }
                 //algorithm check, can not have all H or V set
-                if(newBoundary.HLeft!=null   && !blCorner)     throw new ProcessException("Invalid point creation HL",Isoline2.this,null);
-                if(newBoundary.HMiddle!=null && crossBt==null) throw new ProcessException("Invalid point creation HM",Isoline2.this,null);
-                if(newBoundary.HRight!=null  && !brCorner)     throw new ProcessException("Invalid point creation HR",Isoline2.this,null);
-                if(newBoundary.VTop!=null    && !urCorner)     throw new ProcessException("Invalid point creation VT",Isoline2.this,null);
-                if(newBoundary.VMiddle!=null && crossRi==null) throw new ProcessException("Invalid point creation VM",Isoline2.this,null);
-                if(newBoundary.VBottom!=null && !brCorner)     throw new ProcessException("Invalid point creation VB",Isoline2.this,null);
+                if(newBoundary.HLeft!=null   && !blCorner)     throw new ProcessException("Invalid point creation HL",process,null);
+                if(newBoundary.HMiddle!=null && crossBt==null) throw new ProcessException("Invalid point creation HM",process,null);
+                if(newBoundary.HRight!=null  && !brCorner)     throw new ProcessException("Invalid point creation HR",process,null);
+                if(newBoundary.VTop!=null    && !urCorner)     throw new ProcessException("Invalid point creation VT",process,null);
+                if(newBoundary.VMiddle!=null && crossRi==null) throw new ProcessException("Invalid point creation VM",process,null);
+                if(newBoundary.VBottom!=null && !brCorner)     throw new ProcessException("Invalid point creation VB",process,null);
                 newBoundary.checkIncoherence();
 
-                if(newBoundary.HLeft!=null   && !newBoundary.HLeft  .getLast().equals2D(BL))      throw new ProcessException("Invalid point creation HL",Isoline2.this,null);
-                if(newBoundary.HMiddle!=null && !newBoundary.HMiddle.getLast().equals2D(crossBt)) throw new ProcessException("Invalid point creation HM",Isoline2.this,null);
-                if(newBoundary.HRight!=null  && !newBoundary.HRight .getLast().equals2D(BR))      throw new ProcessException("Invalid point creation HR",Isoline2.this,null);
-                if(newBoundary.VTop!=null    && !newBoundary.VTop   .getLast().equals2D(UR))      throw new ProcessException("Invalid point creation VT",Isoline2.this,null);
-                if(newBoundary.VMiddle!=null && !newBoundary.VMiddle.getLast().equals2D(crossRi)) throw new ProcessException("Invalid point creation VM",Isoline2.this,null);
-                if(newBoundary.VBottom!=null && !newBoundary.VBottom.getLast().equals2D(BR))      throw new ProcessException("Invalid point creation VB",Isoline2.this,null);
+                if(newBoundary.HLeft!=null   && !newBoundary.HLeft  .getLast().equals2D(BL))      throw new ProcessException("Invalid point creation HL",process,null);
+                if(newBoundary.HMiddle!=null && !newBoundary.HMiddle.getLast().equals2D(crossBt)) throw new ProcessException("Invalid point creation HM",process,null);
+                if(newBoundary.HRight!=null  && !newBoundary.HRight .getLast().equals2D(BR))      throw new ProcessException("Invalid point creation HR",process,null);
+                if(newBoundary.VTop!=null    && !newBoundary.VTop   .getLast().equals2D(UR))      throw new ProcessException("Invalid point creation VT",process,null);
+                if(newBoundary.VMiddle!=null && !newBoundary.VMiddle.getLast().equals2D(crossRi)) throw new ProcessException("Invalid point creation VM",process,null);
+                if(newBoundary.VBottom!=null && !newBoundary.VBottom.getLast().equals2D(BR))      throw new ProcessException("Invalid point creation VB",process,null);
             }
 
             return newBoundary;
         }
 
-        private void pushGeometry(Geometry geom, double level) throws MismatchedDimensionException, TransformException{
+        private void pushGeometry(Geometry geom, double level) throws TransformException{
             if(geom==null) return;
-            final Feature f = FeatureUtilities.defaultFeature(type, "0");
-            geom = JTS.transform(geom, gridtoCRS);
-            JTS.setCRS(geom, crs);
-            f.getProperty(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME).setValue(geom);
-            f.getProperty("scale").setValue(scale);
-            f.getProperty("value").setValue(level);
-            col.add(f);
+            sink.push(geom, level);
         }
 
     }
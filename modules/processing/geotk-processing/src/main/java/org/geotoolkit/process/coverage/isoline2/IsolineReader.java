@@ -0,0 +1,169 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage.isoline2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.operation.linemerge.LineMerger;
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.FeatureUtilities;
+import org.geotoolkit.feature.type.BasicFeatureTypes;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.image.iterator.PixelIteratorFactory;
+import org.geotoolkit.process.coverage.StripFeatureReader;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Isolines of an image computed in parallel by strips of rows.
+ * <p>
+ * Consecutive strips share a row. Lines ending on this seam row are kept until
+ * the next strip is computed, then merged with the lines of the next strip ending
+ * on the same points. Other lines are emitted as soon as their strip is merged.
+ *
+ * @author agent
+ * @module pending
+ */
+public class IsolineReader extends StripFeatureReader<List<List<Geometry>>> {
+
+    /** Number of rows of a strip when the image is not tiled. */
+    private static final int DEFAULT_STRIP_HEIGHT = 256;
+
+    private final RenderedImage image;
+    private final MathTransform gridToCRS;
+    private final CoordinateReferenceSystem crs;
+    private final double[] intervals;
+    /** Lines of each level ending on the last merged seam, in grid coordinates. */
+    private final List<List<Geometry>> pending;
+    private int inc = 0;
+
+    /**
+     *
+     * @param image image to process
+     * @param gridToCRS image grid to crs, pixel center convention
+     * @param crs isolines crs
+     * @param intervals isoline values
+     * @param type isoline feature type, see {@link Isoline2#buildIsolineFeatureType(java.lang.String) }
+     */
+    public IsolineReader(RenderedImage image, MathTransform gridToCRS, CoordinateReferenceSystem crs,
+            double[] intervals, FeatureType type) {
+        //strips are made of cells between rows
+        super(type, Math.max(0, image.getHeight()-1),
+                image.getNumYTiles() > 1 ? image.getTileHeight() : DEFAULT_STRIP_HEIGHT);
+        this.image = image;
+        this.gridToCRS = gridToCRS;
+        this.crs = crs;
+        this.intervals = intervals;
+        this.pending = createLevels();
+    }
+
+    private List<List<Geometry>> createLevels() {
+        final List<List<Geometry>> levels = new ArrayList<>(intervals.length);
+        for (int k = 0; k < intervals.length; k++) {
+            levels.add(new ArrayList<Geometry>());
+        }
+        return levels;
+    }
+
+    /**
+     * Compute the isolines of cells between rows minY and maxY, in grid coordinates.
+     */
+    @Override
+    protected List<List<Geometry>> compute(int minY, int maxY) throws Exception {
+        final List<List<Geometry>> levels = createLevels();
+        final Rectangle area = new Rectangle(image.getMinX(), image.getMinY() + minY, image.getWidth(), maxY - minY + 1);
+        final Isoline2.BlockRunnable runnable = new Isoline2.BlockRunnable(
+                PixelIteratorFactory.createRowMajorIterator(image, area),
+                area.width, area.height, minY, intervals, new Isoline2.GeometrySink() {
+            @Override
+            public void push(Geometry geom, double level) {
+                for (int k = 0; k < intervals.length; k++) {
+                    if (intervals[k] == level) {
+                        levels.get(k).add(geom);
+                        return;
+                    }
+                }
+            }
+        }, null);
+        runnable.computeIsoligne();
+        return levels;
+    }
+
+    @Override
+    protected void merge(List<List<Geometry>> strip, int minY, int maxY, boolean last) throws Exception {
+        for (int k = 0; k < intervals.length; k++) {
+            final List<Geometry> previous = pending.get(k);
+            final List<Geometry> lines = new ArrayList<>();
+
+            //stitch lines crossing the seam with the previous strip
+            final LineMerger merger = new LineMerger();
+            merger.add(previous);
+            int nbMerged = 0;
+            for (Geometry line : strip.get(k)) {
+                if (!previous.isEmpty() && touches(line, minY)) {
+                    merger.add(line);
+                    nbMerged++;
+                } else {
+                    lines.add(line);
+                }
+            }
+            if (nbMerged > 0) {
+                lines.addAll((Collection<Geometry>) merger.getMergedLineStrings());
+            } else {
+                lines.addAll(previous);
+            }
+            previous.clear();
+
+            for (Geometry line : lines) {
+                if (!last && touches(line, maxY)) {
+                    previous.add(line);
+                } else {
+                    emit(toFeature(line, intervals[k]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test if a line ends on a row.
+     */
+    private static boolean touches(Geometry geom, int y) {
+        final LineString line = (LineString) geom;
+        final Coordinate start = line.getCoordinateN(0);
+        final Coordinate end = line.getCoordinateN(line.getNumPoints()-1);
+        return start.y == y || end.y == y;
+    }
+
+    private Feature toFeature(Geometry geom, double level) throws TransformException {
+        final Feature f = FeatureUtilities.defaultFeature(getFeatureType(), String.valueOf(inc++));
+        geom = JTS.transform(geom, gridToCRS);
+        JTS.setCRS(geom, crs);
+        f.getProperty(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME).setValue(geom);
+        f.getProperty("scale").setValue(0d);
+        f.getProperty("value").setValue(level);
+        return f;
+    }
+
+}
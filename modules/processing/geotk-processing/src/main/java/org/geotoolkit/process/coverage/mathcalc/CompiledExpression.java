@@ -0,0 +1,310 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage.mathcalc;
+
+import java.util.Arrays;
+import java.util.List;
+import org.geotoolkit.filter.function.math.MathFunctionFactory;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+
+/**
+ * Arithmetic expression compiled in a tree of primitive operations working on rows of samples.
+ * <p>
+ * Each node computes a whole row at once in a {@code double[]} buffer, without boxing
+ * nor map lookup. Supported expressions are literals, coverage names of the mapping,
+ * the four arithmetic operators and the functions of the {@link MathFunctionFactory},
+ * except {@link MathFunctionFactory#RANDOM} and {@link MathFunctionFactory#ROUND}.
+ * <p>
+ * A compiled expression is immutable and can be shared between threads, each thread
+ * must use its own stack created with {@link #createStack(int) }.
+ *
+ * @author agent
+ * @module pending
+ */
+public final class CompiledExpression {
+
+    private final Node root;
+    /** Number of rows used by the evaluation. */
+    private final int depth;
+    private final boolean[] used;
+
+    private CompiledExpression(Node root, boolean[] used) {
+        this.root = root;
+        this.depth = root.depth();
+        this.used = used;
+    }
+
+    /**
+     * Compile an expression.
+     *
+     * @param exp expression to compile
+     * @param mapping coverage names, the index of a name is the index of the input row
+     * @return compiled expression, null if the expression contains unsupported elements
+     */
+    public static CompiledExpression compile(final Expression exp, final String[] mapping) {
+        final boolean[] used = new boolean[mapping.length];
+        final Node root = compile(exp, mapping, used);
+        return (root == null) ? null : new CompiledExpression(root, used);
+    }
+
+    private static Node compile(final Expression exp, final String[] mapping, final boolean[] used) {
+        if (exp instanceof Literal) {
+            final Double value = exp.evaluate(null, Double.class);
+            return (value == null) ? null : new Constant(value);
+        } else if (exp instanceof PropertyName) {
+            final String name = ((PropertyName) exp).getPropertyName();
+            for (int i = 0; i < mapping.length; i++) {
+                if (mapping[i].equals(name)) {
+                    used[i] = true;
+                    return new Input(i);
+                }
+            }
+            // no coverage for this name
+            return new Constant(Double.NaN);
+        } else if (exp instanceof BinaryExpression) {
+            final Node left = compile(((BinaryExpression) exp).getExpression1(), mapping, used);
+            final Node right = compile(((BinaryExpression) exp).getExpression2(), mapping, used);
+            if (left == null || right == null) {
+                return null;
+            } else if (exp instanceof Add) {
+                return new Binary(Binary.ADD, left, right);
+            } else if (exp instanceof Subtract) {
+                return new Binary(Binary.SUBTRACT, left, right);
+            } else if (exp instanceof Multiply) {
+                return new Binary(Binary.MULTIPLY, left, right);
+            } else if (exp instanceof Divide) {
+                return new Binary(Binary.DIVIDE, left, right);
+            }
+            return null;
+        } else if (exp instanceof Function) {
+            return compile((Function) exp, mapping, used);
+        }
+        return null;
+    }
+
+    private static Node compile(final Function function, final String[] mapping, final boolean[] used) {
+        final String name = function.getName();
+        final List<Expression> parameters = function.getParameters();
+        final Node[] args = new Node[parameters.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = compile(parameters.get(i), mapping, used);
+            if (args[i] == null) return null;
+        }
+        if (args.length == 0) {
+            return MathFunctionFactory.PI.equals(name) ? new Constant(Math.PI) : null;
+        } else if (args.length == 1) {
+            final int op = Arrays.asList(Unary.NAMES).indexOf(name);
+            return (op < 0) ? null : new Unary(op, args[0]);
+        } else if (args.length == 2) {
+            final int op = Arrays.asList(Binary.NAMES).indexOf(name);
+            return (op < 0) ? null : new Binary(op, args[0], args[1]);
+        }
+        return null;
+    }
+
+    /**
+     * Test if the expression reads an input.
+     *
+     * @param index input index in the mapping
+     * @return true if the input row is read by {@link #evaluate(double[][], double[][], int) }
+     */
+    public boolean uses(final int index) {
+        return used[index];
+    }
+
+    /**
+     * Create the work rows of an evaluation.
+     *
+     * @param length maximum row length
+     * @return work rows, first row contains the result after evaluation
+     */
+    public double[][] createStack(final int length) {
+        return new double[depth][length];
+    }
+
+    /**
+     * Evaluate the expression on a row.
+     *
+     * @param inputs samples of each input, rows of unused inputs may be null
+     * @param stack work rows created by {@link #createStack(int) }
+     * @param length number of samples to compute
+     * @return first row of the stack, containing the result
+     */
+    public double[] evaluate(final double[][] inputs, final double[][] stack, final int length) {
+        root.evaluate(inputs, stack, 0, length);
+        return stack[0];
+    }
+
+    /**
+     * Compiled expression node, computes its result in the stack row at given depth,
+     * rows below are free to use.
+     */
+    private static abstract class Node {
+
+        abstract void evaluate(double[][] inputs, double[][] stack, int depth, int length);
+
+        /** Number of rows needed to evaluate this node. */
+        int depth() {
+            return 1;
+        }
+    }
+
+    private static final class Constant extends Node {
+
+        private final double value;
+
+        private Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        void evaluate(double[][] inputs, double[][] stack, int depth, int length) {
+            Arrays.fill(stack[depth], 0, length, value);
+        }
+    }
+
+    private static final class Input extends Node {
+
+        private final int index;
+
+        private Input(int index) {
+            this.index = index;
+        }
+
+        @Override
+        void evaluate(double[][] inputs, double[][] stack, int depth, int length) {
+            System.arraycopy(inputs[index], 0, stack[depth], 0, length);
+        }
+    }
+
+    private static final class Unary extends Node {
+
+        private static final String[] NAMES = {
+            MathFunctionFactory.ABS,
+            MathFunctionFactory.ACOS,
+            MathFunctionFactory.ASIN,
+            MathFunctionFactory.ATAN,
+            MathFunctionFactory.CEIL,
+            MathFunctionFactory.COS,
+            MathFunctionFactory.EXP,
+            MathFunctionFactory.FLOOR,
+            MathFunctionFactory.LOG,
+            MathFunctionFactory.RINT,
+            MathFunctionFactory.SIN,
+            MathFunctionFactory.SQRT,
+            MathFunctionFactory.TAN,
+            MathFunctionFactory.TO_DEGREES,
+            MathFunctionFactory.TO_RADIANS};
+
+        private final int op;
+        private final Node arg;
+
+        private Unary(int op, Node arg) {
+            this.op = op;
+            this.arg = arg;
+        }
+
+        @Override
+        int depth() {
+            return arg.depth();
+        }
+
+        @Override
+        void evaluate(double[][] inputs, double[][] stack, int depth, int length) {
+            arg.evaluate(inputs, stack, depth, length);
+            final double[] row = stack[depth];
+            switch (op) {
+                case 0 : for (int i = 0; i < length; i++) row[i] = Math.abs(row[i]); break;
+                case 1 : for (int i = 0; i < length; i++) row[i] = Math.acos(row[i]); break;
+                case 2 : for (int i = 0; i < length; i++) row[i] = Math.asin(row[i]); break;
+                case 3 : for (int i = 0; i < length; i++) row[i] = Math.atan(row[i]); break;
+                case 4 : for (int i = 0; i < length; i++) row[i] = Math.ceil(row[i]); break;
+                case 5 : for (int i = 0; i < length; i++) row[i] = Math.cos(row[i]); break;
+                case 6 : for (int i = 0; i < length; i++) row[i] = Math.exp(row[i]); break;
+                case 7 : for (int i = 0; i < length; i++) row[i] = Math.floor(row[i]); break;
+                case 8 : for (int i = 0; i < length; i++) row[i] = Math.log(row[i]); break;
+                case 9 : for (int i = 0; i < length; i++) row[i] = Math.rint(row[i]); break;
+                case 10: for (int i = 0; i < length; i++) row[i] = Math.sin(row[i]); break;
+                case 11: for (int i = 0; i < length; i++) row[i] = Math.sqrt(row[i]); break;
+                case 12: for (int i = 0; i < length; i++) row[i] = Math.tan(row[i]); break;
+                case 13: for (int i = 0; i < length; i++) row[i] = Math.toDegrees(row[i]); break;
+                case 14: for (int i = 0; i < length; i++) row[i] = Math.toRadians(row[i]); break;
+                default: throw new IllegalStateException("Unknown operation "+op);
+            }
+        }
+    }
+
+    private static final class Binary extends Node {
+
+        private static final String[] NAMES = {
+            MathFunctionFactory.ATAN2,
+            MathFunctionFactory.HYPOT,
+            MathFunctionFactory.IEEE_REMAINDER,
+            MathFunctionFactory.MAX,
+            MathFunctionFactory.MIN,
+            MathFunctionFactory.POW};
+        private static final int ADD = NAMES.length;
+        private static final int SUBTRACT = ADD + 1;
+        private static final int MULTIPLY = ADD + 2;
+        private static final int DIVIDE = ADD + 3;
+
+        private final int op;
+        private final Node left;
+        private final Node right;
+
+        private Binary(int op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int depth() {
+            return Math.max(left.depth(), right.depth() + 1);
+        }
+
+        @Override
+        void evaluate(double[][] inputs, double[][] stack, int depth, int length) {
+            left.evaluate(inputs, stack, depth, length);
+            right.evaluate(inputs, stack, depth+1, length);
+            final double[] a = stack[depth];
+            final double[] b = stack[depth+1];
+            switch (op) {
+                case 0 : for (int i = 0; i < length; i++) a[i] = Math.atan2(a[i], b[i]); break;
+                case 1 : for (int i = 0; i < length; i++) a[i] = Math.hypot(a[i], b[i]); break;
+                case 2 : for (int i = 0; i < length; i++) a[i] = Math.IEEEremainder(a[i], b[i]); break;
+                case 3 : for (int i = 0; i < length; i++) a[i] = Math.max(a[i], b[i]); break;
+                case 4 : for (int i = 0; i < length; i++) a[i] = Math.min(a[i], b[i]); break;
+                case 5 : for (int i = 0; i < length; i++) a[i] = Math.pow(a[i], b[i]); break;
+                case 6 : for (int i = 0; i < length; i++) a[i] += b[i]; break;
+                case 7 : for (int i = 0; i < length; i++) a[i] -= b[i]; break;
+                case 8 : for (int i = 0; i < length; i++) a[i] *= b[i]; break;
+                case 9 : for (int i = 0; i < length; i++) a[i] /= b[i]; break;
+                default: throw new IllegalStateException("Unknown operation "+op);
+            }
+        }
+    }
+
+}
@@ -22,11 +22,19 @@ import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.media.jai.TiledImage;
 
-import org.apache.sis.geometry.GeneralDirectPosition;
 import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.referencing.operation.transform.MathTransforms;
 import org.apache.sis.storage.DataStoreException;
@@ -40,6 +48,7 @@ import org.geotoolkit.coverage.io.GridCoverageWriteParam;
 import org.geotoolkit.coverage.io.GridCoverageWriter;
 import org.geotoolkit.factory.FactoryFinder;
 import org.geotoolkit.geometry.HyperCubeIterator;
+import org.geotoolkit.internal.Threads;
 import org.geotoolkit.referencing.CRS;
 import org.geotoolkit.referencing.operation.matrix.GeneralMatrix;
 import org.geotoolkit.util.BufferedImageUtilities;
@@ -67,6 +76,10 @@ import org.opengis.util.FactoryException;
  */
 public class FillCoverage {
 
+    private static final int NB_THREADS = Runtime.getRuntime().availableProcessors();
+    /** Number of tiles computed together, and kept in memory before writing. */
+    private static final int BATCH_SIZE = NB_THREADS * 2;
+
     /**
      * Fill coverage values on given envelope.
      *
@@ -75,6 +88,17 @@ public class FillCoverage {
      * @throws org.geotoolkit.coverage.io.CoverageStoreException
      */
     public void fill(CoverageReference outRef, SampleEvaluator evaluator, Envelope env) throws DataStoreException {
+        fill(outRef, new SampleTileEvaluator(evaluator), env);
+    }
+
+    /**
+     * Fill coverage values on given envelope, zones are computed in parallel.
+     *
+     * @param evaluator , used to generate the new sample values.
+     * @param env , envelope where new values will be evaluated.
+     * @throws org.geotoolkit.coverage.io.CoverageStoreException
+     */
+    public void fill(CoverageReference outRef, TileEvaluator evaluator, Envelope env) throws DataStoreException {
 
         final GeneralGridGeometry gg;
         final GridCoverageWriter outWriter;
@@ -85,11 +109,8 @@ public class FillCoverage {
         outRef.recycle(outReader);
 
 
-        // prepare dynamic pick object
         final GridEnvelope ge = gg.getExtent();
         final int nbDim = ge.getDimension();
-        final DirectPosition positionGrid = new GeneralDirectPosition(gg.getCoordinateReferenceSystem());
-        final DirectPosition positionGeo = new GeneralDirectPosition(gg.getCoordinateReferenceSystem());
 
         //calculate the hyper-cube where we will need to recalculate values
         final MathTransform gridToCrs = gg.getGridToCRS();
@@ -125,61 +146,57 @@ public class FillCoverage {
         maxSize[1] = 256;
         final HyperCubeIterator ite = new HyperCubeIterator(mins, maxs, maxSize);
 
+        //zone images model
+        final BufferedImage model = BufferedImageUtilities.createImage(1, 1, 1, DataBuffer.TYPE_DOUBLE);
+
         //loop on all slices pieces
         final MathTransformFactory mathFactory = FactoryFinder.getMathTransformFactory(null);
-        while(ite.hasNext()){
-            final HyperCubeIterator.HyperCube cube = ite.next();
-            final int[] hcubeLower = cube.getLower();
-            final int[] hcubeUpper = cube.getUpper();
-            for(int i=2;i<nbDim;i++){
-                positionGrid.setOrdinate(i, hcubeLower[i]);
-            }
+        final ExecutorService executor = createExecutor();
+        try {
+            final List<TileTask> batch = new ArrayList<>();
+            final List<MathTransform> batchTransforms = new ArrayList<>();
+            while(ite.hasNext()){
+                final HyperCubeIterator.HyperCube cube = ite.next();
+                final int[] hcubeLower = cube.getLower();
+                final int[] hcubeUpper = cube.getUpper();
 
-            //create the slice coverage
-            final BufferedImage zoneImage = BufferedImageUtilities.createImage(
-                    hcubeUpper[0]-hcubeLower[0],
-                    hcubeUpper[1]-hcubeLower[1],
-                    1, DataBuffer.TYPE_DOUBLE);
-            final WritableRaster raster = zoneImage.getRaster();
-
-
-            //loop on all pixels
-            final double[] sampleData = new double[1];
-            try{
-                for(int x=hcubeLower[0],xn=hcubeUpper[0];x<xn;x++){
-                    for(int y=hcubeLower[1],yn=hcubeUpper[1];y<yn;y++){
-                        positionGrid.setOrdinate(0, x);
-                        positionGrid.setOrdinate(1, y);
-                        gridToCrs.transform(positionGrid, positionGeo);
-                        evaluator.evaluate(positionGeo, sampleData);
-                        raster.setSample(x-hcubeLower[0], y-hcubeLower[1], 0, sampleData[0]);
-                    }
+                //Calculate grid to crs of this zone
+                final GeneralMatrix matrix = new GeneralMatrix(nbDim+1);
+                matrix.setIdentity();
+                for(int i=0;i<nbDim;i++){
+                    matrix.setElement(i, nbDim, hcubeLower[i]);
                 }
-            }catch(TransformException ex){
-                throw new CoverageStoreException(ex.getMessage(), ex);
-            }
+                final MathTransform cornerToGrid;
+                try {
+                    cornerToGrid = mathFactory.createAffineTransform(matrix);
+                } catch (FactoryException ex) {
+                    throw new CoverageStoreException(ex.getMessage(), ex);
+                }
+                final MathTransform concat = MathTransforms.concatenate(cornerToGrid, gridToCrs);
 
-            //Calculate grid to crs of this zone
-            final GeneralMatrix matrix = new GeneralMatrix(nbDim+1);
-            matrix.setIdentity();
-            for(int i=0;i<nbDim;i++){
-                matrix.setElement(i, nbDim, hcubeLower[i]);
-            }
-            final MathTransform cornerToGrid;
-            try {
-                cornerToGrid = mathFactory.createAffineTransform(matrix);
-            } catch (FactoryException ex) {
-                throw new CoverageStoreException(ex.getMessage(), ex);
+                batch.add(new TileTask(evaluator, concat, new double[nbDim], model.getSampleModel(), model.getColorModel(),
+                        hcubeUpper[0]-hcubeLower[0], hcubeUpper[1]-hcubeLower[1], 0, 0));
+                batchTransforms.add(concat);
+
+                if(batch.size() == BATCH_SIZE || !ite.hasNext()){
+                    final RenderedImage[] images = computeBatch(batch, executor);
+                    for(int i=0;i<images.length;i++){
+                        final GridCoverageBuilder gcb = new GridCoverageBuilder();
+                        gcb.setCoordinateReferenceSystem(gg.getCoordinateReferenceSystem());
+                        gcb.setRenderedImage(images[i]);
+                        gcb.setGridToCRS(batchTransforms.get(i));
+                        final GridCoverage2D zoneCoverage = gcb.getGridCoverage2D();
+                        final GridCoverageWriteParam param = new GridCoverageWriteParam();
+                        outWriter.write(zoneCoverage, param);
+                    }
+                    batch.clear();
+                    batchTransforms.clear();
+                }
             }
-            final MathTransform concat = MathTransforms.concatenate(cornerToGrid, gridToCrs);
-
-            final GridCoverageBuilder gcb = new GridCoverageBuilder();
-            gcb.setCoordinateReferenceSystem(gg.getCoordinateReferenceSystem());
-            gcb.setRenderedImage(zoneImage);
-            gcb.setGridToCRS(concat);
-            final GridCoverage2D zoneCoverage = gcb.getGridCoverage2D();
-            final GridCoverageWriteParam param = new GridCoverageWriteParam();
-            outWriter.write(zoneCoverage, param);
+        } catch (TransformException | FactoryException ex) {
+            throw new CoverageStoreException(ex.getMessage(), ex);
+        } finally {
+            executor.shutdownNow();
         }
 
     }
@@ -192,31 +209,185 @@ public class FillCoverage {
      */
     public static void fill(PyramidalCoverageReference outRef, SampleEvaluator evaluator)
             throws DataStoreException, TransformException, FactoryException {
-        
+        fill(outRef, new SampleTileEvaluator(evaluator));
+    }
+
+    /**
+     * Fill given coverage reference, tiles are computed in parallel then written in order.
+     *
+     * @param evaluator
+     * @param outRef
+     */
+    public static void fill(PyramidalCoverageReference outRef, TileEvaluator evaluator)
+            throws DataStoreException, TransformException, FactoryException {
+
         final ColorModel cm = outRef.getColorModel();
         final SampleModel sm = outRef.getSampleModel();
-        
-        for(Pyramid pyramid : outRef.getPyramidSet().getPyramids()){
-            for(GridMosaic mosaic : pyramid.getMosaics()){
-                final Dimension tileSize = mosaic.getTileSize();
-                final double[] upperLeftGeo = mosaic.getUpperLeftCorner().getCoordinate();
-                
-                final Dimension gridSize = mosaic.getGridSize();
-                for(int y=0;y<gridSize.height;y++){
-                    for(int x=0;x<gridSize.width;x++){
-                        final MathTransform gridToCRS = AbstractGridMosaic.getTileGridToCRS(mosaic, new Point(x, y), PixelInCell.CELL_CENTER);
-                        final MathTransform crsToGrid = gridToCRS.inverse();
-                        final double[] baseCoord = new double[upperLeftGeo.length];
-                        crsToGrid.transform(upperLeftGeo, 0, baseCoord, 0, 1);
-                        final MathCalcImageEvaluator eval = new MathCalcImageEvaluator(baseCoord, gridToCRS, evaluator.copy());
-                        final ProcessedRenderedImage image = new ProcessedRenderedImage(sm, cm, eval, tileSize.width, tileSize.height);
-                        outRef.writeTile(pyramid.getId(), mosaic.getId(), x, y, image);
+
+        final ExecutorService executor = createExecutor();
+        try {
+            for(Pyramid pyramid : outRef.getPyramidSet().getPyramids()){
+                for(GridMosaic mosaic : pyramid.getMosaics()){
+                    final Dimension tileSize = mosaic.getTileSize();
+                    final double[] upperLeftGeo = mosaic.getUpperLeftCorner().getCoordinate();
+
+                    final Dimension gridSize = mosaic.getGridSize();
+                    final List<TileTask> batch = new ArrayList<>();
+                    for(int y=0;y<gridSize.height;y++){
+                        for(int x=0;x<gridSize.width;x++){
+                            final MathTransform gridToCRS = AbstractGridMosaic.getTileGridToCRS(mosaic, new Point(x, y), PixelInCell.CELL_CENTER);
+                            final MathTransform crsToGrid = gridToCRS.inverse();
+                            final double[] baseCoord = new double[upperLeftGeo.length];
+                            crsToGrid.transform(upperLeftGeo, 0, baseCoord, 0, 1);
+                            batch.add(new TileTask(evaluator, gridToCRS, baseCoord, sm, cm, tileSize.width, tileSize.height, x, y));
+
+                            if(batch.size() == BATCH_SIZE){
+                                writeBatch(outRef, pyramid.getId(), mosaic.getId(), batch, executor);
+                            }
+                        }
+                    }
+                    if(!batch.isEmpty()){
+                        writeBatch(outRef, pyramid.getId(), mosaic.getId(), batch, executor);
                     }
                 }
             }
+        } finally {
+            executor.shutdownNow();
         }
     }
-    
+
+    private static ExecutorService createExecutor() {
+        return Executors.newFixedThreadPool(NB_THREADS, Threads.createThreadFactory("FillCoverage #"));
+    }
+
+    /**
+     * Compute a batch of tiles in parallel, then write them and clear the batch.
+     */
+    private static void writeBatch(PyramidalCoverageReference outRef, String pyramidId, String mosaicId,
+            List<TileTask> batch, ExecutorService executor)
+            throws DataStoreException, TransformException, FactoryException {
+        final RenderedImage[] images = computeBatch(batch, executor);
+        for(int i=0;i<images.length;i++){
+            final TileTask task = batch.get(i);
+            outRef.writeTile(pyramidId, mosaicId, task.tileX, task.tileY, images[i]);
+        }
+        batch.clear();
+    }
+
+    private static RenderedImage[] computeBatch(List<TileTask> batch, ExecutorService executor)
+            throws DataStoreException, TransformException, FactoryException {
+        final int nb = batch.size();
+        final List<Future<RenderedImage>> futures = new ArrayList<>(nb);
+        for(TileTask task : batch){
+            futures.add(executor.submit(task));
+        }
+        final RenderedImage[] images = new RenderedImage[nb];
+        try {
+            for(int i=0;i<nb;i++){
+                images[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            for(Future f : futures) f.cancel(true);
+            throw new DataStoreException(ex.getMessage(), ex);
+        } catch (ExecutionException ex) {
+            for(Future f : futures) f.cancel(true);
+            final Throwable cause = ex.getCause();
+            if(cause instanceof TransformException){
+                throw (TransformException) cause;
+            }else if(cause instanceof FactoryException){
+                throw (FactoryException) cause;
+            }else if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }else if(cause instanceof Error){
+                throw (Error) cause;
+            }
+            throw new DataStoreException(cause.getMessage(), cause);
+        }
+        return images;
+    }
+
+    /**
+     * Compute a tile image.
+     */
+    private static final class TileTask implements Callable<RenderedImage> {
+
+        private final TileEvaluator evaluator;
+        private final MathTransform gridToCrs;
+        private final double[] gridCoord;
+        private final SampleModel sampleModel;
+        private final ColorModel colorModel;
+        private final int width;
+        private final int height;
+        private final int tileX;
+        private final int tileY;
+
+        private TileTask(TileEvaluator evaluator, MathTransform gridToCrs, double[] gridCoord,
+                SampleModel sampleModel, ColorModel colorModel, int width, int height, int tileX, int tileY) {
+            this.evaluator = evaluator;
+            this.gridToCrs = gridToCrs;
+            this.gridCoord = gridCoord;
+            this.sampleModel = sampleModel;
+            this.colorModel = colorModel;
+            this.width = width;
+            this.height = height;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        @Override
+        public RenderedImage call() throws TransformException, FactoryException {
+            final TiledImage image = new TiledImage(0, 0, width, height, 0, 0,
+                    sampleModel.createCompatibleSampleModel(width, height), colorModel);
+            final WritableRaster raster = image.getWritableTile(0, 0);
+            evaluator.evaluate(gridToCrs, gridCoord, raster);
+            image.releaseWritableTile(0, 0);
+            return image;
+        }
+    }
+
+    /**
+     * Evaluate tiles with a sample evaluator, a copy of the evaluator is used for each tile.
+     */
+    private static final class SampleTileEvaluator implements TileEvaluator {
+
+        private final SampleEvaluator evaluator;
+
+        private SampleTileEvaluator(SampleEvaluator evaluator) {
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public void evaluate(MathTransform gridToCrs, double[] gridCoord, WritableRaster raster) throws FactoryException {
+            final MathCalcImageEvaluator eval = new MathCalcImageEvaluator(gridCoord.clone(), gridToCrs, evaluator.copy());
+            final int minX = raster.getMinX();
+            final int minY = raster.getMinY();
+            final double[] sampleBuffer = new double[raster.getNumBands()];
+            for(int y=0,yn=raster.getHeight();y<yn;y++){
+                for(int x=0,xn=raster.getWidth();x<xn;x++){
+                    eval.evaluate(x, y, sampleBuffer);
+                    raster.setPixel(minX+x, minY+y, sampleBuffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the samples of a tile.
+     * Implementations must be thread safe, tiles are computed in parallel.
+     */
+    public static interface TileEvaluator {
+
+        /**
+         * Compute the samples of a tile.
+         *
+         * @param gridToCrs tile grid to CRS transform, with pixel center convention
+         * @param gridCoord grid coordinate of the tile, used for dimensions above the two first ones
+         * @param raster tile raster, pixel (0,0) of the tile grid is the raster upper left pixel
+         */
+        void evaluate(MathTransform gridToCrs, double[] gridCoord, WritableRaster raster)
+                throws TransformException, FactoryException;
+
+    }
 
     /**
      *
@@ -89,10 +89,18 @@ public class MathCalcProcess extends AbstractProcess {
             throw new ProcessException(ex.getMessage(), this, ex);
         }
         
-        // prepare dynamic pick object
+        //compile expression in a tile kernel if possible, else prepare dynamic pick object
+        final CompiledExpression compiled = CompiledExpression.compile(exp, inMapping);
+        final FillCoverage.TileEvaluator tileEvaluator;
         final MathCalcCoverageEvaluator evaluator;
         try {
-            evaluator = new MathCalcCoverageEvaluator(inCoverages,inMapping,exp,gg.getCoordinateReferenceSystem());
+            if(compiled!=null){
+                tileEvaluator = new MathCalcTileEvaluator(inCoverages,compiled,gg.getCoordinateReferenceSystem());
+                evaluator = null;
+            }else{
+                tileEvaluator = null;
+                evaluator = new MathCalcCoverageEvaluator(inCoverages,inMapping,exp,gg.getCoordinateReferenceSystem());
+            }
         } catch (FactoryException ex) {
             throw new ProcessException(ex.getMessage(), this, ex);
         }
@@ -100,9 +108,17 @@ public class MathCalcProcess extends AbstractProcess {
         final FillCoverage filler = new FillCoverage();
         try {
             if(outRef instanceof PyramidalCoverageReference){
-                filler.fill((PyramidalCoverageReference)outRef, evaluator);
+                if(tileEvaluator!=null){
+                    FillCoverage.fill((PyramidalCoverageReference)outRef, tileEvaluator);
+                }else{
+                    FillCoverage.fill((PyramidalCoverageReference)outRef, evaluator);
+                }
             }else{
-                filler.fill(outRef, evaluator, null);
+                if(tileEvaluator!=null){
+                    filler.fill(outRef, tileEvaluator, null);
+                }else{
+                    filler.fill(outRef, evaluator, null);
+                }
             }
         } catch (DataStoreException ex) {
             throw new ProcessException(ex.getMessage(), this, ex);
@@ -0,0 +1,239 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage.mathcalc;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.sis.geometry.GeneralDirectPosition;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.referencing.CRS;
+import org.opengis.coverage.CannotEvaluateException;
+import org.opengis.coverage.Coverage;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.LinearTransform;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * Tile evaluator using a compiled expression.
+ * <p>
+ * Tiles are computed row by row. Inputs which are {@link GridCoverage2D} on the same grid
+ * as the tile, up to an integer translation, are read directly from their image without
+ * coordinate transformation. Other inputs are evaluated at each pixel, pixel coordinates
+ * being transformed by rows.
+ *
+ * @author agent
+ * @module pending
+ */
+public class MathCalcTileEvaluator implements FillCoverage.TileEvaluator {
+
+    private static final Logger LOGGER = Logger.getLogger(MathCalcProcess.class.getName());
+
+    /** Tolerance on transform coefficients to consider grids are aligned. */
+    private static final double EPS = 1E-9;
+
+    private final Coverage[] coverages;
+    private final CompiledExpression exp;
+    /** Result CRS to each coverage CRS. */
+    private final MathTransform[] crsToCoverage;
+
+    /**
+     *
+     * @param coverages input coverages
+     * @param exp expression compiled with the coverage names
+     * @param crs CRS of the result coverage
+     * @throws FactoryException if a transform to a coverage CRS can not be found
+     */
+    public MathCalcTileEvaluator(Coverage[] coverages, CompiledExpression exp, CoordinateReferenceSystem crs) throws FactoryException {
+        this.coverages = coverages;
+        this.exp = exp;
+        this.crsToCoverage = new MathTransform[coverages.length];
+        for (int i = 0; i < coverages.length; i++) {
+            crsToCoverage[i] = CRS.findMathTransform(crs, coverages[i].getCoordinateReferenceSystem());
+        }
+    }
+
+    @Override
+    public void evaluate(MathTransform gridToCrs, double[] gridCoord, WritableRaster raster) throws TransformException {
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
+        final int minX = raster.getMinX();
+        final int minY = raster.getMinY();
+
+        final Source[] sources = new Source[coverages.length];
+        final double[][] inputs = new double[coverages.length][];
+        for (int i = 0; i < coverages.length; i++) {
+            if (exp.uses(i)) {
+                sources[i] = createSource(i, gridToCrs, gridCoord, width, height);
+                inputs[i] = new double[width];
+            }
+        }
+
+        final double[][] stack = exp.createStack(width);
+        for (int y = 0; y < height; y++) {
+            for (int i = 0; i < sources.length; i++) {
+                if (sources[i] != null) sources[i].read(y, inputs[i]);
+            }
+            final double[] result = exp.evaluate(inputs, stack, width);
+            raster.setSamples(minX, minY + y, width, 1, 0, result);
+        }
+    }
+
+    /**
+     * Create a reader of the coverage values, reading directly the image samples if possible.
+     */
+    private Source createSource(int index, MathTransform gridToCrs, double[] gridCoord, int width, int height)
+            throws TransformException {
+        final Coverage coverage = coverages[index];
+        final MathTransform gridToCoverage = MathTransforms.concatenate(gridToCrs, crsToCoverage[index]);
+
+        if (coverage instanceof GridCoverage2D
+                && gridToCoverage.getSourceDimensions() == 2
+                && gridToCoverage.getTargetDimensions() == 2) {
+            final GridCoverage2D grid = (GridCoverage2D) coverage;
+            final MathTransform gridToGrid = MathTransforms.concatenate(
+                    gridToCoverage, grid.getGridGeometry().getGridToCRS2D().inverse());
+            if (gridToGrid instanceof LinearTransform) {
+                final Matrix trs = ((LinearTransform) gridToGrid).getMatrix();
+                final double tx = trs.getElement(0, 2);
+                final double ty = trs.getElement(1, 2);
+                if (Math.abs(trs.getElement(0, 0) - 1) < EPS && Math.abs(trs.getElement(1, 1) - 1) < EPS
+                        && Math.abs(trs.getElement(0, 1)) < EPS && Math.abs(trs.getElement(1, 0)) < EPS
+                        && Math.abs(tx - Math.rint(tx)) < EPS && Math.abs(ty - Math.rint(ty)) < EPS) {
+                    return new GridSource(grid.getRenderedImage(), (int) Math.rint(tx), (int) Math.rint(ty), width, height);
+                }
+            }
+        }
+        return new TransformSource(coverage, gridToCoverage, gridCoord, width);
+    }
+
+    private static interface Source {
+
+        /**
+         * Read the first sample of a tile row.
+         *
+         * @param y row index in the tile
+         * @param row samples buffer, NaN outside of the coverage
+         */
+        void read(int y, double[] row);
+    }
+
+    /**
+     * Read samples of a tile aligned on the image grid.
+     */
+    private static final class GridSource implements Source {
+
+        private final int offsetX;
+        private final int offsetY;
+        /** Image samples intersecting the tile, null if none. */
+        private final Raster data;
+        private final double[] samples;
+
+        private GridSource(RenderedImage image, int offsetX, int offsetY, int width, int height) {
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            final Rectangle area = new Rectangle(offsetX, offsetY, width, height).intersection(
+                    new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image.getHeight()));
+            if (area.isEmpty()) {
+                data = null;
+                samples = null;
+            } else {
+                data = image.getData(area);
+                samples = new double[area.width];
+            }
+        }
+
+        @Override
+        public void read(int y, double[] row) {
+            final int iy = y + offsetY;
+            if (data == null || iy < data.getMinY() || iy >= data.getMinY() + data.getHeight()) {
+                Arrays.fill(row, Double.NaN);
+                return;
+            }
+            final int start = data.getMinX() - offsetX;
+            final int end = start + samples.length;
+            data.getSamples(data.getMinX(), iy, samples.length, 1, 0, samples);
+            Arrays.fill(row, 0, start, Double.NaN);
+            System.arraycopy(samples, 0, row, start, samples.length);
+            Arrays.fill(row, end, row.length, Double.NaN);
+        }
+    }
+
+    /**
+     * Evaluate the coverage at each pixel, pixel coordinates are transformed by rows.
+     */
+    private static final class TransformSource implements Source {
+
+        private final Coverage coverage;
+        private final MathTransform gridToCoverage;
+        private final int width;
+        private final double[] gridCoords;
+        private final double[] coverageCoords;
+        private final GeneralDirectPosition position;
+        private final double[] samples;
+
+        private TransformSource(Coverage coverage, MathTransform gridToCoverage, double[] gridCoord, int width) {
+            this.coverage = coverage;
+            this.gridToCoverage = gridToCoverage;
+            this.width = width;
+            final int srcDim = gridToCoverage.getSourceDimensions();
+            gridCoords = new double[srcDim * width];
+            for (int x = 0; x < width; x++) {
+                System.arraycopy(gridCoord, 0, gridCoords, x * srcDim, srcDim);
+                gridCoords[x * srcDim] = x;
+            }
+            coverageCoords = new double[gridToCoverage.getTargetDimensions() * width];
+            position = new GeneralDirectPosition(coverage.getCoordinateReferenceSystem());
+            samples = new double[coverage.getNumSampleDimensions()];
+        }
+
+        @Override
+        public void read(int y, double[] row) {
+            final int srcDim = gridToCoverage.getSourceDimensions();
+            for (int x = 0; x < width; x++) {
+                gridCoords[x * srcDim + 1] = y;
+            }
+            try {
+                gridToCoverage.transform(gridCoords, 0, coverageCoords, 0, width);
+            } catch (TransformException ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+                Arrays.fill(row, Double.NaN);
+                return;
+            }
+            final double[] ordinates = position.ordinates;
+            for (int x = 0; x < width; x++) {
+                System.arraycopy(coverageCoords, x * ordinates.length, ordinates, 0, ordinates.length);
+                try {
+                    coverage.evaluate(position, samples);
+                    row[x] = samples[0];
+                } catch (CannotEvaluateException ex) {
+                    row[x] = Double.NaN;
+                }
+            }
+        }
+    }
+
+}
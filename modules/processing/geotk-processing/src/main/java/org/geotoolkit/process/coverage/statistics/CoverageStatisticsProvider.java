@@ -0,0 +1,305 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage.statistics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.util.collection.Cache;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.coverage.CoverageReference;
+import org.geotoolkit.coverage.CoverageStore;
+import org.geotoolkit.coverage.CoverageUtilities;
+import org.geotoolkit.coverage.filestore.FileCoverageReference;
+import org.geotoolkit.coverage.grid.GeneralGridGeometry;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.ViewType;
+import org.geotoolkit.coverage.io.CoverageStoreException;
+import org.geotoolkit.coverage.io.GridCoverageReadParam;
+import org.geotoolkit.coverage.io.GridCoverageReader;
+import org.geotoolkit.internal.io.Installation;
+import org.geotoolkit.process.ProcessException;
+import org.geotoolkit.referencing.CRS;
+import org.opengis.coverage.grid.GridEnvelope;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Statistics of {@link CoverageReference}s, computed once and reused.
+ * <p>
+ * Statistics are computed on the geophysics view of the first slice of the coverage,
+ * read at a resolution giving at most {@link #SAMPLE_SIZE} cells on each axis. Pyramidal
+ * references are read from an overview mosaic, other readers subsample the image.
+ * <p>
+ * Statistics are kept in memory and saved in a cache folder, the data folders are never written.
+ * The cache folder is the {@value #DIRECTORY} folder of the Geotoolkit.org installation directory,
+ * another folder can be set with {@link #setCacheDirectory(java.io.File) }. Statistics files are
+ * named after the data location, so each store has its own files. Statistics can be saved for :
+ * <ul>
+ *   <li>file references, identified by the data file and the image index,</li>
+ *   <li>references of stores configured with a file or an URL, identified by this location and the reference name.</li>
+ * </ul>
+ * Saved statistics of a file reference are computed again when the data file is more recent.
+ * Other statistics must be cleared with {@link #invalidate(org.geotoolkit.coverage.CoverageReference) }
+ * when the coverage changes.
+ *
+ * @author agent
+ * @module pending
+ */
+public final class CoverageStatisticsProvider {
+
+    private static final Logger LOGGER = Logging.getLogger(CoverageStatisticsProvider.class);
+
+    /** Maximum number of cells read on each axis. */
+    public static final int SAMPLE_SIZE = 1024;
+    /** Statistics file extension. */
+    public static final String SUFFIX = ".stats";
+    /** Name of the default cache folder, in the installation directory. */
+    public static final String DIRECTORY = "Statistics";
+
+    private static final Cache<CoverageReference,ImageStatistics> CACHE = new Cache<>(12, 0, true);
+
+    /** Folder where statistics are saved, null to keep them only in memory. */
+    private static volatile File cacheDirectory = getDefaultCacheDirectory();
+
+    private CoverageStatisticsProvider(){}
+
+    /**
+     * Get the statistics of a coverage, loaded from memory or file, or computed.
+     *
+     * @param ref coverage reference
+     * @return coverage statistics, never null
+     * @throws ProcessException if statistics can not be computed
+     */
+    public static ImageStatistics getStatistics(final CoverageReference ref) throws ProcessException {
+        try {
+            return CACHE.getOrCreate(ref, new Callable<ImageStatistics>() {
+                @Override
+                public ImageStatistics call() throws ProcessException {
+                    return loadOrCompute(ref);
+                }
+            });
+        } catch (ProcessException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ProcessException(ex.getMessage(), null, ex);
+        }
+    }
+
+    /**
+     * Remove the statistics of a coverage from memory and delete the saved statistics.
+     * Statistics will be computed again on next call to {@link #getStatistics(org.geotoolkit.coverage.CoverageReference) }.
+     *
+     * @param ref coverage reference
+     */
+    public static void invalidate(final CoverageReference ref) {
+        CACHE.remove(ref);
+        final File file = getStatisticsFile(ref);
+        if (file != null && file.isFile() && !file.delete()) {
+            LOGGER.log(Level.WARNING, "Statistics file can not be deleted : {0}", file);
+        }
+    }
+
+    /**
+     * Set the folder where statistics are saved.
+     *
+     * @param directory statistics folder, null to keep statistics only in memory
+     */
+    public static void setCacheDirectory(final File directory) {
+        cacheDirectory = directory;
+    }
+
+    /**
+     * Get the default folder where statistics are saved, in the installation directory.
+     *
+     * @return default statistics folder, null if the installation directory is not accessible
+     */
+    public static File getDefaultCacheDirectory() {
+        try {
+            return new File(Installation.ROOT_DIRECTORY.directory(true), DIRECTORY);
+        } catch (SecurityException ex) {
+            LOGGER.log(Level.INFO, "Statistics will only be kept in memory : {0}", ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the folder where statistics are saved.
+     *
+     * @return statistics folder, null if statistics are only kept in memory
+     */
+    public static File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Get the file where coverage statistics are saved.
+     *
+     * @param ref coverage reference
+     * @return statistics file, null if statistics can not be saved
+     */
+    public static File getStatisticsFile(final CoverageReference ref) {
+        final File directory = cacheDirectory;
+        if (directory == null) {
+            return null;
+        }
+        final String source = getSource(ref);
+        if (source == null) {
+            return null;
+        }
+        final String name = ref.getName().getLocalPart().replaceAll("[^\\w\\.\\-]", "_");
+        return new File(directory, name + '-' + Integer.toHexString(source.hashCode()) + SUFFIX);
+    }
+
+    /**
+     * Get a text identifying the data of a coverage reference.
+     *
+     * @param ref coverage reference
+     * @return data identifier, null if the data location is unknown
+     */
+    private static String getSource(final CoverageReference ref) {
+        if (ref instanceof FileCoverageReference) {
+            return ((FileCoverageReference) ref).getInput().getAbsolutePath() + '#' + ref.getImageIndex();
+        }
+
+        final CoverageStore store = ref.getStore();
+        if (store == null || store.getConfiguration() == null) {
+            return null;
+        }
+        for (GeneralParameterValue param : store.getConfiguration().values()) {
+            if (param instanceof ParameterValue) {
+                final Object value = ((ParameterValue) param).getValue();
+                final File file = toFile(value);
+                if (file != null) {
+                    return file.getAbsolutePath() + '#' + ref.getName();
+                } else if (value instanceof URL || value instanceof URI) {
+                    return value.toString() + '#' + ref.getName();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static File toFile(final Object candidate) {
+        try {
+            if (candidate instanceof File) {
+                return (File) candidate;
+            } else if (candidate instanceof URL && "file".equalsIgnoreCase(((URL) candidate).getProtocol())) {
+                return new File(((URL) candidate).toURI());
+            } else if (candidate instanceof URI && "file".equalsIgnoreCase(((URI) candidate).getScheme())) {
+                return new File((URI) candidate);
+            }
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            LOGGER.log(Level.FINE, ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    private static ImageStatistics loadOrCompute(final CoverageReference ref) throws ProcessException {
+        final File file = getStatisticsFile(ref);
+        if (file != null && file.isFile() && isUpToDate(ref, file)) {
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                return (ImageStatistics) in.readObject();
+            } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+                //invalid or older statistics, compute them again
+                LOGGER.log(Level.FINE, "Statistics file can not be read : "+file, ex);
+            }
+        }
+
+        final ImageStatistics stats = compute(ref);
+
+        if (file != null) {
+            file.getParentFile().mkdirs();
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.writeObject(stats);
+            } catch (IOException ex) {
+                //read only cache folder, statistics will only be in memory
+                LOGGER.log(Level.FINE, "Statistics file can not be written : "+file, ex);
+                file.delete();
+            }
+        }
+        return stats;
+    }
+
+    private static boolean isUpToDate(final CoverageReference ref, final File file) {
+        if (ref instanceof FileCoverageReference) {
+            return file.lastModified() >= ((FileCoverageReference) ref).getInput().lastModified();
+        }
+        return true;
+    }
+
+    /**
+     * Compute statistics on a sampled first slice of the coverage.
+     */
+    private static ImageStatistics compute(final CoverageReference ref) throws ProcessException {
+        final GridCoverageReader reader;
+        try {
+            reader = ref.acquireReader();
+        } catch (CoverageStoreException ex) {
+            throw new ProcessException(ex.getMessage(), null, ex);
+        }
+        try {
+            final int imageIndex = ref.getImageIndex();
+            final GeneralGridGeometry gridGeometry = reader.getGridGeometry(imageIndex);
+            final GridEnvelope extent = gridGeometry.getExtent();
+            final int dim = extent.getDimension();
+
+            //first slice
+            final GeneralEnvelope sliceExtent = new GeneralEnvelope(gridGeometry.getCoordinateReferenceSystem());
+            for (int i = 0; i < dim; i++) {
+                final double high = (i < 2) ? extent.getHigh(i) : extent.getLow(i);
+                sliceExtent.setRange(i, extent.getLow(i), high);
+            }
+            final GeneralEnvelope sliceEnv = CRS.transform(gridGeometry.getGridToCRS(), sliceExtent);
+
+            final GridCoverageReadParam readParam = new GridCoverageReadParam();
+            readParam.setEnvelope(sliceEnv);
+            readParam.setCoordinateReferenceSystem(gridGeometry.getCoordinateReferenceSystem());
+            readParam.setDeferred(true);
+            //sample large coverages on the first two axes, pyramids use an overview.
+            //other axes are reduced to the first slice, 0 is the best resolution.
+            final double[] resolution = new double[dim];
+            for (int i = 0; i < 2 && i < dim; i++) {
+                resolution[i] = sliceEnv.getSpan(i) / Math.min(extent.getSpan(i), SAMPLE_SIZE);
+            }
+            readParam.setResolution(resolution);
+
+            GridCoverage2D coverage = CoverageUtilities.firstSlice(reader.read(imageIndex, readParam));
+            coverage = coverage.view(ViewType.GEOPHYSICS);
+            return Statistics.analyse(coverage, true);
+        } catch (CoverageStoreException | TransformException ex) {
+            throw new ProcessException(ex.getMessage(), null, ex);
+        } finally {
+            ref.recycle(reader);
+        }
+    }
+
+}
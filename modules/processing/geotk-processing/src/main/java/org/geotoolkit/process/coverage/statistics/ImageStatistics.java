@@ -169,6 +169,40 @@ public class ImageStatistics implements Serializable{
             return distArr;
         }
 
+        /**
+         * Estimate from the histogram the value below which are the given ratio of samples.
+         * Percentile stretching uses ratios like 0.02 and 0.98.
+         *
+         * @param ratio samples ratio, between 0 and 1
+         * @return estimated value, null if there is no histogram or it is empty
+         */
+        public Double getPercentile(double ratio) {
+            if (histogram == null || min == null || max == null) {
+                return null;
+            }
+            long total = 0;
+            for (long count : histogram) {
+                total += count;
+            }
+            if (total == 0) {
+                return null;
+            }
+
+            final double target = ratio * total;
+            final double binSize = (max - min) / histogram.length;
+            long cumul = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                final long count = histogram[i];
+                if (count > 0 && cumul + count >= target) {
+                    //samples are considered evenly distributed in the bin
+                    final double inBin = Math.max(0, target - cumul) / count;
+                    return min + binSize * (i + inBin);
+                }
+                cumul += count;
+            }
+            return max;
+        }
+
         public double[] getNoData() {
             return noData;
         }
@@ -0,0 +1,143 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.vector;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.operation.union.UnaryUnionOp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Union of many geometries by a cascaded reduction computed in parallel.
+ * <p>
+ * Geometries are sorted along the x axis and split in a binary tree, small groups
+ * of neighbour geometries are unioned first then results are unioned two by two up
+ * to the root. Each overlay works on geometries of similar size instead of adding
+ * small geometries one by one to a growing result. Branches of the tree are computed
+ * on a shared fork join pool, results with disjoint envelopes are collected without
+ * overlay.
+ *
+ * @author agent
+ * @module pending
+ */
+public final class CascadedUnion {
+
+    /** Number of geometries unioned in a single overlay at the leaves of the tree. */
+    private static final int LEAF_SIZE = 8;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    private static final Comparator<Geometry> X_ORDER = new Comparator<Geometry>() {
+        @Override
+        public int compare(Geometry g1, Geometry g2) {
+            final Envelope e1 = g1.getEnvelopeInternal();
+            final Envelope e2 = g2.getEnvelopeInternal();
+            return Double.compare(e1.getMinX() + e1.getMaxX(), e2.getMinX() + e2.getMaxX());
+        }
+    };
+
+    private CascadedUnion() {
+    }
+
+    /**
+     * Union geometries, waiting for the result.
+     *
+     * @param geometries geometries to union, null and empty geometries are ignored
+     * @return union, an empty geometry collection if there is no geometry
+     */
+    public static Geometry union(final Collection<? extends Geometry> geometries) {
+        return submit(geometries).join();
+    }
+
+    /**
+     * Start the union of geometries on the shared pool.
+     *
+     * @param geometries geometries to union, null and empty geometries are ignored
+     * @return running union, {@link ForkJoinTask#join() } returns the union
+     */
+    public static ForkJoinTask<Geometry> submit(final Collection<? extends Geometry> geometries) {
+        final List<Geometry> list = new ArrayList<>(geometries.size());
+        for (Geometry geom : geometries) {
+            if (geom != null && !geom.isEmpty()) {
+                list.add(geom);
+            }
+        }
+        Collections.sort(list, X_ORDER);
+        return POOL.submit(new UnionTask(list, 0, list.size()));
+    }
+
+    /**
+     * Union two geometries, without overlay if their envelopes are disjoint.
+     */
+    private static Geometry union(final Geometry g1, final Geometry g2) {
+        if (g1.isEmpty()) {
+            return g2;
+        } else if (g2.isEmpty()) {
+            return g1;
+        } else if (g1.getEnvelopeInternal().intersects(g2.getEnvelopeInternal())) {
+            //binary union does not accept geometry collections
+            return UnaryUnionOp.union(Arrays.asList(g1, g2));
+        }
+        final List<Geometry> parts = new ArrayList<>(g1.getNumGeometries() + g2.getNumGeometries());
+        for (int i = 0, n = g1.getNumGeometries(); i < n; i++) {
+            parts.add(g1.getGeometryN(i));
+        }
+        for (int i = 0, n = g2.getNumGeometries(); i < n; i++) {
+            parts.add(g2.getGeometryN(i));
+        }
+        return g1.getFactory().buildGeometry(parts);
+    }
+
+    private static final class UnionTask extends RecursiveTask<Geometry> {
+
+        private final List<Geometry> geometries;
+        private final int start;
+        private final int end;
+
+        private UnionTask(final List<Geometry> geometries, final int start, final int end) {
+            this.geometries = geometries;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Geometry compute() {
+            if (end - start <= LEAF_SIZE) {
+                if (start == end) {
+                    return new GeometryFactory().buildGeometry(Collections.EMPTY_LIST);
+                }
+                return UnaryUnionOp.union(geometries.subList(start, end));
+            }
+            final int middle = (start + end) >>> 1;
+            final UnionTask left = new UnionTask(geometries, start, middle);
+            left.fork();
+            final Geometry right = new UnionTask(geometries, middle, end).compute();
+            return union(left.join(), right);
+        }
+    }
+
+}
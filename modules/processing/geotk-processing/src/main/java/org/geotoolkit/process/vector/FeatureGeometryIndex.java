@@ -0,0 +1,282 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.vector;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureIterator;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.Property;
+import org.geotoolkit.feature.type.GeometryDescriptor;
+import org.geotoolkit.index.tree.DistanceRefinement;
+import org.geotoolkit.index.tree.StoreIndexException;
+import org.geotoolkit.index.tree.Tree;
+import org.geotoolkit.index.tree.TreeElementMapper;
+import org.geotoolkit.index.tree.star.MemoryStarRTree;
+import org.geotoolkit.referencing.crs.PredefinedCRS;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * In memory R-Tree over the geometries of a FeatureCollection, used to find
+ * nearest features without computing the distance to every feature, or the
+ * features which may intersect a geometry without testing every feature.
+ * <p>
+ * Geometries are reprojected in the collection CRS and kept in memory with
+ * their feature, the index is built once and can be shared by many queries.
+ * Nearest queries compare geometry envelopes first, exact geometry distances
+ * are only computed for candidates which may be the nearest.
+ *
+ * @author agent
+ * @module pending
+ */
+public final class FeatureGeometryIndex {
+
+    private static final int MAX_ELEMENTS = 16;
+
+    private final CoordinateReferenceSystem crs;
+    private final List<Feature> features = new ArrayList<Feature>();
+    private final List<Geometry> geometries = new ArrayList<Geometry>();
+    /** Geometry index of each tree identifier. */
+    private final Map<Integer,Integer> identifiers = new HashMap<Integer,Integer>();
+    /** Tree identifier of each geometry index. */
+    private final Map<Integer,Integer> treeIdentifiers = new HashMap<Integer,Integer>();
+    private final Tree<Integer> tree;
+
+    /**
+     * Index all geometries of the given collection.
+     *
+     * @param collection features to index
+     * @throws StoreIndexException if a geometry can not be inserted
+     * @throws FactoryException if a geometry CRS can not be converted
+     * @throws TransformException if a geometry can not be reprojected
+     */
+    public FeatureGeometryIndex(final FeatureCollection<Feature> collection)
+            throws StoreIndexException, FactoryException, TransformException {
+        this(collection, null);
+    }
+
+    /**
+     * Index a geometry property of the given collection.
+     *
+     * @param collection features to index
+     * @param geometryName indexed geometry property name, null to index all geometries
+     * @throws StoreIndexException if a geometry can not be inserted
+     * @throws FactoryException if a geometry CRS can not be converted
+     * @throws TransformException if a geometry can not be reprojected
+     */
+    public FeatureGeometryIndex(final FeatureCollection<Feature> collection, final String geometryName)
+            throws StoreIndexException, FactoryException, TransformException {
+        this.crs = collection.getFeatureType().getCoordinateReferenceSystem();
+        //the tree only stores envelopes in the collection crs units
+        this.tree = new MemoryStarRTree<Integer>(MAX_ELEMENTS, PredefinedCRS.CARTESIAN_2D, new Mapper());
+
+        final FeatureIterator<Feature> ite = collection.iterator();
+        try {
+            while (ite.hasNext()) {
+                final Feature feature = ite.next();
+                for (final Property property : feature.getProperties()) {
+                    if (property.getDescriptor() instanceof GeometryDescriptor
+                            && (geometryName == null || property.getName().getLocalPart().equals(geometryName))) {
+                        Geometry geom = (Geometry) property.getValue();
+                        if (geom == null || geom.isEmpty()) continue;
+                        final CoordinateReferenceSystem geomCRS =
+                                ((GeometryDescriptor) property.getDescriptor()).getCoordinateReferenceSystem();
+                        geom = reproject(geom, geomCRS);
+                        final int index = geometries.size();
+                        features.add(feature);
+                        geometries.add(geom);
+                        tree.insert(index);
+                    }
+                }
+            }
+        } finally {
+            ite.close();
+        }
+    }
+
+    /**
+     * Find the features nearest from the given geometry. Several features are
+     * returned when they are at the same distance, in collection order.
+     *
+     * @param geometry searched geometry
+     * @param geometryCRS geometry CRS, null if in collection CRS
+     * @return nearest features, empty if the collection has no geometry
+     * @throws StoreIndexException if search fails
+     * @throws FactoryException if the geometry CRS can not be converted
+     * @throws TransformException if the geometry can not be reprojected
+     */
+    public List<Feature> nearest(Geometry geometry, final CoordinateReferenceSystem geometryCRS)
+            throws StoreIndexException, FactoryException, TransformException {
+        if (geometry == null || geometry.isEmpty() || geometries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        geometry = reproject(geometry, geometryCRS);
+
+        final Geometry searched = geometry;
+        final DistanceRefinement refinement = new DistanceRefinement() {
+            @Override
+            public double refine(final int treeIdentifier, final double boundaryDistance) {
+                return searched.distance(geometries.get(identifiers.get(treeIdentifier)));
+            }
+        };
+
+        final Envelope env = toEnvelope(geometry.getEnvelopeInternal());
+        int[] result = tree.searchNearest(env, 1, Double.POSITIVE_INFINITY, refinement);
+        if (result.length == 0) {
+            return Collections.emptyList();
+        }
+        //search again all geometries at the same distance
+        final double dist = searched.distance(geometries.get(identifiers.get(result[0])));
+        result = tree.searchNearest(env, Integer.MAX_VALUE, dist, refinement);
+
+        final int[] indexes = new int[result.length];
+        for (int i = 0; i < result.length; i++) {
+            indexes[i] = identifiers.get(result[i]);
+        }
+        Arrays.sort(indexes);
+        final List<Feature> nearest = new ArrayList<Feature>();
+        for (int index : indexes) {
+            final Feature feature = features.get(index);
+            //geometries of a same feature have consecutive indexes
+            if (nearest.isEmpty() || nearest.get(nearest.size()-1) != feature) {
+                nearest.add(feature);
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Find the features which geometry envelope intersects the given geometry envelope.
+     * Exact intersection is not tested, candidates must be checked by the caller.
+     *
+     * @param geometry searched geometry
+     * @param geometryCRS geometry CRS, null if in collection CRS
+     * @return candidate features, in collection order
+     * @throws StoreIndexException if search fails
+     * @throws FactoryException if the geometry CRS can not be converted
+     * @throws TransformException if the geometry can not be reprojected
+     */
+    public List<Feature> candidates(Geometry geometry, final CoordinateReferenceSystem geometryCRS)
+            throws StoreIndexException, FactoryException, TransformException {
+        if (geometry == null || geometry.isEmpty() || geometries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        geometry = reproject(geometry, geometryCRS);
+
+        final int[] result = tree.searchID(toEnvelope(geometry.getEnvelopeInternal()));
+        final int[] indexes = new int[result.length];
+        for (int i = 0; i < result.length; i++) {
+            indexes[i] = identifiers.get(result[i]);
+        }
+        Arrays.sort(indexes);
+        final List<Feature> candidates = new ArrayList<Feature>();
+        for (int index : indexes) {
+            final Feature feature = features.get(index);
+            //geometries of a same feature have consecutive indexes
+            if (candidates.isEmpty() || candidates.get(candidates.size()-1) != feature) {
+                candidates.add(feature);
+            }
+        }
+        return candidates;
+    }
+
+    private Geometry reproject(final Geometry geom, final CoordinateReferenceSystem geomCRS)
+            throws FactoryException, TransformException {
+        if (crs == null || geomCRS == null) {
+            return geom;
+        }
+        return VectorProcessUtils.repojectGeometry(crs, geomCRS, geom);
+    }
+
+    private static Envelope toEnvelope(final com.vividsolutions.jts.geom.Envelope jtsEnv) {
+        final GeneralEnvelope env = new GeneralEnvelope(PredefinedCRS.CARTESIAN_2D);
+        env.setRange(0, jtsEnv.getMinX(), jtsEnv.getMaxX());
+        env.setRange(1, jtsEnv.getMinY(), jtsEnv.getMaxY());
+        return env;
+    }
+
+    /**
+     * Link tree identifiers to geometry indexes.
+     */
+    private final class Mapper implements TreeElementMapper<Integer> {
+
+        @Override
+        public int getTreeIdentifier(final Integer object) {
+            final Integer treeIdentifier = treeIdentifiers.get(object);
+            if (treeIdentifier == null) {
+                throw new IllegalStateException("impossible to found treeIdentifier.");
+            }
+            return treeIdentifier;
+        }
+
+        @Override
+        public Envelope getEnvelope(final Integer object) {
+            return toEnvelope(geometries.get(object).getEnvelopeInternal());
+        }
+
+        @Override
+        public void setTreeIdentifier(final Integer object, final int treeIdentifier) {
+            final Integer previous = identifiers.put(treeIdentifier, object);
+            if (previous != null && !previous.equals(object)) {
+                treeIdentifiers.remove(previous);
+            }
+            treeIdentifiers.put(object, treeIdentifier);
+        }
+
+        @Override
+        public Integer getObjectFromTreeIdentifier(final int treeIdentifier) {
+            return identifiers.get(treeIdentifier);
+        }
+
+        @Override
+        public Map<Integer, Integer> getFullMap() throws IOException {
+            return Collections.unmodifiableMap(identifiers);
+        }
+
+        @Override
+        public void clear() {
+            identifiers.clear();
+            treeIdentifiers.clear();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+    }
+}
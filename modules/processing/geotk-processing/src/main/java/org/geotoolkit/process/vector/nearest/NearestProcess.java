@@ -16,10 +16,9 @@
  */
 package org.geotoolkit.process.vector.nearest;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -92,7 +91,9 @@ public class NearestProcess extends AbstractProcess {
     }
 
     /**
-     * Create a query to filter nearest feature to the geometry
+     * Create a query to filter nearest feature to the geometry.
+     * The collection is read once, exact distances are only computed for the
+     * geometries which envelope is not farther than the current nearest distance.
      * @param original
      * @param geom
      * @return nearest query filter
@@ -106,8 +107,9 @@ public class NearestProcess extends AbstractProcess {
             geomCrs = original.getFeatureType().getCoordinateReferenceSystem();
         }
 
+        final Envelope geomEnv = geom.getEnvelopeInternal();
         double dist = Double.POSITIVE_INFINITY;
-        final Collection<Identifier> listID = new ArrayList<Identifier>();
+        final Set<Identifier> setID = new HashSet<Identifier>();
 
         final FeatureIterator<Feature> iter = original.iterator(null);
         try {
@@ -117,23 +119,25 @@ public class NearestProcess extends AbstractProcess {
                     if (property.getDescriptor() instanceof GeometryDescriptor) {
 
                         Geometry featureGeom = (Geometry) property.getValue();
+                        if (featureGeom == null || featureGeom.isEmpty()) continue;
                         final GeometryDescriptor geomDesc = (GeometryDescriptor) property.getDescriptor();
                         final CoordinateReferenceSystem featureGeomCRS = geomDesc.getCoordinateReferenceSystem();
 
                         //re-project feature geometry into input geometry CRS
                         featureGeom = VectorProcessUtils.repojectGeometry(geomCrs, featureGeomCRS, featureGeom);
 
-                        final double computedDist = geom.distance((Geometry) property.getValue());
+                        //envelope distance is never greater than geometry distance
+                        if (geomEnv.distance(featureGeom.getEnvelopeInternal()) > dist) continue;
+
+                        final double computedDist = geom.distance(featureGeom);
 
                         if (computedDist < dist) {
-                            listID.clear();
+                            setID.clear();
                             dist = computedDist;
-                            listID.add(feature.getIdentifier());
+                            setID.add(feature.getIdentifier());
 
-                        } else {
-                            if (computedDist == dist) {
-                                listID.add(feature.getIdentifier());
-                            }
+                        } else if (computedDist == dist) {
+                            setID.add(feature.getIdentifier());
                         }
                     }
                 }
@@ -142,11 +146,6 @@ public class NearestProcess extends AbstractProcess {
             iter.close();
         }
 
-        final Set<Identifier> setID = new HashSet<Identifier>();
-        for (Identifier id : listID) {
-            setID.add(id);
-        }
-
         final Filter filter = FF.id(setID);
         return QueryBuilder.filtered(new DefaultName("nearest"), filter);
 
@@ -35,6 +35,7 @@ import org.opengis.parameter.ParameterValueGroup;
  *     <li>FEATURE_IN "feature_in" FeatureCollection source</li>
  *     <li>REGROUP_ATTRIBUTE "regroup_attribute" Attribute name to apply the regroup process</li>
  *     <li>GEOMETRY_NAME "regroup_attribute" Geometry property name. Optional</li>
+ *     <li>DISSOLVE "dissolve" Union the geometries of each group instead of collecting them. Optional</li>
  * </ul>
  * outputs :
  * <ul>
@@ -60,10 +61,16 @@ public final class RegroupDescriptor extends VectorDescriptor {
     public static final ParameterDescriptor<String> GEOMETRY_NAME =
             new DefaultParameterDescriptor("geometry_name", "Geometry property name", String.class, null, false);
 
+    /**
+     * Optional - Union the geometries of each group instead of collecting them in a geometry collection
+     */
+    public static final ParameterDescriptor<Boolean> DISSOLVE =
+            new DefaultParameterDescriptor("dissolve", "Union the geometries of each group", Boolean.class, false, false);
+
     /** Input Parameters */
     public static final ParameterDescriptorGroup INPUT_DESC =
             new DefaultParameterDescriptorGroup("InputParameters",
-            new GeneralParameterDescriptor[]{FEATURE_IN, REGROUP_ATTRIBUTE,GEOMETRY_NAME});
+            new GeneralParameterDescriptor[]{FEATURE_IN, REGROUP_ATTRIBUTE,GEOMETRY_NAME,DISSOLVE});
 
     /** Ouput Parameters */
     public static final ParameterDescriptorGroup OUTPUT_DESC =
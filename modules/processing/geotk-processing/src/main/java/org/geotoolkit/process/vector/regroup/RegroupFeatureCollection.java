@@ -16,52 +16,79 @@
  */
 package org.geotoolkit.process.vector.regroup;
 
-import java.util.Collection;
-import java.util.Iterator;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinTask;
 
 import org.geotoolkit.data.FeatureStoreRuntimeException;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
 import org.geotoolkit.factory.Hints;
 import org.geotoolkit.data.memory.WrapFeatureCollection;
-import org.geotoolkit.data.query.Query;
-import org.geotoolkit.data.query.QueryBuilder;
-import org.geotoolkit.factory.FactoryFinder;
-import org.geotoolkit.feature.type.DefaultName;
-import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.process.vector.CascadedUnion;
 
 import org.geotoolkit.feature.Feature;
 import org.geotoolkit.feature.type.FeatureType;
-import org.opengis.filter.Filter;
-import org.opengis.filter.FilterFactory2;
-import org.opengis.geometry.MismatchedDimensionException;
-import org.opengis.referencing.operation.TransformException;
-import org.opengis.util.FactoryException;
+import org.geotoolkit.feature.type.GeometryDescriptor;
 
 /**
- * FeatureCollection for Regroup process
+ * FeatureCollection for Regroup process.
+ * The original collection is read once to group geometries by attribute value. When geometries
+ * are dissolved, the union of each group is computed in parallel and features are returned
+ * in group order as soon as their union is done.
  * @author Quentin Boileau
  * @module pending
  */
 public class RegroupFeatureCollection extends WrapFeatureCollection {
 
+    private static final GeometryFactory GF = new GeometryFactory();
+
     private final FeatureType newFeatureType;
     private final String regroupAttribute;
     private final String geometryName;
+    private final boolean dissolve;
 
     /**
      * Connect to the original FeatureConnection
      * @param originalFC FeatureCollection
-     * @param intersList FeatureCollection
+     * @param regroupAttribute String
      * @param geometryName String
      */
     public RegroupFeatureCollection(final FeatureCollection<Feature> originalFC, final String regroupAttribute,
             final String geometryName) {
+        this(originalFC, regroupAttribute, geometryName, false);
+    }
+
+    /**
+     * Connect to the original FeatureConnection
+     * @param originalFC FeatureCollection
+     * @param regroupAttribute String
+     * @param geometryName String
+     * @param dissolve union the geometries of each group instead of collecting them
+     * @throws IllegalArgumentException if geometryName is null and the feature type has no default geometry
+     */
+    public RegroupFeatureCollection(final FeatureCollection<Feature> originalFC, final String regroupAttribute,
+            final String geometryName, final boolean dissolve) {
         super(originalFC);
         this.regroupAttribute = regroupAttribute;
-        this.geometryName = geometryName;
-        this.newFeatureType = RegroupProcess.regroupFeatureType(originalFC.getFeatureType(), geometryName, regroupAttribute);
+        //if geometryName is null we use the default Geometry
+        this.geometryName = (geometryName != null) ? geometryName : defaultGeometryName(originalFC.getFeatureType());
+        this.dissolve = dissolve;
+        this.newFeatureType = RegroupProcess.regroupFeatureType(originalFC.getFeatureType(), this.geometryName, regroupAttribute);
+    }
+
+    private static String defaultGeometryName(final FeatureType type) {
+        final GeometryDescriptor desc = type.getGeometryDescriptor();
+        if (desc == null) {
+            throw new IllegalArgumentException("Feature type " + type.getName()
+                    + " has no default geometry, a geometry name must be given.");
+        }
+        return desc.getName().getLocalPart();
     }
 
     /**
@@ -81,59 +108,12 @@ public class RegroupFeatureCollection extends WrapFeatureCollection {
         throw new UnsupportedOperationException("Function didn't used");
     }
 
-    /**
-     * Run the process algorithm to generate a Feature from an attribute Value
-     * @param attributeValue Object
-     * @return a Feature
-     */
-    private Feature modify2(final Object attributeValue) {
-        try {
-            if(attributeValue != null){
-                final FeatureCollection<Feature> fiteredFC = (FeatureCollection<Feature>) 
-                        super.getOriginalFeatureCollection().subCollection(filter(attributeValue));
-                return RegroupProcess.regroupFeature(regroupAttribute, attributeValue, newFeatureType, geometryName, fiteredFC);
-            }else{
-                //In this case the request is Regroup.regroupFeature(null, null, newFeatureType, geometryName, originalFC);
-                return RegroupProcess.regroupFeature(regroupAttribute, attributeValue, newFeatureType, geometryName, 
-                        (FeatureCollection<Feature>)super.getOriginalFeatureCollection());
-            }
-
-        } catch (FactoryException ex) {
-            throw new FeatureStoreRuntimeException(ex);
-        } catch (MismatchedDimensionException ex) {
-            throw new FeatureStoreRuntimeException(ex);
-        } catch (TransformException ex) {
-            throw new FeatureStoreRuntimeException(ex);
-        } catch (DataStoreException ex) {
-            throw new FeatureStoreRuntimeException(ex);
-        }
-    }
-
-    /**
-     * Call the getAttributesValues()
-     * @return a Collection of Objects
-     */
-    private Collection<Object> getAttributeValues() {
-        return RegroupProcess.getAttributeValues(regroupAttribute, (FeatureCollection<Feature>) super.getOriginalFeatureCollection());
-    }
-
     /**
      *  {@inheritDoc }
      */
     @Override
     public FeatureIterator<Feature> iterator(final Hints hints) throws FeatureStoreRuntimeException {
-        return new RegroupFeatureIterator(getOriginalFeatureCollection().iterator());
-    }
-
-    private Query filter(final Object attributeValue)
-            throws FactoryException, MismatchedDimensionException, TransformException {
-
-        final FilterFactory2 ff = (FilterFactory2) FactoryFinder.getFilterFactory(
-                new Hints(Hints.FILTER_FACTORY, FilterFactory2.class));
-
-        final Filter filter = ff.equals(ff.property(regroupAttribute), ff.literal(attributeValue));
-        return QueryBuilder.filtered(new DefaultName("filter"), filter);
-
+        return new RegroupFeatureIterator();
     }
 
     /**
@@ -143,29 +123,31 @@ public class RegroupFeatureCollection extends WrapFeatureCollection {
      */
     private class RegroupFeatureIterator implements FeatureIterator<Feature> {
 
-        private final FeatureIterator<?> originalFI;
-        private Feature nextFeature;
-        private final Collection<Object> attributeValues;
-        private Object nextValue;
-        private final Iterator<Object> attributeIterator;
-        private boolean alreadyPass;
+        private final List<Object> attributeValues = new ArrayList<>();
+        private final List<List<Geometry>> groups = new ArrayList<>();
+        /* running unions of each group, null if geometries are collected */
+        private final List<ForkJoinTask<Geometry>> unions;
+        private int index = 0;
+
         /**
-         * Connect to the original FeatureIterator
-         * @param originalFI FeatureIterator
+         * Read the original collection and start the unions
          */
-        public RegroupFeatureIterator(final FeatureIterator<?> originalFI) {
-            this.originalFI = originalFI;
-
-            nextFeature = null;
-            attributeValues = getAttributeValues();
-            
-            if(attributeValues.isEmpty()){
-                attributeIterator = null;
-            }else{
-                attributeIterator = attributeValues.iterator();
+        public RegroupFeatureIterator() {
+            final Map<Object, List<Geometry>> grouped = RegroupProcess.groupGeometries(regroupAttribute, geometryName,
+                    (FeatureCollection<Feature>) getOriginalFeatureCollection());
+            for (Map.Entry<Object, List<Geometry>> entry : grouped.entrySet()) {
+                attributeValues.add(entry.getKey());
+                groups.add(entry.getValue());
+            }
+
+            if (dissolve) {
+                unions = new ArrayList<>(groups.size());
+                for (List<Geometry> group : groups) {
+                    unions.add(CascadedUnion.submit(group));
+                }
+            } else {
+                unions = null;
             }
-            nextValue = null;
-            alreadyPass = false;
         }
 
         /**
@@ -174,32 +156,48 @@ public class RegroupFeatureCollection extends WrapFeatureCollection {
          */
         @Override
         public Feature next() {
-            findNext();
-
-            if (nextFeature == null) {
+            if (!hasNext()) {
                 throw new NoSuchElementException("No more Feature.");
             }
 
-            final Feature feat = nextFeature;
-            nextFeature = null;
-            return feat;
+            final Geometry regroupGeometry;
+            if (unions != null) {
+                try {
+                    regroupGeometry = unions.get(index).join();
+                } catch (RuntimeException ex) {
+                    close();
+                    throw new FeatureStoreRuntimeException(ex);
+                }
+                unions.set(index, null);
+            } else {
+                regroupGeometry = GF.buildGeometry(groups.get(index));
+            }
+            groups.set(index, null);
+            final Object attributeValue = attributeValues.get(index++);
+            return RegroupProcess.regroupFeature(regroupAttribute, attributeValue, newFeatureType, geometryName, regroupGeometry);
         }
 
         /**
-         * Close the original FeatureIterator
+         * Cancel the unions not returned yet
          */
         @Override
         public void close() {
-            originalFI.close();
+            if (unions != null) {
+                for (ForkJoinTask<Geometry> task : unions) {
+                    if (task != null) {
+                        task.cancel(true);
+                    }
+                }
+            }
+            index = groups.size();
         }
 
         /**
-         * Return hasNext() result from the original FeatureIterator
+         * Return true while all groups have not been returned
          */
         @Override
         public boolean hasNext() {
-            findNext();
-            return nextFeature != null;
+            return index < groups.size();
         }
 
         /**
@@ -209,29 +207,5 @@ public class RegroupFeatureCollection extends WrapFeatureCollection {
         public void remove() {
             throw new FeatureStoreRuntimeException("Unmodifiable collection");
         }
-
-        /**
-         * Find the next feature 
-         */
-        private void findNext() {
-
-            if (nextFeature != null) {
-                return;
-            }
-
-            if(attributeIterator == null && !alreadyPass ){
-                while(nextFeature == null){
-                    nextFeature = modify2(null);
-                }
-                alreadyPass = true;
-            }
-            
-            if(attributeIterator != null){
-                while (nextFeature == null && attributeIterator.hasNext()) {
-                    nextValue = attributeIterator.next();
-                    nextFeature = modify2(nextValue);
-                }
-            }
-        }
     }
 }
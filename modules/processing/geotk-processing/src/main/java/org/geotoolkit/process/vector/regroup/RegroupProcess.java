@@ -17,13 +17,13 @@
 package org.geotoolkit.process.vector.regroup;
 
 import com.vividsolutions.jts.geom.Geometry;
-import com.vividsolutions.jts.geom.GeometryCollection;
-import com.vividsolutions.jts.geom.GeometryFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
@@ -68,8 +68,10 @@ public class RegroupProcess extends AbstractProcess {
         final FeatureCollection<Feature> inputFeatureList   = value(FEATURE_IN, inputParameters);
         final String inputAttributeName                     = value(REGROUP_ATTRIBUTE, inputParameters);
         final String inputGeometryName                      = value(GEOMETRY_NAME, inputParameters);
+        final Boolean dissolve                              = value(DISSOLVE, inputParameters);
 
-        final FeatureCollection resultFeatureList = new RegroupFeatureCollection(inputFeatureList, inputAttributeName, inputGeometryName);
+        final FeatureCollection resultFeatureList = new RegroupFeatureCollection(inputFeatureList, inputAttributeName,
+                inputGeometryName, Boolean.TRUE.equals(dissolve));
 
         getOrCreate(FEATURE_OUT, outputParameters).setValue(resultFeatureList);
     }
@@ -144,44 +146,18 @@ public class RegroupProcess extends AbstractProcess {
     }
 
     /**
-     * Create a Feature with one of attribute values and an union of all features geometry with the
-     * same attribute value.
+     * Create a Feature with one of attribute values and the regrouped geometry of all features
+     * with the same attribute value.
      * @param regroupAttribute - attribute specified in process input
-     * @param attrubuteValue - one value of the specified attribute
+     * @param attributeValue - one value of the specified attribute
      * @param newFeatureType - the new FeatureTYpe
-     * @param geometryName - if null we use the default Feature geometry
-     * @param filtredList - the input FeatureCollection filtered on attribute value
+     * @param geometryName - name of the regrouped geometry
+     * @param regroupGeometry - geometries of the features with this attribute value
      * @return a Feature
      */
     static Feature regroupFeature(final String regroupAttribute, final Object attributeValue,
-            final FeatureType newFeatureType, String geometryName, final FeatureCollection<Feature> filtredList) {
+            final FeatureType newFeatureType, final String geometryName, final Geometry regroupGeometry) {
 
-        final List<Geometry> geoms = new ArrayList<>();
-        
-        final FeatureIterator<Feature> featureIter = filtredList.iterator();
-        try {
-            while (featureIter.hasNext()) {
-                final Feature feature = featureIter.next();
-                if (geometryName == null) {
-                    geometryName = feature.getDefaultGeometryProperty().getName().getLocalPart();
-                }
-                for (final Property property : feature.getProperties()) {
-                    //if property is a geometry
-                    if (property.getDescriptor() instanceof GeometryDescriptor) {
-                        //if it's the property we needed
-                        if (property.getName().getLocalPart().equals(geometryName)) {
-                            Geometry candidate = (Geometry) property.getValue();
-                            geoms.add(candidate);
-                        }
-                    }
-                }
-            }
-        } finally {
-            featureIter.close();
-        }
-        
-        Geometry regroupGeometry = new GeometryFactory().buildGeometry(geoms);
-        
         Feature resultFeature = null;
         //In case
         if(regroupAttribute == null && attributeValue == null) {
@@ -199,41 +175,53 @@ public class RegroupProcess extends AbstractProcess {
     }
 
     /**
-     * Browse in input FeatureCollection all different values of the specified attribute
-     * If regroupAttribute is null, we return an empty Collection<Object>.
+     * Browse the input FeatureCollection once and group the geometries by values of the specified attribute.
+     * If regroupAttribute is null, all geometries are in a single group with a null key.
      * @param regroupAttribute
+     * @param geometryName - name of the grouped geometry
      * @param featureList
-     * @return a collection of Objects
+     * @return geometries of each attribute value, in order of first occurrence
      */
-    static Collection<Object> getAttributeValues(final String regroupAttribute, final FeatureCollection<Feature> featureList) {
-
-        final Collection<Object> values = new ArrayList<Object>();
-
-        if(regroupAttribute != null) {
-
-            final FeatureIterator<Feature> featureIter = featureList.iterator();
-            try {
-                while (featureIter.hasNext()) {
-                    final Feature feature = featureIter.next();
-
-                    for (final Property property : feature.getProperties()) {
-                        //if property is not a geometry
-                        if (!(property.getDescriptor() instanceof GeometryDescriptor)) {
-                            //it's the property we needed
-                            if (property.getName().getLocalPart().equals(regroupAttribute)) {
-                                //if property value isn't already in our collection, we add it.
-                                if (!values.contains(property.getValue())) {
-                                    values.add(property.getValue());
-                                }
-                            }
+    static Map<Object, List<Geometry>> groupGeometries(final String regroupAttribute, final String geometryName,
+            final FeatureCollection<Feature> featureList) {
+
+        final Map<Object, List<Geometry>> groups = new LinkedHashMap<>();
+        if (regroupAttribute == null) {
+            groups.put(null, new ArrayList<Geometry>());
+        }
+
+        final FeatureIterator<Feature> featureIter = featureList.iterator();
+        try {
+            while (featureIter.hasNext()) {
+                final Feature feature = featureIter.next();
+
+                Object value = null;
+                Geometry geometry = null;
+                for (final Property property : feature.getProperties()) {
+                    final String name = property.getName().getLocalPart();
+                    if (property.getDescriptor() instanceof GeometryDescriptor) {
+                        //if it's the geometry we needed
+                        if (name.equals(geometryName)) {
+                            geometry = (Geometry) property.getValue();
                         }
+                    } else if (name.equals(regroupAttribute)) {
+                        value = property.getValue();
                     }
                 }
-            } finally {
-                featureIter.close();
+
+                List<Geometry> group = groups.get(value);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(value, group);
+                }
+                if (geometry != null) {
+                    group.add(geometry);
+                }
             }
+        } finally {
+            featureIter.close();
         }
 
-        return values;
+        return groups;
     }
 }
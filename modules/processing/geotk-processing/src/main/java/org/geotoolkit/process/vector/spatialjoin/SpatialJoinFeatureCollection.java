@@ -16,11 +16,16 @@
  */
 package org.geotoolkit.process.vector.spatialjoin;
 
+import org.apache.sis.storage.DataStoreException;
 import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
 import org.geotoolkit.data.memory.WrapFeatureCollection;
 
 import org.geotoolkit.feature.Feature;
 import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.process.vector.FeatureGeometryIndex;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
 
 /**
  * FeatureCollection for SpatialJoin process
@@ -32,6 +37,8 @@ public class SpatialJoinFeatureCollection extends WrapFeatureCollection {
     private final FeatureType newFeatureType;
     private final FeatureCollection<Feature> sourceFC;
     private final boolean method;
+    /** Source geometries index, built on first use by Nearest method. */
+    private FeatureGeometryIndex sourceIndex;
 
     /**
      * Create the new
@@ -62,6 +69,24 @@ public class SpatialJoinFeatureCollection extends WrapFeatureCollection {
      */
     @Override
     protected Feature modify(final Feature original) {
-        return SpatialJoinProcess.join(original, newFeatureType, sourceFC, method);
+        return SpatialJoinProcess.join(original, newFeatureType, sourceFC, method ? null : getSourceIndex(), method);
+    }
+
+    /**
+     * Index of source geometries, shared by all target features.
+     */
+    private synchronized FeatureGeometryIndex getSourceIndex() {
+        if (sourceIndex == null) {
+            try {
+                sourceIndex = new FeatureGeometryIndex(sourceFC);
+            } catch (DataStoreException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            } catch (FactoryException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            } catch (TransformException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            }
+        }
+        return sourceIndex;
     }
 }
@@ -20,9 +20,11 @@ import com.vividsolutions.jts.geom.Geometry;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.apache.sis.storage.DataStoreException;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
 import org.geotoolkit.feature.AttributeDescriptorBuilder;
@@ -33,8 +35,8 @@ import org.geotoolkit.geometry.jts.JTS;
 import org.geotoolkit.process.AbstractProcess;
 import org.geotoolkit.process.ProcessDescriptor;
 import org.geotoolkit.process.ProcessException;
+import org.geotoolkit.process.vector.FeatureGeometryIndex;
 import org.geotoolkit.process.vector.intersect.IntersectDescriptor;
-import org.geotoolkit.process.vector.nearest.NearestDescriptor;
 
 import org.geotoolkit.feature.Feature;
 import org.geotoolkit.feature.Property;
@@ -45,6 +47,8 @@ import org.geotoolkit.feature.type.GeometryDescriptor;
 import org.geotoolkit.feature.type.PropertyDescriptor;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
 
 import static org.geotoolkit.process.vector.spatialjoin.SpatialJoinDescriptor.*;
 import static org.geotoolkit.parameter.Parameters.*;
@@ -96,11 +100,12 @@ public class SpatialJoinProcess extends AbstractProcess {
      * @param target the target Feature
      * @param newType the concatenated FeatureType
      * @param sourceFC the source FeatureCollection
+     * @param sourceIndex the source geometry index, used by Nearest method
      * @param method the used method. True -> Intersect, False -> Nearest
      * @return the joined feature
      */
-    static Feature join(final Feature target, final FeatureType newType,
-            final FeatureCollection<Feature> sourceFC, final boolean method) {
+    static Feature join(final Feature target, final FeatureType newType, final FeatureCollection<Feature> sourceFC,
+            final FeatureGeometryIndex sourceIndex, final boolean method) {
 
         Feature resultFeature = FeatureUtilities.defaultFeature(newType, target.getIdentifier().getID());
 
@@ -122,22 +127,36 @@ public class SpatialJoinProcess extends AbstractProcess {
                 final CoordinateReferenceSystem geomCRS = geomDesc.getCoordinateReferenceSystem();
 
                 JTS.setCRS(targetGeometry, geomCRS);//add CRS to the used data geometry
-                //use intersect method
-                if (method) {
-                    desc = IntersectDescriptor.INSTANCE;
-                    in = desc.getInputDescriptor().createValue();
-                    in.parameter(IntersectDescriptor.FEATURE_IN.getName().getCode()).setValue(sourceFC);
-                    in.parameter(IntersectDescriptor.GEOMETRY_IN.getName().getCode()).setValue(targetGeometry);
-                    proc = desc.createProcess(in);
-
-                } else {//use nearest method
-                    desc = NearestDescriptor.INSTANCE;
-                    in = desc.getInputDescriptor().createValue();
-                    in.parameter(NearestDescriptor.FEATURE_IN.getName().getCode()).setValue(sourceFC);
-                    in.parameter(NearestDescriptor.GEOMETRY_IN.getName().getCode()).setValue(targetGeometry);
-                    proc = desc.createProcess(in);
+
+                if (!method) {//use nearest method, on the source index
+                    final List<Feature> nearest;
+                    try {
+                        nearest = sourceIndex.nearest(targetGeometry, geomCRS);
+                    } catch (DataStoreException ex) {
+                        Logger.getLogger(SpatialJoinProcess.class.getName()).log(Level.WARNING, null, ex);
+                        return null;
+                    } catch (FactoryException ex) {
+                        Logger.getLogger(SpatialJoinProcess.class.getName()).log(Level.WARNING, null, ex);
+                        return null;
+                    } catch (TransformException ex) {
+                        Logger.getLogger(SpatialJoinProcess.class.getName()).log(Level.WARNING, null, ex);
+                        return null;
+                    }
+                    if (nearest.isEmpty()) {
+                        return resultFeature;
+                    } else {
+                        resultFeature = copyAttributes(target, nearest.get(0), newType);
+                    }
+                    continue;
                 }
 
+                //use intersect method
+                desc = IntersectDescriptor.INSTANCE;
+                in = desc.getInputDescriptor().createValue();
+                in.parameter(IntersectDescriptor.FEATURE_IN.getName().getCode()).setValue(sourceFC);
+                in.parameter(IntersectDescriptor.GEOMETRY_IN.getName().getCode()).setValue(targetGeometry);
+                proc = desc.createProcess(in);
+
                 //run it
                 final FeatureCollection<Feature> featureOut;
                 try {
@@ -149,24 +168,14 @@ public class SpatialJoinProcess extends AbstractProcess {
 
                 featureOutArray = new ArrayList<Feature>(featureOut);
 
-                if (method) {//intersect method
+                if (featureOutArray.isEmpty()) { //no intersection
+                    return resultFeature;
+                } else {
 
-                    if (featureOutArray.isEmpty()) { //no intersection
-                        return resultFeature;
-                    } else {
-
-                        if (featureOutArray.size() > 1) { //more than one intersection
-                            final Feature biggestFeature = biggestIntersection(featureOut, targetGeometry);
-                            resultFeature = copyAttributes(target, biggestFeature, newType);
-                        } else {// only one intersection
-                            resultFeature = copyAttributes(target, featureOutArray.get(0), newType);
-                        }
-                    }
-
-                } else {//nearest method
-                    if (featureOutArray.isEmpty()) {
-                        return resultFeature;
-                    } else {
+                    if (featureOutArray.size() > 1) { //more than one intersection
+                        final Feature biggestFeature = biggestIntersection(featureOut, targetGeometry);
+                        resultFeature = copyAttributes(target, biggestFeature, newType);
+                    } else {// only one intersection
                         resultFeature = copyAttributes(target, featureOutArray.get(0), newType);
                     }
                 }
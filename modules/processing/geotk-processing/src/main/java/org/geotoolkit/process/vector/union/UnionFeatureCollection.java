@@ -25,6 +25,8 @@ import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
 import org.geotoolkit.factory.Hints;
 import org.geotoolkit.data.memory.WrapFeatureCollection;
+import org.geotoolkit.index.tree.StoreIndexException;
+import org.geotoolkit.process.vector.FeatureGeometryIndex;
 
 import org.geotoolkit.feature.Feature;
 import org.geotoolkit.feature.type.FeatureType;
@@ -103,18 +105,37 @@ public class UnionFeatureCollection extends WrapFeatureCollection {
         throw new UnsupportedOperationException("Function didn't used");
     }
 
-    private FeatureCollection modify2(final Feature original, final boolean firstPass, final Set<String> featureList) {
+    private FeatureCollection modify2(final Feature original, final boolean firstPass, final Set<String> featureList,
+            final FeatureGeometryIndex index) {
         try {
             if (firstPass) {
-                return UnionProcess.unionFeatureToFC(original, newFeatureType, unionFC, inputGeomName, unionGeomName, firstPass, featureList);
+                return UnionProcess.unionFeatureToFC(original, newFeatureType, index, inputGeomName, unionGeomName, firstPass, featureList);
             } else {
-                return UnionProcess.unionFeatureToFC(original, newFeatureType, getOriginalFeatureCollection(), unionGeomName, inputGeomName, firstPass, featureList);
+                return UnionProcess.unionFeatureToFC(original, newFeatureType, index, unionGeomName, inputGeomName, firstPass, featureList);
             }
 
         } catch (TransformException ex) {
             throw new FeatureStoreRuntimeException(ex);
         } catch (FactoryException ex) {
             throw new FeatureStoreRuntimeException(ex);
+        } catch (StoreIndexException ex) {
+            throw new FeatureStoreRuntimeException(ex);
+        }
+    }
+
+    /**
+     * Index the geometries of a collection, used to compare a feature only with the features
+     * of the other collection which envelope intersects its geometry.
+     */
+    private static FeatureGeometryIndex index(final FeatureCollection<Feature> collection, final String geometryName) {
+        try {
+            return new FeatureGeometryIndex(collection, geometryName);
+        } catch (TransformException ex) {
+            throw new FeatureStoreRuntimeException(ex);
+        } catch (FactoryException ex) {
+            throw new FeatureStoreRuntimeException(ex);
+        } catch (StoreIndexException ex) {
+            throw new FeatureStoreRuntimeException(ex);
         }
     }
 
@@ -138,6 +159,9 @@ public class UnionFeatureCollection extends WrapFeatureCollection {
         private Feature nextFeature;
         private FeatureCollection<Feature> nextFC;
         private FeatureIterator<Feature> ite;
+        /* Indexes of the union and input collections, created when each pass starts */
+        private FeatureGeometryIndex unionIndex;
+        private FeatureGeometryIndex inputIndex;
 
         /*
          * This boolean if used to do a second pass on the process in inverting FeatureCollection input and union.
@@ -230,14 +254,20 @@ public class UnionFeatureCollection extends WrapFeatureCollection {
                 } else {
                     if (firstPass) { //first pass iterate on the original FeatureCollection
                         if (originalFI.hasNext()) {
-                            nextFC = modify2(originalFI.next(), firstPass, featureList);
+                            if (unionIndex == null) {
+                                unionIndex = index(unionFC, unionGeomName);
+                            }
+                            nextFC = modify2(originalFI.next(), firstPass, featureList, unionIndex);
                             ite = nextFC.iterator();
                         } else {
                             firstPass = false;
                         }
                     } else {
                         if (unionFI.hasNext()) { //second pass iterate on the union FeatureCollection
-                            nextFC = modify2(unionFI.next(), firstPass, featureList);
+                            if (inputIndex == null) {
+                                inputIndex = index((FeatureCollection<Feature>) getOriginalFeatureCollection(), inputGeomName);
+                            }
+                            nextFC = modify2(unionFI.next(), firstPass, featureList, inputIndex);
                             ite = nextFC.iterator();
                         } else {
                             break;
@@ -27,10 +27,11 @@ import java.util.Set;
 
 import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.FeatureCollection;
-import org.geotoolkit.data.FeatureIterator;
 import org.geotoolkit.feature.FeatureTypeBuilder;
 import org.geotoolkit.feature.FeatureUtilities;
+import org.geotoolkit.index.tree.StoreIndexException;
 import org.geotoolkit.process.AbstractProcess;
+import org.geotoolkit.process.vector.FeatureGeometryIndex;
 import org.geotoolkit.process.vector.VectorProcessUtils;
 import org.apache.sis.referencing.CommonCRS;
 
@@ -87,7 +88,8 @@ public class UnionProcess extends AbstractProcess {
      * During the second pass, we remove duplicates Features
      * @param inputFeature
      * @param newFeatureType - the new FeatureType
-     * @param unionFC - union FeatureCollection
+     * @param unionIndex - index of the union FeatureCollection geometries, only features which envelope
+     *        intersects the input geometry are compared
      * @param inputGeomName - attribute name of the used Geometry from inputFeature
      * @param unionGeomName - attribute name of the used Geometry from unionFC
      * @param firstPass
@@ -95,10 +97,11 @@ public class UnionProcess extends AbstractProcess {
      * @return the result FeatureCollection of an union between a Feature and a FeatureCollection
      * @throws TransformException
      * @throws FactoryException
+     * @throws StoreIndexException
      */
-    static FeatureCollection unionFeatureToFC(final Feature inputFeature, final FeatureType newFeatureType, final FeatureCollection unionFC,
+    static FeatureCollection unionFeatureToFC(final Feature inputFeature, final FeatureType newFeatureType, final FeatureGeometryIndex unionIndex,
             final String inputGeomName, final String unionGeomName, final boolean firstPass, final Set<String> featureList)
-            throws TransformException, FactoryException {
+            throws TransformException, FactoryException, StoreIndexException {
 
 
         final FeatureCollection<Feature> resultFeatureList =
@@ -109,10 +112,12 @@ public class UnionProcess extends AbstractProcess {
          * and united intersections. if return nothing we have all the geometry feature, else we add the difference
          */
         Geometry inputGeometry = new GeometryFactory().buildGeometry(Collections.EMPTY_LIST);
+        CoordinateReferenceSystem inputCRS = null;
         for (final Property inputProperty : inputFeature.getProperties()) {
             if (inputProperty.getDescriptor() instanceof GeometryDescriptor) {
                 if (inputProperty.getName().getLocalPart().equals(inputGeomName)) {
                     inputGeometry = (Geometry) inputProperty.getValue();
+                    inputCRS = ((GeometryDescriptor) inputProperty.getDescriptor()).getCoordinateReferenceSystem();
                 }
             }
         }
@@ -120,36 +125,31 @@ public class UnionProcess extends AbstractProcess {
         Geometry remainingGeometry = inputGeometry;
         boolean isIntersected = false;
         //Check if each union Features intersect inputFeature. if yes, create a new Feature which is union of both
-        final FeatureIterator<Feature> unionIter = unionFC.iterator();
-        try {
-            while (unionIter.hasNext()) {
-                final Feature unionFeature = unionIter.next();
-
-                String featureID = null;
-
-                //Invert ID order for the second pass (firstpass "inputID U unionID", second pass "unionID U inputID")
-                if (firstPass) {
-                    featureID = inputFeature.getIdentifier().getID() + "-" + unionFeature.getIdentifier().getID();
-                } else {
-                    featureID = unionFeature.getIdentifier().getID() + "-" + inputFeature.getIdentifier().getID();
-                }
+        //features which envelope does not intersect the input geometry can not intersect it
+        for (final Feature unionFeature : unionIndex.candidates(inputGeometry, inputCRS)) {
 
+            String featureID = null;
 
-                final Feature resultFeature = unionFeatureToFeature(inputFeature, unionFeature, newFeatureType,
-                        inputGeomName, unionGeomName, featureID, firstPass);
+            //Invert ID order for the second pass (firstpass "inputID U unionID", second pass "unionID U inputID")
+            if (firstPass) {
+                featureID = inputFeature.getIdentifier().getID() + "-" + unionFeature.getIdentifier().getID();
+            } else {
+                featureID = unionFeature.getIdentifier().getID() + "-" + inputFeature.getIdentifier().getID();
+            }
 
-                //If resultFeature is null, mean there is no intersection
-                //Else we add the resutl Feature to resultFeatureList
-                if (resultFeature != null) {
-                    isIntersected = true;
 
-                    resultFeatureList.add(resultFeature);
-                    Geometry intersectGeom =  (Geometry) resultFeature.getDefaultGeometryProperty().getValue();
-                    remainingGeometry = remainingGeometry.difference(intersectGeom);
-                }
+            final Feature resultFeature = unionFeatureToFeature(inputFeature, unionFeature, newFeatureType,
+                    inputGeomName, unionGeomName, featureID, firstPass);
+
+            //If resultFeature is null, mean there is no intersection
+            //Else we add the resutl Feature to resultFeatureList
+            if (resultFeature != null) {
+                isIntersected = true;
+
+                resultFeatureList.add(resultFeature);
+                Geometry intersectGeom =  (Geometry) resultFeature.getDefaultGeometryProperty().getValue();
+                remainingGeometry = remainingGeometry.difference(intersectGeom);
             }
-        } finally {
-            unionIter.close();
         }
 
 
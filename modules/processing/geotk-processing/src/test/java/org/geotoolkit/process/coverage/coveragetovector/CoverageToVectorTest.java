@@ -0,0 +1,146 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage.coveragetovector;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Polygon;
+import java.awt.image.RenderedImage;
+import java.util.List;
+import java.util.Map;
+import javax.media.jai.TiledImage;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.measure.NumberRange;
+import org.apache.sis.referencing.CommonCRS;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.GridCoverageBuilder;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.type.BasicFeatureTypes;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+
+import static org.junit.Assert.*;
+
+/**
+ * Coverage to vector tests.
+ *
+ * @author agent
+ * @module pending
+ */
+public class CoverageToVectorTest {
+
+    private static final NumberRange<Double> INSIDE = NumberRange.create(0d, true, 10d, false);
+    private static final NumberRange<Double> OUTSIDE = NumberRange.create(10d, true, 100d, true);
+
+    /**
+     * A disc of radius 10 in a 30x30 image, tiled by 4 rows.
+     */
+    private static GridCoverage2D createCoverage() {
+        final float[][] data = new float[30][30];
+        for (int y = 0; y < data.length; y++) {
+            for (int x = 0; x < data[y].length; x++) {
+                data[y][x] = (float) Math.hypot(x - 14.5, y - 14.5);
+            }
+        }
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, 0, 30);
+        env.setRange(1, 0, 30);
+
+        GridCoverageBuilder gcb = new GridCoverageBuilder();
+        gcb.setEnvelope(env);
+        gcb.setRenderedImage(data);
+        final RenderedImage image = new TiledImage(gcb.getGridCoverage2D().getRenderedImage(), 30, 4);
+        assertEquals(8, image.getNumYTiles());
+
+        gcb = new GridCoverageBuilder();
+        gcb.setEnvelope(env);
+        gcb.setRenderedImage(image);
+        return gcb.getGridCoverage2D();
+    }
+
+    /**
+     * Polygons computed by strips must be stitched on the seams,
+     * giving the same polygons than a single pass over the image.
+     */
+    @Test
+    public void stripTest() throws Exception {
+        final GridCoverage2D coverage = createCoverage();
+        final NumberRange[] ranges = new NumberRange[]{INSIDE, OUTSIDE};
+
+        final CoverageToVectorProcess process = new CoverageToVectorProcess(
+                CoverageToVectorDescriptor.INSTANCE.getInputDescriptor().createValue());
+        final Map<NumberRange, List<Polygon>> expected = process.toGridPolygons(coverage.getRenderedImage(), null, ranges, 0);
+
+        int nbInside = 0;
+        int nbOutside = 0;
+        double areaInside = 0;
+        double areaOutside = 0;
+        final PolygonReader reader = new PolygonReader(coverage, ranges, 0);
+        try {
+            while (reader.hasNext()) {
+                final Feature feature = reader.next();
+                final Geometry poly = (Geometry) feature.getProperty(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME).getValue();
+                assertTrue(poly.isValid());
+                if (INSIDE.getMinDouble() == (Double) feature.getProperty("min").getValue()) {
+                    nbInside++;
+                    areaInside += poly.getArea();
+                } else {
+                    nbOutside++;
+                    areaOutside += poly.getArea();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        //the disc crosses 6 strips and is a single polygon
+        assertEquals(1, nbInside);
+        assertEquals(expected.get(INSIDE).size(), nbInside);
+        assertEquals(expected.get(OUTSIDE).size(), nbOutside);
+        assertEquals(area(expected.get(INSIDE)), areaInside, 1E-9);
+        assertEquals(area(expected.get(OUTSIDE)), areaOutside, 1E-9);
+        assertEquals(900, areaInside + areaOutside, 1E-9);
+    }
+
+    /**
+     * Test the process with a band parameter.
+     */
+    @Test
+    public void processTest() throws Exception {
+        final ParameterValueGroup input = CoverageToVectorDescriptor.INSTANCE.getInputDescriptor().createValue();
+        input.parameter(CoverageToVectorDescriptor.COVERAGE.getName().getCode()).setValue(createCoverage());
+        input.parameter(CoverageToVectorDescriptor.RANGES.getName().getCode()).setValue(new NumberRange[]{INSIDE, OUTSIDE});
+        input.parameter(CoverageToVectorDescriptor.BAND.getName().getCode()).setValue(0);
+        final ParameterValueGroup output = CoverageToVectorDescriptor.INSTANCE.createProcess(input).call();
+
+        final Geometry[] polygons = (Geometry[]) output.parameter(
+                CoverageToVectorDescriptor.GEOMETRIES.getName().getCode()).getValue();
+        double area = 0;
+        for (Geometry poly : polygons) {
+            area += poly.getArea();
+        }
+        assertEquals(900, area, 1E-9);
+    }
+
+    private static double area(final List<Polygon> polygons) {
+        double area = 0;
+        for (Polygon poly : polygons) {
+            area += poly.getArea();
+        }
+        return area;
+    }
+
+}
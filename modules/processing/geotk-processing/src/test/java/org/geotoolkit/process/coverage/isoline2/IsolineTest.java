@@ -20,6 +20,11 @@ import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.LineString;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.List;
+import javax.media.jai.TiledImage;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
 import org.geotoolkit.coverage.CoverageReference;
 import org.geotoolkit.coverage.grid.GridCoverage2D;
 import org.geotoolkit.coverage.grid.GridCoverageBuilder;
@@ -27,6 +32,7 @@ import org.geotoolkit.coverage.memory.MemoryCoverageStore;
 import org.geotoolkit.data.FeatureCollection;
 import org.apache.sis.geometry.GeneralEnvelope;
 import org.geotoolkit.feature.type.BasicFeatureTypes;
+import org.geotoolkit.feature.type.FeatureType;
 import org.geotoolkit.process.ProcessDescriptor;
 import org.geotoolkit.process.ProcessFinder;
 import org.apache.sis.referencing.CommonCRS;
@@ -34,6 +40,7 @@ import org.apache.sis.referencing.CommonCRS;
 import org.geotoolkit.feature.Feature;
 import org.opengis.feature.Property;
 import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.MathTransform;
 
 
 import org.junit.Test;
@@ -213,4 +220,49 @@ public class IsolineTest {
         }
     }
 
+
+    /**
+     * Isolines computed by strips must be stitched at strip seams.
+     */
+    @Test
+    public void stripTest() throws Exception{
+        final float[][] data = new float[30][30];
+        for (int y = 0; y < data.length; y++) {
+            for (int x = 0; x < data[y].length; x++) {
+                data[y][x] = (float) Math.hypot(x - 14.5, y - 14.5);
+            }
+        }
+        final RenderedImage image = new TiledImage(toImage(data), 30, 4);
+        assertEquals(8, image.getNumYTiles());
+
+        final FeatureType type = Isoline2.buildIsolineFeatureType(null);
+        final double[] intervals = {10};
+        final MathTransform identity = MathTransforms.identity(2);
+        final List<Geometry> lines = new ArrayList<>();
+        final IsolineReader reader = new IsolineReader(image, identity, CommonCRS.WGS84.normalizedGeographic(), intervals, type);
+        try {
+            while (reader.hasNext()) {
+                lines.add((Geometry) reader.next().getProperty(BasicFeatureTypes.GEOMETRY_ATTRIBUTE_NAME).getValue());
+            }
+        } finally {
+            reader.close();
+        }
+
+        //a single closed line crossing all strips
+        assertEquals(1, lines.size());
+        final LineString line = (LineString) lines.get(0);
+        assertTrue(line.isClosed());
+        assertEquals(2 * Math.PI * 10, line.getLength(), 1.0);
+    }
+
+    private static RenderedImage toImage(final float[][] data) {
+        final GridCoverageBuilder gcb = new GridCoverageBuilder();
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, 0, data[0].length);
+        env.setRange(1, 0, data.length);
+        gcb.setEnvelope(env);
+        gcb.setRenderedImage(data);
+        return gcb.getGridCoverage2D().getRenderedImage();
+    }
+
 }
@@ -32,6 +32,8 @@ import org.apache.sis.referencing.crs.DefaultGeographicCRS;
 import org.apache.sis.referencing.crs.DefaultTemporalCRS;
 import org.apache.sis.referencing.crs.DefaultVerticalCRS;
 import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.cql.CQL;
+import org.geotoolkit.factory.FactoryFinder;
 import org.geotoolkit.coverage.CoverageStore;
 import org.geotoolkit.coverage.GridCoverageStack;
 import org.geotoolkit.coverage.GridMosaic;
@@ -53,6 +55,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.opengis.coverage.Coverage;
 import org.opengis.coverage.grid.GridCoverage;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Expression;
 import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -221,6 +225,76 @@ public class MathCalcTest {
 
     }
 
+    /**
+     * Compiled expression must give the same values as the expression.
+     */
+    @Test
+    public void compiledExpressionTest() throws Exception{
+        final String[] mapping = new String[]{"A","B"};
+        final String[] formulas = {"(A+B)*5", "A/B-2.5", "sqrt(abs(A))+max(A,B)", "pow(B,2)-C", "pi()*toRadians(A)"};
+        final double[][] inputs = {{15.5, 3, -7, 0, Double.NaN}, {-9, 20, 0.5, 0, 1}};
+
+        final FilterFactory2 ff = (FilterFactory2) FactoryFinder.getFilterFactory(null);
+        for(String formula : formulas){
+            final Expression exp = CQL.parseExpression(formula, ff);
+            final CompiledExpression compiled = CompiledExpression.compile(exp, mapping);
+            Assert.assertNotNull(formula, compiled);
+            final double[] result = compiled.evaluate(inputs, compiled.createStack(5), 5);
+            for(int i=0;i<5;i++){
+                final Map<String,Double> values = new HashMap<>();
+                values.put("A", inputs[0][i]);
+                values.put("B", inputs[1][i]);
+                values.put("C", Double.NaN);
+                final Double expected = exp.evaluate(values, Double.class);
+                Assert.assertEquals(formula, expected, result[i], DELTA);
+            }
+        }
+
+        //unsupported function
+        Assert.assertNull(CompiledExpression.compile(CQL.parseExpression("random()", ff), mapping));
+    }
+
+    /**
+     * Compiled expression on coverages which are not on the output grid.
+     */
+    @Test
+    public void unalignedCoverageTest() throws Exception{
+        final int width = 512;
+        final int height = 300;
+
+        final CoordinateReferenceSystem crs = CommonCRS.WGS84.defaultGeographic();
+        final GeneralEnvelope env = new GeneralEnvelope(crs);
+        env.setRange(0, 0, 51.2);
+        env.setRange(1, 0, 30.0);
+
+        //base coverage with twice the output resolution
+        final GridCoverage2D baseCoverage = createCoverage2D(env, width*2, height*2, 15.5f, -2.0f);
+
+        final Name n = new DefaultName("test");
+        final MPCoverageStore store = new MPCoverageStore();
+        final PyramidalCoverageReference outRef = (PyramidalCoverageReference) store.create(n);
+        outRef.setPackMode(ViewType.GEOPHYSICS);
+        outRef.setSampleDimensions(Collections.singletonList(new GridSampleDimension("data")));
+        outRef.setSampleModel(baseCoverage.getRenderedImage().getSampleModel());
+        outRef.setColorModel(baseCoverage.getRenderedImage().getColorModel());
+        final Pyramid pyramid = outRef.createPyramid(crs);
+        final GeneralDirectPosition corner = new GeneralDirectPosition(crs);
+        corner.setCoordinate(env.getMinimum(0), env.getMaximum(1));
+        outRef.createMosaic(pyramid.getId(), new Dimension(4, 3), new Dimension(width/4, height/3), corner, 0.1);
+
+        final MathCalcProcess process = new MathCalcProcess(
+                new Coverage[]{baseCoverage},
+                "A*2",
+                new String[]{"A"},
+                outRef);
+        process.call();
+
+        final GridCoverageReader reader = outRef.acquireReader();
+        final GridCoverage2D result = (GridCoverage2D)reader.read(0, null);
+        outRef.recycle(reader);
+        testImageContent(result.getRenderedImage(), width, height, 31.0f, -4.0f);
+    }
+
     /**
      * 4D calc test
      * @throws Exception
@@ -0,0 +1,217 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.coverage.statistics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.CommonCRS;
+import org.geotoolkit.coverage.CoverageReference;
+import org.geotoolkit.coverage.DefaultCoverageReference;
+import org.geotoolkit.coverage.filestore.FileCoverageStore;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.GridCoverageBuilder;
+import org.geotoolkit.feature.type.DefaultName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the persistence of {@link CoverageStatisticsProvider} statistics.
+ *
+ * @author agent
+ * @module pending
+ */
+public class CoverageStatisticsProviderTest {
+
+    private File dataDirectory;
+    private File cacheDirectory;
+    private FileCoverageStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        dataDirectory = createDirectory("data");
+        cacheDirectory = createDirectory("cache");
+        store = new FileCoverageStore(dataDirectory.toURI().toURL(), "AUTO");
+        CoverageStatisticsProvider.setCacheDirectory(cacheDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        CoverageStatisticsProvider.setCacheDirectory(CoverageStatisticsProvider.getDefaultCacheDirectory());
+        delete(cacheDirectory);
+        delete(dataDirectory);
+    }
+
+    private static File createDirectory(final String prefix) throws IOException {
+        final File dir = File.createTempFile(prefix, "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        return dir;
+    }
+
+    private static void delete(final File dir) {
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * A 3x3 coverage filled with the given value, except the center cell set to 200.
+     */
+    private static GridCoverage2D createCoverage(final float value) {
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, 0, 3);
+        env.setRange(1, 0, 3);
+        final GridCoverageBuilder gcb = new GridCoverageBuilder();
+        gcb.setEnvelope(env);
+        gcb.setRenderedImage(new float[][]{
+                {value, value, value},
+                {value, 200,   value},
+                {value, value, value}
+        });
+        return gcb.getGridCoverage2D();
+    }
+
+    private static void writeStatistics(final File file, final double min, final double max) throws IOException {
+        final ImageStatistics stats = new ImageStatistics(1);
+        stats.getBand(0).setMin(min);
+        stats.getBand(0).setMax(max);
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(stats);
+        }
+    }
+
+    /**
+     * A new reference on the given coverage, identified by the store folder and the given name.
+     */
+    private CoverageReference createReference(final String name, final float value) {
+        return new DefaultCoverageReference(store, createCoverage(value), new DefaultName(name));
+    }
+
+    /**
+     * Statistics are saved in the cache folder, never in the data folder.
+     */
+    @Test
+    public void testPersist() throws Exception {
+        final CoverageReference ref = createReference("persist", 100);
+        final ImageStatistics stats = CoverageStatisticsProvider.getStatistics(ref);
+        assertEquals(100, stats.getBand(0).getMin(), 0);
+        assertEquals(200, stats.getBand(0).getMax(), 0);
+
+        final File file = CoverageStatisticsProvider.getStatisticsFile(ref);
+        assertNotNull(file);
+        assertEquals(cacheDirectory, file.getParentFile());
+        assertTrue(file.isFile());
+        assertEquals(0, dataDirectory.listFiles().length);
+
+        //same statistics object from memory
+        assertSame(stats, CoverageStatisticsProvider.getStatistics(ref));
+    }
+
+    /**
+     * Statistics are saved by default, in a cache folder outside of the data folder.
+     */
+    @Test
+    public void testDefaultCacheDirectory() throws Exception {
+        final File directory = CoverageStatisticsProvider.getDefaultCacheDirectory();
+        assertNotNull(directory);
+        CoverageStatisticsProvider.setCacheDirectory(directory);
+        final File file = CoverageStatisticsProvider.getStatisticsFile(createReference("default", 100));
+        assertNotNull(file);
+        assertEquals(directory, file.getParentFile());
+    }
+
+    /**
+     * Statistics saved for a reference are reused by another reference instance
+     * on the same data, as when the store is opened again.
+     */
+    @Test
+    public void testReuse() throws Exception {
+        final CoverageReference ref = createReference("reuse", 100);
+        assertEquals(100, CoverageStatisticsProvider.getStatistics(ref).getBand(0).getMin(), 0);
+
+        //different data values, the saved statistics must be used
+        final CoverageReference other = createReference("reuse", 50);
+        assertNotSame(ref, other);
+        assertEquals(CoverageStatisticsProvider.getStatisticsFile(ref), CoverageStatisticsProvider.getStatisticsFile(other));
+        assertEquals(100, CoverageStatisticsProvider.getStatistics(other).getBand(0).getMin(), 0);
+
+        //a reference on another store does not share them
+        final File otherData = createDirectory("data");
+        try {
+            final CoverageReference otherStore = new DefaultCoverageReference(
+                    new FileCoverageStore(otherData.toURI().toURL(), "AUTO"), createCoverage(50), new DefaultName("reuse"));
+            assertEquals(50, CoverageStatisticsProvider.getStatistics(otherStore).getBand(0).getMin(), 0);
+        } finally {
+            delete(otherData);
+        }
+    }
+
+    /**
+     * Saved statistics are loaded instead of being computed.
+     */
+    @Test
+    public void testReload() throws Exception {
+        final CoverageReference ref = createReference("reload", 100);
+        final File file = CoverageStatisticsProvider.getStatisticsFile(ref);
+        assertFalse(file.exists());
+        writeStatistics(file, -5, 5);
+
+        final ImageStatistics stats = CoverageStatisticsProvider.getStatistics(ref);
+        assertEquals(-5, stats.getBand(0).getMin(), 0);
+        assertEquals(5, stats.getBand(0).getMax(), 0);
+    }
+
+    /**
+     * Invalidated statistics are removed from memory and file, then computed again.
+     */
+    @Test
+    public void testInvalidate() throws Exception {
+        final CoverageReference ref = createReference("invalidate", 100);
+        final File file = CoverageStatisticsProvider.getStatisticsFile(ref);
+        writeStatistics(file, -5, 5);
+        assertEquals(-5, CoverageStatisticsProvider.getStatistics(ref).getBand(0).getMin(), 0);
+
+        CoverageStatisticsProvider.invalidate(ref);
+        assertFalse(file.exists());
+        assertEquals(100, CoverageStatisticsProvider.getStatistics(ref).getBand(0).getMin(), 0);
+        assertTrue(file.isFile());
+    }
+
+    /**
+     * Without cache folder, statistics are only kept in memory.
+     */
+    @Test
+    public void testNoCacheDirectory() throws Exception {
+        CoverageStatisticsProvider.setCacheDirectory(null);
+        final CoverageReference ref = createReference("memory", 100);
+        assertNull(CoverageStatisticsProvider.getStatisticsFile(ref));
+        final ImageStatistics stats = CoverageStatisticsProvider.getStatistics(ref);
+        assertSame(stats, CoverageStatisticsProvider.getStatistics(ref));
+        assertEquals(0, cacheDirectory.listFiles().length);
+        assertEquals(0, dataDirectory.listFiles().length);
+    }
+}
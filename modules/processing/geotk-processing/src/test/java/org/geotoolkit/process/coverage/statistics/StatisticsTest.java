@@ -30,6 +30,8 @@ import org.junit.Test;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.util.NoSuchIdentifierException;
 
+import java.util.Arrays;
+
 /**
  * @author bgarcia (Geomatys)
  * @author Quentin Boileau (Geomatys)
@@ -175,4 +177,32 @@ public class StatisticsTest {
         Assert.assertEquals(expectSum, resultSum);
     }
 
+    @Test
+    public void testPercentile() {
+        final long[] histo = new long[100];
+        Arrays.fill(histo, 1);
+
+        final ImageStatistics stat = new ImageStatistics(1, SampleType.Float);
+        final ImageStatistics.Band band0 = stat.getBand(0);
+        Assert.assertNull(band0.getPercentile(0.5));
+
+        band0.setMin(0d);
+        band0.setMax(100d);
+        band0.setHistogram(histo);
+        Assert.assertEquals(0d, band0.getPercentile(0), 1e-9);
+        Assert.assertEquals(2d, band0.getPercentile(0.02), 1e-9);
+        Assert.assertEquals(50d, band0.getPercentile(0.5), 1e-9);
+        Assert.assertEquals(98d, band0.getPercentile(0.98), 1e-9);
+        Assert.assertEquals(100d, band0.getPercentile(1), 1e-9);
+
+        //values concentrated at the end
+        Arrays.fill(histo, 0);
+        histo[90] = 10;
+        Assert.assertEquals(90d, band0.getPercentile(0), 1e-9);
+        Assert.assertEquals(90.5d, band0.getPercentile(0.5), 1e-9);
+
+        Arrays.fill(histo, 0);
+        Assert.assertNull(band0.getPercentile(0.5));
+    }
+
 }
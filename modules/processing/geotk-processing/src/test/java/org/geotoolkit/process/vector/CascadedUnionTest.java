@@ -0,0 +1,107 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.process.vector;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cascaded union.
+ *
+ * @author agent
+ * @module pending
+ */
+public class CascadedUnionTest {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+
+    @Test
+    public void gridTest() {
+        //grid of adjacent squares, shuffled
+        final List<Geometry> squares = new ArrayList<>();
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 20; x++) {
+                squares.add(square(x, y, 1));
+            }
+        }
+        Collections.shuffle(squares);
+
+        final Geometry union = CascadedUnion.union(squares);
+        assertTrue(union instanceof Polygon);
+        assertEquals(400, union.getArea(), 1E-9);
+        assertTrue(union.equalsTopo(square(0, 0, 20)));
+    }
+
+    @Test
+    public void disjointTest() {
+        final List<Geometry> squares = new ArrayList<>();
+        for (int x = 0; x < 40; x++) {
+            squares.add(square(x * 2, 0, 1));
+        }
+        squares.add(null);
+
+        final Geometry union = CascadedUnion.union(squares);
+        assertEquals(40, union.getNumGeometries());
+        assertEquals(40, union.getArea(), 1E-9);
+    }
+
+    /**
+     * Mixed geometry types produce geometry collections in the tree,
+     * which must still be unioned together.
+     */
+    @Test
+    public void mixedTest() {
+        final List<Geometry> geometries = new ArrayList<>();
+        for (int x = 0; x < 20; x++) {
+            geometries.add(square(x, 0, 1));
+            geometries.add(GF.createLineString(new Coordinate[]{
+                new Coordinate(x + 0.5, 2),
+                new Coordinate(x + 0.5, 3)
+            }));
+        }
+        Collections.shuffle(geometries);
+
+        final Geometry union = CascadedUnion.union(geometries);
+        assertEquals(21, union.getNumGeometries());
+        assertEquals(20, union.getArea(), 1E-9);
+        //polygon perimeter and lines
+        assertEquals(42 + 20, union.getLength(), 1E-9);
+    }
+
+    @Test
+    public void emptyTest() {
+        assertTrue(CascadedUnion.union(Collections.<Geometry>emptyList()).isEmpty());
+    }
+
+    private static Polygon square(double x, double y, double size) {
+        return GF.createPolygon(GF.createLinearRing(new Coordinate[]{
+            new Coordinate(x, y),
+            new Coordinate(x, y + size),
+            new Coordinate(x + size, y + size),
+            new Coordinate(x + size, y),
+            new Coordinate(x, y)
+        }), null);
+    }
+
+}
@@ -23,8 +23,14 @@ import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureIterator;
 import org.geotoolkit.feature.FeatureTypeBuilder;
 import org.geotoolkit.feature.FeatureUtilities;
 import org.geotoolkit.feature.simple.SimpleFeatureBuilder;
@@ -86,6 +92,56 @@ public class NearestTest extends AbstractProcessTest{
         assertTrue(featureListOut.containsAll(featureListResult));
     }
 
+    /**
+     * Test nearest process on a grid of points, with one nearest point
+     * and with several points at the same distance.
+     */
+    @Test
+    public void testNearestGrid() throws FactoryException, ProcessException, NoSuchIdentifierException {
+        final FeatureCollection<?> featureList = buildGrid(20);
+
+        assertEquals(Collections.singleton("id-7-13"),
+                nearestIds(featureList, geometryFactory.createPoint(new Coordinate(7.3, 12.6))));
+
+        assertEquals(new HashSet<String>(Arrays.asList("id-7-12", "id-7-13", "id-8-12", "id-8-13")),
+                nearestIds(featureList, geometryFactory.createPoint(new Coordinate(7.5, 12.5))));
+
+        //outside of the grid
+        assertEquals(Collections.singleton("id-19-0"),
+                nearestIds(featureList, geometryFactory.createPoint(new Coordinate(30, -5))));
+    }
+
+    /**
+     * Test nearest process on an empty collection.
+     */
+    @Test
+    public void testNearestEmpty() throws FactoryException, ProcessException, NoSuchIdentifierException {
+        final FeatureCollection<?> featureList = buildGrid(0);
+        assertTrue(nearestIds(featureList, geometryFactory.createPoint(new Coordinate(1, 1))).isEmpty());
+    }
+
+    private static Set<String> nearestIds(final FeatureCollection<?> featureList, final Geometry geom)
+            throws FactoryException, ProcessException, NoSuchIdentifierException {
+        geom.setUserData(CRS.decode("EPSG:3395"));
+        final ProcessDescriptor desc = ProcessFinder.getProcessDescriptor("vector", "nearest");
+        final ParameterValueGroup in = desc.getInputDescriptor().createValue();
+        in.parameter("feature_in").setValue(featureList);
+        in.parameter("geometry_in").setValue(geom);
+        final org.geotoolkit.process.Process proc = desc.createProcess(in);
+
+        final FeatureCollection<?> featureListOut = (FeatureCollection<?>) proc.call().parameter("feature_out").getValue();
+        final Set<String> ids = new HashSet<String>();
+        final FeatureIterator<?> ite = featureListOut.iterator();
+        try {
+            while (ite.hasNext()) {
+                ids.add(ite.next().getIdentifier().getID());
+            }
+        } finally {
+            ite.close();
+        }
+        return ids;
+    }
+
     private static SimpleFeatureType createSimpleType() throws  FactoryException {
         final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
         ftb.setName("IntersectTest");
@@ -141,6 +197,22 @@ public class NearestTest extends AbstractProcessTest{
         return featureList;
     }
 
+    private static FeatureCollection<?> buildGrid(final int size) throws FactoryException {
+
+        type = createSimpleType();
+
+        final FeatureCollection<Feature> featureList = FeatureStoreUtilities.collection("nearest", type);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                final Feature feature = FeatureUtilities.defaultFeature(type, "id-" + x + "-" + y);
+                feature.getProperty("name").setValue("feature" + x + "-" + y);
+                feature.getProperty("geom1").setValue(geometryFactory.createPoint(new Coordinate(x, y)));
+                featureList.add(feature);
+            }
+        }
+        return featureList;
+    }
+
     private static FeatureCollection<?> buildResultList() throws FactoryException {
 
         type = createSimpleType();
@@ -110,6 +110,41 @@ public class RegroupTest extends AbstractProcessTest {
         assertTrue(featureListOut.containsAll(featureListResult));
     }
 
+    @Test
+    public void testRegroupDissolve() throws ProcessException, NoSuchIdentifierException, FactoryException {
+
+        // Inputs
+        final FeatureCollection<?> featureList = buildFeatureList();
+        // Process
+        ProcessDescriptor desc = ProcessFinder.getProcessDescriptor("vector", "regroup");
+
+        ParameterValueGroup in = desc.getInputDescriptor().createValue();
+        in.parameter("feature_in").setValue(featureList);
+        in.parameter("regroup_attribute").setValue("height");
+        in.parameter("dissolve").setValue(true);
+        org.geotoolkit.process.Process proc = desc.createProcess(in);
+
+        //Features out
+        final FeatureCollection<Feature> featureListOut = (FeatureCollection<Feature>) proc.call().parameter("feature_out").getValue();
+
+        //Expected Features out, groups polygons do not overlap
+        final FeatureCollection<Feature> featureListResult = (FeatureCollection<Feature>) buildResultList1();
+        assertEquals(featureListOut.getFeatureType(), featureListResult.getFeatureType());
+        assertEquals(featureListOut.size(), featureListResult.size());
+        for (Feature expected : featureListResult) {
+            boolean found = false;
+            for (Feature result : featureListOut) {
+                if (result.getIdentifier().equals(expected.getIdentifier())) {
+                    final Geometry expectedGeom = (Geometry) expected.getProperty("geom1").getValue();
+                    final Geometry resultGeom = (Geometry) result.getProperty("geom1").getValue();
+                    assertTrue(expectedGeom.equalsTopo(resultGeom));
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        }
+    }
+
     private static SimpleFeatureType createSimpleType() throws NoSuchAuthorityCodeException, FactoryException {
         final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
         ftb.setName("RegroupTest");
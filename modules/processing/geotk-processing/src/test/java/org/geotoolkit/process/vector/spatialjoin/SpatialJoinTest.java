@@ -23,8 +23,12 @@ import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureIterator;
 import org.geotoolkit.feature.FeatureTypeBuilder;
 import org.geotoolkit.feature.FeatureUtilities;
 import org.geotoolkit.feature.simple.SimpleFeatureBuilder;
@@ -146,6 +150,108 @@ public class SpatialJoinTest extends AbstractProcessTest {
         assertTrue(featureListOut.containsAll(featureListResult));
     }
 
+    /**
+     * Test SpatialJoin process with Nearest method, many target features
+     * are joined with the nearest feature of a grid of source features.
+     */
+    @Test
+    public void testSpacialJoinNearestGrid() throws ProcessException, NoSuchIdentifierException, FactoryException {
+
+        // Inputs
+        final FeatureCollection<Feature> targetFeatures = FeatureStoreUtilities.collection("Target", createSimpleType1());
+        final Map<String,Integer> expectedAges = new HashMap<String,Integer>();
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                final Feature feature = FeatureUtilities.defaultFeature(targetFeatures.getFeatureType(), "t-" + x + "-" + y);
+                feature.getProperty("name").setValue("Human" + x + "-" + y);
+                feature.getProperty("age").setValue(x);
+                feature.getProperty("geom1").setValue(geometryFactory.createPoint(new Coordinate(x + 0.2, y + 0.3)));
+                targetFeatures.add(feature);
+                expectedAges.put("t-" + x + "-" + y + "_s-" + x + "-" + y, 10 * x + y);
+            }
+        }
+        final Feature outside = FeatureUtilities.defaultFeature(targetFeatures.getFeatureType(), "t-out");
+        outside.getProperty("name").setValue("HumanOut");
+        outside.getProperty("age").setValue(0);
+        outside.getProperty("geom1").setValue(geometryFactory.createPoint(new Coordinate(-3, -4)));
+        targetFeatures.add(outside);
+        expectedAges.put("t-out_s-0-0", 0);
+
+        final FeatureCollection<Feature> sourceFeatures = FeatureStoreUtilities.collection("source", createSimpleType2());
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                final Feature feature = FeatureUtilities.defaultFeature(sourceFeatures.getFeatureType(), "s-" + x + "-" + y);
+                feature.getProperty("type").setValue("Tree" + x + "-" + y);
+                feature.getProperty("age").setValue(10 * x + y);
+                feature.getProperty("geom1").setValue(geometryFactory.createPoint(new Coordinate(x, y)));
+                sourceFeatures.add(feature);
+            }
+        }
+
+        // Process
+        ProcessDescriptor desc = ProcessFinder.getProcessDescriptor("vector", "spatialjoin");
+
+        ParameterValueGroup in = desc.getInputDescriptor().createValue();
+        in.parameter("feature_in").setValue(sourceFeatures);
+        in.parameter("feature_target").setValue(targetFeatures);
+        in.parameter("intersect").setValue(false);
+        org.geotoolkit.process.Process proc = desc.createProcess(in);
+
+        //Features out
+        final FeatureCollection<?> featureListOut = (FeatureCollection<?>) proc.call().parameter("feature_out").getValue();
+
+        //iterate twice, the source index is shared by both iterations
+        for (int i = 0; i < 2; i++) {
+            final Map<String,Integer> ages = new HashMap<String,Integer>();
+            final FeatureIterator<?> ite = featureListOut.iterator();
+            try {
+                while (ite.hasNext()) {
+                    final Feature feature = ite.next();
+                    ages.put(feature.getIdentifier().getID(), (Integer) feature.getProperty("age_SJ_Type2").getValue());
+                }
+            } finally {
+                ite.close();
+            }
+            assertEquals(expectedAges, ages);
+        }
+    }
+
+    /**
+     * Test SpatialJoin process with Nearest method and an empty source,
+     * target features are returned without joined attributes.
+     */
+    @Test
+    public void testSpacialJoinNearestEmpty() throws ProcessException, NoSuchIdentifierException, FactoryException {
+
+        // Inputs
+        final FeatureCollection<?> targetFeatures = buildFeatureList1();
+        final FeatureCollection<?> sourceFeatures = FeatureStoreUtilities.collection("source", createSimpleType2());
+
+        // Process
+        ProcessDescriptor desc = ProcessFinder.getProcessDescriptor("vector", "spatialjoin");
+
+        ParameterValueGroup in = desc.getInputDescriptor().createValue();
+        in.parameter("feature_in").setValue(sourceFeatures);
+        in.parameter("feature_target").setValue(targetFeatures);
+        in.parameter("intersect").setValue(false);
+        org.geotoolkit.process.Process proc = desc.createProcess(in);
+
+        //Features out
+        final FeatureCollection<?> featureListOut = (FeatureCollection<?>) proc.call().parameter("feature_out").getValue();
+
+        assertEquals(targetFeatures.size(), featureListOut.size());
+        final FeatureIterator<?> ite = featureListOut.iterator();
+        try {
+            while (ite.hasNext()) {
+                final Feature feature = ite.next();
+                assertNull(feature.getProperty("type_SJ_Type2").getValue());
+                assertNull(feature.getProperty("age_SJ_Type2").getValue());
+            }
+        } finally {
+            ite.close();
+        }
+    }
+
     private static SimpleFeatureType createSimpleType1() throws NoSuchAuthorityCodeException, FactoryException {
         final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
         ftb.setName("SJ_Type1");
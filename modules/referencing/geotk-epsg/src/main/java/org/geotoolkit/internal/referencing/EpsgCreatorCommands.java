@@ -25,7 +25,10 @@ import org.opengis.util.FactoryException;
 import org.geotoolkit.console.Action;
 import org.geotoolkit.console.CommandLine;
 import org.geotoolkit.console.Option;
+import org.geotoolkit.internal.io.Installation;
+import org.geotoolkit.referencing.factory.epsg.CatalogEpsgFactory;
 import org.geotoolkit.referencing.factory.epsg.EpsgInstaller;
+import org.geotoolkit.referencing.factory.epsg.ThreadedEpsgFactory;
 
 
 /**
@@ -115,4 +118,31 @@ public class EpsgCreatorCommands extends CommandLine {
         }
         out.println(result);
     }
+
+    /**
+     * Compiles the CRS of the EPSG database in a binary catalogue, to be used by
+     * {@link CatalogEpsgFactory}. This action expects up to one argument, which is
+     * the catalogue file to write. If omitted, the catalogue is written in the EPSG
+     * directory of the Geotk configuration directory.
+     */
+    @Action(minimalArgumentCount=0, maximalArgumentCount=1)
+    public void catalog() {
+        final ThreadedEpsgFactory factory = new ThreadedEpsgFactory();
+        try {
+            final File file;
+            if (arguments.length != 0) {
+                file = new File(arguments[0]);
+            } else {
+                file = new File(Installation.EPSG.validDirectory(true), CatalogEpsgFactory.FILENAME);
+            }
+            final int count = EpsgCatalog.compile(factory, file, err);
+            out.println(count + " CRS written in " + file);
+        } catch (FactoryException exception) {
+            printException(exception);
+            exit(INTERNAL_ERROR_EXIT_CODE);
+        } catch (IOException exception) {
+            printException(exception);
+            exit(IO_EXCEPTION_EXIT_CODE);
+        }
+    }
 }
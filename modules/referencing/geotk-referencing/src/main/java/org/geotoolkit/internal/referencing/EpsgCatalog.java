@@ -0,0 +1,522 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.internal.referencing;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.Iterator;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.NoSuchElementException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+
+import org.opengis.util.FactoryException;
+import org.opengis.util.InternationalString;
+import org.opengis.metadata.extent.Extent;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.ReferenceSystem;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import org.apache.sis.metadata.iso.extent.DefaultExtent;
+import org.apache.sis.metadata.iso.extent.DefaultGeographicBoundingBox;
+import org.apache.sis.metadata.iso.extent.Extents;
+import org.apache.sis.util.iso.SimpleInternationalString;
+import org.geotoolkit.io.wkt.ReferencingParser;
+import org.geotoolkit.referencing.CRS;
+
+
+/**
+ * Compact binary catalogue of EPSG coordinate reference systems, stored as
+ * <cite>Well Known Text</cite> indexed by their numerical code. Since WKT does not
+ * contain the domain of validity, the scope and the remarks, those metadata are stored
+ * after the WKT of each record, separated by the {@code U+001F} control character.
+ * The file layout is:
+ *
+ * <ul>
+ *   <li>a header made of the {@linkplain #MAGIC magic number}, the format version and the
+ *       number <var>n</var> of entries, as big-endian integers;</li>
+ *   <li><var>n</var> codes sorted in increasing order;</li>
+ *   <li><var>n</var>+1 offsets of the WKT relative to the start of the text area;</li>
+ *   <li>the text area, which contains the records encoded in UTF-8.</li>
+ * </ul>
+ *
+ * The catalogue is read through a {@link Map} view backed by a (typically memory-mapped)
+ * buffer, with the WKT as values. The metadata are obtained by {@link Catalog#getProperties(String)}.
+ * Lookups are binary searches made with absolute reads on a buffer which is never
+ * modified, so the map can be used concurrently without synchronization.
+ *
+ * @author agent
+ * @version 4.0-M2
+ *
+ * @since 4.0-M2
+ * @module
+ */
+public final class EpsgCatalog {
+    /**
+     * The magic number at the beginning of catalogue files.
+     */
+    public static final int MAGIC = 0x45505347; // "EPSG" in ASCII.
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The separator between the WKT and the metadata fields of a record.
+     * The fields are the scope, the remarks, the description of the domain of validity,
+     * then the west, east, south and north bounds of its geographic bounding box.
+     */
+    private static final char SEPARATOR = '\u001F';
+
+    /**
+     * Number of bytes in the header.
+     */
+    private static final int HEADER_LENGTH = 3 * (Integer.SIZE / Byte.SIZE);
+
+    /**
+     * The encoding of WKT strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Do not allow instantiation of this class.
+     */
+    private EpsgCatalog() {
+    }
+
+    /**
+     * Maps the given catalogue file in memory.
+     *
+     * @param  file The catalogue file.
+     * @return A read-only view of the catalogue, with codes as keys and WKT as values.
+     * @throws IOException If the file can not be read or is not a catalogue.
+     */
+    public static Catalog map(final File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            final FileChannel channel = raf.getChannel();
+            // The mapping stay valid after the channel has been closed.
+            return new Catalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads the catalogue from the given stream, typically an entry in a JAR file.
+     * The stream is read fully in memory and closed.
+     *
+     * @param  in The stream to read.
+     * @return A read-only view of the catalogue, with codes as keys and WKT as values.
+     * @throws IOException If the stream can not be read or is not a catalogue.
+     */
+    public static Catalog read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        try {
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return new Catalog(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * Encodes a catalogue record made of the given WKT followed by the domain of validity,
+     * scope and remarks of the given reference system.
+     *
+     * @param  wkt The WKT definition of the reference system.
+     * @param  crs The reference system from which to get the metadata, or {@code null} if none.
+     * @return The record to give to {@link #write(Map, File)}.
+     */
+    public static String encode(final String wkt, final ReferenceSystem crs) {
+        if (crs == null) {
+            return wkt.trim();
+        }
+        return encode(wkt, crs.getDomainOfValidity(), crs.getScope(), crs.getRemarks());
+    }
+
+    /**
+     * Encodes a catalogue record made of the given WKT and metadata.
+     *
+     * @param  wkt The WKT definition of the reference system.
+     * @param  domain The domain of validity, or {@code null} if none.
+     * @param  scope The scope, or {@code null} if none.
+     * @param  remarks The remarks, or {@code null} if none.
+     * @return The record to give to {@link #write(Map, File)}.
+     */
+    public static String encode(final String wkt, final Extent domain,
+            final InternationalString scope, final InternationalString remarks)
+    {
+        final StringBuilder buffer = new StringBuilder(wkt.trim());
+        append(buffer, scope);
+        append(buffer, remarks);
+        append(buffer, (domain != null) ? domain.getDescription() : null);
+        final GeographicBoundingBox bbox = (domain != null) ? Extents.getGeographicBoundingBox(domain) : null;
+        if (bbox != null) {
+            append(buffer, bbox.getWestBoundLongitude());
+            append(buffer, bbox.getEastBoundLongitude());
+            append(buffer, bbox.getSouthBoundLatitude());
+            append(buffer, bbox.getNorthBoundLatitude());
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Appends a metadata field to the given record.
+     */
+    private static void append(final StringBuilder buffer, final Object value) {
+        buffer.append(SEPARATOR);
+        if (value != null) {
+            buffer.append(value.toString().replace(SEPARATOR, ' '));
+        }
+    }
+
+    /**
+     * Writes the given definitions in a catalogue file.
+     *
+     * @param  definitions The records indexed by EPSG code, either plain WKT or records
+     *         created by {@link #encode(String, ReferenceSystem)}.
+     * @param  file The file to write. Overwritten if it already exists.
+     * @throws IOException If an error occurred while writing the file.
+     */
+    public static void write(final Map<Integer,String> definitions, final File file) throws IOException {
+        final SortedMap<Integer,byte[]> sorted = new TreeMap<>();
+        for (final Map.Entry<Integer,String> entry : definitions.entrySet()) {
+            sorted.put(entry.getKey(), entry.getValue().trim().getBytes(UTF8));
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.size());
+            for (final Integer code : sorted.keySet()) {
+                out.writeInt(code);
+            }
+            int offset = 0;
+            out.writeInt(offset);
+            for (final byte[] wkt : sorted.values()) {
+                offset += wkt.length;
+                out.writeInt(offset);
+            }
+            for (final byte[] wkt : sorted.values()) {
+                out.write(wkt);
+            }
+        }
+    }
+
+    /**
+     * Compiles the coordinate reference systems of the given factory in a catalogue file.
+     * Every CRS is formatted as WKT, then parsed again and compared with the original one.
+     * Only the CRS which are preserved by this round trip are stored, the other ones will
+     * be created by the SQL factory. The domain of validity, scope and remarks are stored
+     * with the WKT.
+     *
+     * @param  factory The factory from which to get the CRS, typically the SQL EPSG factory.
+     * @param  file The file to write. Overwritten if it already exists.
+     * @param  out Where to report the codes which have been excluded, or {@code null} if none.
+     * @return The number of CRS written in the catalogue.
+     * @throws FactoryException If the authority codes can not be obtained.
+     * @throws IOException If an error occurred while writing the file.
+     */
+    public static int compile(final CRSAuthorityFactory factory, final File file, final PrintWriter out)
+            throws FactoryException, IOException
+    {
+        final ReferencingParser parser = new ReferencingParser();
+        parser.setISOConform(true);
+        final Map<Integer,String> definitions = new TreeMap<>();
+        for (final String code : factory.getAuthorityCodes(CoordinateReferenceSystem.class)) {
+            final int key;
+            try {
+                key = Integer.parseInt(code.trim());
+            } catch (NumberFormatException e) {
+                continue; // Not an EPSG numerical code.
+            }
+            String reason;
+            try {
+                final CoordinateReferenceSystem crs = factory.createCoordinateReferenceSystem(code);
+                final String wkt = crs.toWKT();
+                if (CRS.equalsIgnoreMetadata(crs, parser.parseCoordinateReferenceSystem(wkt))) {
+                    definitions.put(key, encode(wkt, crs));
+                    continue;
+                }
+                reason = "not preserved by WKT";
+            } catch (FactoryException | ParseException | UnsupportedOperationException e) {
+                reason = e.getLocalizedMessage();
+            }
+            if (out != null) {
+                out.print(code);
+                out.print(": ");
+                out.println(reason);
+            }
+        }
+        write(definitions, file);
+        return definitions.size();
+    }
+
+    /**
+     * Read-only map view of a catalogue buffer, with codes as keys and WKT as values.
+     */
+    public static final class Catalog extends AbstractMap<String,String> {
+        /**
+         * The catalogue content. Only absolute methods are used on this buffer, or methods
+         * on duplicated buffers, in order to never change the buffer position.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Number of entries.
+         */
+        private final int size;
+
+        /**
+         * Position of the offsets table and of the text area in the buffer.
+         */
+        private final int offsetsStart, textStart;
+
+        /**
+         * Creates a view over the given buffer.
+         */
+        Catalog(final ByteBuffer buffer) throws IOException {
+            if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an EPSG catalogue.");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported EPSG catalogue version: " + buffer.getInt(4));
+            }
+            this.buffer  = buffer;
+            size         = buffer.getInt(8);
+            offsetsStart = HEADER_LENGTH + 4*size;
+            textStart    = offsetsStart + 4*(size + 1);
+            if (size < 0 || textStart > buffer.capacity()
+                    || textStart + buffer.getInt(offsetsStart + 4*size) > buffer.capacity())
+            {
+                throw new IOException("Truncated EPSG catalogue.");
+            }
+        }
+
+        /**
+         * Returns the code at the given index.
+         */
+        private int code(final int index) {
+            return buffer.getInt(HEADER_LENGTH + 4*index);
+        }
+
+        /**
+         * Returns the index of the given code, or -1 if none.
+         */
+        private int indexOf(final Object key) {
+            if (key instanceof String) {
+                final int code;
+                try {
+                    code = Integer.parseInt(((String) key).trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+                int low = 0, high = size - 1;
+                while (low <= high) {
+                    final int mid = (low + high) >>> 1;
+                    final int candidate = code(mid);
+                    if (candidate < code) {
+                        low = mid + 1;
+                    } else if (candidate > code) {
+                        high = mid - 1;
+                    } else {
+                        return mid;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the record at the given index.
+         */
+        private String record(final int index) {
+            final int start = buffer.getInt(offsetsStart + 4*index);
+            final int end   = buffer.getInt(offsetsStart + 4*(index + 1));
+            final byte[] bytes = new byte[end - start];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(textStart + start);
+            view.get(bytes);
+            return new String(bytes, UTF8);
+        }
+
+        /**
+         * Returns the WKT at the given index.
+         */
+        private String wkt(final int index) {
+            final String record = record(index);
+            final int s = record.indexOf(SEPARATOR);
+            return (s >= 0) ? record.substring(0, s) : record;
+        }
+
+        /**
+         * Returns the domain of validity, scope and remarks stored with the WKT of the given code.
+         * The keys are {@link ReferenceSystem#DOMAIN_OF_VALIDITY_KEY}, {@link ReferenceSystem#SCOPE_KEY}
+         * and {@link IdentifiedObject#REMARKS_KEY}; absent metadata have no entry.
+         *
+         * @param  code The EPSG code.
+         * @return The metadata of the given code, or an empty map if none.
+         */
+        public Map<String,Object> getProperties(final String code) {
+            final int index = indexOf(code);
+            if (index < 0) {
+                return Collections.emptyMap();
+            }
+            final String[] fields = record(index).split(String.valueOf(SEPARATOR), -1);
+            final Map<String,Object> properties = new HashMap<>(4);
+            if (fields.length > 1 && !fields[1].isEmpty()) {
+                properties.put(ReferenceSystem.SCOPE_KEY, fields[1]);
+            }
+            if (fields.length > 2 && !fields[2].isEmpty()) {
+                properties.put(IdentifiedObject.REMARKS_KEY, fields[2]);
+            }
+            DefaultExtent extent = null;
+            if (fields.length > 3 && !fields[3].isEmpty()) {
+                extent = new DefaultExtent();
+                extent.setDescription(new SimpleInternationalString(fields[3]));
+            }
+            if (fields.length > 7) {
+                if (extent == null) {
+                    extent = new DefaultExtent();
+                }
+                extent.setGeographicElements(Collections.singleton(new DefaultGeographicBoundingBox(
+                        Double.parseDouble(fields[4]), Double.parseDouble(fields[5]),
+                        Double.parseDouble(fields[6]), Double.parseDouble(fields[7]))));
+            }
+            if (extent != null) {
+                extent.freeze();
+                properties.put(ReferenceSystem.DOMAIN_OF_VALIDITY_KEY, extent);
+            }
+            return properties;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public String get(final Object key) {
+            final int index = indexOf(key);
+            return (index >= 0) ? wkt(index) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<String,String>> entrySet() {
+            return new AbstractSet<Map.Entry<String,String>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String,String>> iterator() {
+                    return new Iterator<Map.Entry<String,String>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < size;
+                        }
+
+                        @Override
+                        public Map.Entry<String,String> next() {
+                            if (index >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            final int i = index++;
+                            return new SimpleImmutableEntry<>(String.valueOf(code(i)), wkt(i));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+
+        /**
+         * Returns the codes without decoding the WKT.
+         */
+        @Override
+        public Set<String> keySet() {
+            return new AbstractSet<String>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(final Object key) {
+                    return indexOf(key) >= 0;
+                }
+
+                @Override
+                public Iterator<String> iterator() {
+                    return new Iterator<String>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < size;
+                        }
+
+                        @Override
+                        public String next() {
+                            if (index >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            return String.valueOf(code(index++));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
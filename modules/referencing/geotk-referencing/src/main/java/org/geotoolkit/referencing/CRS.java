@@ -46,6 +46,7 @@ import org.apache.sis.util.Version;
 import org.apache.sis.util.Utilities;
 import org.apache.sis.util.ComparisonMode;
 import org.apache.sis.util.logging.Logging;
+import org.apache.sis.util.collection.Cache;
 import org.geotoolkit.factory.Hints;
 import org.geotoolkit.factory.Factory;
 import org.geotoolkit.factory.Factories;
@@ -131,6 +132,21 @@ public final class CRS extends Static {
      */
     private static volatile Boolean defaultLenient;
 
+    /**
+     * The number of most recently used entries strongly referenced by the {@link #transforms}
+     * cache. Older entries are only weakly referenced, so they are kept as long as they are
+     * used elsewhere.
+     */
+    private static final int TRANSFORMS_CACHE_SIZE = 100;
+
+    /**
+     * The math transforms computed by {@link #findMathTransform(CoordinateReferenceSystem,
+     * CoordinateReferenceSystem, boolean)} for each pair of CRS. Lookups of cached values do
+     * not block, so concurrent reprojections of many features do not contend on the caching
+     * of the coordinate operation factory.
+     */
+    private static final Cache<CRSPair,MathTransform> transforms = new Cache<>(12, TRANSFORMS_CACHE_SIZE, false);
+
     /**
      * Registers a listener automatically invoked when the system-wide configuration changed.
      */
@@ -146,6 +162,7 @@ public final class CRS extends Static {
                     defaultOrder    = null;
                     defaultLenient  = null;
                 }
+                transforms.clear();
             }
         });
     }
@@ -1095,6 +1112,10 @@ check:      while (lower != 0 || upper != dimension) {
      * is {@code true}, then this method will not throw a "<cite>Bursa-Wolf parameters required</cite>"
      * exception during datum shifts if the Bursa-Wolf parameters are not specified.
      * Instead it will assume a no datum shift.
+     * <p>
+     * The transforms are cached for each ({@code sourceCRS}, {@code targetCRS}, {@code lenient})
+     * tuple. The cache can be read concurrently without locking, so this method can be invoked
+     * for every feature to reproject.
      *
      * @param  sourceCRS The source CRS.
      * @param  targetCRS The target CRS.
@@ -1118,6 +1139,34 @@ check:      while (lower != 0 || upper != dimension) {
     {
         ensureNonNull("sourceCRS", sourceCRS);
         ensureNonNull("targetCRS", targetCRS);
+        if (OperationContext.getAreaOfInterest() != null) {
+            // The transform depends on the area of interest, which is not part of the cache key.
+            return createMathTransform(sourceCRS, targetCRS, lenient);
+        }
+        final CRSPair key = new CRSPair(sourceCRS, targetCRS, lenient);
+        MathTransform transform = transforms.peek(key);
+        if (transform == null) {
+            final Cache.Handler<MathTransform> handler = transforms.lock(key);
+            try {
+                transform = handler.peek();
+                if (transform == null) {
+                    transform = createMathTransform(sourceCRS, targetCRS, lenient);
+                }
+            } finally {
+                handler.putAndUnlock(transform);
+            }
+        }
+        return transform;
+    }
+
+    /**
+     * Creates a new transform between the given CRS, without looking in the cache.
+     */
+    private static MathTransform createMathTransform(final CoordinateReferenceSystem sourceCRS,
+                                                     final CoordinateReferenceSystem targetCRS,
+                                                     final boolean lenient)
+            throws FactoryException
+    {
         if (equalsIgnoreMetadata(sourceCRS, targetCRS)) {
             // Slight optimization in order to avoid the overhead of loading the full referencing engine.
             return MathTransforms.identity(sourceCRS.getCoordinateSystem().getDimension());
@@ -1125,6 +1174,66 @@ check:      while (lower != 0 || upper != dimension) {
         return getCoordinateOperationFactory(lenient).createOperation(sourceCRS, targetCRS).getMathTransform();
     }
 
+    /**
+     * The key of the {@link CRS#transforms} cache. The CRS are compared using strict
+     * equality, in order to be consistent with
+     * {@link org.geotoolkit.referencing.operation.CachingCoordinateOperationFactory}.
+     */
+    private static final class CRSPair {
+        /**
+         * The source and target CRS.
+         */
+        private final CoordinateReferenceSystem sourceCRS, targetCRS;
+
+        /**
+         * Whatever the transform tolerates lenient datum shift.
+         */
+        private final boolean lenient;
+
+        /**
+         * The hash code value, computed once for ever at construction time.
+         */
+        private final int hash;
+
+        /**
+         * Creates a key for the given pair of CRS.
+         */
+        CRSPair(final CoordinateReferenceSystem sourceCRS,
+                final CoordinateReferenceSystem targetCRS,
+                final boolean lenient)
+        {
+            this.sourceCRS = sourceCRS;
+            this.targetCRS = targetCRS;
+            this.lenient   = lenient;
+            hash = (sourceCRS.hashCode() * 31 + targetCRS.hashCode()) * 31 + (lenient ? 1 : 0);
+        }
+
+        /**
+         * Returns the hash code value.
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * Compares this pair with the given object for equality.
+         */
+        @Override
+        public boolean equals(final Object object) {
+            if (object == this) {
+                return true;
+            }
+            if (object instanceof CRSPair) {
+                final CRSPair that = (CRSPair) object;
+                return lenient == that.lenient &&
+                       sourceCRS.equals(that.sourceCRS) &&
+                       targetCRS.equals(that.targetCRS);
+            }
+            return false;
+        }
+    }
+
     /**
      * Grab a transform between two Coordinate Reference Systems for the given area of interest.
      * This method may returns a more accurate transform than {@link #findMathTransform(CoordinateReferenceSystem,
@@ -24,6 +24,11 @@ package org.geotoolkit.referencing;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
@@ -87,10 +92,15 @@ import org.apache.sis.util.NullArgumentException;
  * <p>
  * Note: This class is not thread-safe. If geodetic calculations are needed in a multi-threads
  * environment, create one distinct instance of {@code GeodeticCalculator} for each thread.
+ * <p>
+ * Many points can be processed in a single call using the batch methods, which work on
+ * packed arrays of (<var>longitude</var>, <var>latitude</var>) tuples without creating
+ * objects for each point. The {@link #computeDistanceMatrix computeDistanceMatrix} method
+ * can furthermore split the work among the threads of an {@link ExecutorService}.
  *
  * @author Daniele Franzoni
  * @author Martin Desruisseaux (Geomatys)
- * @version 3.01
+ * @version 4.0-M2
  *
  * @since 2.0
  * @module
@@ -1306,6 +1316,223 @@ public class GeodeticCalculator {
         return path;
     }
 
+
+
+
+
+    ///////////////////////////////////////////////////////////////
+    ////////                                               ////////
+    ////////          B A T C H   M E T H O D S            ////////
+    ////////                                               ////////
+    ///////////////////////////////////////////////////////////////
+
+    /**
+     * Creates a new calculator sharing the ellipsoid and the constants computed from the
+     * ellipsoid by the given calculator. The new calculator works on geographic coordinates
+     * only. This constructor is used for computations in background threads.
+     */
+    private GeodeticCalculator(final GeodeticCalculator other) {
+        ellipsoid              = other.ellipsoid;
+        geographicCRS          = other.geographicCRS;
+        userToGeodetic         = null;
+        semiMajorAxis          = other.semiMajorAxis;
+        semiMinorAxis          = other.semiMinorAxis;
+        eccentricitySquared    = other.eccentricitySquared;
+        maxOrthodromicDistance = other.maxOrthodromicDistance;
+        A   = other.A;   B   = other.B;   C   = other.C;
+        D   = other.D;   E   = other.E;   F   = other.F;
+        fo  = other.fo;  f   = other.f;   f2  = other.f2;  f3  = other.f3;  f4  = other.f4;
+        T1  = other.T1;  T2  = other.T2;  T4  = other.T4;  T6  = other.T6;
+        a01 = other.a01; a02 = other.a02; a03 = other.a03;
+        a21 = other.a21; a22 = other.a22; a23 = other.a23;
+        a42 = other.a42; a43 = other.a43; a63 = other.a63;
+    }
+
+    /**
+     * Computes the orthodromic distances and the azimuths between many pairs of points.
+     * Points are stored in the arrays as (<var>longitude</var>, <var>latitude</var>) tuples
+     * in decimal degrees. For each index <var>i</var> from 0 inclusive to {@code numPts}
+     * exclusive, this method computes the direction from the point at
+     * {@code startPts[startOff + 2*i]} to the point at {@code destPts[destOff + 2*i]}
+     * and stores the result at index {@code resultOff + i}.
+     * <p>
+     * This method is equivalent to invoking {@link #setStartingGeographicPoint(double,double)},
+     * {@link #setDestinationGeographicPoint(double,double)}, {@link #getOrthodromicDistance()}
+     * and {@link #getAzimuth()} for each pair of points, except that no object is created and
+     * that the results are {@link Double#NaN NaN} for the pairs where the computation does not
+     * converge. After this method call, the state of this calculator is the one of the last pair.
+     *
+     * @param startPts  The starting points as (<var>longitude</var>, <var>latitude</var>) tuples.
+     * @param startOff  Index of the first coordinate in the {@code startPts} array.
+     * @param destPts   The destination points as (<var>longitude</var>, <var>latitude</var>) tuples.
+     * @param destOff   Index of the first coordinate in the {@code destPts} array.
+     * @param distances Where to store the orthodromic distances, or {@code null} if not needed.
+     * @param azimuths  Where to store the azimuths in decimal degrees, or {@code null} if not needed.
+     * @param resultOff Index of the first value to write in the {@code distances} and {@code azimuths} arrays.
+     * @param numPts    Number of pairs of points.
+     * @throws IllegalArgumentException if a longitude or a latitude is out of bounds.
+     *
+     * @since 4.0-M2
+     */
+    public void computeDirections(final double[] startPts, int startOff,
+                                  final double[] destPts,  int destOff,
+                                  final double[] distances, final double[] azimuths, int resultOff,
+                                  int numPts) throws IllegalArgumentException
+    {
+        while (--numPts >= 0) {
+            setStartingGeographicPoint   (startPts[startOff++], startPts[startOff++]);
+            setDestinationGeographicPoint(destPts [destOff++],  destPts [destOff++]);
+            storeDirection(distances, azimuths, resultOff++);
+        }
+    }
+
+    /**
+     * Computes the direction from the current starting point to the current destination point,
+     * and stores the result in the given arrays at the given index. This method does not check
+     * the distance with the {@link DefaultEllipsoid} algorithm, since doing so would double
+     * the cost of batch computations.
+     */
+    private void storeDirection(final double[] distances, final double[] azimuths, final int index) {
+        double d, az;
+        try {
+            computeDirection();
+            d  = distance;
+            az = toDegrees(azimuth);
+            if (antipodal && ellipsoid instanceof DefaultEllipsoid) {
+                d = ((DefaultEllipsoid) ellipsoid).orthodromicDistance(
+                        toDegrees(long1), toDegrees(lat1), toDegrees(long2), toDegrees(lat2));
+            }
+        } catch (ArithmeticException e) {
+            d  = Double.NaN;
+            az = Double.NaN;
+        }
+        if (distances != null) distances[index] = d;
+        if (azimuths  != null) azimuths [index] = az;
+    }
+
+    /**
+     * Computes the destination points for many starting points, azimuths and distances.
+     * Points are stored in the arrays as (<var>longitude</var>, <var>latitude</var>) tuples
+     * in decimal degrees. For each index <var>i</var> from 0 inclusive to {@code numPts}
+     * exclusive, this method moves the point at {@code startPts[startOff + 2*i]} in the
+     * direction given by {@code azimuths[dirOff + i]} over the distance given by
+     * {@code distances[dirOff + i]}, and stores the result at {@code destPts[destOff + 2*i]}.
+     * <p>
+     * The {@code startPts} and {@code destPts} arrays can be the same array only if the
+     * {@code startOff} and {@code destOff} offsets are equal. After this method call,
+     * the state of this calculator is the one of the last point.
+     *
+     * @param startPts  The starting points as (<var>longitude</var>, <var>latitude</var>) tuples.
+     * @param startOff  Index of the first coordinate in the {@code startPts} array.
+     * @param azimuths  The azimuths in decimal degrees from -180° to 180°.
+     * @param distances The orthodromic distances in the units of the ellipsoid axis.
+     * @param dirOff    Index of the first value in the {@code azimuths} and {@code distances} arrays.
+     * @param destPts   Where to store the destination points.
+     * @param destOff   Index of the first coordinate to write in the {@code destPts} array.
+     * @param numPts    Number of points.
+     * @throws IllegalArgumentException if a coordinate, an azimuth or a distance is out of bounds.
+     *
+     * @since 4.0-M2
+     */
+    public void computeDestinations(final double[] startPts,  int startOff,
+                                    final double[] azimuths,  final double[] distances, int dirOff,
+                                    final double[] destPts,   int destOff,
+                                    int numPts) throws IllegalArgumentException
+    {
+        while (--numPts >= 0) {
+            setStartingGeographicPoint(startPts[startOff++], startPts[startOff++]);
+            setDirection(azimuths[dirOff], distances[dirOff]);
+            dirOff++;
+            computeDestinationPoint();
+            destPts[destOff++] = toDegrees(long2);
+            destPts[destOff++] = toDegrees(lat2);
+        }
+    }
+
+    /**
+     * Computes the orthodromic distances from every source points to every target points.
+     * Points are stored in the arrays as (<var>longitude</var>, <var>latitude</var>) tuples
+     * in decimal degrees. The returned matrix is stored in row-major order: the distance from
+     * source <var>i</var> to target <var>j</var> is at index <var>i</var>&times;<var>n</var>
+     * + <var>j</var>, where <var>n</var> is the number of target points.
+     * <p>
+     * If an executor is given, the rows are split in blocks computed in parallel. Each block
+     * uses its own calculator sharing the ellipsoid constants of this calculator, so the state
+     * of this calculator is not modified. If the executor is {@code null}, then the matrix is
+     * computed in the current thread and the state of this calculator is the one of the last pair.
+     *
+     * @param  sources  The source points as (<var>longitude</var>, <var>latitude</var>) tuples.
+     * @param  targets  The target points as (<var>longitude</var>, <var>latitude</var>) tuples.
+     * @param  executor The executor for parallel computation, or {@code null} for computing
+     *                  in the current thread.
+     * @return The distances in the units of the ellipsoid axis, in row-major order.
+     * @throws IllegalArgumentException if a longitude or a latitude is out of bounds.
+     * @throws InterruptedException if the current thread has been interrupted while waiting
+     *         for the background computations.
+     *
+     * @since 4.0-M2
+     */
+    public double[] computeDistanceMatrix(final double[] sources, final double[] targets,
+            final ExecutorService executor) throws IllegalArgumentException, InterruptedException
+    {
+        final int numSources = sources.length / 2;
+        final int numTargets = targets.length / 2;
+        final double[] matrix = new double[numSources * numTargets];
+        if (executor == null) {
+            computeRows(sources, 0, numSources, targets, matrix);
+            return matrix;
+        }
+        final int blockSize = max(1, numSources / (Runtime.getRuntime().availableProcessors() * 4));
+        final List<Future<?>> tasks = new ArrayList<>();
+        for (int lower=0; lower<numSources; lower += blockSize) {
+            final int start = lower;
+            final int end   = min(numSources, lower + blockSize);
+            tasks.add(executor.submit(new Runnable() {
+                @Override public void run() {
+                    new GeodeticCalculator(GeodeticCalculator.this).computeRows(sources, start, end, targets, matrix);
+                }
+            }));
+        }
+        try {
+            for (final Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            for (final Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause); // Should never happen since tasks are Runnable.
+        } catch (InterruptedException e) {
+            for (final Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            throw e;
+        }
+        return matrix;
+    }
+
+    /**
+     * Computes the rows of the distance matrix for the sources in the given range.
+     */
+    private void computeRows(final double[] sources, int lower, final int upper,
+                             final double[] targets, final double[] matrix)
+    {
+        final int numTargets = targets.length / 2;
+        for (; lower < upper; lower++) {
+            final int row = lower * numTargets;
+            final double longitude = sources[lower*2];
+            final double latitude  = sources[lower*2 + 1];
+            for (int j=0; j<numTargets; j++) {
+                setStartingGeographicPoint(longitude, latitude);
+                setDestinationGeographicPoint(targets[j*2], targets[j*2 + 1]);
+                storeDirection(matrix, null, row + j);
+            }
+        }
+    }
+
     /**
      * Returns a string representation of the current state of this calculator.
      */
@@ -0,0 +1,265 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.referencing.factory.epsg;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Collections;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URISyntaxException;
+import java.text.ParseException;
+import java.util.logging.Logger;
+import net.jcip.annotations.ThreadSafe;
+
+import org.opengis.util.FactoryException;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import org.apache.sis.io.wkt.Symbols;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.io.wkt.ReferencingParser;
+import org.geotoolkit.internal.io.Installation;
+import org.geotoolkit.internal.referencing.EpsgCatalog;
+import org.geotoolkit.referencing.factory.wkt.WKTParsingAuthorityFactory;
+import org.geotoolkit.metadata.Citations;
+
+
+/**
+ * Authority factory for the EPSG coordinate reference systems precompiled in a binary
+ * catalogue. This factory avoids the creation of the embedded EPSG database and the JDBC
+ * queries on startup: the catalogue is memory-mapped and looked up without synchronization.
+ * The catalogue is searched in the following places, in that order:
+ *
+ * <ol>
+ *   <li>The {@value #FILENAME} file in the EPSG directory of the Geotk application data.</li>
+ *   <li>The {@value #FILENAME} resource in the {@code org/geotoolkit/referencing/factory/epsg}
+ *       directory on the classpath.</li>
+ * </ol>
+ *
+ * The catalogue is produced from the SQL database by the {@code catalog} action of the
+ * {@code geotk-epsg-pack} tool. If no catalogue is found, this factory is not
+ * {@linkplain #availability available}. The domain of validity, scope and remarks of
+ * each CRS are stored in the catalogue together with the WKT, so the created CRS have
+ * the same area of use than the ones created by the SQL factory. Other metadata like
+ * aliases are not stored. Codes which are not in the catalogue (because
+ * their definition can not be expressed in WKT, or because they are not CRS) are created
+ * by {@link ThreadedEpsgFactory}, which is registered as a fallback.
+ *
+ * {@section Caching of CRS objects}
+ * This factory doesn't cache any result. Any call to a {@code createFoo} method
+ * will trig a new WKT parsing. This factory is wrapped in a
+ * {@link org.geotoolkit.referencing.factory.CachingAuthorityFactory} when used
+ * through the {@link org.geotoolkit.referencing.CRS} static methods.
+ *
+ * @author agent
+ * @version 4.0-M2
+ *
+ * @since 4.0-M2
+ * @module
+ */
+@ThreadSafe
+public class CatalogEpsgFactory extends WKTParsingAuthorityFactory implements CRSAuthorityFactory {
+    /**
+     * The catalogue filename, which is {@value}.
+     */
+    public static final String FILENAME = "Catalog.bin";
+
+    /**
+     * The logger for this factory.
+     */
+    private static final Logger LOGGER = Logging.getLogger(CatalogEpsgFactory.class);
+
+    /**
+     * The catalogue, with EPSG codes as keys and WKT as values.
+     */
+    private final Map<String,String> catalog;
+
+    /**
+     * The WKT parser of each thread, in order to parse concurrently.
+     */
+    private final ThreadLocal<CatalogParser> parsers = new ThreadLocal<CatalogParser>() {
+        @Override
+        protected CatalogParser initialValue() {
+            final CatalogParser parser = new CatalogParser();
+            parser.setISOConform(true);
+            parser.setAxisIgnored(Boolean.TRUE.equals(hints.get(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER)));
+            return parser;
+        }
+    };
+
+    /**
+     * A WKT parser which adds the metadata stored in the catalogue to the parsed object.
+     */
+    private final class CatalogParser extends ReferencingParser {
+        /**
+         * The metadata of the object being parsed.
+         */
+        Map<String,Object> metadata = Collections.emptyMap();
+
+        /**
+         * Creates a parser using the factories of the enclosing class.
+         */
+        CatalogParser() {
+            super(Symbols.getDefault(), factories);
+        }
+
+        /**
+         * Adds the domain of validity, scope and remarks to the properties of the root element.
+         */
+        @Override
+        protected Map<String,Object> alterProperties(Map<String,Object> properties) {
+            if (!metadata.isEmpty()) {
+                properties = new HashMap<>(properties);
+                properties.putAll(metadata);
+            }
+            return super.alterProperties(properties);
+        }
+
+        /**
+         * Parses the WKT of the given code with the metadata stored in the catalogue.
+         */
+        Object parse(final String code, final String wkt, final boolean crs) throws ParseException {
+            if (catalog instanceof EpsgCatalog.Catalog) {
+                metadata = ((EpsgCatalog.Catalog) catalog).getProperties(trimAuthority(code));
+            }
+            try {
+                return crs ? parseCoordinateReferenceSystem(wkt) : parseObject(wkt);
+            } finally {
+                metadata = Collections.emptyMap();
+            }
+        }
+    }
+
+    /**
+     * Constructs a default authority factory.
+     */
+    public CatalogEpsgFactory() {
+        this(EMPTY_HINTS);
+    }
+
+    /**
+     * Constructs an authority factory from the given hints.
+     * This constructor recognizes the {@link Hints#FORCE_LONGITUDE_FIRST_AXIS_ORDER} hint.
+     *
+     * @param userHints An optional set of hints, or {@code null} if none.
+     */
+    public CatalogEpsgFactory(final Hints userHints) {
+        this(userHints, loadCatalog());
+    }
+
+    /**
+     * Constructs an authority factory using the given catalogue.
+     *
+     * @param userHints An optional set of hints, or {@code null} if none.
+     * @param catalog The catalogue, typically obtained by {@link EpsgCatalog#map(File)}.
+     */
+    public CatalogEpsgFactory(final Hints userHints, final Map<String,String> catalog) {
+        super(userHints, catalog, Citations.EPSG);
+        this.catalog = catalog;
+    }
+
+    /**
+     * Searches the catalogue in the application data directory, then on the classpath.
+     * Returns an empty map if no catalogue has been found.
+     */
+    private static Map<String,String> loadCatalog() {
+        try {
+            final File file = new File(Installation.EPSG.directory(true), FILENAME);
+            if (file.isFile()) {
+                return EpsgCatalog.map(file);
+            }
+            final URL url = CatalogEpsgFactory.class.getResource(FILENAME);
+            if (url != null) {
+                if ("file".equalsIgnoreCase(url.getProtocol())) {
+                    return EpsgCatalog.map(new File(url.toURI()));
+                }
+                return EpsgCatalog.read(url.openStream());
+            }
+        } catch (IOException | URISyntaxException | SecurityException exception) {
+            Logging.recoverableException(LOGGER, CatalogEpsgFactory.class, "<init>", exception);
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Invoked by {@code FactoryRegistry} on registration. The default implementation
+     * declares that this factory has precedence over {@link ThreadedEpsgFactory},
+     * which is used as a fallback for the codes not in the catalogue.
+     */
+    @Override
+    protected void setOrdering(final Organizer organizer) {
+        super.setOrdering(organizer);
+        organizer.before(ThreadedEpsgFactory.class, true);
+    }
+
+    /**
+     * Returns the WKT for the given code.
+     */
+    private String getWKT(final Class<? extends IdentifiedObject> type, final String code)
+            throws NoSuchAuthorityCodeException
+    {
+        ensureNonNull("code", code);
+        final String wkt = catalog.get(trimAuthority(code));
+        if (wkt == null) {
+            throw noSuchAuthorityCode(type, code);
+        }
+        return wkt;
+    }
+
+    /**
+     * Returns an arbitrary object from a code. This method can be invoked concurrently.
+     *
+     * @param  code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public IdentifiedObject createObject(final String code)
+            throws NoSuchAuthorityCodeException, FactoryException
+    {
+        final String wkt = getWKT(IdentifiedObject.class, code);
+        try {
+            return (IdentifiedObject) parsers.get().parse(code, wkt, false);
+        } catch (ParseException exception) {
+            throw new FactoryException(exception);
+        }
+    }
+
+    /**
+     * Returns a coordinate reference system from a code. This method can be invoked concurrently.
+     *
+     * @param  code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+            throws NoSuchAuthorityCodeException, FactoryException
+    {
+        final String wkt = getWKT(CoordinateReferenceSystem.class, code);
+        try {
+            return (CoordinateReferenceSystem) parsers.get().parse(code, wkt, true);
+        } catch (ParseException exception) {
+            throw new FactoryException(exception);
+        }
+    }
+}
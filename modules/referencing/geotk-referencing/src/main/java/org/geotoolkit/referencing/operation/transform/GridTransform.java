@@ -609,10 +609,14 @@ public class GridTransform extends AbstractMathTransform implements Serializable
         out.defaultWriteObject();
         final int size = grid.getSize();
         final int[] offsets = grid.getOffsets();
-        final Class<? extends DataBuffer> type = grid.getClass();
+        Class<? extends DataBuffer> type = grid.getClass();
         final Object data; // Assigned to DataBuffer.getBankData(), which returns a clone.
         try {
             data = type.getMethod("getBankData", (Class<?>[]) null).invoke(grid, (Object[]) null);
+            // Memory-mapped grids are deserialized as ordinary arrays of floats.
+            if (grid instanceof MappedGridBuffer) {
+                type = DataBufferFloat.class;
+            }
             for (int i=Array.getLength(data); --i>=0;) {
                 Object bank = Array.get(data, i);
                 final int offset = offsets[i];
@@ -0,0 +1,186 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.referencing.operation.transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.awt.image.DataBuffer;
+import net.jcip.annotations.ThreadSafe;
+
+import org.geotoolkit.internal.io.IOUtilities;
+
+
+/**
+ * A read-only {@link DataBuffer} of {@code float} values read directly from the bytes of
+ * a grid file, typically memory-mapped. Only the pages containing the cells used by the
+ * transformed points are loaded in memory by the operating system, and they can be reclaimed
+ * at any time without the need to parse the file again.
+ * <p>
+ * The values of each bank are stored in row-major order, with a constant number of bytes
+ * between consecutive columns and between consecutive rows. This layout is flexible enough
+ * for interleaved records (NTv2) and for rows preceded by a separator (NADCON).
+ * <p>
+ * Values are read with absolute {@code get} methods only, so this buffer can be used
+ * concurrently by many threads.
+ *
+ * @author agent
+ * @version 4.0-M2
+ *
+ * @since 4.0-M2
+ * @module
+ */
+@ThreadSafe
+final class MappedGridBuffer extends DataBuffer {
+    /**
+     * The bytes of each bank. Many banks may share the same buffer.
+     */
+    private final ByteBuffer[] data;
+
+    /**
+     * The position in bytes of the first value of each bank.
+     */
+    private final int[] base;
+
+    /**
+     * Number of values in a row.
+     */
+    private final int width;
+
+    /**
+     * Number of bytes between two consecutive columns and between two consecutive rows.
+     */
+    private final int pixelStride, rowStride;
+
+    /**
+     * Creates a new buffer for a grid of the given size.
+     *
+     * @param data        The bytes of each bank, with the byte order already set.
+     * @param base        The position in bytes of the first value of each bank.
+     * @param width       Number of values in a row.
+     * @param height      Number of rows.
+     * @param pixelStride Number of bytes between two consecutive columns.
+     * @param rowStride   Number of bytes between two consecutive rows.
+     */
+    MappedGridBuffer(final ByteBuffer[] data, final int[] base, final int width, final int height,
+                     final int pixelStride, final int rowStride)
+    {
+        super(TYPE_FLOAT, width * height, data.length);
+        this.data        = data;
+        this.base        = base;
+        this.width       = width;
+        this.pixelStride = pixelStride;
+        this.rowStride   = rowStride;
+    }
+
+    /**
+     * Opens the given file for reading. If the file is on the local file system, it is mapped
+     * in memory. Otherwise (for example an entry in a JAR file), it is read fully in memory.
+     *
+     * @param  path The file to open, as a {@link File} or {@link URL}.
+     * @return The file content.
+     * @throws IOException If the file can not be read.
+     */
+    static ByteBuffer open(Object path) throws IOException {
+        if (path instanceof URL && "file".equalsIgnoreCase(((URL) path).getProtocol())) {
+            try {
+                path = new File(((URL) path).toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Not a plain file, will be read as a stream below.
+            }
+        }
+        if (path instanceof File) {
+            try (RandomAccessFile raf = new RandomAccessFile((File) path, "r")) {
+                final FileChannel channel = raf.getChannel();
+                // The mapping stay valid after the channel has been closed.
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+        try (InputStream in = IOUtilities.open(path)) {
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * Returns the position in bytes of the given value.
+     */
+    private int position(final int bank, final int i) {
+        return base[bank] + (i / width) * rowStride + (i % width) * pixelStride;
+    }
+
+    /**
+     * Returns the requested value as an integer.
+     */
+    @Override
+    public int getElem(final int bank, final int i) {
+        return (int) getElemFloat(bank, i);
+    }
+
+    /**
+     * Returns the requested value as a float.
+     */
+    @Override
+    public float getElemFloat(final int bank, final int i) {
+        return data[bank].getFloat(position(bank, i));
+    }
+
+    /**
+     * Returns the requested value as a double.
+     */
+    @Override
+    public double getElemDouble(final int bank, final int i) {
+        return data[bank].getFloat(position(bank, i));
+    }
+
+    /**
+     * Unsupported operation, since this buffer is read-only.
+     */
+    @Override
+    public void setElem(final int bank, final int i, final int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a copy of all values, one array for each bank. This method is invoked by
+     * reflection when a {@link GridTransform} backed by this buffer is serialized.
+     *
+     * @return A copy of the grid values.
+     */
+    public float[][] getBankData() {
+        final int size = getSize();
+        final float[][] banks = new float[getNumBanks()][size];
+        for (int b=0; b<banks.length; b++) {
+            final float[] bank = banks[b];
+            for (int i=0; i<size; i++) {
+                bank[i] = getElemFloat(b, i);
+            }
+        }
+        return banks;
+    }
+}
@@ -20,39 +20,42 @@ package org.geotoolkit.referencing.operation.transform;
 import java.util.Locale;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.concurrent.Callable;
 import java.awt.Dimension;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferFloat;
 import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteOrder;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
 
 import org.opengis.util.FactoryException;
 
 import org.geotoolkit.resources.Errors;
 import org.geotoolkit.resources.Descriptions;
 import org.geotoolkit.io.ContentFormatException;
-import org.geotoolkit.internal.io.IOUtilities;
 import org.geotoolkit.referencing.factory.NoSuchIdentifiedResource;
 
 import static org.geotoolkit.internal.io.Installation.NTv2;
 
 
 /**
- * Loaders of {@link NTV2Transform} data. This is a temporary object used only at loading time
- * and discarded once the transform is built.
+ * Loaders of {@link NTV2Transform} data. The grid file is memory-mapped when it is on the
+ * local file system, and the shift values are read from the mapped bytes only when needed.
+ * Loaders are cached by {@link GridLoader}, so the mapping is shared by all transform
+ * instances using the same file.
+ * <p>
+ * All sub-grids of the file are made available, organized in a hierarchy where the
+ * children of a sub-grid are denser grids covering a part of their parent.
  *
  * @author Simon Reynard (Geomatys)
  * @author Martin Desruisseaux (Geomatys)
- * @version 3.12
+ * @version 4.0-M2
  *
  * @since 3.12
  * @module
@@ -70,6 +73,11 @@ final class NTv2Loader extends GridLoader {
      */
     private static final int RECORD_LENGTH = 16;
 
+    /**
+     * The encoding of header keys and values.
+     */
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
     /**
      * The types of some know parameters. Parameters not in this list will be ignored.
      */
@@ -104,34 +112,132 @@ final class NTv2Loader extends GridLoader {
     /**
      * The header content. Keys are strings like {@code VERSION}, {@code SYSTEM_F},
      * <var>etc.</var>. Values are {@link String}, {@link Integer} or {@link Double}.
+     * This map contains the overview header followed by the header of the first sub-grid.
      */
     private final Map<String,Comparable<?>> header;
 
     /**
-     * The number of columns (width) and rows (height) in the grid.
+     * All sub-grids in the file, in the order they appear.
      */
-    private int width, height;
+    private SubGrid[] subGrids;
 
     /**
-     * The minimum longitude and latitude value covered by this grid (decimal degrees).
+     * The sub-grids which have no parent.
      */
-    private double xmin, ymin;
+    private SubGrid[] roots;
 
     /**
-     * The difference between longitude (dx) and latitude (dy) grid points (decimal degrees).
+     * A sub-grid of a NTv2 file. Bounds are in seconds of angle, with longitudes positive west
+     * as in the NTv2 file. The shift values are read from the file bytes when first needed.
      */
-    private double dx, dy;
+    static final class SubGrid {
+        /**
+         * The name of this sub-grid and the name of its parent, or {@code "NONE"} if none.
+         */
+        final String name, parent;
 
-    /**
-     * The latitude/longitude Shift and Precision (optional).
-     */
-    private float[] latitudeShift, longitudeShift, latitudePrecision, longitudePrecision;
+        /**
+         * The bounds of this sub-grid, in seconds of angle (longitudes positive west).
+         */
+        final double south, north, east, west;
 
-    /**
-     * The buffer, created from the {@link #longitudeShift} and {@link #latitudeShift}
-     * when first needed.
-     */
-    private transient DataBuffer buffer;
+        /**
+         * The difference between latitude (dy) and longitude (dx) grid points, in seconds.
+         */
+        final double dy, dx;
+
+        /**
+         * The number of columns (width) and rows (height) in the grid,
+         * and the number of records in the file.
+         */
+        final int width, height, count;
+
+        /**
+         * The grid values, read from the file bytes.
+         */
+        final DataBuffer data;
+
+        /**
+         * The sub-grids having this grid as their parent, or {@code null} if none.
+         */
+        SubGrid[] children;
+
+        /**
+         * The transform for this sub-grid, created when first needed.
+         */
+        private transient GridTransform2D transform;
+
+        /**
+         * Creates a sub-grid from the given header values.
+         */
+        SubGrid(final Map<String,Comparable<?>> header, final ByteBuffer buffer, final int dataStart,
+                final boolean loadPrecision) throws ContentFormatException
+        {
+            name   = getString (header, "SUB_NAME");
+            parent = getString (header, "PARENT");
+            south  = getDouble (header, "S_LAT");
+            north  = getDouble (header, "N_LAT");
+            east   = getDouble (header, "E_LONG");
+            west   = getDouble (header, "W_LONG");
+            dy     = getDouble (header, "LAT_INC");
+            dx     = getDouble (header, "LONG_INC");
+            width  = (int) Math.round((west  - east)  / dx) + 1;
+            height = (int) Math.round((north - south) / dy) + 1;
+            count  = getInteger(header, "GS_COUNT");
+            if (width * height > count) {
+                throw new ContentFormatException(Errors.format(Errors.Keys.MISMATCHED_ARRAY_LENGTH));
+            }
+            /*
+             * Each record contains the latitude shift, the longitude shift, the latitude
+             * precision and the longitude precision. Band 0 is the longitude shift.
+             */
+            final int[] base;
+            if (loadPrecision) {
+                base = new int[] {dataStart + 4, dataStart, dataStart + 12, dataStart + 8};
+            } else {
+                base = new int[] {dataStart + 4, dataStart};
+            }
+            final ByteBuffer[] banks = new ByteBuffer[base.length];
+            for (int i=0; i<banks.length; i++) {
+                banks[i] = buffer;
+            }
+            data = new MappedGridBuffer(banks, base, width, height, RECORD_LENGTH, width * RECORD_LENGTH);
+        }
+
+        /**
+         * Returns {@code true} if this sub-grid contains the given point,
+         * in seconds of angle with longitude positive west.
+         */
+        final boolean contains(final double longitude, final double latitude) {
+            return latitude >= south && latitude <= north && longitude >= east && longitude <= west;
+        }
+
+        /**
+         * Returns the grid dimension.
+         */
+        final Dimension getSize() {
+            return new Dimension(width, height);
+        }
+
+        /**
+         * Returns the geographic area covered by the grid, in decimal degrees
+         * with longitudes positive west.
+         */
+        final Rectangle2D getArea() {
+            return new Rectangle2D.Double(east / 3600, south / 3600, dx*width / 3600, dy*height / 3600);
+        }
+
+        /**
+         * Returns the transform for this sub-grid. The transform does not copy
+         * the grid values, so it is cheap to create.
+         */
+        final synchronized GridTransform2D getTransform() {
+            if (transform == null) {
+                transform = new GridTransform2D(GridType.NTv2, data, getSize(), getArea());
+            }
+            return transform;
+        }
+    }
 
     /**
      * Create a new loader
@@ -198,137 +304,144 @@ final class NTv2Loader extends GridLoader {
     }
 
     /**
-     * Loads the grid data.
+     * Reads the headers of all sub-grids. The shift values are not read,
+     * they will be fetched from the file bytes when needed.
      *
      * @param  loadPrecision {@code true} if the precision should also be loaded.
      * @throws IOException If there is an error reading the grid files.
      */
     private void load(final boolean loadPrecision) throws IOException {
-        try (ReadableByteChannel channel = Channels.newChannel(IOUtilities.open(latitudeGridFile))) {
-            /*
-             * Extracts the two first header records wich contain the length of the header.
-             * Note that the buffer need to be large enough for containing fully the header.
-             * The typical header length is 704 bytes.
-             *
-             * This code also tries to auto-detect the endieness.
-             */
-            final ByteBuffer buffer = ByteBuffer.allocate(4096);
-            buffer.limit(2*RECORD_LENGTH);
-            readFully(channel, buffer);
-            int numRecords = buffer.getInt(HEADER_KEY_LENGTH) + buffer.getInt(RECORD_LENGTH + HEADER_KEY_LENGTH);
-            buffer.order(ByteOrder.LITTLE_ENDIAN);
-            int altRecords = buffer.getInt(HEADER_KEY_LENGTH) + buffer.getInt(RECORD_LENGTH + HEADER_KEY_LENGTH);
-            if (altRecords < numRecords) {
-                numRecords = altRecords;
-                // Keep the little endian order.
-            } else {
-                // Restore the big original order.
-                buffer.order(ByteOrder.BIG_ENDIAN);
-            }
-            final int headerLimit = (numRecords - 2) * RECORD_LENGTH;
-            /*
-             * Initializes members with header's parameters values.
-             */
-            buffer.rewind().limit(headerLimit);
-            readFully(channel, buffer);
-            final byte[] array = buffer.array();
-            final Charset charset = Charset.forName("US-ASCII");
-            for (int i=0; i<headerLimit; i+=RECORD_LENGTH) {
-                String key = new String(array, i, HEADER_KEY_LENGTH, charset).trim().toUpperCase(Locale.US);
-                final Class<?> type = TYPES.get(key);
-                if (type != null) {
-                    final int p = i + HEADER_KEY_LENGTH;
-                    final Comparable<?> value;
-                    if (type.equals(Double.class)) {
-                        value = buffer.getDouble(p);
-                    } else if (type.equals(Integer.class)) {
-                        value = buffer.getInt(p);
-                    } else {
-                        value = new String(array, p, RECORD_LENGTH - HEADER_KEY_LENGTH, charset).trim();
-                    }
-                    key = key.intern(); // Same instance than the one in the TYPES map.
-                    header.put(key, value);
-                }
-            }
-            /*
-             * Get the bounding box in seconds of angle.
-             */
-            final double xmax, ymax;
-            ymin   = getDouble("S_LAT");
-            ymax   = getDouble("N_LAT");
-            xmin   = getDouble("E_LONG");
-            xmax   = getDouble("W_LONG");
-            dy     = getDouble("LAT_INC");
-            dx     = getDouble("LONG_INC");
-            width  = (int) Math.round((xmax - xmin) / dx) + 1;
-            height = (int) Math.round((ymax - ymin) / dy) + 1;
-            xmin /= 3600;
-            ymin /= 3600;
-            dx   /= 3600;
-            dy   /= 3600;
-            /*
-             * Initialize values tables.
-             */
-            final int count = getInteger("GS_COUNT");
-            latitudeShift  = new float[count];
-            longitudeShift = new float[count];
-            if (loadPrecision) {
-                latitudePrecision  = new float[count];
-                longitudePrecision = new float[count];
+        final ByteBuffer buffer = MappedGridBuffer.open(latitudeGridFile);
+        /*
+         * Extracts the two first header records wich contain the number of records in the
+         * overview header and in the sub-grid headers. This code also tries to auto-detect
+         * the endieness.
+         */
+        if (buffer.capacity() < 2*RECORD_LENGTH) {
+            throw new EOFException(Errors.format(Errors.Keys.END_OF_DATA_FILE));
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        int numOverview  = buffer.getInt(HEADER_KEY_LENGTH);
+        int numSubHeader = buffer.getInt(RECORD_LENGTH + HEADER_KEY_LENGTH);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        final int altOverview  = buffer.getInt(HEADER_KEY_LENGTH);
+        final int altSubHeader = buffer.getInt(RECORD_LENGTH + HEADER_KEY_LENGTH);
+        if (altOverview + altSubHeader < numOverview + numSubHeader) {
+            numOverview  = altOverview;
+            numSubHeader = altSubHeader;
+            // Keep the little endian order.
+        } else {
+            // Restore the big original order.
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        /*
+         * Reads the overview header, then the header of each sub-grid. The data of a sub-grid
+         * follows immediately its header.
+         */
+        int position = readHeader(buffer, 2*RECORD_LENGTH, numOverview - 2, header);
+        final int numFiles = Math.max(1, getInteger(header, "NUM_FILE"));
+        final List<SubGrid> grids = new ArrayList<>(numFiles);
+        final Map<String,SubGrid> byName = new HashMap<>();
+        for (int i=0; i<numFiles; i++) {
+            final Map<String,Comparable<?>> subHeader = (i == 0) ? header : new HashMap<String,Comparable<?>>();
+            position = readHeader(buffer, position, numSubHeader, subHeader);
+            final SubGrid grid = new SubGrid(subHeader, buffer, position, loadPrecision);
+            position += grid.count * RECORD_LENGTH;
+            if (position > buffer.capacity()) {
+                throw new EOFException(Errors.format(Errors.Keys.END_OF_DATA_FILE));
             }
-            /*
-             * At this point, the header is read. Now prepare a buffer for reading the records.
-             */
-            final int rowsPerBulk = buffer.capacity() / RECORD_LENGTH;
-            for (int index=0; index < count;) {
-                buffer.rewind().limit(Math.min(rowsPerBulk, count - index) * RECORD_LENGTH);
-                readFully(channel, buffer);
-                buffer.rewind();
-                while (buffer.hasRemaining()) {
-                    latitudeShift [index] = buffer.getFloat();
-                    longitudeShift[index] = buffer.getFloat();
-                    if (loadPrecision) {
-                        latitudePrecision [index] = buffer.getFloat();
-                        longitudePrecision[index] = buffer.getFloat();
-                    } else {
-                        buffer.position(buffer.position() + 2*(Float.SIZE / Byte.SIZE));
-                    }
-                    index++;
+            grids.add(grid);
+            byName.put(grid.name, grid);
+        }
+        /*
+         * Verify that the file ends with "END".
+         */
+        if (position + HEADER_KEY_LENGTH > buffer.capacity() || !"END".equals(readKey(buffer, position))) {
+            throw new IOException(Errors.format(Errors.Keys.FILE_HAS_TOO_MANY_DATA));
+        }
+        /*
+         * Build the hierarchy of sub-grids.
+         */
+        final List<SubGrid> rootList = new ArrayList<>();
+        final Map<SubGrid,List<SubGrid>> children = new HashMap<>();
+        for (final SubGrid grid : grids) {
+            final SubGrid parent = byName.get(grid.parent);
+            if (parent == null || parent == grid) {
+                rootList.add(grid);
+            } else {
+                List<SubGrid> list = children.get(parent);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    children.put(parent, list);
                 }
-            }
-            /*
-             * Verify that the file ends with "END".
-             */
-            buffer.rewind().limit(RECORD_LENGTH);
-            readFully(channel, buffer);
-            String key = new String(array, 0, HEADER_KEY_LENGTH, charset).trim().toUpperCase(Locale.US);
-            if (!key.equals("END")) {
-                throw new IOException(Errors.format(Errors.Keys.FILE_HAS_TOO_MANY_DATA));
+                list.add(grid);
             }
         }
+        for (final Map.Entry<SubGrid,List<SubGrid>> entry : children.entrySet()) {
+            final List<SubGrid> list = entry.getValue();
+            entry.getKey().children = list.toArray(new SubGrid[list.size()]);
+        }
+        subGrids = grids.toArray(new SubGrid[grids.size()]);
+        roots = rootList.toArray(new SubGrid[rootList.size()]);
     }
 
     /**
-     * Fills all remaining bytes in the given buffer from the given channel.
-     *
-     * @param  channel the channel to fill the buffer from.
-     * @param  buffer The buffer to fill.
-     * @throws IOException if there is a problem reading the channel.
+     * Returns the key of the record at the given position.
+     */
+    private static String readKey(final ByteBuffer buffer, final int position) {
+        final byte[] bytes = new byte[HEADER_KEY_LENGTH];
+        for (int i=0; i<HEADER_KEY_LENGTH; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, US_ASCII).trim().toUpperCase(Locale.US);
+    }
+
+    /**
+     * Reads the given number of header records starting at the given position, and stores
+     * the known parameters in the given map. Returns the position after the last record.
      */
-    private static void readFully(final ReadableByteChannel channel, final ByteBuffer buffer)
-            throws IOException
+    private static int readHeader(final ByteBuffer buffer, int position, final int numRecords,
+            final Map<String,Comparable<?>> target) throws EOFException
     {
-        while (buffer.hasRemaining()) {
-            if (channel.read(buffer) < 0) {
-                throw new EOFException(Errors.format(Errors.Keys.END_OF_DATA_FILE));
+        final int limit = position + numRecords * RECORD_LENGTH;
+        if (numRecords < 0 || limit > buffer.capacity()) {
+            throw new EOFException(Errors.format(Errors.Keys.END_OF_DATA_FILE));
+        }
+        for (; position < limit; position += RECORD_LENGTH) {
+            String key = readKey(buffer, position);
+            final Class<?> type = TYPES.get(key);
+            if (type != null) {
+                final int p = position + HEADER_KEY_LENGTH;
+                final Comparable<?> value;
+                if (type.equals(Double.class)) {
+                    value = buffer.getDouble(p);
+                } else if (type.equals(Integer.class)) {
+                    value = buffer.getInt(p);
+                } else {
+                    final byte[] bytes = new byte[RECORD_LENGTH - HEADER_KEY_LENGTH];
+                    for (int i=0; i<bytes.length; i++) {
+                        bytes[i] = buffer.get(p + i);
+                    }
+                    value = new String(bytes, US_ASCII).trim();
+                }
+                key = key.intern(); // Same instance than the one in the TYPES map.
+                target.put(key, value);
             }
         }
+        return limit;
     }
 
     /**
      * Returns the string value for the given key, or null if none.
      */
     final String getString(final String key) {
+        return getString(header, key);
+    }
+
+    /**
+     * Returns the string value for the given key in the given header, or null if none.
+     */
+    private static String getString(final Map<String,Comparable<?>> header, final String key) {
         final Comparable<?> value = header.get(key);
         return (value != null) ? value.toString() : null;
     }
@@ -337,7 +450,9 @@ final class NTv2Loader extends GridLoader {
      * Returns the double value for the given key, or thrown an exception if the
      * value is not found.
      */
-    private double getDouble(final String key) throws ContentFormatException {
+    private static double getDouble(final Map<String,Comparable<?>> header, final String key)
+            throws ContentFormatException
+    {
         final Comparable<?> value = header.get(key);
         if (value instanceof Number) {
             return ((Number) value).doubleValue();
@@ -349,7 +464,9 @@ final class NTv2Loader extends GridLoader {
      * Returns the integer value for the given key, or thrown an exception if the
      * value is not found.
      */
-    private int getInteger(final String key) throws ContentFormatException {
+    private static int getInteger(final Map<String,Comparable<?>> header, final String key)
+            throws ContentFormatException
+    {
         final Comparable<?> value = header.get(key);
         if (value instanceof Number) {
             return ((Number) value).intValue();
@@ -358,36 +475,40 @@ final class NTv2Loader extends GridLoader {
     }
 
     /**
-     * Return the grid dimension
+     * Returns the sub-grids which have no parent. The children of those sub-grids
+     * are available through the {@link SubGrid#children} field.
+     */
+    final SubGrid[] getRoots() {
+        return roots;
+    }
+
+    /**
+     * Returns {@code true} if the file contains more than one sub-grid.
+     */
+    final boolean isHierarchical() {
+        return subGrids.length > 1;
+    }
+
+    /**
+     * Return the dimension of the first sub-grid.
      *
      * @return Dimension
      */
     public final Dimension getSize() {
-        return new Dimension(width, height);
+        return subGrids[0].getSize();
     }
 
     /**
-     * Returns the geographic area covered by the grid.
+     * Returns the geographic area covered by the first sub-grid.
      */
     public final Rectangle2D getArea() {
-        return new Rectangle2D.Double(xmin, ymin, dx*width, dy*height);
+        return subGrids[0].getArea();
     }
 
     /**
-     * Creates and returns the data buffer.
+     * Returns the data buffer of the first sub-grid.
      */
-    public final synchronized DataBuffer getDataBuffer() {
-        if (buffer == null) {
-            final boolean hasPrecision = (latitudePrecision != null);
-            final float[][] buffers = new float[hasPrecision ? 4 : 2][];
-            if (hasPrecision) {
-                buffers[3] = latitudePrecision;
-                buffers[2] = longitudeShift;
-            }
-            buffers[1] = latitudeShift;
-            buffers[0] = longitudeShift;
-            buffer = new DataBufferFloat(buffers, width*height);
-        }
-        return buffer;
+    public final DataBuffer getDataBuffer() {
+        return subGrids[0].data;
     }
 }
@@ -23,6 +23,7 @@ import java.io.File;
 import org.opengis.util.FactoryException;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.parameter.ParameterDescriptorGroup;
+import org.opengis.referencing.operation.Matrix;
 
 import org.geotoolkit.resources.Errors;
 import org.geotoolkit.parameter.Parameters;
@@ -47,8 +48,16 @@ import static org.geotoolkit.referencing.operation.provider.NTv2.*;
  *        performs the sign reversal by itself, so inputs given to <code>NTv2Transform</code>
  *        have longitudes positive east.}
  *
+ * {@section Sub-grids}
+ *
+ * NTv2 files may contain many sub-grids, where denser grids cover a part of a parent grid.
+ * For each point, this transform uses the densest sub-grid containing that point. Points
+ * outside all sub-grids are extrapolated from the first sub-grid. The grid file is
+ * memory-mapped and shared by all transforms created for the same file, so only the
+ * cells around the transformed points are read.
+ *
  * @author Simon Reynard (Geomatys)
- * @version 3.12
+ * @version 4.0-M2
  *
  * @see <a href="http://www.killetsoft.de/p_trdn_e.htm">List of some NTv2 files</a>
  *
@@ -72,6 +81,12 @@ public class NTv2Transform extends GridTransform2D {
      */
     private final String gridFile;
 
+    /**
+     * The sub-grids which have no parent, or {@code null} if the file contains only one grid.
+     * This field is not serialized; a deserialized transform uses only the first sub-grid.
+     */
+    private final transient NTv2Loader.SubGrid[] roots;
+
     /**
      * Constructs a grid from the specified shift file. The argument may be a file path and name,
      * or just the file name. It is resolved as below:
@@ -110,6 +125,157 @@ public class NTv2Transform extends GridTransform2D {
             throw new FactoryException(Errors.format(Errors.Keys.ILLEGAL_PARAMETER_VALUE_2, "GS_TYPE", units));
         }
         gridFile  = (String) loader.latitudeGridFile;
+        roots     = loader.isHierarchical() ? loader.getRoots() : null;
+    }
+
+    /**
+     * Returns the transform of the densest sub-grid containing the given point,
+     * or {@code null} if none (in which case the first sub-grid shall be used).
+     *
+     * @param x The longitude in decimal degrees, positive east.
+     * @param y The latitude in decimal degrees.
+     */
+    private GridTransform2D select(final double x, final double y) {
+        final double longitude = -x * 3600; // NTv2 grids are in seconds, positive west.
+        final double latitude  =  y * 3600;
+        NTv2Loader.SubGrid[] candidates = roots;
+        NTv2Loader.SubGrid found = null;
+search: while (candidates != null) {
+            for (final NTv2Loader.SubGrid candidate : candidates) {
+                if (candidate.contains(longitude, latitude)) {
+                    found = candidate;
+                    candidates = candidate.children;
+                    continue search;
+                }
+            }
+            break;
+        }
+        return (found != null) ? found.getTransform() : null;
+    }
+
+    /**
+     * Transforms a single coordinate using the densest sub-grid containing that coordinate.
+     *
+     * @since 4.0-M2
+     */
+    @Override
+    public Matrix transform(final double[] srcPts, final int srcOff,
+                            final double[] dstPts, final int dstOff,
+                            final boolean derivate)
+    {
+        if (roots != null) {
+            final GridTransform2D grid = select(srcPts[srcOff], srcPts[srcOff+1]);
+            if (grid != null) {
+                return grid.transform(srcPts, srcOff, dstPts, dstOff, derivate);
+            }
+        }
+        return super.transform(srcPts, srcOff, dstPts, dstOff, derivate);
+    }
+
+    /**
+     * Transforms many coordinates using the densest sub-grid containing each coordinate.
+     *
+     * @since 4.0-M2
+     */
+    @Override
+    public void transform(final double[] srcPts, int srcOff,
+                          final double[] dstPts, int dstOff, int numPts)
+    {
+        if (roots == null) {
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            transform(null, srcPts, srcOff, null, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms many coordinates using the densest sub-grid containing each coordinate.
+     *
+     * @since 4.0-M2
+     */
+    @Override
+    public void transform(final float[] srcPts, int srcOff,
+                          final float[] dstPts, int dstOff, int numPts)
+    {
+        if (roots == null) {
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            transform(srcPts, null, srcOff, dstPts, null, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms many coordinates using the densest sub-grid containing each coordinate.
+     *
+     * @since 4.0-M2
+     */
+    @Override
+    public void transform(final double[] srcPts, int srcOff,
+                          final float [] dstPts, int dstOff, int numPts)
+    {
+        if (roots == null) {
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            transform(null, srcPts, srcOff, dstPts, null, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms many coordinates using the densest sub-grid containing each coordinate.
+     *
+     * @since 4.0-M2
+     */
+    @Override
+    public void transform(final float [] srcPts, int srcOff,
+                          final double[] dstPts, int dstOff, int numPts)
+    {
+        if (roots == null) {
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            transform(srcPts, null, srcOff, null, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Implementation of the transformation of many points in the hierarchical case.
+     * Since the source and target dimensions are the same, overlapping arrays are
+     * handled by iterating in descending order when the target is after the source.
+     * A single temporary point is allocated for the whole operation.
+     */
+    private void transform(final float[] srcPts1, final double[] srcPts2, int srcOff,
+                           final float[] dstPts1, final double[] dstPts2, int dstOff, int numPts)
+    {
+        int step = 0;
+        if (((srcPts2 != null) ? srcPts2 == dstPts2 : srcPts1 == dstPts1) && srcOff < dstOff) {
+            srcOff += (numPts - 1) * 2;
+            dstOff += (numPts - 1) * 2;
+            step = -4;
+        }
+        final double[] point = new double[2];
+        while (--numPts >= 0) {
+            if (srcPts2 != null) {
+                point[0] = srcPts2[srcOff++];
+                point[1] = srcPts2[srcOff++];
+            } else {
+                point[0] = srcPts1[srcOff++];
+                point[1] = srcPts1[srcOff++];
+            }
+            final GridTransform2D grid = select(point[0], point[1]);
+            if (grid != null) {
+                grid.transform(point, 0, point, 0, false);
+            } else {
+                super.transform(point, 0, point, 0, false);
+            }
+            if (dstPts2 != null) {
+                dstPts2[dstOff++] = point[0];
+                dstPts2[dstOff++] = point[1];
+            } else {
+                dstPts1[dstOff++] = (float) point[0];
+                dstPts1[dstOff++] = (float) point[1];
+            }
+            srcOff += step;
+            dstOff += step;
+        }
     }
 
     /**
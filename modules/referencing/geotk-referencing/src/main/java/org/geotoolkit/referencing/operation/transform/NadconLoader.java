@@ -20,8 +20,6 @@ package org.geotoolkit.referencing.operation.transform;
 import java.io.*;
 import java.nio.ByteOrder;
 import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
-import java.nio.channels.ReadableByteChannel;
 import java.util.concurrent.Callable;
 import java.util.StringTokenizer;
 import java.awt.image.DataBuffer;
@@ -37,7 +35,6 @@ import org.geotoolkit.resources.Descriptions;
 import org.geotoolkit.io.ContentFormatException;
 import org.geotoolkit.referencing.factory.NoSuchIdentifiedResource;
 
-import static java.nio.channels.Channels.newChannel;
 import static org.geotoolkit.internal.io.IOUtilities.*;
 import static org.geotoolkit.internal.io.Installation.NADCON;
 
@@ -47,7 +44,7 @@ import static org.geotoolkit.internal.io.Installation.NADCON;
  * object used only at loading time and discarded once the transform is built.
  *
  * @author Martin Desruisseaux (Geomatys)
- * @version 3.10
+ * @version 4.0-M2
  *
  * @since 3.00
  * @module
@@ -76,7 +73,8 @@ abstract class NadconLoader extends GridLoader {
     private float dx, dy;
 
     /**
-     * The longitude and latitude shifts.
+     * The longitude and latitude shifts, or {@code null} if the values are read
+     * from the file bytes.
      */
     float[] longitudeShift, latitudeShift;
 
@@ -222,9 +220,13 @@ abstract class NadconLoader extends GridLoader {
         dx     = (Float)   header[4];
         ymin   = (Float)   header[5];
         dy     = (Float)   header[6];
-        final int size = width * height;
-        latitudeShift  = new float[size];
-        longitudeShift = new float[size];
+    }
+
+    /**
+     * Sets the data buffer, for loaders which do not store the values in arrays.
+     */
+    final void setDataBuffer(final DataBuffer buffer) {
+        this.buffer = buffer;
     }
 
     /**
@@ -324,6 +326,9 @@ abstract class NadconLoader extends GridLoader {
                 throw new ContentFormatException(Errors.format(Errors.Keys.GRID_LOCATIONS_UNEQUAL));
             }
             NADCON(header);
+            final int size = width * height;
+            latitudeShift  = new float[size];
+            longitudeShift = new float[size];
             rx = false; read(latitudeReader,  latitudeShift);
             rx = true;  read(longitudeReader, longitudeShift);
         }
@@ -373,6 +378,9 @@ abstract class NadconLoader extends GridLoader {
      * (with the grid shift values) are all floats and have a 4 byte separator (0's) before the
      * data. Row records are organized from low <var>y</var> (latitude) to high and columns are
      * orderd from low longitude to high. Everything is written in low byte order.
+     * <p>
+     * The files are memory-mapped when they are on the local file system, and the values
+     * are read from the file bytes only when needed. The row separators are not verified.
      */
     private static final class Binary extends NadconLoader {
         /**
@@ -386,125 +394,70 @@ abstract class NadconLoader extends GridLoader {
         private static final int DESCRIPTION_LENGTH = 64;
 
         /**
-         * Fills all remaining bytes in the given buffer from the given channel.
+         * Returns the 8 numbers of the header of a binary file.
          *
-         * @param  channel the channel to fill the buffer from.
-         * @param  buffer The buffer to fill.
-         * @throws IOException if there is a problem reading the channel.
+         * @param  buffer The file content, in little endian byte order.
+         * @return The 8 numbers extracted from the header.
+         * @throws IOException if the file is shorter than the header.
          */
-        private static void readFully(final ReadableByteChannel channel, final ByteBuffer buffer)
-                throws IOException
-        {
-            while ((buffer.remaining() != 0)) {
-                if (channel.read(buffer) < 0) {
-                    throw new EOFException(Errors.format(Errors.Keys.END_OF_DATA_FILE));
-                }
+        private static Number[] readHeader(final ByteBuffer buffer) throws IOException {
+            if (buffer.capacity() < HEADER_LENGTH) {
+                throw new EOFException(Errors.format(Errors.Keys.END_OF_DATA_FILE));
             }
+            int p = DESCRIPTION_LENGTH; // Skip the header description.
+            return new Number[] {
+                Integer.valueOf(buffer.getInt  (p)),
+                Integer.valueOf(buffer.getInt  (p += 4)),
+                Integer.valueOf(buffer.getInt  (p += 4)),
+                Float  .valueOf(buffer.getFloat(p += 4)),
+                Float  .valueOf(buffer.getFloat(p += 4)),
+                Float  .valueOf(buffer.getFloat(p += 4)),
+                Float  .valueOf(buffer.getFloat(p += 4)),
+                Float  .valueOf(buffer.getFloat(p += 4)),
+            };
         }
 
         /**
-         * Reads the header of a binary file.
-         *
-         * @param  in The input stream.
-         * @return The 8 numbers extracted from the header.
-         * @throws IOException if the data files cannot be read.
+         * Verifies that the given file has the expected length.
          */
-        private static Number[] readHeader(final ReadableByteChannel in, final ByteBuffer buffer)
-                throws IOException
-        {
-            readFully(in, buffer);
-            buffer.position(DESCRIPTION_LENGTH); // Skip the header description.
-            return new Number[] {
-                Integer.valueOf(buffer.getInt()),
-                Integer.valueOf(buffer.getInt()),
-                Integer.valueOf(buffer.getInt()),
-                Float  .valueOf(buffer.getFloat()),
-                Float  .valueOf(buffer.getFloat()),
-                Float  .valueOf(buffer.getFloat()),
-                Float  .valueOf(buffer.getFloat()),
-                Float  .valueOf(buffer.getFloat()),
-            };
+        private static void checkLength(final ByteBuffer buffer, final int expected) throws IOException {
+            final int length = buffer.capacity();
+            if (length > expected) {
+                throw new IOException(Errors.format(Errors.Keys.FILE_HAS_TOO_MANY_DATA));
+            }
+            if (length < expected) {
+                throw new EOFException(Errors.format(Errors.Keys.FILE_HAS_TOO_FEW_DATA));
+            }
         }
 
         /**
-         * {@inheritDoc}
+         * Maps the files in memory (or read them fully if they are not on the local
+         * file system) and creates a data buffer which reads the values from the
+         * file bytes when needed.
          */
         @Override
         void load() throws IOException {
-            final ReadableByteChannel latitudeChannel, longitudeChannel;
-            rx = true; longitudeChannel = newChannel(open(longitudeGridFile));
-            rx = false; latitudeChannel = newChannel(open(latitudeGridFile));
-            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
-            buffer.order(ByteOrder.LITTLE_ENDIAN);
-            final Number[] header = readHeader(latitudeChannel, buffer);
+            rx = true;  final ByteBuffer longitudes = MappedGridBuffer.open(longitudeGridFile);
+            rx = false; final ByteBuffer latitudes  = MappedGridBuffer.open(latitudeGridFile);
+            latitudes .order(ByteOrder.LITTLE_ENDIAN);
+            longitudes.order(ByteOrder.LITTLE_ENDIAN);
+            final Number[] header = readHeader(latitudes);
             rx = true;
-            buffer.rewind();
-            if (!Arrays.equals(header, readHeader(longitudeChannel, buffer))) {
+            if (!Arrays.equals(header, readHeader(longitudes))) {
                 throw new ContentFormatException(Errors.format(Errors.Keys.GRID_LOCATIONS_UNEQUAL));
             }
             NADCON(header);
             /*
-             * At this point, the headers are read in both files and consistent. Now prepare a
-             * buffer for reading the records. This reader if long enough for at least one row,
-             * and may be long enough for many rows up to a maximum of 4 kb of memory used.
+             * The first record contains the header, padded to the record length. Each
+             * following record contains a 4 bytes separator followed by a row of values.
              */
             final int recordLength = (width + 1) * (Float.SIZE / Byte.SIZE);
-            final int rowsPerBulk  = Math.max(1, Math.min(height, 4096/recordLength));
-            buffer = ByteBuffer.allocateDirect(rowsPerBulk * recordLength);
-            buffer.order(ByteOrder.LITTLE_ENDIAN);
-            final FloatBuffer floats = buffer.asFloatBuffer();
-            /*
-             * Following loop is executed twice, once for latitudes and once for longitude.
-             * Before to read the data, we need to skip extra padding values after the header.
-             */
-            rx = false;
-            do {
-                final ReadableByteChannel channel;
-                final float[] grid;
-                if (rx) {
-                    channel = longitudeChannel;
-                    grid    = longitudeShift;
-                } else {
-                    channel = latitudeChannel;
-                    grid    = latitudeShift;
-                }
-                if (recordLength > HEADER_LENGTH) {
-                    buffer.rewind();
-                    buffer.limit(recordLength - HEADER_LENGTH);
-                    readFully(channel, buffer); // Discart those data.
-                }
-                buffer.clear();
-                int offset = 0;
-                int remaining = height;
-                while (remaining != 0) {
-                    int rowsToRead = rowsPerBulk;
-                    if (remaining < rowsToRead) {
-                        rowsToRead = remaining;
-                        buffer.limit(rowsToRead * recordLength);
-                    }
-                    readFully(channel, buffer);
-                    floats.rewind();
-                    for (int i=0; i<rowsToRead; i++) {
-                        final float check = floats.get();
-                        if (check != 0) {
-                            throw new ContentFormatException();
-                        }
-                        floats.get(grid, offset, width);
-                        offset += width;
-                    }
-                    remaining -= rowsToRead;
-                    buffer.rewind();
-                }
-                /*
-                 * To be strict, ensure that there is no additional data to read.
-                 */
-                buffer.limit(1);
-                final int r = channel.read(buffer);
-                channel.close();
-                if (r >= 0) {
-                    throw new IOException(Errors.format(Errors.Keys.FILE_HAS_TOO_MANY_DATA));
-                }
-            } while ((rx = !rx) == true);
+            final int firstValue = Math.max(recordLength, HEADER_LENGTH) + (Float.SIZE / Byte.SIZE);
+            final int expected = Math.max(recordLength, HEADER_LENGTH) + recordLength * height;
+            rx = false; checkLength(latitudes,  expected);
+            rx = true;  checkLength(longitudes, expected);
+            setDataBuffer(new MappedGridBuffer(new ByteBuffer[] {longitudes, latitudes},
+                    new int[] {firstValue, firstValue}, width, height, Float.SIZE / Byte.SIZE, recordLength));
         }
     }
 }
@@ -358,6 +358,29 @@ public final strictfp class CRS_Test extends ReferencingTestBase {
         }
     }
 
+    /**
+     * Tests the cache of math transforms. The transform of a pair of CRS is reused,
+     * and is still reused after more pairs than the cache strongly references have
+     * been requested, as long as the transform is in use.
+     *
+     * @throws FactoryException Should never happen.
+     *
+     * @since 4.0-M2
+     */
+    @Test
+    public void testTransformCache() throws FactoryException {
+        final CoordinateReferenceSystem WGS84  = CommonCRS.WGS84.normalizedGeographic();
+        final CoordinateReferenceSystem mapCRS = CRS.decode("EPSG:3395");
+        final MathTransform transform = CRS.findMathTransform(WGS84, mapCRS, true);
+        assertSame(transform, CRS.findMathTransform(WGS84, mapCRS, true));
+        for (int zone=1; zone<=60; zone++) {
+            final CoordinateReferenceSystem utm = CRS.decode("EPSG:" + (32600 + zone));
+            assertNotNull(CRS.findMathTransform(WGS84, utm, true));
+            assertNotNull(CRS.findMathTransform(utm, WGS84, true));
+        }
+        assertSame(transform, CRS.findMathTransform(WGS84, mapCRS, true));
+    }
+
     /**
      * Tests {@link CRS#deltaTransform}
      *
@@ -19,6 +19,8 @@ package org.geotoolkit.referencing;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.IllegalPathStateException;
@@ -51,7 +53,7 @@ import static java.lang.StrictMath.*;
  * @author Daniele Franzoni
  * @author Martin Desruisseaux (Geomatys)
  * @author Katrin Lasinger
- * @version 3.16
+ * @version 4.0-M2
  *
  * @since 2.1
  */
@@ -313,4 +315,50 @@ public final strictfp class GeodeticCalculatorTest extends ReferencingTestBase {
             it.next();
         }
     }
+
+    /**
+     * Tests the batch methods against the methods working on a single point.
+     *
+     * @throws InterruptedException Should never happen.
+     *
+     * @since 4.0-M2
+     */
+    @Test
+    public void testBatch() throws InterruptedException {
+        final double[] sources = {0, 0,  10, 45,  -120, 30,  170, -60};
+        final double[] targets = {5, 5,  -10, 40,  179, -61,  2, 89,  45, -20};
+        final GeodeticCalculator calculator = new GeodeticCalculator();
+        final double[] expected = new double[4 * 5];
+        for (int i=0; i<4; i++) {
+            for (int j=0; j<5; j++) {
+                calculator.setStartingGeographicPoint(sources[2*i], sources[2*i+1]);
+                calculator.setDestinationGeographicPoint(targets[2*j], targets[2*j+1]);
+                expected[i*5 + j] = calculator.getOrthodromicDistance();
+            }
+        }
+        assertArrayEquals(expected, calculator.computeDistanceMatrix(sources, targets, null), 0);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertArrayEquals(expected, calculator.computeDistanceMatrix(sources, targets, executor), 0);
+        } finally {
+            executor.shutdown();
+        }
+        /*
+         * Pairwise directions, then move back from the starting points.
+         */
+        final double[] distances = new double[4];
+        final double[] azimuths  = new double[4];
+        calculator.computeDirections(sources, 0, targets, 2, distances, azimuths, 0, 4);
+        for (int i=0; i<4; i++) {
+            calculator.setStartingGeographicPoint(sources[2*i], sources[2*i+1]);
+            calculator.setDestinationGeographicPoint(targets[2*i+2], targets[2*i+3]);
+            assertEquals(calculator.getOrthodromicDistance(), distances[i], 0);
+            assertEquals(calculator.getAzimuth(), azimuths[i], 0);
+        }
+        final double[] destinations = sources.clone();
+        calculator.computeDestinations(destinations, 0, azimuths, distances, 0, destinations, 0, 4);
+        for (int i=0; i<8; i++) {
+            assertEquals(targets[i+2], destinations[i], 1E-6);
+        }
+    }
 }
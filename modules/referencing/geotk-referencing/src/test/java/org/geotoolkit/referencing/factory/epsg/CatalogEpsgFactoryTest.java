@@ -0,0 +1,250 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.referencing.factory.epsg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.Collections;
+
+import org.opengis.util.FactoryException;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.ReferenceSystem;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+
+import org.apache.sis.metadata.iso.extent.DefaultExtent;
+import org.apache.sis.metadata.iso.extent.DefaultGeographicBoundingBox;
+import org.apache.sis.referencing.IdentifiedObjects;
+import org.apache.sis.util.iso.SimpleInternationalString;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.factory.AuthorityFactoryFinder;
+import org.geotoolkit.internal.referencing.EpsgCatalog;
+import org.geotoolkit.referencing.CRS;
+import org.geotoolkit.referencing.factory.FallbackAuthorityFactory;
+import org.geotoolkit.test.referencing.ReferencingTestBase;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static org.geotoolkit.referencing.Commons.*;
+
+
+/**
+ * Tests {@link CatalogEpsgFactory} and the {@link EpsgCatalog} file format.
+ *
+ * @author agent
+ * @version 4.0-M2
+ *
+ * @since 4.0-M2
+ */
+public final strictfp class CatalogEpsgFactoryTest extends ReferencingTestBase {
+    /**
+     * WGS 84 definition.
+     */
+    private static final String WGS84 =
+            "GEOGCS[\"WGS 84\", DATUM[\"World Geodetic System 1984\"," +
+            " SPHEROID[\"WGS 84\", 6378137.0, 298.257223563, AUTHORITY[\"EPSG\",\"7030\"]]," +
+            " AUTHORITY[\"EPSG\",\"6326\"]], PRIMEM[\"Greenwich\", 0.0, AUTHORITY[\"EPSG\",\"8901\"]]," +
+            " UNIT[\"degree\", 0.017453292519943295], AXIS[\"Geodetic latitude\", NORTH]," +
+            " AXIS[\"Geodetic longitude\", EAST], AUTHORITY[\"EPSG\",\"4326\"]]";
+
+    /**
+     * WGS 84 / UTM zone 31N definition.
+     */
+    private static final String UTM31 =
+            "PROJCS[\"WGS 84 / UTM zone 31N\", " + WGS84 + "," +
+            " PROJECTION[\"Transverse_Mercator\"], PARAMETER[\"central_meridian\", 3.0]," +
+            " PARAMETER[\"latitude_of_origin\", 0.0], PARAMETER[\"scale_factor\", 0.9996]," +
+            " PARAMETER[\"false_easting\", 500000.0], PARAMETER[\"false_northing\", 0.0]," +
+            " UNIT[\"m\", 1.0], AXIS[\"Easting\", EAST], AXIS[\"Northing\", NORTH]," +
+            " AUTHORITY[\"EPSG\",\"32631\"]]";
+
+    /**
+     * Writes a catalogue with two CRS and maps it.
+     */
+    private static Map<String,String> createCatalog() throws IOException {
+        final Map<Integer,String> definitions = new HashMap<>();
+        definitions.put(32631, UTM31);
+        definitions.put(4326, WGS84);
+        return createCatalog(definitions);
+    }
+
+    /**
+     * Writes a catalogue with the given records and maps it.
+     */
+    private static EpsgCatalog.Catalog createCatalog(final Map<Integer,String> definitions) throws IOException {
+        final File file = File.createTempFile("Catalog", ".bin");
+        file.deleteOnExit();
+        EpsgCatalog.write(definitions, file);
+        return EpsgCatalog.map(file);
+    }
+
+    /**
+     * Tests the catalogue map view.
+     *
+     * @throws IOException If the catalogue can not be written or read.
+     */
+    @Test
+    public void testCatalog() throws IOException {
+        final Map<String,String> catalog = createCatalog();
+        assertEquals(2, catalog.size());
+        assertEquals(WGS84, catalog.get("4326"));
+        assertEquals(UTM31, catalog.get("32631"));
+        assertNull(catalog.get("4327"));
+        assertNull(catalog.get("EPSG"));
+        assertTrue(catalog.containsKey("4326"));
+        assertArrayEquals(new String[] {"4326", "32631"}, catalog.keySet().toArray());
+
+        final Map<String,String> copy = new HashMap<>(catalog);
+        assertEquals(copy, catalog);
+
+        final File file = File.createTempFile("Catalog", ".bin");
+        file.deleteOnExit();
+        try {
+            EpsgCatalog.map(file);
+            fail("An empty file is not a catalogue.");
+        } catch (IOException e) {
+            // This is the expected exception.
+        }
+    }
+
+    /**
+     * Tests the creation of CRS from concurrent threads.
+     *
+     * @throws Exception If a CRS can not be created.
+     */
+    @Test
+    public void testCreate() throws Exception {
+        final CatalogEpsgFactory factory = new CatalogEpsgFactory(null, createCatalog());
+        final CoordinateReferenceSystem crs = factory.createCoordinateReferenceSystem("EPSG:4326");
+        assertTrue(crs instanceof GeographicCRS);
+        assertEquals("4326", IdentifiedObjects.getIdentifier(crs, null).getCode());
+        assertTrue(factory.createObject("32631") instanceof ProjectedCRS);
+        try {
+            factory.createCoordinateReferenceSystem("4327");
+            fail("Code 4327 is not in the catalogue.");
+        } catch (NoSuchAuthorityCodeException e) {
+            // This is the expected exception.
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<CoordinateReferenceSystem>> results = new ArrayList<>();
+            for (int i=0; i<40; i++) {
+                final String code = (i & 1) == 0 ? "4326" : "32631";
+                results.add(executor.submit(new Callable<CoordinateReferenceSystem>() {
+                    @Override
+                    public CoordinateReferenceSystem call() throws FactoryException {
+                        return factory.createCoordinateReferenceSystem(code);
+                    }
+                }));
+            }
+            for (int i=0; i<results.size(); i++) {
+                final CoordinateReferenceSystem result = results.get(i).get();
+                assertTrue(((i & 1) == 0) ? result instanceof GeographicCRS : result instanceof ProjectedCRS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the domain of validity, scope and remarks stored in the catalogue
+     * are given to the created CRS.
+     *
+     * @throws Exception If the catalogue can not be written or a CRS can not be created.
+     */
+    @Test
+    public void testDomainOfValidity() throws Exception {
+        final DefaultExtent domain = new DefaultExtent("World - N hemisphere - 0\u00B0E to 6\u00B0E",
+                new DefaultGeographicBoundingBox(0, 6, 0, 84), null, null);
+        final Map<Integer,String> definitions = new HashMap<>();
+        definitions.put(32631, EpsgCatalog.encode(UTM31, domain,
+                new SimpleInternationalString("Large and medium scale topographic mapping."), null));
+        definitions.put(4326, WGS84);
+        final EpsgCatalog.Catalog catalog = createCatalog(definitions);
+        assertEquals(UTM31, catalog.get("32631"));
+        assertEquals(2, catalog.getProperties("32631").size());
+        assertTrue(catalog.getProperties("4326").isEmpty());
+
+        final CatalogEpsgFactory factory = new CatalogEpsgFactory(null, catalog);
+        final CoordinateReferenceSystem crs = factory.createCoordinateReferenceSystem("EPSG:32631");
+        assertTrue(crs instanceof ProjectedCRS);
+        assertEquals("Large and medium scale topographic mapping.", ((ReferenceSystem) crs).getScope().toString());
+        assertEquals(domain.getDescription().toString(), crs.getDomainOfValidity().getDescription().toString());
+        final GeographicBoundingBox bbox = CRS.getGeographicBoundingBox(crs);
+        assertNotNull(bbox);
+        assertEquals( 0, bbox.getWestBoundLongitude(), 0);
+        assertEquals( 6, bbox.getEastBoundLongitude(), 0);
+        assertEquals( 0, bbox.getSouthBoundLatitude(), 0);
+        assertEquals(84, bbox.getNorthBoundLatitude(), 0);
+        assertNotNull(CRS.getEnvelope(crs));
+        assertNotNull(((ReferenceSystem) factory.createObject("32631")).getDomainOfValidity());
+        /*
+         * The metadata must not leak to the next objects parsed by the same thread.
+         */
+        assertNull(factory.createCoordinateReferenceSystem("4326").getDomainOfValidity());
+    }
+
+    /**
+     * Tests a catalogue compiled from the SQL factory, with the SQL factory as a fallback
+     * for the codes which are not in the catalogue.
+     *
+     * @throws Exception If the catalogue can not be written or a CRS can not be created.
+     */
+    @Test
+    public void testFallback() throws Exception {
+        assumeTrue(isEpsgFactoryAvailable());
+        final CRSAuthorityFactory sql = AuthorityFactoryFinder.getCRSAuthorityFactory("EPSG",
+                new Hints(Hints.CRS_AUTHORITY_FACTORY, ThreadedEpsgFactory.class));
+        final CoordinateReferenceSystem expected = sql.createCoordinateReferenceSystem("4326");
+        final CatalogEpsgFactory catalog = new CatalogEpsgFactory(null, createCatalog(
+                Collections.singletonMap(4326, EpsgCatalog.encode(expected.toWKT(), (ReferenceSystem) expected))));
+        final CRSAuthorityFactory factory = FallbackAuthorityFactory.create(CRSAuthorityFactory.class, catalog, sql);
+        /*
+         * Code in the catalogue: same CRS and same area of use than the SQL factory.
+         */
+        final CoordinateReferenceSystem crs = factory.createCoordinateReferenceSystem("4326");
+        assertTrue(CRS.equalsIgnoreMetadata(expected, crs));
+        assertEquals(CRS.getGeographicBoundingBox(expected), CRS.getGeographicBoundingBox(crs));
+        assertEquals(String.valueOf(((ReferenceSystem) expected).getScope()), String.valueOf(((ReferenceSystem) crs).getScope()));
+        /*
+         * Code not in the catalogue: created by the SQL factory.
+         */
+        try {
+            catalog.createCoordinateReferenceSystem("32631");
+            fail("Code 32631 is not in the catalogue.");
+        } catch (NoSuchAuthorityCodeException e) {
+            // This is the expected exception.
+        }
+        final CoordinateReferenceSystem utm = factory.createCoordinateReferenceSystem("32631");
+        assertTrue(utm instanceof ProjectedCRS);
+        assertNotNull(CRS.getGeographicBoundingBox(utm));
+    }
+}
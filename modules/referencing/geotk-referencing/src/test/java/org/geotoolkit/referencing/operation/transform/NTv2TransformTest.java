@@ -0,0 +1,158 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.referencing.operation.transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.opengis.util.FactoryException;
+import org.opengis.referencing.operation.TransformException;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link NTv2Transform} on a small file with a parent grid and a denser child grid.
+ *
+ * @author agent
+ * @version 4.0-M2
+ *
+ * @since 4.0-M2
+ */
+public final strictfp class NTv2TransformTest extends TransformTestBase {
+    /**
+     * Creates a new test suite.
+     */
+    public NTv2TransformTest() {
+        super(NTv2Transform.class, null);
+    }
+
+    /**
+     * Writes a header record.
+     */
+    private static void key(final ByteBuffer buffer, final String key) {
+        final byte[] bytes = key.getBytes(Charset.forName("US-ASCII"));
+        for (int i=0; i<8; i++) {
+            buffer.put(i < bytes.length ? bytes[i] : (byte) ' ');
+        }
+    }
+
+    private static void put(final ByteBuffer buffer, final String key, final int value) {
+        key(buffer, key); buffer.putInt(value).putInt(0);
+    }
+
+    private static void put(final ByteBuffer buffer, final String key, final double value) {
+        key(buffer, key); buffer.putDouble(value);
+    }
+
+    private static void put(final ByteBuffer buffer, final String key, final String value) {
+        key(buffer, key); key(buffer, value);
+    }
+
+    /**
+     * Writes a 3&times;3 sub-grid with constant shifts. Bounds are in seconds, positive west.
+     */
+    private static void subGrid(final ByteBuffer buffer, final String name, final String parent,
+            final double south, final double east, final double increment,
+            final float latShift, final float lonShift)
+    {
+        put(buffer, "SUB_NAME", name);
+        put(buffer, "PARENT",   parent);
+        put(buffer, "CREATED",  "2014");
+        put(buffer, "UPDATED",  "2014");
+        put(buffer, "S_LAT",    south);
+        put(buffer, "N_LAT",    south + 2*increment);
+        put(buffer, "E_LONG",   east);
+        put(buffer, "W_LONG",   east + 2*increment);
+        put(buffer, "LAT_INC",  increment);
+        put(buffer, "LONG_INC", increment);
+        put(buffer, "GS_COUNT", 9);
+        for (int i=0; i<9; i++) {
+            buffer.putFloat(latShift).putFloat(lonShift).putFloat(0).putFloat(0);
+        }
+    }
+
+    /**
+     * Creates a NTv2 file with a parent grid covering [0 … 2]° of longitude and latitude,
+     * and a child grid covering [0 … 1]° of longitude and [1 … 2]° of latitude.
+     */
+    private static File createGrid() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(16 * (11 + 2*(11 + 9) + 1));
+        put(buffer, "NUM_OREC", 11);
+        put(buffer, "NUM_SREC", 11);
+        put(buffer, "NUM_FILE", 2);
+        put(buffer, "GS_TYPE",  "SECONDS");
+        put(buffer, "VERSION",  "NTv2.0");
+        put(buffer, "SYSTEM_F", "TEST");
+        put(buffer, "SYSTEM_T", "TEST");
+        put(buffer, "MAJOR_F",  6378137.0);
+        put(buffer, "MINOR_F",  6356752.3);
+        put(buffer, "MAJOR_T",  6378137.0);
+        put(buffer, "MINOR_T",  6356752.3);
+        subGrid(buffer, "PARENT", "NONE",   0,    -7200, 3600, 1,  2);
+        subGrid(buffer, "CHILD",  "PARENT", 3600, -3600, 1800, 10, 20);
+        put(buffer, "END", 0);
+        final File file = File.createTempFile("grid", ".gsb");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+        return file;
+    }
+
+    /**
+     * Tests the selection of the densest sub-grid for single and bulk transformations.
+     *
+     * @throws IOException If the test file can not be written.
+     * @throws FactoryException Should never happen.
+     * @throws TransformException Should never happen.
+     */
+    @Test
+    public void testSubGrids() throws IOException, FactoryException, TransformException {
+        final File file = createGrid();
+        final NTv2Transform ntv2 = new NTv2Transform(file.getAbsolutePath());
+        final double[] expected = {
+            0.5 - 20.0/3600, 1.5 + 10.0/3600,   // In the child grid.
+            1.5 -  2.0/3600, 0.5 +  1.0/3600,   // In the parent grid only.
+        };
+        final double[] points = {0.5, 1.5, 1.5, 0.5};
+        final double[] result = new double[4];
+        ntv2.transform(points, 0, result, 0, 2);
+        assertArrayEquals(expected, result, 1E-9);
+
+        ntv2.transform(points, 2, result, 0, false);
+        assertEquals(expected[2], result[0], 1E-9);
+        assertEquals(expected[3], result[1], 1E-9);
+
+        final double[] overlap = {0, 0, 0.5, 1.5, 1.5, 0.5};
+        ntv2.transform(overlap, 2, overlap, 0, 2);
+        assertArrayEquals(expected, Arrays.copyOf(overlap, 4), 1E-9);
+
+        final float[] floats = new float[4];
+        ntv2.transform(points, 0, floats, 0, 2);
+        for (int i=0; i<4; i++) {
+            assertEquals(expected[i], floats[i], 1E-6);
+        }
+        assertSame("The grid shall be shared.", ntv2.grid,
+                new NTv2Transform(file.getAbsolutePath()).grid);
+    }
+}
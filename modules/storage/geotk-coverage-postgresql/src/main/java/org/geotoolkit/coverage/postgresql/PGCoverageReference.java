@@ -32,11 +32,11 @@ import java.util.*;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.measure.unit.Unit;
 import javax.swing.ProgressMonitor;
 import net.iharder.Base64;
@@ -327,6 +327,7 @@ public class PGCoverageReference extends AbstractPyramidalCoverageReference {
         final BlockingQueue queue = new ArrayBlockingQueue(Runtime.getRuntime().availableProcessors());
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(
                 0, Runtime.getRuntime().availableProcessors(), 1, TimeUnit.MINUTES, queue, rejectHandler);
+        final List<Future<?>> futures = new ArrayList<>();
 
         for(int y=startY; y<endY;y++){
             for(int x=startX;x<endX;x++){
@@ -337,22 +338,20 @@ public class PGCoverageReference extends AbstractPyramidalCoverageReference {
                 final int tx = offsetX+x;
                 final int ty = offsetY+y;
 
-                executor.submit(new Runnable() {
+                futures.add(executor.submit(new Callable<Object>() {
                     @Override
-                    public void run() {
-                        if (monitor != null && monitor.isCanceled()) {
-                            return;
-                        }
-                        try {
+                    public Object call() throws DataStoreException {
+                        if (monitor == null || !monitor.isCanceled()) {
                             writeTile(pyramidId, mosaicId, tx, ty, img);
-                        } catch (DataStoreException ex) {
-                            Logger.getLogger(PGCoverageReference.class.getName()).log(Level.SEVERE, null, ex);
                         }
+                        return null;
                     }
-                });
+                }));
 
             }
         }
+        executor.shutdown();
+        waitForTiles(futures);
     }
 
     /**
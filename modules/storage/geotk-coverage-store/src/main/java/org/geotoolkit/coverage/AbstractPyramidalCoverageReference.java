@@ -29,14 +29,16 @@ import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.imageio.ImageReader;
 import javax.swing.ProgressMonitor;
 import javax.xml.bind.annotation.XmlTransient;
@@ -205,6 +207,7 @@ public abstract class AbstractPyramidalCoverageReference extends AbstractCoverag
         final BlockingQueue queue = new ArrayBlockingQueue(Runtime.getRuntime().availableProcessors());
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(
                 0, Runtime.getRuntime().availableProcessors(), 1, TimeUnit.MINUTES, queue, rejectHandler);
+        final List<Future<?>> futures = new ArrayList<>();
 
         for(int y=startY; y<endY;y++){
             for(int x=startX;x<endX;x++){
@@ -215,22 +218,50 @@ public abstract class AbstractPyramidalCoverageReference extends AbstractCoverag
                 final int tx = offsetX+x;
                 final int ty = offsetY+y;
 
-                executor.submit(new Runnable() {
+                futures.add(executor.submit(new Callable<Object>() {
                     @Override
-                    public void run() {
-                        if (monitor != null && monitor.isCanceled()) {
-                            return;
-                        }
-
-                        try {
+                    public Object call() throws DataStoreException {
+                        if (monitor == null || !monitor.isCanceled()) {
                             writeTile(pyramidId, mosaicId, tx, ty, img);
-                        } catch (DataStoreException ex) {
-                            Logger.getLogger(AbstractPyramidalCoverageReference.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
                         }
+                        return null;
                     }
-                });
+                }));
+            }
+        }
+        executor.shutdown();
+        waitForTiles(futures);
+    }
+
+    /**
+     * Waits for the completion of all given tile writing tasks. All tasks are awaited even if
+     * one of them failed, so that the store is not modified anymore when this method returns.
+     *
+     * @param futures The tile writing tasks.
+     * @throws DataStoreException If at least one tile could not be written, or if the waiting
+     *         thread has been interrupted.
+     */
+    protected static void waitForTiles(final List<Future<?>> futures) throws DataStoreException {
+        DataStoreException failure = null;
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataStoreException("Interrupted while writing tiles.", ex);
+            } catch (ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+                if (failure == null) {
+                    failure = (cause instanceof DataStoreException) ? (DataStoreException) cause
+                            : new DataStoreException(cause.getMessage(), cause);
+                } else {
+                    failure.addSuppressed(cause);
+                }
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     @Override
@@ -22,6 +22,7 @@ import javax.imageio.ImageReader;
 import java.awt.*;
 import java.awt.image.*;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -69,6 +70,11 @@ public class GridMosaicRenderedImage implements RenderedImage {
      */
     private SampleModel sampleModel = null;
 
+    /**
+     * Sample values of the missing tiles for each band, or {@code null} for zero.
+     */
+    private double[] fillValues = null;
+
     /**
      * Constructor
      * @param mosaic the mosaic to read as a rendered image
@@ -136,6 +142,48 @@ public class GridMosaicRenderedImage implements RenderedImage {
         return this.mosaic;
     }
 
+    /**
+     * Sets the sample values to use for each band in the missing tiles of the mosaic.
+     * By default missing tiles are filled with zero.
+     *
+     * @param fillValues sample value of each band, or {@code null} for zero.
+     */
+    public void setFillValues(final double[] fillValues) {
+        this.fillValues = (fillValues != null) ? fillValues.clone() : null;
+        tileCache.clear();
+    }
+
+    /**
+     * Returns the sample values used for each band in the missing tiles of the mosaic.
+     *
+     * @return sample value of each band, or {@code null} for zero.
+     */
+    public double[] getFillValues() {
+        return (fillValues != null) ? fillValues.clone() : null;
+    }
+
+    /**
+     * Fills the given raster with the fill values, if any.
+     * The raster is expected to be cleared to zero.
+     */
+    private void fill(final WritableRaster raster) {
+        if (fillValues == null) {
+            return;
+        }
+        final int nbBand = Math.min(raster.getNumBands(), fillValues.length);
+        final int width  = raster.getWidth();
+        final int height = raster.getHeight();
+        final int minX   = raster.getMinX();
+        final int minY   = raster.getMinY();
+        for (int b = 0; b < nbBand; b++) {
+            final double[] row = new double[width];
+            Arrays.fill(row, fillValues[b]);
+            for (int y = 0; y < height; y++) {
+                raster.setSamples(minX, minY + y, width, 1, b, row);
+            }
+        }
+    }
+
     /**
      * 
      * @return 
@@ -276,7 +324,7 @@ public class GridMosaicRenderedImage implements RenderedImage {
      */
     @Override
     public int getTileHeight() {
-        return this.mosaic.getTileSize().width;
+        return this.mosaic.getTileSize().height;
     }
 
     /**
@@ -327,7 +375,8 @@ public class GridMosaicRenderedImage implements RenderedImage {
                     }
                 }
 
-                if(buffer==null){
+                final boolean missing = (buffer == null);
+                if(missing){
                     //create an empty buffer
                     buffer = getSampleModel().createDataBuffer();
                 }
@@ -337,7 +386,11 @@ public class GridMosaicRenderedImage implements RenderedImage {
                 final int rX = tileX*this.getTileWidth();
                 final int rY = tileY*this.getTileHeight();
 
-                raster = Raster.createWritableRaster(getSampleModel(), buffer, new Point(rX, rY));
+                final WritableRaster tileRaster = Raster.createWritableRaster(getSampleModel(), buffer, new Point(rX, rY));
+                if (missing) {
+                    fill(tileRaster);
+                }
+                raster = tileRaster;
 
                 this.tileCache.put(new Point(tileX, tileY), raster);
 
@@ -363,7 +416,7 @@ public class GridMosaicRenderedImage implements RenderedImage {
     @Override
     public Raster getData() {
         final RenderedImage firstTile = getFirstTile();
-        Raster rasterOut = null;
+        WritableRaster rasterOut = null;
         if (firstTile != null) {
             rasterOut = firstTile.getTile(0, 0).createCompatibleWritableRaster(getWidth(), getHeight());
 
@@ -373,6 +426,7 @@ public class GridMosaicRenderedImage implements RenderedImage {
                     rasterOut.getDataBuffer().setElem(b, s, 0);
                 }
             }
+            fill(rasterOut);
 
             try {
 
@@ -411,7 +465,7 @@ public class GridMosaicRenderedImage implements RenderedImage {
     @Override
     public Raster getData(Rectangle rect) {
         final RenderedImage firstTile = getFirstTile();
-        Raster rasterOut = null;
+        WritableRaster rasterOut = null;
         if (firstTile != null) {
             rasterOut = firstTile.getTile(0, 0).createCompatibleWritableRaster(rect.width, rect.height);
 
@@ -421,6 +475,7 @@ public class GridMosaicRenderedImage implements RenderedImage {
                     rasterOut.getDataBuffer().setElem(b, s, 0);
                 }
             }
+            fill(rasterOut);
 
             try {
                 final Point upperLeftPosition = this.getPositionOf(rect.x, rect.y);
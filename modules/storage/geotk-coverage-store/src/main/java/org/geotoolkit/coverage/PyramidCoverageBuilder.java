@@ -17,10 +17,28 @@
 package org.geotoolkit.coverage;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.swing.ProgressMonitor;
 import org.apache.sis.geometry.GeneralDirectPosition;
 import org.apache.sis.geometry.GeneralEnvelope;
@@ -109,6 +127,16 @@ import org.opengis.util.FactoryException;
  * In last time, call create method.<br/>
  * {@code pgcb.create(myGridCoverage, myCoverageStore, name, resolution_Per_Envelope, fillValue);}</p>
  *
+ * <p>Large pyramids building can be configured with :
+ * <ul>
+ *   <li>{@link #setCascaded(boolean) } : each level is resampled from the previous finer level
+ *   instead of the source coverage.</li>
+ *   <li>{@link #setExecutor(java.util.concurrent.ExecutorService) } : tiles are computed in parallel,
+ *   by batches of contiguous tiles written together.</li>
+ *   <li>{@link #setJournal(java.io.File) } : written tiles are recorded in a journal file,
+ *   an interrupted build restarted with the same journal only writes the remaining tiles.</li>
+ * </ul></p>
+ *
  * @author Rémi Marechal (Geomatys).
  * @author Quentin Boileau (Geomatys).
  */
@@ -124,6 +152,12 @@ public class PyramidCoverageBuilder {
      */
     private static final int MIN_TILE_SIZE = 64;
 
+    /**
+     * Maximum number of tiles computed and written together.
+     * It bounds the number of tiles kept in memory.
+     */
+    private static final int BATCH_SIZE = 32;
+
     /**
      * Tile width.
      */
@@ -151,6 +185,26 @@ public class PyramidCoverageBuilder {
      */
     private int niemeTile;
 
+    /**
+     * Build each level from the previous finer level.
+     */
+    private boolean cascaded = false;
+
+    /**
+     * Executor used to compute tiles, null to compute them in the calling thread.
+     */
+    private ExecutorService executor = null;
+
+    /**
+     * Resume journal file, can be null.
+     */
+    private File journalFile = null;
+
+    /**
+     * Opened resume journal, during pyramid creation.
+     */
+    private Journal journal = null;
+
     /**
      * Used for events.
      */
@@ -210,6 +264,66 @@ public class PyramidCoverageBuilder {
         this.lanczosWindow     = lanczosWindow;
     }
 
+    /**
+     * <p>Set the level building mode.<br/><br/>
+     *
+     * When cascaded, levels are built from the finest to the coarsest scale, the finest level
+     * is resampled from the source coverage and each following level is resampled from the
+     * previously written level. The source coverage is read only once for all levels.<br/>
+     * Otherwise, each level is resampled from the source coverage (default).</p>
+     *
+     * @param cascaded true to build each level from the previous one.
+     */
+    public void setCascaded(boolean cascaded) {
+        this.cascaded = cascaded;
+    }
+
+    /**
+     * @return true if each level is built from the previous one.
+     */
+    public boolean isCascaded() {
+        return cascaded;
+    }
+
+    /**
+     * Set executor used to compute tiles in parallel.
+     * Tiles are computed by batches of contiguous tiles, a batch is written when
+     * all its tiles are computed, so only one batch of tiles is kept in memory.
+     *
+     * @param executor executor used to compute tiles, {@code null} to compute them in the calling thread.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return executor used to compute tiles, can be {@code null}.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * <p>Set the resume journal file.<br/><br/>
+     *
+     * Each written tile is appended in the journal. When a pyramid creation is started
+     * with an existing journal, tiles recorded in it are not computed again, which
+     * allows to resume an interrupted creation. The journal must be deleted to rebuild
+     * a pyramid from scratch.</p>
+     *
+     * @param journal journal file, {@code null} to disable journal.
+     */
+    public void setJournal(File journal) {
+        this.journalFile = journal;
+    }
+
+    /**
+     * @return resume journal file, can be {@code null}.
+     */
+    public File getJournal() {
+        return journalFile;
+    }
+
     /**
      * <p>Effectuate resampling, re-projection, tile cutting and insertion in datastore on {@link GridCoverage}.<br/><br/>
      *
@@ -275,7 +389,8 @@ public class PyramidCoverageBuilder {
         }
         final PyramidalCoverageReference pm = (PyramidalCoverageReference) cv;
 
-
+        openJournal();
+        try {
         for (Envelope outEnv : resolution_Per_Envelope.keySet()) {
             final CoordinateReferenceSystem crs = outEnv.getCoordinateReferenceSystem();
             final int minOrdi0 = CoverageUtilities.getMinOrdinate(crs);
@@ -312,6 +427,9 @@ public class PyramidCoverageBuilder {
                 resample(pm, pyram.getId(), gridCoverage2D, resolution_Per_Envelope.get(outEnv), upperLeft, envDest, minOrdi0, minOrdi1, fillValue, processListener);
             }
         }
+        } finally {
+            closeJournal();
+        }
         if (processListener != null)  processListener.completed(new ProcessEvent(fakeProcess, "Pyramid coverage builder successfully submitted.", 100));
 
     }
@@ -370,6 +488,8 @@ public class PyramidCoverageBuilder {
         //Image
         fillValue = getFillValue((GridCoverage2D)gridCoverage, fillValue);
 
+        openJournal();
+        try {
         for (Envelope envDest : resolution_Per_Envelope.keySet()) {
             if (monitor != null && monitor.isCanceled()) {
                 final CancellationException ex = new CancellationException();
@@ -386,6 +506,9 @@ public class PyramidCoverageBuilder {
             final Pyramid pyram                 = getOrCreatePyramid(pm, crs);
             resample(pm, pyram.getId(), ((GridCoverage2D)gridCoverage), resolution_Per_Envelope.get(envDest), upperLeft, envDest, minOrdi0, minOrdi1, fillValue, processListener);
         }
+        } finally {
+            closeJournal();
+        }
         if (processListener != null)  processListener.completed(new ProcessEvent(fakeProcess, "Pyramid coverage builder successfully submitted.", 100));
     }
 
@@ -455,6 +578,8 @@ public class PyramidCoverageBuilder {
         }
         final PyramidalCoverageReference pm = (PyramidalCoverageReference) cv;
 
+        openJournal();
+        try {
         for (Envelope outEnv : resolution_Per_Envelope.keySet()) {
             final CoordinateReferenceSystem crs = outEnv.getCoordinateReferenceSystem();
             final int minOrdi0 = CoverageUtilities.getMinOrdinate(crs);
@@ -489,6 +614,9 @@ public class PyramidCoverageBuilder {
                 resample(pm, pyram.getId(), gridCoverage2D, resolution_Per_Envelope.get(outEnv), upperLeft, envDest, minOrdi0, minOrdi1, fillValue, processListener);
             }
         }
+        } finally {
+            closeJournal();
+        }
         if (processListener != null)  processListener.completed(new ProcessEvent(fakeProcess, "Pyramid coverage builder successfully submitted.", 100));
     }
 
@@ -538,8 +666,14 @@ public class PyramidCoverageBuilder {
         final GeneralEnvelope covEnvInDestCRS = CRS.transform(destCrs_to_coverageCRS.inverse(), covEnv);
         final GeneralEnvelope clipEnv   = ReferencingUtilities.intersectEnvelopes(covEnvInDestCRS, envDest);
         
+        //finest level first in cascaded mode
+        final double[] levels = scaleLevel.clone();
+        if (cascaded) Arrays.sort(levels);
+
+        GridMosaic previousMosaic = null;
+
         //one mosaic for each level scale
-        for (double pixelScal : scaleLevel) {
+        for (double pixelScal : levels) {
             //output image size
 
             final double imgWidth  = envWidth / pixelScal;
@@ -547,7 +681,6 @@ public class PyramidCoverageBuilder {
             final double sx     = envWidth  / imgWidth;
             final double sy     = envHeight / imgHeight;
             final MathTransform2D globalGridDest_to_crs = new AffineTransform2D(sx, 0, 0, -sy, min0, max1);
-//            final MathTransform covCRS_to_gridDest      = MathTransforms.concatenate(globalGridDest_to_crs, destCrs_to_coverageCRS).inverse();
 
             //mosaic size
             final int nbrTileX  = (int)Math.ceil(imgWidth/tileWidth);
@@ -565,29 +698,133 @@ public class PyramidCoverageBuilder {
             final GridMosaic mosaic = getOrCreateMosaic(pm, pyramidID, new Dimension(nbrTileX, nbrTileY), tileSize, upperLeft, pixelScal);
             final String mosaicId   = mosaic.getId();
 
-            final Interpolation interpolation = Interpolation.create(PixelIteratorFactory.createRowMajorIterator(baseImg), interpolationCase, lanczosWindow);
+            //source image, and transform from source pixel center to destination crs
+            final RenderedImage sourceImg;
+            final MathTransform sourceGrid_to_destCrs;
+            if (previousMosaic != null) {
+                //missing tiles of the previous level are outside the coverage, they hold fill values
+                final GridMosaicRenderedImage previousImg = new GridMosaicRenderedImage(previousMosaic);
+                previousImg.setFillValues(fill);
+                sourceImg = previousImg;
+                final double ps = previousMosaic.getScale();
+                sourceGrid_to_destCrs = new AffineTransform2D(ps, 0, 0, -ps, min0 + ps * 0.5, max1 - ps * 0.5);
+            } else {
+                sourceImg = baseImg;
+                sourceGrid_to_destCrs = destCrs_to_covGrid;
+            }
 
+            final List<TileTask> batch = new ArrayList<>();
             for (int cTY = startTileY; cTY < endTileY; cTY++) {
-                for (int cTX = startTileX; cTX < endTileX; cTX++) {
-                    final int destMinX  = cTX * tileWidth;
-                    final int destMinY  = cTY * tileHeight;
-                    final WritableRenderedImage destImg = BufferedImageUtilities.createImage(tileWidth, tileHeight, baseImg);
-                    //ensure fill value is set.
-                    ImageUtilities.fill(destImg, fill[0]);
-
-                    if (processListener != null) {
+                for (int cTX = startTileX; cTX <= endTileX; cTX++) {
+                    final boolean pending = cTX < endTileX
+                            && (journal == null || !journal.isWritten(pyramidID, mosaicId, cTX, cTY));
+                    if (pending) {
+                        final int destMinX  = cTX * tileWidth;
+                        final int destMinY  = cTY * tileHeight;
+                        //dest grid --> dest envelope coordinate --> source envelope --> source grid
+                        //concatene : dest grid_to_crs, dest_crs_to_source crs, source crs_to_grid
+                        final MathTransform2D gridDest_to_crs = new AffineTransform2D(sx, 0, 0, -sy, min0 + sx * (destMinX + 0.5), max1 - sy * (destMinY + 0.5)).inverse();
+                        final MathTransform mt                = MathTransforms.concatenate(sourceGrid_to_destCrs, gridDest_to_crs);
+                        batch.add(new TileTask(cTX, cTY, sourceImg, baseImg, mt.inverse(), fill));
+                    }
+                    //batches are made of contiguous tiles
+                    if (!batch.isEmpty() && (!pending || batch.size() == BATCH_SIZE)) {
+                        writeBatch(pm, pyramidID, mosaic, batch, processListener);
+                        batch.clear();
+                    }
+                    if (cTX < endTileX && !pending && processListener != null) {
+                        //already written tile
                         processListener.progressing(new ProcessEvent(fakeProcess, (++niemeTile)+"/"+globalTileNumber, (niemeTile * 100 / globalTileNumber)));
                     }
+                }
+            }
+
+            if (cascaded) previousMosaic = mosaic;
+        }
+    }
 
-                    //dest grid --> dest envelope coordinate --> base envelope --> base grid
-                    //concatene : dest grid_to_crs, dest_crs_to_coverageCRS, coverageCRS_to_grid coverage
-                    final MathTransform2D gridDest_to_crs = new AffineTransform2D(sx, 0, 0, -sy, min0 + sx * (destMinX + 0.5), max1 - sy * (destMinY + 0.5)).inverse();
-                    final MathTransform mt                = MathTransforms.concatenate(destCrs_to_covGrid, gridDest_to_crs);
+    /**
+     * Compute tiles of a batch, in parallel if an executor is set, then write them.
+     *
+     * @param pm {@code PyramidalModel} in which insert tiles.
+     * @param pyramidID ID of pyramid in which tiles are inserted.
+     * @param mosaic mosaic in which tiles are inserted.
+     * @param batch contiguous tiles of a same row.
+     * @param processListener listener to notify, can be null.
+     */
+    private void writeBatch(final PyramidalCoverageReference pm, final String pyramidID, final GridMosaic mosaic,
+            final List<TileTask> batch, final ProcessListener processListener) throws DataStoreException, TransformException {
+        final int nb = batch.size();
+        final WritableRenderedImage[] tiles = new WritableRenderedImage[nb];
 
-                    final Resample resample = new Resample(mt.inverse(), destImg, interpolation, fill);
-                    resample.fillImage();
-                    pm.writeTile(pyramidID, mosaicId, cTX, cTY, destImg);
+        if (executor == null) {
+            for (int i = 0; i < nb; i++) {
+                tiles[i] = batch.get(i).call();
+            }
+        } else {
+            final List<Future<WritableRenderedImage>> futures = new ArrayList<>(nb);
+            for (TileTask task : batch) {
+                futures.add(executor.submit(task));
+            }
+            try {
+                for (int i = 0; i < nb; i++) {
+                    tiles[i] = futures.get(i).get();
                 }
+            } catch (InterruptedException ex) {
+                for (Future f : futures) f.cancel(true);
+                throw new DataStoreException(ex.getMessage(), ex);
+            } catch (ExecutionException ex) {
+                for (Future f : futures) f.cancel(true);
+                final Throwable cause = ex.getCause();
+                if (cause instanceof TransformException) {
+                    throw (TransformException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new DataStoreException(cause.getMessage(), cause);
+            }
+        }
+
+        final TileTask first = batch.get(0);
+        if (nb == 1) {
+            pm.writeTile(pyramidID, mosaic.getId(), first.tileX, first.tileY, tiles[0]);
+        } else {
+            //write the batch at once, stores may write tiles in parallel and update their state once
+            final BatchImage image = new BatchImage(mosaic, first.tileX, first.tileY, tiles);
+            pm.writeTiles(pyramidID, mosaic.getId(), image, new Rectangle(first.tileX, first.tileY, nb, 1), false, null);
+        }
+
+        //tiles are journaled only once the store confirmed the writing, a failure aborts the batch
+        for (TileTask task : batch) {
+            if (journal != null) {
+                journal.written(pyramidID, mosaic.getId(), task.tileX, task.tileY);
+            }
+            if (processListener != null) {
+                processListener.progressing(new ProcessEvent(fakeProcess, (++niemeTile)+"/"+globalTileNumber, (niemeTile * 100 / globalTileNumber)));
+            }
+        }
+    }
+
+    private void openJournal() throws DataStoreException {
+        if (journalFile != null) {
+            try {
+                journal = new Journal(journalFile);
+            } catch (IOException ex) {
+                throw new DataStoreException("Pyramid journal can not be opened : "+journalFile, ex);
+            }
+        }
+    }
+
+    private void closeJournal() throws DataStoreException {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                throw new DataStoreException("Pyramid journal can not be closed : "+journalFile, ex);
+            } finally {
+                journal = null;
             }
         }
     }
@@ -695,4 +932,184 @@ public class PyramidCoverageBuilder {
         return pm.createMosaic(pyramidID, gridsize, tileSize, upperLeft, pixelScal);
     }
 
+    /**
+     * Resample a single tile.
+     */
+    private final class TileTask implements Callable<WritableRenderedImage> {
+
+        private final int tileX;
+        private final int tileY;
+        private final RenderedImage source;
+        private final RenderedImage model;
+        private final MathTransform destGrid_to_sourceGrid;
+        private final double[] fill;
+
+        private TileTask(int tileX, int tileY, RenderedImage source, RenderedImage model,
+                MathTransform destGrid_to_sourceGrid, double[] fill) {
+            this.tileX  = tileX;
+            this.tileY  = tileY;
+            this.source = source;
+            this.model  = model;
+            this.destGrid_to_sourceGrid = destGrid_to_sourceGrid;
+            this.fill   = fill;
+        }
+
+        @Override
+        public WritableRenderedImage call() throws TransformException {
+            final WritableRenderedImage destImg = BufferedImageUtilities.createImage(tileWidth, tileHeight, model);
+            //ensure fill value is set.
+            ImageUtilities.fill(destImg, fill[0]);
+            //interpolation iterators are not thread safe, one for each tile
+            final Interpolation interpolation = Interpolation.create(PixelIteratorFactory.createRowMajorIterator(source), interpolationCase, lanczosWindow);
+            final Resample resample = new Resample(destGrid_to_sourceGrid, destImg, interpolation, fill);
+            resample.fillImage();
+            return destImg;
+        }
+    }
+
+    /**
+     * Image on a mosaic grid, made of the tiles of a batch.
+     * Only batch tiles are available.
+     */
+    private static final class BatchImage extends AbstractRenderedImage {
+
+        private final GridMosaic mosaic;
+        private final int startX;
+        private final int row;
+        private final WritableRenderedImage[] tiles;
+
+        private BatchImage(GridMosaic mosaic, int startX, int row, WritableRenderedImage[] tiles) {
+            this.mosaic = mosaic;
+            this.startX = startX;
+            this.row    = row;
+            this.tiles  = tiles;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return tiles[0].getColorModel();
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return tiles[0].getSampleModel();
+        }
+
+        @Override
+        public int getWidth() {
+            return mosaic.getGridSize().width * getTileWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return mosaic.getGridSize().height * getTileHeight();
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return mosaic.getGridSize().width;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return mosaic.getGridSize().height;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return mosaic.getTileSize().width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return mosaic.getTileSize().height;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            final int index = tileX - startX;
+            if (tileY != row || index < 0 || index >= tiles.length) {
+                throw new IllegalArgumentException("Tile "+tileX+" "+tileY+" is not in batch.");
+            }
+            //stores expect tile rasters at origin
+            return tiles[index].getTile(0, 0);
+        }
+    }
+
+    /**
+     * Append only journal of written tiles, one line per tile.
+     * A line truncated by an interruption does not match any tile, the tile is written again.
+     */
+    private static final class Journal {
+
+        private final Set<String> written = new HashSet<>();
+        private final Writer writer;
+
+        private Journal(File file) throws IOException {
+            if (file.isFile()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(file), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        written.add(line);
+                    }
+                }
+            }
+            writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+        }
+
+        private static String key(String pyramidID, String mosaicId, int tileX, int tileY) {
+            return pyramidID + '\t' + mosaicId + '\t' + tileX + '\t' + tileY;
+        }
+
+        private boolean isWritten(String pyramidID, String mosaicId, int tileX, int tileY) {
+            return written.contains(key(pyramidID, mosaicId, tileX, tileY));
+        }
+
+        private void written(String pyramidID, String mosaicId, int tileX, int tileY) throws DataStoreException {
+            try {
+                //start with a new line, a previous interrupted line would corrupt this one
+                writer.write('\n');
+                writer.write(key(pyramidID, mosaicId, tileX, tileY));
+                writer.flush();
+            } catch (IOException ex) {
+                throw new DataStoreException(ex.getMessage(), ex);
+            }
+        }
+
+        private void close() throws IOException {
+            writer.close();
+        }
+    }
+
 }
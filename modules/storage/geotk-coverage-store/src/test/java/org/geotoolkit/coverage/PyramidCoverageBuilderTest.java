@@ -0,0 +1,255 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.coverage;
+
+import java.awt.Dimension;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.GridCoverageBuilder;
+import org.geotoolkit.coverage.memory.MPCoverageReference;
+import org.geotoolkit.coverage.memory.MPCoverageStore;
+import org.geotoolkit.feature.type.DefaultName;
+import org.geotoolkit.feature.type.Name;
+import org.geotoolkit.image.interpolation.InterpolationCase;
+import org.junit.Test;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.datum.PixelInCell;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link PyramidCoverageBuilder} cascaded, parallel and resumed creations.
+ *
+ * @author agent
+ */
+public class PyramidCoverageBuilderTest {
+
+    private static final Name NAME = new DefaultName("test");
+    private static final CoordinateReferenceSystem CRS84 = CommonCRS.WGS84.normalizedGeographic();
+    private static final Dimension TILE_SIZE = new Dimension(16, 16);
+    private static final double[] FILL = new double[]{7};
+
+    /**
+     * Creates a coverage of 40x64 pixels made of 8x8 blocks of constant value.
+     * Blocks are aligned on every pyramid level so that nearest neighbor interpolation
+     * gives the same result whatever the source level.
+     */
+    private static GridCoverage2D createCoverage() {
+        final BufferedImage image = new BufferedImage(40, 64, BufferedImage.TYPE_BYTE_GRAY);
+        final WritableRaster raster = image.getRaster();
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 40; x++) {
+                raster.setSample(x, y, 0, 10 + 3 * ((x / 8) + 5 * (y / 8)));
+            }
+        }
+        final GridCoverageBuilder gcb = new GridCoverageBuilder();
+        gcb.setGridToCRS(new AffineTransform(1, 0, 0, -1, 0, 64));
+        gcb.setCoordinateReferenceSystem(CRS84);
+        gcb.setPixelAnchor(PixelInCell.CELL_CORNER);
+        gcb.setRenderedImage(image);
+        return gcb.getGridCoverage2D();
+    }
+
+    /**
+     * The pyramid envelope is larger than the coverage, so coarse levels have tiles
+     * partially covered by the missing tiles of the finer levels.
+     */
+    private static Map<Envelope,double[]> createLevels() {
+        final GeneralEnvelope env = new GeneralEnvelope(CRS84);
+        env.setRange(0, 0, 128);
+        env.setRange(1, 0, 64);
+        return Collections.<Envelope,double[]>singletonMap(env, new double[]{1, 2, 4, 8});
+    }
+
+    private static PyramidalCoverageReference create(final PyramidCoverageBuilder builder, final CoverageStore store)
+            throws Exception {
+        builder.create(createCoverage(), store, NAME, createLevels(), FILL);
+        return (PyramidalCoverageReference) store.getCoverageReference(NAME);
+    }
+
+    /**
+     * Cascaded creation must give the same tiles than a direct creation,
+     * including the fill values read from missing tiles of the previous level.
+     */
+    @Test
+    public void testCascaded() throws Exception {
+        final PyramidCoverageBuilder direct = new PyramidCoverageBuilder(TILE_SIZE, InterpolationCase.NEIGHBOR, 2);
+        final PyramidalCoverageReference expected = create(direct, new MPCoverageStore());
+
+        final PyramidCoverageBuilder cascaded = new PyramidCoverageBuilder(TILE_SIZE, InterpolationCase.NEIGHBOR, 2);
+        cascaded.setCascaded(true);
+        final PyramidalCoverageReference result = create(cascaded, new MPCoverageStore());
+
+        assertSamePyramid(expected, result);
+    }
+
+    /**
+     * Tiles computed on an executor must be the same than tiles computed sequentially.
+     */
+    @Test
+    public void testParallel() throws Exception {
+        final PyramidCoverageBuilder serial = new PyramidCoverageBuilder(TILE_SIZE, InterpolationCase.NEIGHBOR, 2);
+        final PyramidalCoverageReference expected = create(serial, new MPCoverageStore());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final PyramidCoverageBuilder parallel = new PyramidCoverageBuilder(TILE_SIZE, InterpolationCase.NEIGHBOR, 2);
+            parallel.setExecutor(executor);
+            final PyramidalCoverageReference result = create(parallel, new MPCoverageStore());
+            assertSamePyramid(expected, result);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A failed tile must abort the creation without being journaled,
+     * then a second creation with the same journal completes the pyramid.
+     */
+    @Test
+    public void testResumeAfterFailure() throws Exception {
+        final PyramidCoverageBuilder direct = new PyramidCoverageBuilder(TILE_SIZE, InterpolationCase.NEIGHBOR, 2);
+        final PyramidalCoverageReference expected = create(direct, new MPCoverageStore());
+        final int nbTiles = countTiles(expected);
+
+        final File journal = File.createTempFile("pyramid", ".journal");
+        journal.deleteOnExit();
+        assertTrue(journal.delete());
+        try {
+            final FailingStore store = new FailingStore();
+            final PyramidCoverageBuilder builder = new PyramidCoverageBuilder(TILE_SIZE, InterpolationCase.NEIGHBOR, 2);
+            builder.setJournal(journal);
+            try {
+                create(builder, store);
+                fail("Tile writing failure should have been propagated.");
+            } catch (DataStoreException ex) {
+                //expected
+            }
+
+            store.reference.written.set(0);
+            final PyramidalCoverageReference result = create(builder, store);
+            assertSamePyramid(expected, result);
+            //first row of the first level has been journaled before the failure, it is not written again
+            assertEquals(nbTiles - 3, store.reference.written.get());
+        } finally {
+            journal.delete();
+        }
+    }
+
+    private static int countTiles(final PyramidalCoverageReference ref) throws DataStoreException {
+        int count = 0;
+        for (Pyramid pyramid : ref.getPyramidSet().getPyramids()) {
+            for (GridMosaic mosaic : pyramid.getMosaics()) {
+                final Dimension size = mosaic.getGridSize();
+                for (int y = 0; y < size.height; y++) {
+                    for (int x = 0; x < size.width; x++) {
+                        if (!mosaic.isMissing(x, y)) count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void assertSamePyramid(final PyramidalCoverageReference expected,
+            final PyramidalCoverageReference candidate) throws DataStoreException {
+        final Pyramid expPyramid = expected.getPyramidSet().getPyramids().iterator().next();
+        final Pyramid candPyramid = candidate.getPyramidSet().getPyramids().iterator().next();
+        assertEquals(expPyramid.getMosaics().size(), candPyramid.getMosaics().size());
+
+        for (GridMosaic expMosaic : expPyramid.getMosaics()) {
+            GridMosaic candMosaic = null;
+            for (GridMosaic m : candPyramid.getMosaics()) {
+                if (m.getScale() == expMosaic.getScale()) {
+                    candMosaic = m;
+                }
+            }
+            assertNotNull("Missing mosaic at scale " + expMosaic.getScale(), candMosaic);
+            assertEquals(expMosaic.getGridSize(), candMosaic.getGridSize());
+
+            final Dimension size = expMosaic.getGridSize();
+            for (int y = 0; y < size.height; y++) {
+                for (int x = 0; x < size.width; x++) {
+                    final String tile = "scale " + expMosaic.getScale() + " tile " + x + "," + y;
+                    assertEquals(tile, expMosaic.isMissing(x, y), candMosaic.isMissing(x, y));
+                    if (expMosaic.isMissing(x, y)) continue;
+                    final Raster expRaster = ((RenderedImage) expMosaic.getTile(x, y, null).getInput()).getData();
+                    final Raster candRaster = ((RenderedImage) candMosaic.getTile(x, y, null).getInput()).getData();
+                    for (int py = 0; py < expRaster.getHeight(); py++) {
+                        for (int px = 0; px < expRaster.getWidth(); px++) {
+                            assertEquals(tile + " pixel " + px + "," + py,
+                                    expRaster.getSampleDouble(expRaster.getMinX() + px, expRaster.getMinY() + py, 0),
+                                    candRaster.getSampleDouble(candRaster.getMinX() + px, candRaster.getMinY() + py, 0), 0.0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Memory store which fails once on the second tile of the second row.
+     */
+    private static final class FailingStore extends MPCoverageStore {
+
+        private FailingReference reference;
+
+        @Override
+        public CoverageReference create(final Name name) throws DataStoreException {
+            reference = new FailingReference(this, name);
+            getRootNode().getChildren().add(reference);
+            return reference;
+        }
+    }
+
+    private static final class FailingReference extends MPCoverageReference {
+
+        private final AtomicInteger written = new AtomicInteger();
+        private boolean failed;
+
+        private FailingReference(final MPCoverageStore store, final Name name) {
+            super(store, name);
+        }
+
+        @Override
+        public void writeTile(String pyramidId, String mosaicId, int tileX, int tileY, RenderedImage image)
+                throws DataStoreException {
+            synchronized (this) {
+                if (!failed && tileX == 1 && tileY == 1) {
+                    failed = true;
+                    throw new DataStoreException("Simulated tile writing failure.");
+                }
+            }
+            super.writeTile(pyramidId, mosaicId, tileX, tileY, image);
+            written.incrementAndGet();
+        }
+    }
+}
@@ -158,10 +158,15 @@ public class XMLCoverageReference extends AbstractPyramidalCoverageReference {
     }
     
     /**
-     * Save the coverage reference in the file
+     * Save the coverage reference in the file, after flushing the tile bundles.
      * @throws DataStoreException
      */
     synchronized void save() throws DataStoreException{
+        for (XMLPyramid pyramid : set.pyramids()) {
+            for (XMLMosaic mosaic : pyramid.mosaics()) {
+                mosaic.flushBundles();
+            }
+        }
         try {
             final MarshallerPool pool = getPoolInstance();
             final Marshaller marshaller = pool.acquireMarshaller();
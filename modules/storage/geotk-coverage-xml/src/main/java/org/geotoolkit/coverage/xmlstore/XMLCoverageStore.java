@@ -50,6 +50,7 @@ public class XMLCoverageStore extends AbstractCoverageStore {
     private final DataNode rootNode = new DefaultDataNode();
 
     final boolean cacheTileState;
+    final boolean tileBundle;
 
     public XMLCoverageStore(File root) throws URISyntaxException, MalformedURLException {
         this(toParameters(root));
@@ -65,6 +66,8 @@ public class XMLCoverageStore extends AbstractCoverageStore {
         root = new File(rootPath.toURI());
         Boolean tmpCacheState = Parameters.value(XMLCoverageStoreFactory.CACHE_TILE_STATE, params);
         cacheTileState = (tmpCacheState == null)? false : tmpCacheState;
+        Boolean tmpTileBundle = Parameters.value(XMLCoverageStoreFactory.TILE_BUNDLE, params);
+        tileBundle = (tmpTileBundle == null)? false : tmpTileBundle;
         explore();
     }
 
@@ -67,6 +67,11 @@ public class XMLCoverageStoreFactory extends AbstractCoverageStoreFactory {
      */
     public static final ParameterDescriptor<Boolean> CACHE_TILE_STATE;
 
+    /**
+     * A parameter to specify if tiles of new mosaics are stored in bundle files instead of one file per tile.
+     */
+    public static final ParameterDescriptor<Boolean> TILE_BUNDLE;
+
     public static final ParameterDescriptorGroup PARAMETERS_DESCRIPTOR;
     static {
         ParameterBuilder builder = new ParameterBuilder();
@@ -76,7 +81,10 @@ public class XMLCoverageStoreFactory extends AbstractCoverageStoreFactory {
         CACHE_TILE_STATE = builder.addName("cacheTileState")
                 .setRemarks(new ResourceInternationalString("org/geotoolkit/coverage/xmlstore/bundle", "coverageXMLTileStateRemarks"))
                 .setRequired(false).create(Boolean.class, false);
-        PARAMETERS_DESCRIPTOR = builder.addName("XMLCoverageStoreParameters").createGroup(IDENTIFIER, PATH, NAMESPACE, CACHE_TILE_STATE);
+        TILE_BUNDLE = builder.addName("tileBundle")
+                .setRemarks(new ResourceInternationalString("org/geotoolkit/coverage/xmlstore/bundle", "coverageXMLTileBundleRemarks"))
+                .setRequired(false).create(Boolean.class, false);
+        PARAMETERS_DESCRIPTOR = builder.addName("XMLCoverageStoreParameters").createGroup(IDENTIFIER, PATH, NAMESPACE, CACHE_TILE_STATE, TILE_BUNDLE);
     }
 
     @Override
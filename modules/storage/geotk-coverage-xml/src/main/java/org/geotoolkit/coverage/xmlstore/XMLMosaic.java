@@ -109,6 +109,31 @@ public class XMLMosaic implements GridMosaic {
 
     @XmlElement
     Boolean cacheTileState;
+    /**
+     * Number of tiles on each axis of a tile bundle, null if each tile is stored in its own file.
+     * When tiles are stored in bundles, tile states are stored in the bundle indexes.
+     */
+    @XmlElement
+    Integer bundleSize;
+
+    /** Opened tile bundles, used only if tiles are stored in bundles. */
+    private final Cache<Point, XMLTileBundle> bundles = new Cache<>(16, 16, false);
+    /** Bundles written since last flush, strongly referenced until their index is written. */
+    private final Set<XMLTileBundle> openBundles =
+            Collections.newSetFromMap(new ConcurrentHashMap<XMLTileBundle, Boolean>());
+    /** Bundles with an open read channel, the least recently read one is released beyond 16 bundles. */
+    private final Map<XMLTileBundle, Boolean> readBundles = new LinkedHashMap<XMLTileBundle, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<XMLTileBundle, Boolean> eldest) {
+            if (size() <= 16) return false;
+            try {
+                eldest.getKey().closeReader();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+            }
+            return true;
+        }
+    };
 
     File folder;
     
@@ -132,6 +157,18 @@ public class XMLMosaic implements GridMosaic {
             }
         }
 
+        if (isBundled()) {
+            // tile states are stored in bundle indexes
+            bitsetLock.writeLock().lock();
+            try {
+                tileExist = null;
+                tileEmpty = null;
+            } finally {
+                bitsetLock.writeLock().unlock();
+            }
+            return;
+        }
+
         bitsetLock.writeLock().lock();
         try {
             if (existMask != null && !existMask.isEmpty()) {
@@ -205,6 +242,89 @@ public class XMLMosaic implements GridMosaic {
         return emptyTileEncoded;
     }
 
+    /**
+     * @return true if tiles are stored in bundle files
+     */
+    boolean isBundled() {
+        return bundleSize != null && bundleSize > 0;
+    }
+
+    /**
+     * Get the bundle containing given tile.
+     */
+    private XMLTileBundle getBundle(final int col, final int row) throws DataStoreException {
+        final Point key = new Point(col / bundleSize, row / bundleSize);
+        try {
+            return bundles.getOrCreate(key, new Callable<XMLTileBundle>() {
+                @Override
+                public XMLTileBundle call() {
+                    return new XMLTileBundle(new File(getFolder(), key.y+"_"+key.x+XMLTileBundle.SUFFIX),
+                            Math.min(bundleSize, gridWidth), Math.min(bundleSize, gridHeight));
+                }
+            });
+        } catch (Exception ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return index of the tile in its bundle
+     */
+    private int getBundleIndex(final int col, final int row) {
+        return (row % bundleSize) * Math.min(bundleSize, gridWidth) + (col % bundleSize);
+    }
+
+    private int getBundleState(final int col, final int row) throws DataStoreException {
+        checkPosition(col, row);
+        try {
+            return getBundle(col, row).getState(getBundleIndex(col, row));
+        } catch (IOException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Store an encoded tile, or mark it as empty if data is null.
+     */
+    private void writeBundleTile(final int col, final int row, final byte[] data) throws DataStoreException {
+        checkPosition(col, row);
+        final XMLTileBundle bundle = getBundle(col, row);
+        try {
+            if (data == null) {
+                bundle.writeEmpty(getBundleIndex(col, row));
+            } else {
+                bundle.write(getBundleIndex(col, row), data);
+            }
+        } catch (IOException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+        openBundles.add(bundle);
+    }
+
+    /**
+     * Write the index of the bundles written since last flush and release their files.
+     * Does nothing if tiles are not stored in bundles.
+     */
+    void flushBundles() throws DataStoreException {
+        DataStoreException failure = null;
+        for (final Iterator<XMLTileBundle> ite = openBundles.iterator(); ite.hasNext();) {
+            final XMLTileBundle bundle = ite.next();
+            ite.remove();
+            try {
+                bundle.close();
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = new DataStoreException(ex.getMessage(), ex);
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     private static String updateCompletionString(BitSet input) {
         return Base64.encodeBytes(input.toByteArray());
     }
@@ -302,6 +422,16 @@ public class XMLMosaic implements GridMosaic {
 
     @Override
     public boolean isMissing(int col, int row) throws PointOutsideCoverageException {
+        if (isBundled()) {
+            try {
+                return getBundleState(col, row) == XMLTileBundle.MISSING;
+            } catch (PointOutsideCoverageException e) {
+                throw e;
+            } catch (DataStoreException e) {
+                LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+                return true;
+            }
+        }
         bitsetLock.readLock().lock();
         try {
             if (tileExist == null || tileExist.isEmpty()) {
@@ -327,7 +457,10 @@ public class XMLMosaic implements GridMosaic {
         }
     }
 
-    private boolean isEmpty(int col, int row){
+    private boolean isEmpty(int col, int row) throws DataStoreException {
+        if (isBundled()) {
+            return getBundleState(col, row) == XMLTileBundle.EMPTY;
+        }
         bitsetLock.readLock().lock();
         try {
             if (tileEmpty == null || tileEmpty.isEmpty()) {
@@ -354,6 +487,22 @@ public class XMLMosaic implements GridMosaic {
             } catch (IOException ex) {
                 throw new DataStoreException(ex);
             }
+        } else if (isBundled()) {
+            checkPosition(col, row);
+            try {
+                final XMLTileBundle bundle = getBundle(col, row);
+                final byte[] data = bundle.read(getBundleIndex(col, row));
+                synchronized (readBundles) {
+                    readBundles.put(bundle, Boolean.TRUE);
+                }
+                if (data == null) {
+                    throw new DataStoreException("Missing tile : " + col + " " + row);
+                }
+                tile = new DefaultTileReference(getPyramid().getPyramidSet().getReaderSpi(),
+                        ImageIO.createImageInputStream(new ByteArrayInputStream(data)), 0, new Point(col, row));
+            } catch (IOException ex) {
+                throw new DataStoreException(ex);
+            }
         } else {
             tile = new DefaultTileReference(getPyramid().getPyramidSet().getReaderSpi(),
                     getTileFile(col, row), 0, new Point(col, row));
@@ -367,6 +516,9 @@ public class XMLMosaic implements GridMosaic {
      */
     @Override
     public Rectangle getDataArea() {
+        if (isBundled()) {
+            return getBundledDataArea();
+        }
         final File folder = getFolder();
         final String[] tileFiles = folder.list();
         if (tileFiles != null && tileFiles.length > 0) {
@@ -390,6 +542,38 @@ public class XMLMosaic implements GridMosaic {
         return null;
     }
 
+    private Rectangle getBundledDataArea() {
+        final String[] bundleFiles = getFolder().list();
+        if (bundleFiles == null) {
+            return null;
+        }
+        Rectangle area = null;
+        for (String bundleFile : bundleFiles) {
+            if (!bundleFile.endsWith(XMLTileBundle.SUFFIX)) continue;
+            final Point block = parsePosition(bundleFile);
+            final Rectangle bundleArea;
+            try {
+                bundleArea = getBundle(block.x*bundleSize, block.y*bundleSize).getTileArea();
+            } catch (IOException | DataStoreException ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+                continue;
+            }
+            if (bundleArea == null) continue;
+            bundleArea.translate(block.x*bundleSize, block.y*bundleSize);
+            if (area == null) {
+                area = bundleArea;
+            } else {
+                area.add(bundleArea);
+            }
+        }
+        if (area != null) {
+            // same convention as tile files : width and height are the difference between last and first tiles
+            area.width--;
+            area.height--;
+        }
+        return area;
+    }
+
     private Point parsePosition(String tileFile) {
         int start = tileFile.lastIndexOf('/') + 1;
         String posStr = tileFile.substring(start, tileFile.lastIndexOf('.'));
@@ -421,6 +605,7 @@ public class XMLMosaic implements GridMosaic {
         try {
             writer = acquireImageWriter();
             createTile(col, row, image, writer);
+            flushBundles();
         } catch (IOException ex) {
             throw new DataStoreException(ex.getMessage(), ex);
         } finally {
@@ -431,6 +616,10 @@ public class XMLMosaic implements GridMosaic {
     }
 
     void createTile(final int col, final int row, final RenderedImage image, final ImageWriter writer) throws DataStoreException {
+        if (isBundled()) {
+            writeBundleTile(col, row, isEmpty(image.getData()) ? null : encode(image, writer));
+            return;
+        }
         // No empty tile with cached tile state.
         if (tileExist != null && isEmpty(image.getData())) {
             bitsetLock.writeLock().lock();
@@ -486,6 +675,26 @@ public class XMLMosaic implements GridMosaic {
         }
     }
 
+    /**
+     * Encode image in memory, used to write tiles in bundles.
+     */
+    private static byte[] encode(final RenderedImage image, final ImageWriter writer) throws DataStoreException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            final ImageOutputStream out = ImageIO.createImageOutputStream(buffer);
+            try {
+                writer.setOutput(out);
+                writer.write(image);
+            } finally {
+                writer.setOutput(null);
+                out.close();
+            }
+        } catch (IOException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+        return buffer.toByteArray();
+    }
+
     void writeTiles(final RenderedImage image, final Rectangle area, final boolean onlyMissing, final ProgressMonitor monitor) throws DataStoreException{
 
         final int startX = (int)area.getMinX();
@@ -499,11 +708,11 @@ public class XMLMosaic implements GridMosaic {
         assert endY > startY && endY <= image.getNumYTiles();
 
         final List<Future> futurs = new ArrayList<>();
-        for(int y=startY; y < endY; y++){
+submit: for(int y=startY; y < endY; y++){
             for(int x=startX; x < endX; x++){
                 if (monitor != null && monitor.isCanceled()) {
-                    // Stops submitting new thread
-                    return;
+                    // Stops submitting new thread, but still waits for the submitted ones.
+                    break submit;
                 }
 
                 if(onlyMissing && !isMissing(x, y)){
@@ -513,22 +722,52 @@ public class XMLMosaic implements GridMosaic {
                 final int tileIndex = getTileIndex(x, y);
                 checkPosition(x, y);
 
-                final File f = getTileFile(x, y);
-                f.getParentFile().mkdirs();
+                final File f;
+                if (isBundled()) {
+                    // tile is written in its bundle
+                    f = null;
+                } else {
+                    f = getTileFile(x, y);
+                    f.getParentFile().mkdirs();
+                }
                 Future fut = TILEWRITEREXECUTOR.submit(new TileWriter(f, image, x, y, tileIndex, image.getColorModel(), getPyramid().getPyramidSet().getFormatName(), monitor));
                 futurs.add(fut);
             }
         }
 
-        //wait for all writing tobe done
+        //wait for all writing to be done, then report the first failure if any
+        DataStoreException failure = null;
         for (Future f : futurs) {
             try {
                 f.get();
-            } catch (InterruptedException | ExecutionException ex) {
-                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataStoreException("Interrupted while writing tiles.", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException && cause.getCause() != null) {
+                    cause = cause.getCause(); // Unwrap the exception thrown by TileWriter.
+                }
+                if (failure == null) {
+                    failure = (cause instanceof DataStoreException) ? (DataStoreException) cause
+                            : new DataStoreException(cause.getMessage(), cause);
+                } else {
+                    failure.addSuppressed(cause);
+                }
             }
         }
-
+        try {
+            flushBundles();
+        } catch (DataStoreException ex) {
+            if (failure == null) {
+                failure = ex;
+            } else {
+                failure.addSuppressed(ex);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     private void checkPosition(int col, int row) throws PointOutsideCoverageException {
@@ -619,6 +858,7 @@ public class XMLMosaic implements GridMosaic {
 
     private class TileWriter implements Runnable{
 
+        /** Tile file, null if tile is written in a bundle. */
         private final File f;
         private final RenderedImage image;
         private final int idx;
@@ -629,7 +869,6 @@ public class XMLMosaic implements GridMosaic {
         private final ProgressMonitor monitor;
 
         public TileWriter(File f, RenderedImage image, int idx, int idy, int tileIndex, ColorModel cm, String formatName, ProgressMonitor monitor) {
-            ArgumentChecks.ensureNonNull("file", f);
             ArgumentChecks.ensureNonNull("image", image);
             this.f = f;
             this.image = image;
@@ -657,6 +896,10 @@ public class XMLMosaic implements GridMosaic {
                 Raster raster = image.getTile(offsetX+idx, offsetY+idy);
 
                 //check if image is empty
+                if (f == null && (raster == null || isEmpty(raster))) {
+                    writeBundleTile(idx, idy, null);
+                    return;
+                }
                 if (tileEmpty != null && (raster == null || isEmpty(raster))) {
 
                     bitsetLock.writeLock().lock();
@@ -672,10 +915,18 @@ public class XMLMosaic implements GridMosaic {
                 writer = ImageIO.getImageWritersByFormatName(formatName).next();
 
                 final Class[] outTypes = writer.getOriginatingProvider().getOutputTypes();
-                if (ArraysExt.contains(outTypes, File.class)) {
+                final ByteArrayOutputStream bundleBuffer;
+                if (f == null) {
+                    //encode in memory, tile will be appended to its bundle
+                    bundleBuffer = new ByteArrayOutputStream();
+                    out = ImageIO.createImageOutputStream(bundleBuffer);
+                    writer.setOutput(out);
+                } else if (ArraysExt.contains(outTypes, File.class)) {
+                    bundleBuffer = null;
                     //writer support files directly, let him handle it
                     writer.setOutput(f);
                 } else {
+                    bundleBuffer = null;
                     out = ImageIO.createImageOutputStream(f);
                     writer.setOutput(out);
                 }
@@ -692,7 +943,12 @@ public class XMLMosaic implements GridMosaic {
                     writer.write(buffer);
                 }
 
-                if (tileExist != null) {
+                if (bundleBuffer != null) {
+                    writer.setOutput(null);
+                    out.close();
+                    out = null;
+                    writeBundleTile(idx, idy, bundleBuffer.toByteArray());
+                } else if (tileExist != null) {
                     bitsetLock.writeLock().lock();
                     try {
                         tileExist.set(tileIndex, true);
@@ -247,6 +247,13 @@ public class XMLPyramid implements Pyramid {
         mosaic.tileWidth = tilePixelSize.width;
         mosaic.tileHeight = tilePixelSize.height;
         mosaic.upperLeft = upperleft.getCoordinate();
+        try {
+            if (((XMLCoverageStore) getPyramidSet().getRef().getStore()).tileBundle) {
+                mosaic.bundleSize = XMLTileBundle.DEFAULT_BUNDLE_SIZE;
+            }
+        } catch (Exception e) {
+            // If we've got a problem retrieving store parameters, we use default behavior (one file per tile).
+        }
         mosaics.add(mosaic);
         mosaic.initialize(this);
         return mosaic;
@@ -0,0 +1,334 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.coverage.xmlstore;
+
+import java.awt.Rectangle;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * A bundle file storing the encoded tiles of a block of a mosaic.
+ * <p>
+ * File layout :
+ * <ul>
+ *   <li>header : magic number, version, block width and block height, as 4 integers</li>
+ *   <li>index : one entry per tile of the block, in row order, made of the tile data
+ *   offset (long) and length (int). A length of 0 means the tile is missing, a length
+ *   of -1 means the tile is empty.</li>
+ *   <li>data : encoded tiles, appended one after the other.</li>
+ * </ul>
+ * Tiles are only appended, a tile written again is appended at the end of the file
+ * and its previous data is left unused. Index entries of written tiles are kept in
+ * memory until the bundle is flushed : tile data is then forced to disk once, before
+ * the index entries are written, so an interrupted write leaves the previous tile state.
+ * Each index entry is written by a single positional write, an entry is never torn
+ * between its offset and its length.
+ * <p>
+ * Tiles are read through a single channel per bundle, shared by all reading threads.
+ *
+ * @author agent
+ * @module pending
+ */
+final class XMLTileBundle {
+
+    /** Default number of tiles of a bundle block, on each axis. */
+    static final int DEFAULT_BUNDLE_SIZE = 128;
+    /** Bundle file extension. */
+    static final String SUFFIX = ".bundle";
+
+    static final int MISSING = 0;
+    static final int EMPTY = 1;
+    static final int FILLED = 2;
+
+    private static final int MAGIC = 0x474B5442; //GKTB
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 12;
+    private static final int EMPTY_LENGTH = -1;
+
+    private final File file;
+    private final int blockWidth;
+    private final int blockHeight;
+
+    /** Index, loaded on first access. */
+    private long[] offsets;
+    private int[] lengths;
+
+    /** Channel used to append tiles, opened on first write and closed by {@link #close()}. */
+    private FileChannel channel;
+    /** Channel used to read tiles, opened on first read and closed by {@link #close()}. */
+    private FileChannel readChannel;
+    /** Tiles written since last flush, which index entries are not written yet. */
+    private final BitSet pending = new BitSet();
+
+    /**
+     * @param file bundle file, may not exist yet
+     * @param blockWidth number of tile columns in the block
+     * @param blockHeight number of tile rows in the block
+     */
+    XMLTileBundle(final File file, final int blockWidth, final int blockHeight) {
+        this.file = file;
+        this.blockWidth = blockWidth;
+        this.blockHeight = blockHeight;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @param index tile index in the block
+     * @return tile state, one of {@link #MISSING}, {@link #EMPTY} or {@link #FILLED}
+     * @throws IOException if bundle index can not be read
+     */
+    synchronized int getState(final int index) throws IOException {
+        loadIndex();
+        final int length = lengths[index];
+        if (length == 0) return MISSING;
+        if (length == EMPTY_LENGTH) return EMPTY;
+        return FILLED;
+    }
+
+    /**
+     * Read an encoded tile.
+     *
+     * @param index tile index in the block
+     * @return encoded tile, null if tile is missing or empty
+     * @throws IOException if bundle can not be read
+     */
+    byte[] read(final int index) throws IOException {
+        final long offset;
+        final int length;
+        synchronized (this) {
+            loadIndex();
+            offset = offsets[index];
+            length = lengths[index];
+        }
+        if (length <= 0) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (;;) {
+            try {
+                readFully(getReadChannel(), buffer, offset);
+                return buffer.array();
+            } catch (ClosedChannelException ex) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw ex;
+                }
+                //bundle closed by another thread while reading, open it again
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * @return channel shared by all tile reads, opened if needed
+     */
+    private synchronized FileChannel getReadChannel() throws IOException {
+        if (readChannel == null || !readChannel.isOpen()) {
+            readChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        return readChannel;
+    }
+
+    /**
+     * Append an encoded tile.
+     *
+     * @param index tile index in the block
+     * @param data encoded tile
+     * @throws IOException if bundle can not be written
+     */
+    synchronized void write(final int index, final byte[] data) throws IOException {
+        write(index, ByteBuffer.wrap(data), data.length);
+    }
+
+    /**
+     * Mark a tile as empty.
+     *
+     * @param index tile index in the block
+     * @throws IOException if bundle can not be written
+     */
+    synchronized void writeEmpty(final int index) throws IOException {
+        write(index, null, EMPTY_LENGTH);
+    }
+
+    /**
+     * @return area of the existing tiles, in block tile coordinates, null if there are none
+     * @throws IOException if bundle index can not be read
+     */
+    synchronized Rectangle getTileArea() throws IOException {
+        loadIndex();
+        Rectangle area = null;
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] != 0) {
+                final int col = i % blockWidth;
+                final int row = i / blockWidth;
+                if (area == null) {
+                    area = new Rectangle(col, row, 1, 1);
+                } else {
+                    area.add(new Rectangle(col, row, 1, 1));
+                }
+            }
+        }
+        return area;
+    }
+
+    /**
+     * Write the index entries of the tiles written since last flush.
+     * Tile data is forced to disk before the index references it.
+     *
+     * @throws IOException if bundle can not be written
+     */
+    synchronized void flush() throws IOException {
+        if (channel == null || pending.isEmpty()) return;
+        //data must be on disk before index references it
+        channel.force(false);
+        final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i+1)) {
+            entry.clear();
+            entry.putLong(offsets[i]).putInt(lengths[i]).flip();
+            if (channel.write(entry, HEADER_SIZE + (long) ENTRY_SIZE * i) != ENTRY_SIZE) {
+                throw new IOException("Incomplete write of tile bundle index entry " + i + " : " + file);
+            }
+        }
+        channel.force(false);
+        pending.clear();
+    }
+
+    /**
+     * Flush the bundle and release its file. The bundle can still be used,
+     * the file is opened again on next read or write.
+     *
+     * @throws IOException if bundle can not be written
+     */
+    synchronized void close() throws IOException {
+        try {
+            if (channel != null) {
+                try {
+                    flush();
+                } finally {
+                    channel.close();
+                    channel = null;
+                }
+            }
+        } finally {
+            closeReader();
+        }
+    }
+
+    /**
+     * Release the read channel. The bundle can still be used,
+     * the file is opened again on next read.
+     *
+     * @throws IOException if the channel can not be closed
+     */
+    synchronized void closeReader() throws IOException {
+        if (readChannel != null) {
+            readChannel.close();
+            readChannel = null;
+        }
+    }
+
+    private void write(final int index, final ByteBuffer data, final int length) throws IOException {
+        loadIndex();
+        if (channel == null) {
+            file.getParentFile().mkdirs();
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            final long dataStart = HEADER_SIZE + (long) ENTRY_SIZE * lengths.length;
+            if (channel.size() < dataStart) {
+                //new bundle, write header and an empty index
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(blockWidth).putInt(blockHeight).flip();
+                writeFully(channel, header, 0);
+                writeFully(channel, ByteBuffer.allocate(ENTRY_SIZE * lengths.length), HEADER_SIZE);
+            }
+        }
+
+        long offset = 0;
+        if (data != null) {
+            offset = channel.size();
+            writeFully(channel, data, offset);
+        }
+        offsets[index] = offset;
+        lengths[index] = length;
+        pending.set(index);
+    }
+
+    private void loadIndex() throws IOException {
+        if (lengths != null) return;
+        final int nb = blockWidth * blockHeight;
+        final long[] offsets = new long[nb];
+        final int[] lengths = new int[nb];
+
+        if (file.isFile()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                final long size = channel.size();
+                final long dataStart = HEADER_SIZE + (long) ENTRY_SIZE * nb;
+                if (size >= dataStart) {
+                    final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                    readFully(channel, header, 0);
+                    header.flip();
+                    if (header.getInt() != MAGIC || header.getInt() != VERSION
+                            || header.getInt() != blockWidth || header.getInt() != blockHeight) {
+                        throw new IOException("Invalid tile bundle header : " + file);
+                    }
+                    final ByteBuffer index = ByteBuffer.allocate(ENTRY_SIZE * nb);
+                    readFully(channel, index, HEADER_SIZE);
+                    index.flip();
+                    for (int i = 0; i < nb; i++) {
+                        final long offset = index.getLong();
+                        final int length = index.getInt();
+                        //ignore entries pointing outside of written data
+                        if (length == EMPTY_LENGTH
+                                || (length > 0 && offset >= dataStart && offset + length <= size)) {
+                            offsets[i] = offset;
+                            lengths[i] = length;
+                        }
+                    }
+                }
+                //else bundle creation has been interrupted, there are no tiles
+            }
+        }
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int nb = channel.read(buffer, position);
+            if (nb < 0) {
+                throw new EOFException("Unexpected end of tile bundle.");
+            }
+            position += nb;
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.coverage.xmlstore;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test tile bundle file reading and writing.
+ *
+ * @author agent
+ */
+public class XMLTileBundleTest {
+
+    @Test
+    public void readWriteTest() throws IOException {
+        final File file = File.createTempFile("tiles", XMLTileBundle.SUFFIX);
+        file.delete();
+        try {
+            XMLTileBundle bundle = new XMLTileBundle(file, 4, 3);
+            assertEquals(XMLTileBundle.MISSING, bundle.getState(5));
+            assertNull(bundle.getTileArea());
+
+            bundle.write(5, new byte[]{1,2,3});
+            bundle.writeEmpty(11);
+            bundle.write(1, new byte[]{4,5});
+            //rewrite a tile
+            bundle.write(5, new byte[]{6,7,8,9});
+            //written tiles are readable before flush
+            assertArrayEquals(new byte[]{6,7,8,9}, bundle.read(5));
+            bundle.close();
+
+            //reopen bundle
+            bundle = new XMLTileBundle(file, 4, 3);
+            assertEquals(XMLTileBundle.FILLED, bundle.getState(5));
+            assertEquals(XMLTileBundle.EMPTY, bundle.getState(11));
+            assertEquals(XMLTileBundle.FILLED, bundle.getState(1));
+            assertEquals(XMLTileBundle.MISSING, bundle.getState(0));
+            assertArrayEquals(new byte[]{6,7,8,9}, bundle.read(5));
+            assertArrayEquals(new byte[]{4,5}, bundle.read(1));
+            assertNull(bundle.read(11));
+            assertEquals(new Rectangle(1, 0, 3, 3), bundle.getTileArea());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * An index entry referencing data which has not been written must be ignored.
+     */
+    @Test
+    public void interruptedWriteTest() throws IOException {
+        final File file = File.createTempFile("tiles", XMLTileBundle.SUFFIX);
+        file.delete();
+        try {
+            XMLTileBundle bundle = new XMLTileBundle(file, 2, 2);
+            bundle.write(0, new byte[]{1,2,3});
+            bundle.write(3, new byte[]{4,5,6,7,8});
+            bundle.close();
+
+            //truncate last tile data
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(raf.length() - 2);
+            }
+
+            bundle = new XMLTileBundle(file, 2, 2);
+            assertEquals(XMLTileBundle.FILLED, bundle.getState(0));
+            assertEquals(XMLTileBundle.MISSING, bundle.getState(3));
+            assertArrayEquals(new byte[]{1,2,3}, bundle.read(0));
+
+            //bundle is still writable
+            bundle.write(3, new byte[]{9});
+            bundle.close();
+            bundle = new XMLTileBundle(file, 2, 2);
+            assertArrayEquals(new byte[]{9}, bundle.read(3));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Index entries are only written when the bundle is flushed.
+     */
+    @Test
+    public void flushTest() throws IOException {
+        final File file = File.createTempFile("tiles", XMLTileBundle.SUFFIX);
+        file.delete();
+        try {
+            final XMLTileBundle bundle = new XMLTileBundle(file, 2, 2);
+            bundle.write(0, new byte[]{1,2,3});
+            bundle.writeEmpty(1);
+            assertEquals(XMLTileBundle.MISSING, new XMLTileBundle(file, 2, 2).getState(0));
+            assertEquals(XMLTileBundle.MISSING, new XMLTileBundle(file, 2, 2).getState(1));
+
+            bundle.flush();
+            XMLTileBundle reopened = new XMLTileBundle(file, 2, 2);
+            assertEquals(XMLTileBundle.FILLED, reopened.getState(0));
+            assertEquals(XMLTileBundle.EMPTY, reopened.getState(1));
+            assertArrayEquals(new byte[]{1,2,3}, reopened.read(0));
+
+            //bundle is still writable after flush and close
+            bundle.write(2, new byte[]{4});
+            bundle.close();
+            bundle.write(3, new byte[]{5});
+            bundle.close();
+            reopened = new XMLTileBundle(file, 2, 2);
+            assertArrayEquals(new byte[]{4}, reopened.read(2));
+            assertArrayEquals(new byte[]{5}, reopened.read(3));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tiles are read through a shared channel, which is opened again after
+     * the bundle has been closed and sees tiles appended afterward.
+     */
+    @Test
+    public void readChannelTest() throws IOException {
+        final File file = File.createTempFile("tiles", XMLTileBundle.SUFFIX);
+        file.delete();
+        try {
+            final XMLTileBundle bundle = new XMLTileBundle(file, 2, 2);
+            bundle.write(0, new byte[]{1,2,3});
+            bundle.close();
+            assertArrayEquals(new byte[]{1,2,3}, bundle.read(0));
+            assertArrayEquals(new byte[]{1,2,3}, bundle.read(0));
+
+            bundle.write(1, new byte[]{4,5});
+            assertArrayEquals(new byte[]{4,5}, bundle.read(1));
+            bundle.closeReader();
+            assertArrayEquals(new byte[]{1,2,3}, bundle.read(0));
+            bundle.close();
+            assertArrayEquals(new byte[]{4,5}, bundle.read(1));
+            bundle.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -22,17 +22,16 @@ import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -50,9 +49,14 @@ import org.geotoolkit.factory.Hints;
 import org.geotoolkit.factory.HintsPending;
 import org.geotoolkit.feature.type.DefaultName;
 import org.geotoolkit.feature.FeatureTypeBuilder;
+import org.geotoolkit.feature.FeatureTypeUtilities;
+import org.geotoolkit.feature.SchemaException;
 import org.geotoolkit.feature.FeatureUtilities;
 import org.geotoolkit.feature.simple.DefaultSimpleFeature;
 import org.geotoolkit.feature.simple.SimpleFeatureBuilder;
+import org.geotoolkit.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotoolkit.filter.visitor.FilterAttributeExtractor;
+import org.geotoolkit.geometry.jts.JTSEnvelope2D;
 import org.geotoolkit.internal.io.IOUtilities;
 import org.geotoolkit.parameter.Parameters;
 import org.geotoolkit.referencing.CRS;
@@ -74,8 +78,13 @@ import org.geotoolkit.feature.type.Name;
 import org.geotoolkit.feature.type.PropertyDescriptor;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.identity.Identifier;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.geometry.Envelope;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.util.FactoryException;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
@@ -100,6 +109,9 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
     private final File file;
     private String name;
     private final char separator;
+    private final Charset charset = Charset.defaultCharset();
+    private final boolean persistIndex;
+    private CSVIndex index;
 
     private SimpleFeatureType featureType;
 
@@ -133,6 +145,7 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
             throw new DataStoreException(ex);
         }
         this.separator = (Character) params.parameter(CSVFeatureStoreFactory.SEPARATOR.getName().toString()).getValue();
+        this.persistIndex = Boolean.TRUE.equals(Parameters.value(CSVFeatureStoreFactory.INDEX, params));
 
         final String path = url.toString();
         final int slash = Math.max(0, path.lastIndexOf('/') + 1);
@@ -166,6 +179,68 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
         return (File) IOUtilities.changeExtension(file, "wcsv");
     }
 
+    private File getIndexFile() throws MalformedURLException{
+        return (File) IOUtilities.changeExtension(file, CSVIndex.EXTENSION);
+    }
+
+    /**
+     * Get the index of the CSV file, the index is rebuilt if the file has changed.
+     * If the index parameter is set, the index is also stored in a sidecar file.
+     */
+    private synchronized CSVIndex getIndex() throws DataStoreException{
+        checkExist();
+        if(index != null && index.isValid(file)){
+            return index;
+        }
+
+        index = null;
+        fileLock.readLock().lock();
+        try {
+            final File indexFile = getIndexFile();
+            if(persistIndex){
+                try {
+                    index = CSVIndex.read(indexFile, file);
+                } catch (IOException ex) {
+                    getLogger().log(Level.INFO, "Invalid CSV index file : "+indexFile, ex);
+                }
+            }
+            if(index == null){
+                int geomColumn = -1;
+                if(featureType != null && featureType.getGeometryDescriptor() != null){
+                    geomColumn = featureType.indexOf(featureType.getGeometryDescriptor().getName());
+                }
+                index = CSVIndex.build(file, separator, charset, geomColumn);
+                if(persistIndex){
+                    try {
+                        index.write(indexFile);
+                    } catch (IOException ex) {
+                        getLogger().log(Level.INFO, "Failed to write CSV index file : "+indexFile, ex);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new DataStoreException(ex);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        return index;
+    }
+
+    /**
+     * Drop the index, called when the CSV file has been modified.
+     */
+    private synchronized void clearIndex(){
+        index = null;
+        try {
+            final File indexFile = getIndexFile();
+            if(indexFile.exists()){
+                indexFile.delete();
+            }
+        } catch (MalformedURLException ex) {
+            getLogger().log(Level.INFO, ex.getLocalizedMessage());
+        }
+    }
+
     private SimpleFeatureType readType() throws DataStoreException {
         final String line;
         fileLock.readLock().lock();
@@ -314,28 +389,51 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
     @Override
     public long getCount(final Query query) throws DataStoreException {
         if(QueryUtilities.queryAll(query)) {
-            //Neither filter nor start index, just count number of lines to avoid reading features.
-            fileLock.readLock().lock();
-            try (final BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                long cnt = -1; //avoid counting the header line
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!line.isEmpty() && !line.startsWith(COMMENT_STRING)) {
-                        //avoid potential empty or commented lines
-                        cnt++;
-                    }
-                }
-                return cnt;
-            } catch (IOException ex) {
-                throw new DataStoreException(ex);
-            } finally {
-                fileLock.readLock().unlock();
-            }
+            //Neither filter nor start index, the count is stored in the index.
+            typeCheck(query.getTypeName());
+            return getIndex().getCount();
         }
 
         return super.getCount(query);
     }
 
+    @Override
+    public Envelope getEnvelope(final Query query) throws DataStoreException, FeatureStoreRuntimeException {
+        typeCheck(query.getTypeName());
+        final GeometryDescriptor geomDesc = featureType.getGeometryDescriptor();
+
+        if(geomDesc != null && getGeometryCount(featureType) == 1
+                && query.getFilter() == Filter.INCLUDE
+                && query.getCoordinateSystemReproject() == null
+                && query.getMaxFeatures() == null
+                && query.getStartIndex() == 0
+                && (query.retrieveAllProperties() || contains(query.getPropertyNames(), geomDesc.getName()))) {
+            //envelope is stored in the index
+            final com.vividsolutions.jts.geom.Envelope env = getIndex().getBounds();
+            if(env == null){
+                return null;
+            }
+            return new JTSEnvelope2D(env, geomDesc.getCoordinateReferenceSystem());
+        }
+
+        return super.getEnvelope(query);
+    }
+
+    private static int getGeometryCount(final SimpleFeatureType type){
+        int nb = 0;
+        for(AttributeDescriptor desc : type.getAttributeDescriptors()){
+            if(desc instanceof GeometryDescriptor) nb++;
+        }
+        return nb;
+    }
+
+    private static boolean contains(final Name[] names, final Name candidate){
+        for(Name n : names){
+            if(n.getLocalPart().equals(candidate.getLocalPart())) return true;
+        }
+        return false;
+    }
+
     @Override
     public Set<Name> getNames() throws DataStoreException {
         checkExist();
@@ -385,6 +483,7 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
         } finally {
             fileLock.writeLock().unlock();
         }
+        clearIndex();
         fireSchemaDeleted(typeName, oldSchema);
     }
 
@@ -405,11 +504,148 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
     public FeatureReader getFeatureReader(final Query query) throws DataStoreException {
         typeCheck(query.getTypeName()); //raise error is type doesnt exist
 
+        final SimpleFeatureType readType = getReadType(query);
+        final boolean reuse = isReuse(query);
+
+        Filter filter = query.getFilter();
+        final FeatureReader fr;
+        final com.vividsolutions.jts.geom.Envelope bbox = getBBox(filter);
+        if(bbox != null){
+            //use the index to skip blocks outside the bbox
+            final CSVIndex idx = getIndex();
+            final int[] blocks = idx.getBlocks(bbox);
+            final long[] starts = new long[blocks.length];
+            final long[] ends = new long[blocks.length];
+            final long[] rows = new long[blocks.length];
+            for(int i=0;i<blocks.length;i++){
+                starts[i] = idx.getBlockStart(blocks[i]);
+                ends[i] = idx.getBlockEnd(blocks[i]);
+                rows[i] = idx.getBlockFirstRow(blocks[i]);
+            }
+            fr = new CSVMappedFeatureReader(readType, reuse, starts, ends, rows);
+        }else{
+            fr = new CSVMappedFeatureReader(readType, reuse, null, null, null);
+        }
+        return handleRemaining(fr, query);
+    }
+
+    /**
+     * Create several readers, each one reading a different part of the CSV file.
+     * Readers can be consumed concurrently by other threads.
+     * <p>
+     * Each reader holds the store read lock until it is closed, so writers are blocked
+     * while any of them is open. The lock is acquired by the calling thread, readers
+     * must therefore be closed by the thread which created them.
+     * <p>
+     * Only the filter, properties, reprojection and resolution parameters of the
+     * query are supported, if the query has a sort, a start index or a maximum
+     * number of features, a single reader is returned.
+     *
+     * @param query query applied on each reader
+     * @param nbSplit wanted number of readers, fewer readers may be returned for small files
+     * @return list of readers, never empty
+     * @throws DataStoreException
+     */
+    public List<FeatureReader> getFeatureReaders(final Query query, final int nbSplit) throws DataStoreException {
+        typeCheck(query.getTypeName()); //raise error is type doesnt exist
+
+        if(nbSplit <= 1 || query.getSortBy() != null || query.getStartIndex() != 0 || query.getMaxFeatures() != null){
+            return Collections.singletonList(getFeatureReader(query));
+        }
+
+        final CSVIndex idx = getIndex();
+        final List<int[]> splits = idx.split(nbSplit);
+        if(splits.size() <= 1){
+            return Collections.singletonList(getFeatureReader(query));
+        }
+
+        final SimpleFeatureType readType = getReadType(query);
+        final boolean reuse = isReuse(query);
+        final List<FeatureReader> readers = new ArrayList<>(splits.size());
+        try{
+            for(int[] split : splits){
+                final long[] starts = {idx.getBlockStart(split[0])};
+                final long[] ends = {idx.getBlockEnd(split[1]-1)};
+                final long[] rows = {idx.getBlockFirstRow(split[0])};
+                readers.add(handleRemaining(new CSVMappedFeatureReader(readType, reuse, starts, ends, rows), query));
+            }
+        }catch(DataStoreException | RuntimeException ex){
+            for(FeatureReader reader : readers){
+                reader.close();
+            }
+            throw ex;
+        }
+        return readers;
+    }
+
+    private static boolean isReuse(final Query query){
         final Hints hints = query.getHints();
         final Boolean detached = (hints == null) ? null : (Boolean) hints.get(HintsPending.FEATURE_DETACHED);
+        return detached != null && !detached;
+    }
 
-        final FeatureReader fr = new CSVFeatureReader(detached != null && !detached);
-        return handleRemaining(fr, query);
+    /**
+     * Find the columns which must be decoded to answer the query.
+     * Those are the requested properties and the properties used by the filter and sort.
+     */
+    private SimpleFeatureType getReadType(final Query query) throws DataStoreException{
+        if(query.retrieveAllProperties()){
+            return featureType;
+        }
+
+        final Set<String> wanted = new HashSet<>();
+        for(Name n : query.getPropertyNames()){
+            wanted.add(n.getLocalPart());
+        }
+        final FilterAttributeExtractor extractor = new FilterAttributeExtractor();
+        query.getFilter().accept(extractor, null);
+        for(Name n : extractor.getAttributeNames()){
+            wanted.add(n.getLocalPart());
+        }
+        if(query.getSortBy() != null){
+            for(SortBy sort : query.getSortBy()){
+                final String propName = sort.getPropertyName().getPropertyName();
+                wanted.add(DefaultName.valueOf(propName).getLocalPart());
+            }
+        }
+
+        final List<Name> names = new ArrayList<>();
+        for(AttributeDescriptor desc : featureType.getAttributeDescriptors()){
+            if(wanted.contains(desc.getLocalName())){
+                names.add(desc.getName());
+            }
+        }
+        if(names.size() == featureType.getAttributeCount()){
+            return featureType;
+        }
+        try {
+            return (SimpleFeatureType) FeatureTypeUtilities.createSubType(featureType, names.toArray(new Name[names.size()]));
+        } catch (SchemaException ex) {
+            throw new DataStoreException(ex);
+        }
+    }
+
+    /**
+     * @return bbox of the filter if it is a bbox filter on the indexed geometry, null otherwise
+     */
+    private com.vividsolutions.jts.geom.Envelope getBBox(final Filter filter){
+        if(!(filter instanceof BBOX)) return null;
+        final GeometryDescriptor geomDesc = featureType.getGeometryDescriptor();
+        if(geomDesc == null) return null;
+
+        final Expression exp = ((BBOX)filter).getExpression1();
+        if(!(exp instanceof PropertyName)
+                || !geomDesc.getLocalName().equals(DefaultName.valueOf(((PropertyName)exp).getPropertyName()).getLocalPart())){
+            return null;
+        }
+
+        final JTSEnvelope2D env = (JTSEnvelope2D) filter.accept(
+                ExtractBoundsFilterVisitor.BOUNDS_VISITOR, new JTSEnvelope2D());
+        final CoordinateReferenceSystem filterCrs = env.getCoordinateReferenceSystem();
+        if(env.isNull() || (filterCrs != null && !CRS.equalsIgnoreMetadata(filterCrs, geomDesc.getCoordinateReferenceSystem()))){
+            return null;
+        }
+        return env;
     }
 
     @Override
@@ -565,6 +801,226 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
 
     }
 
+    /**
+     * Reader working on the memory mapped file, only the columns of the read
+     * type are decoded.
+     */
+    private class CSVMappedFeatureReader implements FeatureReader<FeatureType, Feature>{
+
+        private static final int STRING = 0;
+        private static final int GEOMETRY = 1;
+        private static final int INTEGER = 2;
+        private static final int LONG = 3;
+        private static final int SHORT = 4;
+        private static final int BYTE = 5;
+        private static final int DOUBLE = 6;
+        private static final int FLOAT = 7;
+        private static final int OTHER = 8;
+
+        private final WKTReader wktReader = new WKTReader();
+        private final SimpleFeatureType readType;
+        private final SimpleFeatureBuilder sfb;
+        private final DefaultSimpleFeature reuse;
+        /** Column index in the file of each read attribute */
+        private final int[] columns;
+        private final int[] kinds;
+        private final Class[] bindings;
+
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] rows;
+        private int range = -1;
+        private long row;
+        private CSVRecordReader records;
+        private SimpleFeature current = null;
+
+        /**
+         * @param starts start offset of each range to read, null to read the whole file
+         * @param ends end offset of each range to read
+         * @param rows index of the first row of each range
+         */
+        private CSVMappedFeatureReader(final SimpleFeatureType readType, final boolean reuseFeature,
+                final long[] starts, final long[] ends, final long[] rows) throws DataStoreException{
+            this.readType = readType;
+            this.starts = starts;
+            this.ends = ends;
+            this.rows = rows;
+
+            sfb = new SimpleFeatureBuilder(readType);
+            if(reuseFeature){
+                reuse = new DefaultSimpleFeature(readType, null, new Object[readType.getAttributeCount()], false);
+            }else{
+                reuse = null;
+            }
+
+            final List<AttributeDescriptor> atts = readType.getAttributeDescriptors();
+            columns = new int[atts.size()];
+            kinds = new int[atts.size()];
+            bindings = new Class[atts.size()];
+            for(int i=0;i<columns.length;i++){
+                final AttributeDescriptor att = atts.get(i);
+                columns[i] = featureType.indexOf(att.getName());
+                bindings[i] = att.getType().getBinding();
+                if(att instanceof GeometryDescriptor){
+                    kinds[i] = GEOMETRY;
+                }else if(String.class.equals(bindings[i])){
+                    kinds[i] = STRING;
+                }else if(Integer.class.equals(bindings[i])){
+                    kinds[i] = INTEGER;
+                }else if(Long.class.equals(bindings[i])){
+                    kinds[i] = LONG;
+                }else if(Short.class.equals(bindings[i])){
+                    kinds[i] = SHORT;
+                }else if(Byte.class.equals(bindings[i])){
+                    kinds[i] = BYTE;
+                }else if(Double.class.equals(bindings[i])){
+                    kinds[i] = DOUBLE;
+                }else if(Float.class.equals(bindings[i])){
+                    kinds[i] = FLOAT;
+                }else{
+                    kinds[i] = OTHER;
+                }
+            }
+
+            fileLock.readLock().lock();
+            try{
+                if(starts == null){
+                    records = new CSVRecordReader(file, separator, charset);
+                    //skip the type line
+                    records.next();
+                    row = 0;
+                }else{
+                    nextRange();
+                }
+            }catch(IOException ex){
+                fileLock.readLock().unlock();
+                throw new DataStoreException(ex);
+            }
+        }
+
+        private boolean nextRange() throws IOException{
+            if(records != null){
+                records.close();
+                records = null;
+            }
+            range++;
+            if(range >= starts.length){
+                return false;
+            }
+            records = new CSVRecordReader(file, separator, charset, starts[range], ends[range], CSVRecordReader.WINDOW_SIZE);
+            row = rows[range];
+            return true;
+        }
+
+        @Override
+        public FeatureType getFeatureType() {
+            return readType;
+        }
+
+        @Override
+        public SimpleFeature next() throws FeatureStoreRuntimeException {
+            read();
+            final SimpleFeature ob = current;
+            current = null;
+            if(ob == null){
+                throw new FeatureStoreRuntimeException("No more records.");
+            }
+            return ob;
+        }
+
+        @Override
+        public boolean hasNext() throws FeatureStoreRuntimeException {
+            read();
+            return current != null;
+        }
+
+        private void read() throws FeatureStoreRuntimeException {
+            if (current != null) return;
+
+            try {
+                while(records != null && !records.next()){
+                    if(starts == null || !nextRange()){
+                        return;
+                    }
+                }
+                if(records == null) return;
+
+                if (reuse == null) {
+                    sfb.reset();
+                }
+
+                for (int i = 0; i < columns.length; i++) {
+                    final Object value = readValue(i);
+                    if (reuse == null) {
+                        sfb.set(i, value);
+                    } else {
+                        reuse.setAttribute(i, value);
+                    }
+                }
+
+                final String id = Long.toString(row++);
+                if (reuse == null) {
+                    current = sfb.buildFeature(id);
+                } else {
+                    reuse.setId(id);
+                    current = reuse;
+                }
+            } catch (IOException | ParseException | NumberFormatException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            }
+        }
+
+        private Object readValue(final int i) throws ParseException {
+            final int col = columns[i];
+            if (kinds[i] == STRING) {
+                return records.getString(col);
+            } else if (records.isEmpty(col)) {
+                return null;
+            }
+            switch (kinds[i]) {
+                case GEOMETRY : return wktReader.read(records.getString(col));
+                case INTEGER : return toIntExact(records.getLong(col));
+                case LONG : return records.getLong(col);
+                case SHORT : return (short) toIntExact(records.getLong(col), Short.MIN_VALUE, Short.MAX_VALUE);
+                case BYTE : return (byte) toIntExact(records.getLong(col), Byte.MIN_VALUE, Byte.MAX_VALUE);
+                case DOUBLE : return records.getDouble(col);
+                case FLOAT : return (float) records.getDouble(col);
+                default : return ObjectConverters.convert(records.getString(col), bindings[i]);
+            }
+        }
+
+        private int toIntExact(final long value){
+            return toIntExact(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        private int toIntExact(final long value, final int min, final int max){
+            if(value < min || value > max){
+                throw new NumberFormatException("Value out of range : "+value);
+            }
+            return (int) value;
+        }
+
+        @Override
+        public void close() {
+            fileLock.readLock().unlock();
+            if(records != null){
+                try {
+                    records.close();
+                } catch (IOException ex) {
+                    throw new FeatureStoreRuntimeException(ex);
+                } finally {
+                    records = null;
+                }
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new FeatureStoreRuntimeException("Not supported on reader.");
+        }
+
+    }
+
     private class CSVFeatureWriter extends CSVFeatureReader implements FeatureWriter<FeatureType, Feature> {
 
         private final WKTWriter wktWriter = new WKTWriter(2);
@@ -698,6 +1154,7 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
                 fileLock.writeLock().unlock();
                 tempLock.writeLock().unlock();
             }
+            clearIndex();
             // Fire content change events only if we succeed replacing original file.
             fireDataChangeEvents();
         }
@@ -723,8 +1180,17 @@ public class CSVFeatureStore extends AbstractFeatureStore implements DataFileSto
 	@Override
 	public void refreshMetaModel() {
 		featureType=null;
+		getStatistics().clear();
 	}
 
+    /**
+     * Attribute ranges require to parse the whole file, they are cached.
+     */
+    @Override
+    protected boolean isStatisticsCached() {
+        return true;
+    }
+
     /**
      * Read lines from input {@link java.util.Scanner} until it finds a non-commented line, then send it back.
      * @param source The scanner to read lines from.
@@ -71,9 +71,17 @@ public class CSVFeatureStoreFactory extends AbstractFileFeatureStoreFactory {
                     new ResourceInternationalString(BUNDLE_PATH,"paramSeparatorRemarks"),
                     Character.class,null,';',null,null,null,false);
 
+    /**
+     * Optional - store the CSV index in a sidecar file next to the CSV file
+     */
+    public static final ParameterDescriptor<Boolean> INDEX = createDescriptor("index",
+                    new ResourceInternationalString(BUNDLE_PATH,"paramIndexAlias"),
+                    new ResourceInternationalString(BUNDLE_PATH,"paramIndexRemarks"),
+                    Boolean.class,null,false,null,null,null,false);
+
     public static final ParameterDescriptorGroup PARAMETERS_DESCRIPTOR =
             new DefaultParameterDescriptorGroup("CSVParameters",
-                IDENTIFIER,URLP,NAMESPACE,SEPARATOR);
+                IDENTIFIER,URLP,NAMESPACE,SEPARATOR,INDEX);
 
     @Override
     public Identification getIdentification() {
@@ -0,0 +1,297 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+
+package org.geotoolkit.data.csv;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of a CSV file, can be stored in a sidecar file next to the CSV.
+ * <p>
+ * Records are grouped in blocks of {@link #BLOCK_SIZE} rows, the index holds the
+ * byte offset of the first record of each block and the bounding box of the
+ * geometries in the block. It is used to count records, to compute the file
+ * envelope, to split the file for parallel reading and to skip blocks which do
+ * not intersect a bbox filter.
+ * <p>
+ * The index stores the length and the last modification date of the CSV file,
+ * it is considered stale as soon as one of those changes.
+ *
+ * @author agent
+ * @module pending
+ */
+final class CSVIndex {
+
+    /** Sidecar file extension. */
+    static final String EXTENSION = "csvidx";
+
+    /** Number of rows in a block. */
+    static final int BLOCK_SIZE = 1024;
+
+    private static final int MAGIC = 0x43535649; // CSVI
+    private static final int VERSION = 1;
+
+    private final long sourceLength;
+    private final long sourceModified;
+    private final long count;
+    /** Offset of the first record of each block. */
+    private final long[] blockOffsets;
+    /** minx, miny, maxx, maxy of each block, NaN if block has no geometry. */
+    private final double[] blockBounds;
+
+    private CSVIndex(final long sourceLength, final long sourceModified, final long count,
+            final long[] blockOffsets, final double[] blockBounds) {
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.count = count;
+        this.blockOffsets = blockOffsets;
+        this.blockBounds = blockBounds;
+    }
+
+    /**
+     * @return number of records in the file, header excluded.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return number of blocks.
+     */
+    int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * @return offset of the first record of the block.
+     */
+    long getBlockStart(final int block) {
+        return blockOffsets[block];
+    }
+
+    /**
+     * @return offset after the last record of the block.
+     */
+    long getBlockEnd(final int block) {
+        return (block + 1 < blockOffsets.length) ? blockOffsets[block + 1] : sourceLength;
+    }
+
+    /**
+     * @return index of the first row of the block.
+     */
+    long getBlockFirstRow(final int block) {
+        return (long) block * BLOCK_SIZE;
+    }
+
+    /**
+     * @return bounds of all geometries, null if there are no geometries.
+     */
+    Envelope getBounds() {
+        final Envelope env = new Envelope();
+        for (int i = 0; i < blockBounds.length; i += 4) {
+            if (!Double.isNaN(blockBounds[i])) {
+                env.expandToInclude(blockBounds[i], blockBounds[i+1]);
+                env.expandToInclude(blockBounds[i+2], blockBounds[i+3]);
+            }
+        }
+        return env.isNull() ? null : env;
+    }
+
+    /**
+     * @return indices of the blocks which may contain geometries intersecting given envelope.
+     */
+    int[] getBlocks(final Envelope env) {
+        final int[] blocks = new int[blockOffsets.length];
+        int nb = 0;
+        for (int b = 0; b < blockOffsets.length; b++) {
+            final int i = b * 4;
+            if (!Double.isNaN(blockBounds[i])
+                    && blockBounds[i]   <= env.getMaxX() && blockBounds[i+2] >= env.getMinX()
+                    && blockBounds[i+1] <= env.getMaxY() && blockBounds[i+3] >= env.getMinY()) {
+                blocks[nb++] = b;
+            }
+        }
+        return Arrays.copyOf(blocks, nb);
+    }
+
+    /**
+     * @return true if the index still match the given CSV file.
+     */
+    boolean isValid(final File source) {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    /**
+     * Scan the CSV file and create its index.
+     *
+     * @param geomColumn index of the geometry column, -1 if none.
+     */
+    static CSVIndex build(final File source, final char separator, final Charset charset,
+            final int geomColumn) throws IOException {
+        final long length = source.length();
+        final long modified = source.lastModified();
+        final WKTReader wktReader = new WKTReader();
+        final double[] coords = new double[2];
+
+        long[] offsets = new long[64];
+        double[] bounds = new double[64 * 4];
+        int nbBlock = 0;
+        long count = 0;
+        boolean header = true;
+
+        try (final CSVRecordReader reader = new CSVRecordReader(source, separator, charset)) {
+            while (reader.next()) {
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                final int inBlock = (int) (count % BLOCK_SIZE);
+                if (inBlock == 0) {
+                    if (nbBlock == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, nbBlock * 2);
+                        bounds = Arrays.copyOf(bounds, nbBlock * 2 * 4);
+                    }
+                    offsets[nbBlock] = reader.getRecordOffset();
+                    Arrays.fill(bounds, nbBlock * 4, nbBlock * 4 + 4, Double.NaN);
+                    nbBlock++;
+                }
+                count++;
+
+                if (geomColumn < 0 || reader.isEmpty(geomColumn)) continue;
+                final int b = (nbBlock - 1) * 4;
+                if (reader.getPoint(geomColumn, coords)) {
+                    include(bounds, b, coords[0], coords[1], coords[0], coords[1]);
+                } else {
+                    try {
+                        final Envelope env = wktReader.read(reader.getString(geomColumn)).getEnvelopeInternal();
+                        if (!env.isNull()) {
+                            include(bounds, b, env.getMinX(), env.getMinY(), env.getMaxX(), env.getMaxY());
+                        }
+                    } catch (ParseException ex) {
+                        throw new IOException(ex);
+                    }
+                }
+            }
+        }
+
+        return new CSVIndex(length, modified, count,
+                Arrays.copyOf(offsets, nbBlock), Arrays.copyOf(bounds, nbBlock * 4));
+    }
+
+    private static void include(final double[] bounds, final int i,
+            final double minx, final double miny, final double maxx, final double maxy) {
+        if (Double.isNaN(bounds[i])) {
+            bounds[i]   = minx;
+            bounds[i+1] = miny;
+            bounds[i+2] = maxx;
+            bounds[i+3] = maxy;
+        } else {
+            bounds[i]   = Math.min(bounds[i],   minx);
+            bounds[i+1] = Math.min(bounds[i+1], miny);
+            bounds[i+2] = Math.max(bounds[i+2], maxx);
+            bounds[i+3] = Math.max(bounds[i+3], maxy);
+        }
+    }
+
+    /**
+     * Split the blocks in ranges of approximately equal size.
+     *
+     * @return list of block index ranges, each as an array [first block, last block (exclusive)].
+     */
+    List<int[]> split(final int nbSplit) {
+        final List<int[]> splits = new ArrayList<>();
+        final int nbBlock = blockOffsets.length;
+        if (nbBlock == 0) {
+            return splits;
+        }
+        final int step = Math.max(1, (nbBlock + nbSplit - 1) / nbSplit);
+        for (int i = 0; i < nbBlock; i += step) {
+            splits.add(new int[]{i, Math.min(nbBlock, i + step)});
+        }
+        return splits;
+    }
+
+    /**
+     * Write the index in given file.
+     */
+    void write(final File target) throws IOException {
+        try (final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+            out.writeLong(count);
+            out.writeInt(blockOffsets.length);
+            for (int i = 0; i < blockOffsets.length; i++) {
+                out.writeLong(blockOffsets[i]);
+            }
+            for (int i = 0; i < blockBounds.length; i++) {
+                out.writeDouble(blockBounds[i]);
+            }
+        }
+    }
+
+    /**
+     * Read an index file.
+     *
+     * @return index, or null if the file is not a valid index or if it is stale.
+     */
+    static CSVIndex read(final File indexFile, final File source) throws IOException {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            final long length = in.readLong();
+            final long modified = in.readLong();
+            if (source.length() != length || source.lastModified() != modified) {
+                return null;
+            }
+            final long count = in.readLong();
+            final int nbBlock = in.readInt();
+            final long[] offsets = new long[nbBlock];
+            for (int i = 0; i < nbBlock; i++) {
+                offsets[i] = in.readLong();
+            }
+            final double[] bounds = new double[nbBlock * 4];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = in.readDouble();
+            }
+            return new CSVIndex(length, modified, count, offsets, bounds);
+        }
+    }
+
+}
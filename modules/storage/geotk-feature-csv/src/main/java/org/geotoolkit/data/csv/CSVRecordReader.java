@@ -0,0 +1,550 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+
+package org.geotoolkit.data.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Low level CSV record reader working directly on a memory mapped view of the file.
+ * <p>
+ * The file is mapped by windows, a record never spans two windows : when a record
+ * reaches the end of the current window the file is remapped starting at the record
+ * offset. Fields are not copied, the reader only stores the start and end position
+ * of each field in the current window. Values are decoded on demand, numbers are
+ * parsed straight from the bytes without creating any String.
+ * <p>
+ * Quoted fields are supported, a quote inside a quoted field is escaped by doubling it.
+ * Quoted fields may not contain line breaks. Lines starting with {@link CSVFeatureStore#COMMENT_STRING}
+ * and empty lines are skipped, an unquoted comment character ends the record.
+ * <p>
+ * The charset must encode ASCII characters on a single byte, as UTF-8 or the ISO-8859 family do.
+ * The separator may be any character, it is encoded with the charset and matched as a byte sequence.
+ * <p>
+ * This reader is not thread safe, but several instances can work on different ranges
+ * of the same file concurrently.
+ *
+ * @author agent
+ * @module pending
+ */
+final class CSVRecordReader implements Closeable {
+
+    /** Default size of the mapped window. */
+    static final int WINDOW_SIZE = 1 << 26;
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMENT = '#';
+
+    /** Exact powers of ten, used by the fast double parsing path. */
+    private static final double[] POW10 = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final Charset charset;
+    /** Separator encoded with the file charset. */
+    private final byte[] separator;
+    /** First byte of the separator, checked before comparing the remaining bytes. */
+    private final byte separatorStart;
+    private final long fileSize;
+    private final long limit;
+    private final int windowSize;
+
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private int bufferLimit;
+
+    /** Absolute offset where the next record search starts. */
+    private long position;
+    /** Absolute offset of the current record. */
+    private long recordOffset = -1;
+
+    private int fieldCount;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] quoted = new boolean[16];
+    private boolean[] escaped = new boolean[16];
+
+    /**
+     * Create a reader over the full file.
+     */
+    CSVRecordReader(final File file, final char separator, final Charset charset) throws IOException {
+        this(file, separator, charset, 0, Long.MAX_VALUE, WINDOW_SIZE);
+    }
+
+    /**
+     * Create a reader for the records starting in the range [start, end[.
+     *
+     * @param start offset of the first record, must be at the beginning of a line.
+     * @param end offset after which no more record is read, the last record may end after it.
+     * @param windowSize size of the mapped windows.
+     */
+    CSVRecordReader(final File file, final char separator, final Charset charset,
+            final long start, final long end, final int windowSize) throws IOException {
+        if (!Arrays.equals(new byte[]{'\n'}, "\n".getBytes(charset))) {
+            throw new IOException("Charset must encode ASCII characters on a single byte : "+charset);
+        }
+        this.separator = String.valueOf(separator).getBytes(charset);
+        this.separatorStart = this.separator[0];
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = raf.getChannel();
+        this.charset = charset;
+        this.fileSize = channel.size();
+        this.limit = Math.min(end, fileSize);
+        this.windowSize = windowSize;
+        this.position = start;
+    }
+
+    /**
+     * @return absolute offset of the current record, -1 if no record has been read yet.
+     */
+    long getRecordOffset() {
+        return recordOffset;
+    }
+
+    /**
+     * @return number of fields in the current record.
+     */
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return false if there are no more records in the range.
+     */
+    boolean next() throws IOException {
+        while (position < limit) {
+            if (buffer == null || position < bufferStart || position >= bufferStart + bufferLimit) {
+                map(position, windowSize);
+            }
+            int result = parseRecord();
+            int size = windowSize;
+            while (result == -1) {
+                //record does not fit in the window, remap starting on the record
+                if (bufferStart == position) {
+                    if (size == Integer.MAX_VALUE) {
+                        throw new IOException("CSV record too long at offset "+position);
+                    }
+                    size = (int) Math.min(size * 2L, Integer.MAX_VALUE);
+                }
+                map(position, size);
+                result = parseRecord();
+            }
+            if (result > 0) {
+                return true;
+            }
+        }
+        recordOffset = -1;
+        fieldCount = 0;
+        return false;
+    }
+
+    /**
+     * Parse the record at current position.
+     *
+     * @return 1 if a record has been found, 0 if the line was empty or a comment,
+     *         -1 if the window ended before the end of the line.
+     */
+    private int parseRecord() {
+        final MappedByteBuffer buffer = this.buffer;
+        final int lineStart = (int) (position - bufferStart);
+        final boolean lastWindow = bufferStart + bufferLimit >= fileSize;
+        int i = lineStart;
+        fieldCount = 0;
+
+        if (i < bufferLimit && buffer.get(i) == COMMENT) {
+            //commented line, skip it
+            while (i < bufferLimit && buffer.get(i) != '\n') i++;
+            if (i == bufferLimit && !lastWindow) return -1;
+            position = bufferStart + Math.min(i + 1, bufferLimit);
+            return 0;
+        }
+
+        boolean endOfLine = false;
+        boolean comment = false;
+        while (!endOfLine) {
+            int fieldEnd;
+            boolean isQuoted = false;
+            boolean isEscaped = false;
+
+            //skip leading blanks
+            while (i < bufferLimit && isBlank(buffer.get(i))) i++;
+            int fieldStart = i;
+
+            if (i < bufferLimit && buffer.get(i) == QUOTE) {
+                isQuoted = true;
+                fieldStart = ++i;
+                for (;;) {
+                    if (i >= bufferLimit) {
+                        if (!lastWindow) return -1;
+                        break;
+                    }
+                    final byte b = buffer.get(i);
+                    if (b == QUOTE) {
+                        if (i + 1 < bufferLimit && buffer.get(i + 1) == QUOTE) {
+                            isEscaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        if (i + 1 >= bufferLimit && !lastWindow) return -1;
+                        break;
+                    } else if (b == '\n') {
+                        //unclosed quote, stop on line end
+                        break;
+                    }
+                    i++;
+                }
+                fieldEnd = i;
+                if (i < bufferLimit && buffer.get(i) == QUOTE) i++;
+                //ignore anything between the closing quote and the separator
+                while (i < bufferLimit) {
+                    final byte b = buffer.get(i);
+                    if (isSeparator(b, i) || b == '\n' || b == COMMENT) break;
+                    i++;
+                }
+            } else {
+                while (i < bufferLimit) {
+                    final byte b = buffer.get(i);
+                    if (isSeparator(b, i) || b == '\n' || b == COMMENT) break;
+                    i++;
+                }
+                fieldEnd = i;
+            }
+
+            if (i >= bufferLimit) {
+                if (!lastWindow) return -1;
+                endOfLine = true;
+            } else {
+                final byte b = buffer.get(i);
+                if (b == '\n') {
+                    endOfLine = true;
+                } else if (b == COMMENT) {
+                    endOfLine = true;
+                    comment = true;
+                } else {
+                    i += separator.length;
+                }
+            }
+
+            if (!isQuoted) {
+                //trim trailing blanks and carriage return
+                while (fieldEnd > fieldStart && isBlank(buffer.get(fieldEnd - 1))) fieldEnd--;
+            }
+            addField(fieldStart, fieldEnd, isQuoted, isEscaped);
+        }
+
+        if (comment) {
+            while (i < bufferLimit && buffer.get(i) != '\n') i++;
+            if (i == bufferLimit && !lastWindow) return -1;
+        }
+
+        recordOffset = position;
+        position = bufferStart + Math.min(i + 1, bufferLimit);
+
+        if (fieldCount == 1 && !quoted[0] && starts[0] == ends[0]) {
+            //empty line
+            fieldCount = 0;
+            return 0;
+        }
+        return 1;
+    }
+
+    private boolean isBlank(final byte b) {
+        return (separator.length > 1 || b != separatorStart) && (b == ' ' || b == '\t' || b == '\r');
+    }
+
+    /**
+     * Test if the separator starts at given index in the window.
+     * A separator cut by the end of the window is not matched, the record will
+     * be parsed again from a remapped window since its line end is not reached.
+     *
+     * @param b byte at index i
+     */
+    private boolean isSeparator(final byte b, final int i) {
+        if (b != separatorStart) return false;
+        final int length = separator.length;
+        if (length == 1) return true;
+        if (i + length > bufferLimit) return false;
+        for (int k = 1; k < length; k++) {
+            if (buffer.get(i + k) != separator[k]) return false;
+        }
+        return true;
+    }
+
+    private void addField(final int start, final int end, final boolean isQuoted, final boolean isEscaped) {
+        if (fieldCount == starts.length) {
+            final int size = fieldCount * 2;
+            starts  = Arrays.copyOf(starts, size);
+            ends    = Arrays.copyOf(ends, size);
+            quoted  = Arrays.copyOf(quoted, size);
+            escaped = Arrays.copyOf(escaped, size);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        quoted[fieldCount] = isQuoted;
+        escaped[fieldCount] = isEscaped;
+        fieldCount++;
+    }
+
+    private void map(final long start, final int size) throws IOException {
+        final long length = Math.min(size, fileSize - start);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        bufferStart = start;
+        bufferLimit = (int) length;
+    }
+
+    /**
+     * @return true if the given field is missing or empty.
+     */
+    boolean isEmpty(final int field) {
+        return field >= fieldCount || (starts[field] == ends[field]);
+    }
+
+    /**
+     * @return byte length of the field.
+     */
+    int length(final int field) {
+        return field >= fieldCount ? 0 : ends[field] - starts[field];
+    }
+
+    /**
+     * @return byte at given index in the field.
+     */
+    byte byteAt(final int field, final int index) {
+        return buffer.get(starts[field] + index);
+    }
+
+    /**
+     * Decode given field as a String.
+     *
+     * @return field value, empty string if field is missing.
+     */
+    String getString(final int field) {
+        if (isEmpty(field)) {
+            return "";
+        }
+        final int start = starts[field];
+        final int length = ends[field] - start;
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+        String str = new String(bytes, charset);
+        if (escaped[field]) {
+            str = str.replace("\"\"", "\"");
+        }
+        return str;
+    }
+
+    /**
+     * Parse given field as a long value.
+     *
+     * @throws NumberFormatException if the field is not a valid integer.
+     */
+    long getLong(final int field) throws NumberFormatException {
+        if (isEmpty(field)) {
+            throw new NumberFormatException("Empty field "+field);
+        }
+        int i = starts[field];
+        final int end = ends[field];
+        boolean negative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = (b == '-');
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException(getString(field));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new NumberFormatException(getString(field));
+            }
+            final long next = value * 10 - (b - '0');
+            if (value < Long.MIN_VALUE / 10 || next > value) {
+                //overflow
+                throw new NumberFormatException(getString(field));
+            }
+            value = next;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new NumberFormatException(getString(field));
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parse given field as a double value.
+     * Values with at most 15 significant digits and a small exponent are
+     * parsed exactly without any allocation, other values fallback on
+     * {@link Double#parseDouble(java.lang.String)}.
+     *
+     * @throws NumberFormatException if the field is not a valid number.
+     */
+    double getDouble(final int field) throws NumberFormatException {
+        if (isEmpty(field)) {
+            throw new NumberFormatException("Empty field "+field);
+        }
+        int i = starts[field];
+        final int end = ends[field];
+        boolean negative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = (b == '-');
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean dot = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (mantissa == 0 && b == '0') {
+                    //leading zero, not significant
+                    if (dot) exponent--;
+                    continue;
+                }
+                if (digits >= 15) {
+                    return Double.parseDouble(getString(field));
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) exponent--;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else if ((b == 'e' || b == 'E') && any) {
+                i++;
+                boolean negExp = false;
+                if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                    negExp = buffer.get(i) == '-';
+                    i++;
+                }
+                if (i == end) {
+                    throw new NumberFormatException(getString(field));
+                }
+                int exp = 0;
+                for (; i < end; i++) {
+                    b = buffer.get(i);
+                    if (b < '0' || b > '9' || exp > 10000) {
+                        return Double.parseDouble(getString(field));
+                    }
+                    exp = exp * 10 + (b - '0');
+                }
+                exponent += negExp ? -exp : exp;
+                break;
+            } else {
+                //NaN, Infinity or invalid number
+                return Double.parseDouble(getString(field));
+            }
+        }
+        if (!any) {
+            throw new NumberFormatException(getString(field));
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent == 0) {
+            value = mantissa;
+        } else if (exponent > 0 && exponent < POW10.length) {
+            value = mantissa * POW10[exponent];
+        } else if (exponent < 0 && -exponent < POW10.length) {
+            value = mantissa / POW10[-exponent];
+        } else {
+            return Double.parseDouble(getString(field));
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a WKT point field, for example {@code POINT (10 20)}, without creating any String.
+     *
+     * @param coords array where x and y values will be stored.
+     * @return false if the field is not a 2D or 3D point, in this case the coordinate array content is undefined.
+     */
+    boolean getPoint(final int field, final double[] coords) {
+        final int length = length(field);
+        if (length < 5) return false;
+        int i = starts[field];
+        final int end = ends[field];
+        if ((buffer.get(i) | 0x20) != 'p' || (buffer.get(i+1) | 0x20) != 'o' || (buffer.get(i+2) | 0x20) != 'i'
+                || (buffer.get(i+3) | 0x20) != 'n' || (buffer.get(i+4) | 0x20) != 't') {
+            return false;
+        }
+        i += 5;
+        while (i < end && buffer.get(i) != '(') {
+            final byte b = buffer.get(i);
+            if (b != ' ' && b != 'Z' && b != 'z') return false;
+            i++;
+        }
+        i++;
+        final int oldStart = starts[field];
+        final int oldEnd = ends[field];
+        try {
+            int nb = 0;
+            while (i < end && nb < 3) {
+                while (i < end && buffer.get(i) == ' ') i++;
+                int j = i;
+                while (j < end && buffer.get(j) != ' ' && buffer.get(j) != ')') j++;
+                if (j == i) break;
+                starts[field] = i;
+                ends[field] = j;
+                final double v;
+                try {
+                    v = getDouble(field);
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+                if (nb < 2) coords[nb] = v;
+                nb++;
+                i = j;
+            }
+            return nb >= 2;
+        } finally {
+            starts[field] = oldStart;
+            ends[field] = oldEnd;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        raf.close();
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+
+package org.geotoolkit.data.csv;
+
+import com.vividsolutions.jts.geom.Envelope;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test the memory mapped CSV record reader and the CSV index.
+ *
+ * @author agent
+ * @module pending
+ */
+public class CSVRecordReaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static File createFile(final String content) throws IOException {
+        return createFile(content, UTF8);
+    }
+
+    private static File createFile(final String content, final Charset charset) throws IOException {
+        final File file = File.createTempFile("records", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), charset)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    /**
+     * Test quoted fields, comments, empty lines and number parsing.
+     * Small windows are used to force remapping in the middle of records.
+     */
+    @Test
+    public void testRecords() throws IOException {
+        final File file = createFile(
+                "id(Integer);name(String);value(Double);geom(EPSG:4326)\n"
+              + "# comment line\n"
+              + "\n"
+              + "1; \"a;\"\"b\"\" \" ;1.5;POINT (1 2)\r\n"
+              + "2;bob;-0.025e2;POINT(3.5 -4)# trailing comment\n"
+              + "3;;1234567890.123456789;\n");
+
+        for (int window : new int[]{7, 13, 64, CSVRecordReader.WINDOW_SIZE}) {
+            try (CSVRecordReader reader = new CSVRecordReader(file, ';', UTF8, 0, Long.MAX_VALUE, window)) {
+                final double[] coords = new double[2];
+                assertTrue(reader.next());
+                assertEquals(4, reader.getFieldCount());
+                assertEquals("name(String)", reader.getString(1));
+
+                assertTrue(reader.next());
+                assertEquals(1, reader.getLong(0));
+                assertEquals("a;\"b\" ", reader.getString(1));
+                assertEquals(1.5, reader.getDouble(2), 0.0);
+                assertTrue(reader.getPoint(3, coords));
+                assertEquals(1.0, coords[0], 0.0);
+                assertEquals(2.0, coords[1], 0.0);
+
+                assertTrue(reader.next());
+                assertEquals(2, reader.getLong(0));
+                assertEquals("bob", reader.getString(1));
+                assertEquals(-2.5, reader.getDouble(2), 0.0);
+                assertTrue(reader.getPoint(3, coords));
+                assertEquals(3.5, coords[0], 0.0);
+                assertEquals(-4.0, coords[1], 0.0);
+
+                assertTrue(reader.next());
+                assertEquals(3, reader.getLong(0));
+                assertTrue(reader.isEmpty(1));
+                assertEquals(1234567890.123456789, reader.getDouble(2), 0.0);
+                assertTrue(reader.isEmpty(3));
+
+                assertFalse(reader.next());
+            }
+        }
+    }
+
+    /**
+     * Test a separator which is not an ASCII character, encoded on one byte
+     * in ISO-8859-1 and on two bytes in UTF-8. Small windows are used to cut
+     * the separator bytes at the end of a window.
+     */
+    @Test
+    public void testNonAsciiSeparator() throws IOException {
+        final String content =
+                "id(Integer)\u00A7name(String)\u00A7value(Double)\n"
+              + "1\u00A7caf\u00E9\u00A72.5\n"
+              + "2\u00A7\"a\u00A7b\"\u00A7-1\n";
+
+        for (Charset charset : new Charset[]{UTF8, Charset.forName("ISO-8859-1")}) {
+            final File file = createFile(content, charset);
+            for (int window : new int[]{5, 6, 7, 11, CSVRecordReader.WINDOW_SIZE}) {
+                try (CSVRecordReader reader = new CSVRecordReader(file, '\u00A7', charset, 0, Long.MAX_VALUE, window)) {
+                    assertTrue(reader.next());
+                    assertEquals(3, reader.getFieldCount());
+                    assertEquals("value(Double)", reader.getString(2));
+
+                    assertTrue(reader.next());
+                    assertEquals(3, reader.getFieldCount());
+                    assertEquals(1, reader.getLong(0));
+                    assertEquals("caf\u00E9", reader.getString(1));
+                    assertEquals(2.5, reader.getDouble(2), 0.0);
+
+                    assertTrue(reader.next());
+                    assertEquals(3, reader.getFieldCount());
+                    assertEquals(2, reader.getLong(0));
+                    assertEquals("a\u00A7b", reader.getString(1));
+                    assertEquals(-1.0, reader.getDouble(2), 0.0);
+
+                    assertFalse(reader.next());
+                }
+            }
+        }
+    }
+
+    /**
+     * Test index creation, storage and splitting.
+     */
+    @Test
+    public void testIndex() throws IOException {
+        final int nbRow = CSVIndex.BLOCK_SIZE * 3 + 10;
+        final StringBuilder sb = new StringBuilder("id(Integer);geom(EPSG:4326)\n");
+        for (int i = 0; i < nbRow; i++) {
+            sb.append(i).append(";POINT(").append(i).append(' ').append(-i).append(")\n");
+        }
+        final File file = createFile(sb.toString());
+
+        final CSVIndex index = CSVIndex.build(file, ';', UTF8, 1);
+        assertEquals(nbRow, index.getCount());
+        assertEquals(4, index.getBlockCount());
+        assertEquals(new Envelope(0, nbRow-1, -(nbRow-1), 0), index.getBounds());
+        assertArrayEquals(new int[]{1}, index.getBlocks(new Envelope(1500, 1600, -1600, -1500)));
+
+        final File indexFile = File.createTempFile("records", "."+CSVIndex.EXTENSION);
+        indexFile.deleteOnExit();
+        index.write(indexFile);
+        final CSVIndex read = CSVIndex.read(indexFile, file);
+        assertNotNull(read);
+        assertEquals(nbRow, read.getCount());
+        assertEquals(index.getBounds(), read.getBounds());
+
+        //read each split and check rows are continuous
+        final List<int[]> splits = index.split(2);
+        assertEquals(2, splits.size());
+        long expected = 0;
+        for (int[] split : splits) {
+            final long start = index.getBlockStart(split[0]);
+            final long end = index.getBlockEnd(split[1]-1);
+            assertEquals(expected, index.getBlockFirstRow(split[0]));
+            try (CSVRecordReader reader = new CSVRecordReader(file, ';', UTF8, start, end, CSVRecordReader.WINDOW_SIZE)) {
+                while (reader.next()) {
+                    assertEquals(expected++, reader.getLong(0));
+                }
+            }
+        }
+        assertEquals(nbRow, expected);
+    }
+
+}
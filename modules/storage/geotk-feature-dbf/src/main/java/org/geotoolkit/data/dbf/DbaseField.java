@@ -18,6 +18,7 @@
 package org.geotoolkit.data.dbf;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.util.Calendar;
 import java.util.Date;
@@ -34,6 +35,17 @@ abstract class DbaseField {
     private static final String NULL_STRING = "";
     private static final Date NULL_DATE = new Date();
 
+    /**
+     * Returned by {@link #read(java.nio.ByteBuffer, int) } when the value
+     * can not be parsed from the bytes and must be decoded.
+     */
+    static final Object UNPARSED = new Object();
+
+    private static final double[] POW10 = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     public static DbaseField create(final String fieldName, final char fieldType, final int fieldDataAddress,
                         final int fieldLength, final int decimalCount, final Class clazz) throws IOException{
 
@@ -139,6 +151,53 @@ abstract class DbaseField {
 
     public abstract Object read(CharBuffer charBuffer) throws IOException;
 
+    /**
+     * Read the value straight from the record bytes, without charset decoding
+     * nor String creation. Only the common forms of numbers, dates and booleans
+     * are parsed this way, any other value must be read with {@link #read(java.nio.CharBuffer) }.
+     *
+     * @param buffer record buffer, not modified
+     * @param offset absolute position of the field in the buffer
+     * @return value or {@link #UNPARSED} if the value must be decoded
+     */
+    public Object read(final ByteBuffer buffer, final int offset) {
+        return UNPARSED;
+    }
+
+    /**
+     * Parse an unsigned integer made of digits only.
+     *
+     * @param start absolute position of the first digit
+     * @param end absolute position after the last digit
+     * @return value, or -1 if there are other characters than digits or more than 18 digits
+     */
+    private static long parseDigits(final ByteBuffer buffer, final int start, final int end) {
+        if (start >= end || end - start > 18) return -1;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final byte b = buffer.get(i);
+            if (b < '0' || b > '9') return -1;
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Parse an optionally negative integer, leading blanks are skipped.
+     *
+     * @return Long value or null if the field is blank or not a plain integer.
+     */
+    protected Long parseLong(final ByteBuffer buffer, int offset) {
+        final int end = offset + fieldLength;
+        while (offset < end && (buffer.get(offset) & 0xFF) <= ' ') offset++;
+        if (offset == end) return null;
+        final boolean negative = buffer.get(offset) == '-';
+        if (negative) offset++;
+        final long value = parseDigits(buffer, offset, end);
+        if (value < 0) return null;
+        return negative ? -value : value;
+    }
+
     public abstract String string(Object obj, DbaseFieldFormatter formatter) throws IOException;
 
 
@@ -169,6 +228,24 @@ abstract class DbaseField {
                 }
         }
 
+        @Override
+        public Object read(final ByteBuffer buffer, final int offset) {
+            switch (buffer.get(offset)) {
+                case 't':
+                case 'T':
+                case 'Y':
+                case 'y':
+                    return Boolean.TRUE;
+                case 'f':
+                case 'F':
+                case 'N':
+                case 'n':
+                    return Boolean.FALSE;
+                default:
+                    return UNPARSED;
+            }
+        }
+
         @Override
         public String string(final Object obj, final DbaseFieldFormatter formatter) throws IOException {
             return (obj == null ? "F" : obj == Boolean.TRUE ? "T" : "F");
@@ -250,6 +327,21 @@ abstract class DbaseField {
             }
         }
 
+        @Override
+        public Object read(final ByteBuffer buffer, final int offset) {
+            if (fieldLength < 8) return UNPARSED;
+            final long year = parseDigits(buffer, offset, offset+4);
+            final long month = parseDigits(buffer, offset+4, offset+6);
+            final long day = parseDigits(buffer, offset+6, offset+8);
+            if (year < 0 || month < 0 || day < 0) return UNPARSED;
+            final Calendar cal = Calendar.getInstance();
+            cal.clear();
+            cal.set(Calendar.YEAR, (int) year);
+            cal.set(Calendar.MONTH, (int) month - 1);
+            cal.set(Calendar.DAY_OF_MONTH, (int) day);
+            return cal.getTime();
+        }
+
         @Override
         public String string(final Object obj, final DbaseFieldFormatter formatter) throws IOException {
             return formatter.getFieldString((Date) (obj == null ? NULL_DATE : obj));
@@ -282,6 +374,17 @@ abstract class DbaseField {
             }
         }
 
+        @Override
+        public Object read(final ByteBuffer buffer, final int offset) {
+            final Long value = parseLong(buffer, offset);
+            if (value == null) return UNPARSED;
+            final long v = value;
+            if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+                return (int) v;
+            }
+            return value;
+        }
+
         @Override
         public String string(final Object obj, final DbaseFieldFormatter formatter) throws IOException {
             return formatter.getFieldString(fieldLength, 0,(Number) (obj == null ? NULL_NUMBER : obj));
@@ -309,6 +412,12 @@ abstract class DbaseField {
             }
         }
 
+        @Override
+        public Object read(final ByteBuffer buffer, final int offset) {
+            final Long value = parseLong(buffer, offset);
+            return (value != null) ? value : UNPARSED;
+        }
+
         @Override
         public String string(final Object obj, final DbaseFieldFormatter formatter) throws IOException {
             return formatter.getFieldString(fieldLength, 0,(Number) (obj == null ? NULL_NUMBER : obj));
@@ -337,6 +446,64 @@ abstract class DbaseField {
             }
         }
 
+        /**
+         * Values with at most 15 significant digits and no exponent are parsed
+         * exactly, other forms are left to {@link Double#valueOf(java.lang.String) }.
+         */
+        @Override
+        public Object read(final ByteBuffer buffer, int offset) {
+            int end = offset + fieldLength;
+            while (offset < end && (buffer.get(offset) & 0xFF) <= ' ') offset++;
+            while (end > offset && (buffer.get(end-1) & 0xFF) <= ' ') end--;
+            if (offset == end) return UNPARSED;
+
+            boolean negative = false;
+            byte b = buffer.get(offset);
+            if (b == '-' || b == '+') {
+                negative = (b == '-');
+                offset++;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean dot = false;
+            boolean any = false;
+            for (; offset < end; offset++) {
+                b = buffer.get(offset);
+                if (b >= '0' && b <= '9') {
+                    any = true;
+                    if (mantissa == 0 && b == '0') {
+                        //leading zero, not significant
+                        if (dot) exponent--;
+                        continue;
+                    }
+                    if (digits >= 15) return UNPARSED;
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (dot) exponent--;
+                } else if (b == '.' && !dot) {
+                    dot = true;
+                } else {
+                    //exponent, NaN, Infinity or invalid number
+                    return UNPARSED;
+                }
+            }
+            if (!any) return UNPARSED;
+
+            final double value;
+            if (mantissa == 0) {
+                value = 0.0;
+            } else if (exponent == 0) {
+                value = mantissa;
+            } else if (-exponent < POW10.length) {
+                value = mantissa / POW10[-exponent];
+            } else {
+                return UNPARSED;
+            }
+            return negative ? -value : value;
+        }
+
         @Override
         public String string(final Object obj, final DbaseFieldFormatter formatter) throws IOException {
             return formatter.getFieldString(fieldLength, decimalCount,
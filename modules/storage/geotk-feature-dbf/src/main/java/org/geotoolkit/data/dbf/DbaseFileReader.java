@@ -52,7 +52,9 @@ import org.apache.sis.util.logging.Logging;
  * 
  * </PRE></CODE> 
  * For consumers who wish to be a bit more selective with their reading
- * of rows, the read(column) method has been added. 
+ * of rows, the read(column) and read(columns, values) methods have been added,
+ * only the requested fields are decoded. Numbers, dates and booleans are
+ * parsed directly from the bytes when they have a common form.
  * Remember that the Row object is always the same.
  * The values are parsed as they are read, so it pays to copy them out (as each
  * call to Row.read() will result in an expensive String parse).
@@ -72,10 +74,7 @@ public final class DbaseFileReader implements Closeable{
     public final class Row {
         
         public Object read(final int column) throws IOException {
-            final int offset = header.getFieldOffset(column);
-            final DbaseField field = fieldReaders[column];
-            prepareFieldRead(field, offset);
-            return field.read(charBuffer);
+            return readField(column);
         }
         
         public Object[] readAll(Object[] entry) throws IOException {
@@ -85,12 +84,31 @@ public final class DbaseFileReader implements Closeable{
                 throw new ArrayIndexOutOfBoundsException();
             }
 
-            int fieldOffset = 1; //1 to skip the delete flag
             for (int x = 0; x < fieldReaders.length; x++) {
-                final DbaseField field = fieldReaders[x];
-                prepareFieldRead(field, fieldOffset);
-                entry[x] = field.read(charBuffer);
-                fieldOffset += field.fieldLength;
+                entry[x] = readField(x);
+            }
+
+            return entry;
+        }
+
+        /**
+         * Read only the given columns, other fields of the record are not decoded.
+         * 
+         * @param columns indexes of the columns to read
+         * @param entry array where values are stored in the columns order, 
+         *        can be null
+         * @return entry or a new array if entry was null
+         * @throws IOException
+         */
+        public Object[] read(final int[] columns, Object[] entry) throws IOException {
+            if(entry == null){
+                entry = new Object[columns.length];
+            }else if (entry.length < columns.length) {
+                throw new ArrayIndexOutOfBoundsException();
+            }
+
+            for (int x = 0; x < columns.length; x++) {
+                entry[x] = readField(columns[x]);
             }
 
             return entry;
@@ -104,6 +122,7 @@ public final class DbaseFileReader implements Closeable{
     protected final CharBuffer charBuffer; //char buffer cache
     private final CharsetDecoder decoder;
     private final DbaseField[] fieldReaders;
+    private final int[] fieldOffsets;
     private int cnt = 0;
     private final Row row = new Row();
     private Row next = null;
@@ -156,8 +175,12 @@ public final class DbaseFileReader implements Closeable{
         
         // Set up some buffers and lookups for efficiency
         fieldReaders = new DbaseField[header.getNumFields()];
+        fieldOffsets = new int[header.getNumFields()];
+        int fieldOffset = 1; //1 to skip the delete flag
         for (int i = 0, ii = header.getNumFields(); i < ii; i++) {
             fieldReaders[i] = header.getField(i);
+            fieldOffsets[i] = fieldOffset;
+            fieldOffset += fieldReaders[i].fieldLength;
         }
         
         charBuffer = CharBuffer.allocate(header.getRecordLength() - 1);
@@ -255,6 +278,21 @@ public final class DbaseFileReader implements Closeable{
         cnt++;
     }
     
+    /**
+     * Read a field of the current record. Numbers, dates and booleans are 
+     * parsed from the bytes when possible, other fields are decoded.
+     */
+    private Object readField(final int column) throws IOException {
+        final DbaseField field = fieldReaders[column];
+        final int offset = fieldOffsets[column];
+        final Object value = field.read(buffer, buffer.position()+offset);
+        if(value != DbaseField.UNPARSED){
+            return value;
+        }
+        prepareFieldRead(field, offset);
+        return field.read(charBuffer);
+    }
+
     private void prepareFieldRead(final DbaseField field, final int fieldOffset) throws CharacterCodingException{
         //prepare byte buffer
         final int previousposition = buffer.position();
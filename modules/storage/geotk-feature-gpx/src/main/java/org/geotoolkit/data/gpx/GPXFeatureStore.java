@@ -151,6 +151,14 @@ public class GPXFeatureStore extends AbstractFeatureStore implements DataFileSto
         }
     }
 
+    /**
+     * Count and envelope require to parse the whole file, they are cached.
+     */
+    @Override
+    protected boolean isStatisticsCached() {
+        return true;
+    }
+
     @Override
     public boolean isWritable(Name typeName) throws DataStoreException {
         typeCheck(typeName);
@@ -450,6 +458,10 @@ public class GPXFeatureStore extends AbstractFeatureStore implements DataFileSto
             }
 
             TempLock.writeLock().unlock();
+
+            //all types are stored in the same file
+            fireFeaturesUpdated(writeRestriction.getName(), null);
+            fireFeaturesUpdated(TYPE_GPX_ENTITY.getName(), null);
         }
 
     }
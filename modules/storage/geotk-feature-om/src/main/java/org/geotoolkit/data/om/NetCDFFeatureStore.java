@@ -157,6 +157,14 @@ public class NetCDFFeatureStore extends AbstractOMFeatureStore implements DataFi
         throw new DataStoreException("Not Supported.");
     }
     
+    /**
+     * The file is read only, count and envelope are cached.
+     */
+    @Override
+    protected boolean isStatisticsCached() {
+        return true;
+    }
+
     /**
      * {@inheritDoc }
      */
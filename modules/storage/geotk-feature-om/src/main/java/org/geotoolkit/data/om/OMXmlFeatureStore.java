@@ -169,6 +169,14 @@ public class OMXmlFeatureStore extends AbstractOMFeatureStore implements DataFil
         throw new DataStoreException("Not Supported.");
     }
     
+    /**
+     * The file is read only, count and envelope are cached.
+     */
+    @Override
+    protected boolean isStatisticsCached() {
+        return true;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -22,6 +22,7 @@ import org.geotoolkit.data.dbf.DbaseFileHeader;
 import org.geotoolkit.data.dbf.DbaseFileReader;
 import org.geotoolkit.data.shapefile.lock.AccessManager;
 import org.geotoolkit.data.shapefile.shp.ShapefileReader;
+import org.geotoolkit.data.shapefile.shx.ShxReader;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.util.ArgumentChecks;
 import org.apache.sis.util.ObjectConverters;
@@ -41,12 +42,20 @@ public class ShapefileAttributeReader {
     protected final PropertyDescriptor[] metaData;
     protected final boolean[] narrowing;
     protected final int[] attributIndex;
+    //dbf columns to read when only some of them are requested, null otherwise
+    private final int[] columns;
+    private final Object[] columnValues;
     protected ShapefileReader shp;
     protected DbaseFileReader dbf;
     protected DbaseFileReader.Row row;
     protected ShapefileReader.Record record;
     private boolean closed = false;
 
+    //record range when reading a split of the file, shx is null when reading all records
+    private final ShxReader shx;
+    private final int endRecord;
+    private int currentRecord;
+
     //feature bbox must be bigger than this, otherwise shape geometry is only estimated
     private final boolean estimateRes;
     private final double estimateX;
@@ -69,11 +78,44 @@ public class ShapefileAttributeReader {
             final PropertyDescriptor[] atts, final boolean read3D, final boolean memoryMapped,
             final double[] resample, final boolean readDBF, final Charset charset,
             final double[] estimateRes) throws IOException, DataStoreException {
+        this(locker, atts, read3D, memoryMapped, resample, readDBF, charset, estimateRes, -1, -1);
+    }
+
+    /**
+     * Create a shapefile attribute reader on a range of records.
+     * Records are located using the shx file offsets, the reader can be used
+     * concurrently with other readers on different ranges of the same file.
+     *
+     * @param startRecord - index of the first record to read, starting at 0,
+     *                      -1 to read all records sequentially
+     * @param endRecord - index after the last record to read
+     * @see #ShapefileAttributeReader(org.geotoolkit.data.shapefile.lock.AccessManager,
+     *      org.geotoolkit.feature.type.PropertyDescriptor[], boolean, boolean, double[],
+     *      boolean, java.nio.charset.Charset, double[])
+     */
+    public ShapefileAttributeReader(final AccessManager locker,
+            final PropertyDescriptor[] atts, final boolean read3D, final boolean memoryMapped,
+            final double[] resample, final boolean readDBF, final Charset charset,
+            final double[] estimateRes, final int startRecord, final int endRecord)
+            throws IOException, DataStoreException {
         ArgumentChecks.ensureNonNull("locker", locker);
         this.locker = locker;
         this.metaData = atts;
         this.shp = locker.getSHPReader(true, memoryMapped, read3D, resample);
         this.dbf = locker.getDBFReader(memoryMapped, charset);
+        if(startRecord >= 0){
+            this.shx = locker.getSHXReader(memoryMapped);
+            if(shx == null){
+                locker.disposeReaderAndWriters();
+                throw new IOException("Reading a range of records requires a shx file.");
+            }
+            this.currentRecord = startRecord;
+            this.endRecord = Math.min(endRecord, shx.getRecordCount());
+        }else{
+            this.shx = null;
+            this.currentRecord = 0;
+            this.endRecord = -1;
+        }
         if(estimateRes != null){
             this.estimateRes = true;
             this.estimateX = estimateRes[0];
@@ -112,6 +154,23 @@ public class ShapefileAttributeReader {
             //geom field
             attributIndex[0] = -1;
         }
+
+        //restricted property list, decode only the requested dbf columns
+        int nbColumn = 0;
+        for(int index : attributIndex){
+            if(index >= 0) nbColumn++;
+        }
+        if(dbf != null && nbColumn < dbf.getHeader().getNumFields()){
+            columns = new int[nbColumn];
+            columnValues = new Object[nbColumn];
+            int k = 0;
+            for(int index : attributIndex){
+                if(index >= 0) columns[k++] = index;
+            }
+        }else{
+            columns = null;
+            columnValues = null;
+        }
     }
 
     public AccessManager getLocker() {
@@ -140,6 +199,10 @@ public class ShapefileAttributeReader {
      */
     public boolean hasNext() throws IOException {
 
+        if(shx != null){
+            return currentRecord < endRecord;
+        }
+
         if(shp.hasNext()){
             if(dbf != null){
                 if(dbf.hasNext()){
@@ -174,14 +237,25 @@ public class ShapefileAttributeReader {
     public void next() throws IOException {
         nextShape();
         nextDbf();
+        if(shx != null){
+            currentRecord++;
+        }
     }
 
     protected void nextShape() throws IOException {
-        record = shp.nextRecord();
+        if(shx != null){
+            record = shp.recordAt(shx.getOffsetInBytes(currentRecord));
+        }else{
+            record = shp.nextRecord();
+        }
     }
 
     protected void nextDbf() throws IOException {
         if (dbf != null) {
+            if(shx != null){
+                //dbf record numbers start at 1
+                dbf.goTo(currentRecord+1);
+            }
             row = dbf.next();
         }
     }
@@ -193,32 +267,54 @@ public class ShapefileAttributeReader {
 
         final int index = attributIndex[param];
         if(index == -1){
-            if(estimateRes &&
-               !(Double.isNaN(record.maxX) || Double.isNaN(record.maxY) || Double.isNaN(record.minY) || Double.isNaN(record.minX)) &&
-               !(estimateX <= (record.maxX - record.minX) || estimateY <= (record.maxY - record.minY))){
-                //read estimated shape
-                return record.estimatedShape();
-            }else{
-                //read full shape
-                return record.shape();
-            }
+            return readShape();
         }else if(row != null) {
-            if(narrowing[param]){
-                //must procede to a retype
-                return ObjectConverters.convert(row.read(index), metaData[param].getType().getBinding());
-            }else{
-                return row.read(index);
-            }
+            return convert(param, row.read(index));
         }
         return null;
     }
 
+    private Object readShape(){
+        if(estimateRes &&
+           !(Double.isNaN(record.maxX) || Double.isNaN(record.maxY) || Double.isNaN(record.minY) || Double.isNaN(record.minX)) &&
+           !(estimateX <= (record.maxX - record.minX) || estimateY <= (record.maxY - record.minY))){
+            //read estimated shape
+            return record.estimatedShape();
+        }else{
+            //read full shape
+            return record.shape();
+        }
+    }
+
+    private Object convert(final int param, final Object value){
+        if(narrowing[param]){
+            //must procede to a retype
+            return ObjectConverters.convert(value, metaData[param].getType().getBinding());
+        }else{
+            return value;
+        }
+    }
+
     /**
      * {@inheritDoc }
      */
     public void read(final Object[] buffer) throws IOException {
+        if(columns == null || row == null){
+            for(int i=0;i<metaData.length;i++){
+                buffer[i] = read(i);
+            }
+            return;
+        }
+
+        //read only the requested columns in one pass
+        row.read(columns, columnValues);
+        int k = 0;
         for(int i=0;i<metaData.length;i++){
-            buffer[i] = read(i);
+            if(attributIndex[i] == -1){
+                buffer[i] = readShape();
+            }else{
+                buffer[i] = convert(i, columnValues[k++]);
+            }
         }
     }
 
@@ -69,6 +69,7 @@ import org.geotoolkit.data.shapefile.shp.ShapeType;
 import org.geotoolkit.data.shapefile.shp.ShapefileHeader;
 import org.geotoolkit.data.shapefile.shp.ShapefileReader;
 import org.geotoolkit.data.shapefile.shp.ShapefileWriter;
+import org.geotoolkit.data.shapefile.shx.ShxReader;
 import org.geotoolkit.factory.Hints;
 import org.geotoolkit.feature.FeatureTypeUtilities;
 import org.geotoolkit.feature.SchemaException;
@@ -309,6 +310,73 @@ public class ShapefileFeatureStore extends AbstractFeatureStore implements DataF
     @Override
     public FeatureReader getFeatureReader(final Query query) throws DataStoreException {
         typeCheck(query.getTypeName());
+        return createFeatureReader(query, -1, -1);
+    }
+
+    /**
+     * Create several readers, each one reading a different range of records of
+     * the shapefile. Records are located with the shx file offsets, each reader
+     * opens its own memory mapped views of the shp and dbf files.
+     * Readers can be consumed concurrently, files are opened on the first call
+     * to hasNext or next, each reader must then be closed by the thread which
+     * consumed it.
+     * <p>
+     * Only the filter, properties, reprojection and resolution parameters of the
+     * query are supported, if the query has a sort, a start index or a maximum
+     * number of features, a single reader is returned.
+     *
+     * @param query query applied on each reader
+     * @param nbSplit wanted number of readers, fewer readers may be returned for small files
+     * @return list of readers, never empty
+     * @throws DataStoreException
+     */
+    public List<FeatureReader> getFeatureReaders(final Query query, final int nbSplit) throws DataStoreException {
+        typeCheck(query.getTypeName());
+
+        if(nbSplit <= 1 || !shpFiles.isLocal() || query.getSortBy() != null
+                || query.getStartIndex() != 0 || query.getMaxFeatures() != null){
+            return Collections.singletonList(getFeatureReader(query));
+        }
+
+        //read the number of records from the shx
+        final int nbRecord;
+        final AccessManager locker = shpFiles.createLocker();
+        try {
+            final ShxReader shx = locker.getSHXReader(false);
+            nbRecord = (shx == null) ? 0 : shx.getRecordCount();
+        } catch (IOException ex) {
+            throw new DataStoreException(ex);
+        } finally {
+            locker.disposeReaderAndWriters();
+        }
+
+        if(nbRecord < 2){
+            return Collections.singletonList(getFeatureReader(query));
+        }
+
+        final FeatureType readType;
+        try {
+            readType = getFeatureType(query);
+        } catch (SchemaException ex) {
+            throw new DataStoreException(ex);
+        }
+
+        final int step = (nbRecord + nbSplit - 1) / nbSplit;
+        final List<FeatureReader> readers = new ArrayList<>();
+        for(int start=0; start<nbRecord; start+=step){
+            readers.add(new SplitFeatureReader(query, readType, start, Math.min(nbRecord, start+step)));
+        }
+        return readers;
+    }
+
+    /**
+     * Create a reader on all records or on a range of records.
+     *
+     * @param startRecord index of the first record, -1 to read all records
+     * @param endRecord index after the last record
+     */
+    private FeatureReader createFeatureReader(final Query query, final int startRecord,
+            final int endRecord) throws DataStoreException {
 
         final Hints hints = query.getHints();
         final String typeName = query.getTypeName().getLocalPart();
@@ -338,8 +406,8 @@ public class ShapefileFeatureStore extends AbstractFeatureStore implements DataF
                 final SimpleFeatureType newSchema = (SimpleFeatureType) FeatureTypeUtilities.createSubType(
                         schema, propertyNames);
 
-                final ShapefileAttributeReader attReader = getAttributesReader(false,read3D,resample);
-                final FeatureIDReader idReader = new DefaultFeatureIDReader(typeName);
+                final ShapefileAttributeReader attReader = getAttributesReader(false,read3D,resample,startRecord,endRecord);
+                final FeatureIDReader idReader = new DefaultFeatureIDReader(typeName, Math.max(0, startRecord));
                 FeatureReader reader = ShapefileFeatureReader.create(attReader, idReader, newSchema, hints);
                 final QueryBuilder remaining = new QueryBuilder(query.getTypeName());
                 remaining.setProperties(query.getPropertyNames());
@@ -364,8 +432,8 @@ public class ShapefileFeatureStore extends AbstractFeatureStore implements DataF
                     newSchema = schema;
                 }
 
-                final ShapefileAttributeReader attReader = getAttributesReader(true,read3D,resample);
-                final FeatureIDReader idReader = new DefaultFeatureIDReader(typeName);
+                final ShapefileAttributeReader attReader = getAttributesReader(true,read3D,resample,startRecord,endRecord);
+                final FeatureIDReader idReader = new DefaultFeatureIDReader(typeName, Math.max(0, startRecord));
                 FeatureReader reader = ShapefileFeatureReader.create(attReader,idReader, newSchema, hints);
                 QueryBuilder query2 = new QueryBuilder(query.getTypeName());
                 query2.setProperties(query.getPropertyNames());
@@ -638,6 +706,20 @@ public class ShapefileFeatureStore extends AbstractFeatureStore implements DataF
      */
     protected ShapefileAttributeReader getAttributesReader(final boolean readDbf,
             final boolean read3D, final double[] resample) throws DataStoreException {
+        return getAttributesReader(readDbf, read3D, resample, -1, -1);
+    }
+
+    /**
+     * Returns the attribute reader on a range of records.
+     * Records ranges are always read with memory mapped buffers.
+     *
+     * @param startRecord - index of the first record, -1 to read all records
+     * @param endRecord - index after the last record
+     * @see #getAttributesReader(boolean, boolean, double[])
+     */
+    private ShapefileAttributeReader getAttributesReader(final boolean readDbf,
+            final boolean read3D, final double[] resample, final int startRecord,
+            final int endRecord) throws DataStoreException {
 
         final AccessManager locker = shpFiles.createLocker();
         final SimpleFeatureType schema = getFeatureType();
@@ -652,7 +734,8 @@ public class ShapefileFeatureStore extends AbstractFeatureStore implements DataF
         }
         try {
             return new ShapefileAttributeReader(locker, descs, read3D,
-                    useMemoryMappedBuffer,resample, readDbf, dbfCharset,null);
+                    useMemoryMappedBuffer || startRecord >= 0, resample, readDbf, dbfCharset,
+                    null, startRecord, endRecord);
         } catch (IOException ex) {
             throw new DataStoreException(ex);
         }
@@ -707,4 +790,74 @@ public class ShapefileFeatureStore extends AbstractFeatureStore implements DataF
 
 	}
 
+    /**
+     * Reader on a range of records, the files are opened on first use so that
+     * locks are aquiered by the thread consuming the reader.
+     */
+    private final class SplitFeatureReader implements FeatureReader {
+
+        private final Query query;
+        private final FeatureType type;
+        private final int startRecord;
+        private final int endRecord;
+        private FeatureReader reader = null;
+        private boolean closed = false;
+
+        private SplitFeatureReader(final Query query, final FeatureType type,
+                final int startRecord, final int endRecord) {
+            this.query = query;
+            this.type = type;
+            this.startRecord = startRecord;
+            this.endRecord = endRecord;
+        }
+
+        private FeatureReader getReader() throws FeatureStoreRuntimeException {
+            if(closed){
+                throw new FeatureStoreRuntimeException("Reader has been closed.");
+            }
+            if(reader == null){
+                try {
+                    reader = createFeatureReader(query, startRecord, endRecord);
+                } catch (DataStoreException ex) {
+                    throw new FeatureStoreRuntimeException(ex);
+                }
+            }
+            return reader;
+        }
+
+        @Override
+        public FeatureType getFeatureType() {
+            return type;
+        }
+
+        @Override
+        public Feature next() throws FeatureStoreRuntimeException {
+            return getReader().next();
+        }
+
+        @Override
+        public boolean hasNext() throws FeatureStoreRuntimeException {
+            return getReader().hasNext();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if(reader != null){
+                reader.close();
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new FeatureStoreRuntimeException("Not supported on reader.");
+        }
+
+        @Override
+        public String toString() {
+            return "SplitFeatureReader[" + startRecord + "," + endRecord + "]";
+        }
+
+    }
+
 }
@@ -186,6 +186,20 @@ public class IndexedShapefileFeatureStore extends ShapefileFeatureStore {
         super.finalize();
     }
 
+    /**
+     * Splits generate feature ids from the record numbers, if the ids are
+     * stored in the fix file or if the filter can use the indexes a single
+     * reader is returned.
+     */
+    @Override
+    public List<FeatureReader> getFeatureReaders(final Query query, final int nbSplit) throws DataStoreException {
+        final Filter filter = query.getFilter();
+        if(indexUseable(FIX) || filter instanceof BBOX || filter instanceof Id){
+            return Collections.singletonList((FeatureReader)getFeatureReader(query));
+        }
+        return super.getFeatureReaders(query, nbSplit);
+    }
+
     /**
      * Use the spatial index if available and adds a small optimization: if no
      * attributes are going to be read, don't uselessly open and read the dbf
@@ -19,6 +19,8 @@ package org.geotoolkit.data.shapefile;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geotoolkit.ShapeTestData;
@@ -104,6 +106,56 @@ public class DbaseFileTest extends AbstractTestCaseSupport {
         dbf2.close();
     }
 
+    @Test
+    public void testReadColumns() throws Exception {
+        final int[] columns = new int[]{4, 0, 251, 10};
+        final Object[] attrs = new Object[dbf.getHeader().getNumFields()];
+        final Object[] values = new Object[columns.length];
+        while (dbf.hasNext()) {
+            final DbaseFileReader.Row row = dbf.next();
+            row.readAll(attrs);
+            row.read(columns, values);
+            for (int i = 0; i < columns.length; i++) {
+                assertEquals(attrs[columns[i]], values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testReadNumbersAndDates() throws Exception {
+        DbaseFileHeader header = new DbaseFileHeader();
+        header.addColumn("int", 'N', 9, 0);
+        header.addColumn("double", 'N', 20, 5);
+        header.addColumn("date", 'D', 8, 0);
+        header.setNumRecords(3);
+        File f = File.createTempFile("numbers", ".dbf");
+        f.deleteOnExit();
+        final Date date = new GregorianCalendar(2014, 1, 28).getTime();
+        final Object[][] rows = new Object[][]{
+            {-123, 0.5, date},
+            {0, -98765.4321, date},
+            {987654321, 1e-5, date}
+        };
+        FileOutputStream fout = new FileOutputStream(f);
+        DbaseFileWriter writer = new DbaseFileWriter(header, fout.getChannel(), Charset.defaultCharset());
+        for (Object[] row : rows) {
+            writer.write(row);
+        }
+        writer.close();
+
+        final ShpFiles tempShpFiles = new ShpFiles(f);
+        final AccessManager locker = tempShpFiles.createLocker();
+        DbaseFileReader r = locker.getDBFReader(false, ShapefileFeatureStore.DEFAULT_STRING_CHARSET);
+        final Object[] values = new Object[3];
+        for (Object[] row : rows) {
+            r.next().read(new int[]{0, 1, 2}, values);
+            assertArrayEquals(row, values);
+        }
+        assertFalse(r.hasNext());
+        r.close();
+        f.delete();
+    }
+
     @Test
     public void testHeader() throws Exception {
         DbaseFileHeader header = new DbaseFileHeader();
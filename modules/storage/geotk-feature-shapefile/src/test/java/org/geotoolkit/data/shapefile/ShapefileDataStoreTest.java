@@ -30,6 +30,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.geotoolkit.ShapeTestData;
 import org.geotoolkit.data.FeatureStore;
@@ -524,6 +528,63 @@ public class ShapefileDataStoreTest extends AbstractTestCaseSupport {
         }
     }
 
+    /**
+     * Checks split readers, read concurrently, return the same features as a single reader.
+     */
+    @Test
+    public void testGetFeatureReaders() throws Exception {
+        ShapefileFeatureStore store = (ShapefileFeatureStore) new ShapefileFeatureStoreFactory()
+                .createDataStore(copyShapefiles(STATE_POP).toURI().toURL());
+        final Query query = QueryBuilder.all(store.getNames().iterator().next());
+
+        final List<Object> expected = new ArrayList<Object>();
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = store.getFeatureReader(query);
+        try {
+            while (reader.hasNext()) {
+                final SimpleFeature f = reader.next();
+                expected.add(f.getID());
+                expected.add(f.getAttribute("STATE_NAME"));
+            }
+        } finally {
+            reader.close();
+        }
+
+        final List<FeatureReader> readers = store.getFeatureReaders(query, 3);
+        assertEquals(3, readers.size());
+
+        //drain all splits at the same time
+        final ExecutorService executor = Executors.newFixedThreadPool(readers.size());
+        final List<Future<List<Object>>> futures = new ArrayList<Future<List<Object>>>();
+        try {
+            for (final FeatureReader split : readers) {
+                futures.add(executor.submit(new Callable<List<Object>>() {
+                    @Override
+                    public List<Object> call() throws Exception {
+                        final List<Object> values = new ArrayList<Object>();
+                        try {
+                            while (split.hasNext()) {
+                                final SimpleFeature f = (SimpleFeature) split.next();
+                                values.add(f.getID());
+                                values.add(f.getAttribute("STATE_NAME"));
+                            }
+                        } finally {
+                            split.close();
+                        }
+                        return values;
+                    }
+                }));
+            }
+            //splits are consecutive, their union in split order is the plain read
+            final List<Object> result = new ArrayList<Object>();
+            for (Future<List<Object>> future : futures) {
+                result.addAll(future.get());
+            }
+            assertEquals(expected, result);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Checks if feature reading optimizations still allow to execute the
      * queries or not
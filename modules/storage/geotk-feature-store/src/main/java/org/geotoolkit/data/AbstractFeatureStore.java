@@ -34,6 +34,7 @@ import org.geotoolkit.data.memory.GenericFeatureWriter;
 import org.geotoolkit.data.memory.GenericFilterFeatureIterator;
 import org.geotoolkit.data.query.Query;
 import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.data.query.QueryUtilities;
 import org.geotoolkit.data.query.Selector;
 import org.geotoolkit.data.query.Source;
 import org.geotoolkit.data.session.DefaultSession;
@@ -92,6 +93,7 @@ public abstract class AbstractFeatureStore extends FeatureStore {
     protected final ParameterValueGroup parameters;
     protected String defaultNamespace;
     protected final Set<StorageListener> listeners = new HashSet<>();
+    private FeatureStoreStatistics statistics;
     
     protected AbstractFeatureStore(final ParameterValueGroup params) {
         
@@ -249,6 +251,10 @@ public abstract class AbstractFeatureStore extends FeatureStore {
      */
     @Override
     public long getCount(Query query) throws DataStoreException {
+        final FeatureStoreStatistics.TypeStatistics stats = QueryUtilities.getStatistics(this, query, false);
+        if(stats != null){
+            return stats.getCount();
+        }
         query = addSeparateFeatureHint(query);
         final FeatureReader reader = getFeatureReader(query);
         return FeatureStoreUtilities.calculateCount(reader);
@@ -266,6 +272,10 @@ public abstract class AbstractFeatureStore extends FeatureStore {
     @Override
     public Envelope getEnvelope(Query query) throws DataStoreException, FeatureStoreRuntimeException {
         // TODO query = addSeparateFeatureHint(query);
+        final FeatureStoreStatistics.TypeStatistics stats = QueryUtilities.getStatistics(this, query, true);
+        if(stats != null){
+            return stats.getEnvelope();
+        }
         
         if(query.retrieveAllProperties()){
             //we simplify it, get only geometry attributes + sort attribute
@@ -305,6 +315,31 @@ public abstract class AbstractFeatureStore extends FeatureStore {
         return FeatureStoreUtilities.calculateEnvelope(reader);
     }
 
+    /**
+     * Get the count, envelope and attribute ranges cache of this store.
+     * The cache is created on first call if {@link #isStatisticsCached() }
+     * returns true.
+     *
+     * @return FeatureStoreStatistics, null if this store does not cache statistics.
+     */
+    public synchronized FeatureStoreStatistics getStatistics(){
+        if(statistics == null && isStatisticsCached()){
+            statistics = new FeatureStoreStatistics(this);
+        }
+        return statistics;
+    }
+
+    /**
+     * Stores which do not have a fast way to calculate count and envelope may
+     * override this method to cache them. The store must then fire a content
+     * event on each modification, the cache is invalidated by those events.
+     *
+     * @return true if statistics should be cached, false by default.
+     */
+    protected boolean isStatisticsCached(){
+        return false;
+    }
+
     private static Query addSeparateFeatureHint(final Query query){
         //hints never null on a query
         Hints hints = query.getHints();
@@ -364,6 +399,12 @@ public abstract class AbstractFeatureStore extends FeatureStore {
      */
     @Override
     public void close() throws DataStoreException {
+        synchronized (this) {
+            if(statistics != null){
+                statistics.clear();
+                statistics = null;
+            }
+        }
         synchronized (listeners) {
             listeners.clear();
         }
@@ -0,0 +1,277 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+
+package org.geotoolkit.data;
+
+import com.vividsolutions.jts.geom.Geometry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.Property;
+import org.geotoolkit.feature.type.AttributeDescriptor;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.feature.type.Name;
+import org.geotoolkit.feature.type.PropertyDescriptor;
+import org.geotoolkit.geometry.DefaultBoundingBox;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import static org.apache.sis.util.ArgumentChecks.*;
+
+/**
+ * Cache of the feature count, envelope and attribute ranges of each type of a
+ * feature store.
+ * <p>
+ * Statistics are computed in one pass over all features of a type the first
+ * time they are requested, or in background with {@link #preload(java.util.concurrent.Executor) }.
+ * The cache listens to the store events and drops the statistics of a type as
+ * soon as its content or structure changes. It is only accurate for stores which
+ * fire a {@link FeatureStoreContentEvent} on every modification.
+ *
+ * @author agent
+ * @module pending
+ */
+public class FeatureStoreStatistics implements FeatureStoreListener {
+
+    private static final Logger LOGGER = Logging.getLogger(FeatureStoreStatistics.class);
+
+    private final FeatureStore store;
+    private final ConcurrentMap<Name,TypeStatistics> cache = new ConcurrentHashMap<>();
+    /** Incremented on each invalidation, statistics computed meanwhile are not stored. */
+    private final AtomicLong generation = new AtomicLong();
+
+    public FeatureStoreStatistics(final FeatureStore store) {
+        ensureNonNull("store", store);
+        this.store = store;
+        store.addStorageListener(this);
+    }
+
+    /**
+     * @return the feature store described by this cache.
+     */
+    public FeatureStore getFeatureStore() {
+        return store;
+    }
+
+    /**
+     * Get the statistics of given type, computing them if needed.
+     *
+     * @param type feature type name
+     * @return TypeStatistics, never null
+     * @throws DataStoreException if reading features failed
+     */
+    public TypeStatistics get(final Name type) throws DataStoreException {
+        TypeStatistics stats = cache.get(type);
+        if(stats == null){
+            final long gen = generation.get();
+            stats = compute(type);
+            if(generation.get() == gen){
+                final TypeStatistics previous = cache.putIfAbsent(type, stats);
+                if(previous != null) stats = previous;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Compute in background the statistics of all types which are not cached.
+     *
+     * @param executor executor used to run the computation
+     * @throws DataStoreException if the type names could not be obtained
+     */
+    public void preload(final Executor executor) throws DataStoreException {
+        for(final Name type : store.getNames()){
+            if(cache.containsKey(type)) continue;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        get(type);
+                    } catch (DataStoreException ex) {
+                        LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Drop the statistics of given type.
+     */
+    public void invalidate(final Name type){
+        generation.incrementAndGet();
+        if(type == null){
+            cache.clear();
+        }else{
+            cache.remove(type);
+        }
+    }
+
+    /**
+     * Drop all statistics.
+     */
+    public void clear(){
+        invalidate(null);
+    }
+
+    /**
+     * Stop listening to the store and drop all statistics.
+     */
+    public void dispose(){
+        store.removeStorageListener(this);
+        clear();
+    }
+
+    @Override
+    public void structureChanged(final FeatureStoreManagementEvent event) {
+        invalidate(event.getFeatureTypeName());
+    }
+
+    @Override
+    public void contentChanged(final FeatureStoreContentEvent event) {
+        if(event.getType() == FeatureStoreContentEvent.Type.SESSION){
+            //pending session changes do not affect the store
+            return;
+        }
+        invalidate(event.getFeatureTypeName());
+    }
+
+    private TypeStatistics compute(final Name type) throws DataStoreException {
+        final FeatureType ft = store.getFeatureType(type);
+        final Map<Name,Comparable[]> ranges = new HashMap<>();
+        for(PropertyDescriptor desc : ft.getDescriptors()){
+            final Class binding = desc.getType().getBinding();
+            if(desc instanceof AttributeDescriptor
+                    && Comparable.class.isAssignableFrom(binding)
+                    && !Geometry.class.isAssignableFrom(binding)){
+                ranges.put(desc.getName(), new Comparable[2]);
+            }
+        }
+
+        long count = 0;
+        BoundingBox env = null;
+        final FeatureReader reader = store.getFeatureReader(QueryBuilder.all(type));
+        try{
+            while(reader.hasNext()){
+                final Feature f = reader.next();
+                count++;
+
+                final BoundingBox bbox = DefaultBoundingBox.castOrCopy(f.getBounds());
+                if(bbox != null && !bbox.isEmpty()){
+                    if(env != null){
+                        env.include(bbox);
+                    }else{
+                        CoordinateReferenceSystem crs = bbox.getCoordinateReferenceSystem();
+                        if(crs == null){
+                            crs = ft.getCoordinateReferenceSystem();
+                        }
+                        env = new DefaultBoundingBox(bbox, crs);
+                    }
+                }
+
+                for(Map.Entry<Name,Comparable[]> entry : ranges.entrySet()){
+                    final Comparable[] range = entry.getValue();
+                    for(Property prop : f.getProperties(entry.getKey())){
+                        final Object value = prop.getValue();
+                        if(!(value instanceof Comparable)) continue;
+                        final Comparable candidate = (Comparable) value;
+                        if(range[0] == null || candidate.compareTo(range[0]) < 0) range[0] = candidate;
+                        if(range[1] == null || candidate.compareTo(range[1]) > 0) range[1] = candidate;
+                    }
+                }
+            }
+        }finally{
+            reader.close();
+        }
+
+        return new TypeStatistics(type, count, env, ranges);
+    }
+
+    /**
+     * Statistics of one feature type.
+     */
+    public static final class TypeStatistics {
+
+        private final Name type;
+        private final long count;
+        private final BoundingBox envelope;
+        private final Map<Name,Comparable[]> ranges;
+
+        private TypeStatistics(final Name type, final long count, final BoundingBox envelope,
+                final Map<Name,Comparable[]> ranges) {
+            this.type = type;
+            this.count = count;
+            this.envelope = envelope;
+            this.ranges = Collections.unmodifiableMap(ranges);
+        }
+
+        /**
+         * @return feature type name
+         */
+        public Name getType() {
+            return type;
+        }
+
+        /**
+         * @return number of features
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return copy of the envelope of all features, null if there are no geometries.
+         */
+        public Envelope getEnvelope() {
+            if(envelope == null) return null;
+            return new DefaultBoundingBox(envelope, envelope.getCoordinateReferenceSystem());
+        }
+
+        /**
+         * @param attribute attribute name
+         * @return smallest value of the attribute, null if the attribute is
+         *         not comparable or has no value
+         */
+        public Comparable getMinimum(final Name attribute) {
+            final Comparable[] range = ranges.get(attribute);
+            return (range != null) ? range[0] : null;
+        }
+
+        /**
+         * @param attribute attribute name
+         * @return greatest value of the attribute, null if the attribute is
+         *         not comparable or has no value
+         */
+        public Comparable getMaximum(final Name attribute) {
+            final Comparable[] range = ranges.get(attribute);
+            return (range != null) ? range[1] : null;
+        }
+
+    }
+
+}
@@ -23,11 +23,14 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import org.geotoolkit.data.AbstractFeatureStore;
 import org.geotoolkit.data.DefaultJoinFeatureCollection;
 import org.geotoolkit.data.DefaultSelectorFeatureCollection;
 import org.geotoolkit.data.DefaultTextStmtFeatureCollection;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.DefaultFeatureStoreJoinFeatureCollection;
+import org.geotoolkit.data.FeatureStore;
+import org.geotoolkit.data.FeatureStoreStatistics;
 import org.geotoolkit.data.session.Session;
 import org.geotoolkit.factory.FactoryFinder;
 import org.apache.sis.util.NullArgumentException;
@@ -250,6 +253,41 @@ public class QueryUtilities {
                 && query.getStartIndex() == 0;
     }
 
+    /**
+     * Get the cached statistics of the queried type when the query does not
+     * restrict the features : no filter, start index, max features or version.
+     *
+     * @param store queried feature store
+     * @param query query to test
+     * @param envelope true if the statistics are used for the envelope, in this
+     *        case the query must also retrieve all properties without reprojection
+     *        or resampling.
+     * @return statistics or null if the query is restrictive or if the store
+     *         does not cache statistics.
+     * @throws DataStoreException if statistics computation failed
+     */
+    public static FeatureStoreStatistics.TypeStatistics getStatistics(final FeatureStore store,
+            final Query query, final boolean envelope) throws DataStoreException{
+        if(!(store instanceof AbstractFeatureStore) || !query.isSimple()) return null;
+        final FeatureStoreStatistics statistics = ((AbstractFeatureStore)store).getStatistics();
+        if(statistics == null) return null;
+
+        final Filter filter = query.getFilter();
+        if(    (filter != null && filter != Filter.INCLUDE)
+            || query.getStartIndex() != 0
+            || query.getMaxFeatures() != null
+            || query.getVersionLabel() != null
+            || query.getVersionDate() != null){
+            return null;
+        }
+        if(envelope && (   !query.retrieveAllProperties()
+                        || query.getCoordinateSystemReproject() != null
+                        || query.getResolution() != null)){
+            return null;
+        }
+        return statistics.get(query.getTypeName());
+    }
+
     /**
      * Combine two queries in the way that the resulting query act
      * as if it was a sub query result.
@@ -26,15 +26,19 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.storage.DataStoreException;
 import org.geotoolkit.data.FeatureStore;
 import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
+import org.geotoolkit.data.FeatureReader;
 import org.geotoolkit.data.memory.GenericFilterFeatureIterator;
+import org.geotoolkit.data.memory.GenericQueryFeatureIterator;
 import org.geotoolkit.data.query.Query;
 import org.geotoolkit.data.query.QueryBuilder;
 import org.geotoolkit.data.query.QueryUtilities;
+import org.geotoolkit.data.query.SortByComparator;
 import org.geotoolkit.factory.FactoryFinder;
 import org.geotoolkit.factory.Hints;
 import org.geotoolkit.filter.visitor.DuplicatingFilterVisitor;
@@ -53,6 +57,7 @@ import org.opengis.filter.FilterVisitor;
 import org.opengis.filter.Id;
 import org.opengis.filter.expression.Literal;
 import org.opengis.filter.identity.Identifier;
+import org.opengis.filter.sort.SortBy;
 import org.opengis.geometry.BoundingBox;
 import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -137,6 +142,12 @@ public class DefaultSession extends AbstractSession {
         }
 
         original = forceCRS(original,false);
+
+        final SessionOverlay overlay = getOverlay(original);
+        if(overlay != null){
+            return getFeatureIterator(original, overlay);
+        }
+
         final List<Delta> deltas = diff.getDeltas();
 
         //we must store the modified queries to iterate on them in reverse order.
@@ -163,6 +174,52 @@ public class DefaultSession extends AbstractSession {
         return reader;
     }
 
+    /**
+     * Read the features merging the store features with the session overlay.
+     * The store is asked for the features matching the filter or modified in
+     * the session, the remaining query parameters are applied on the merged
+     * features.
+     */
+    private FeatureIterator getFeatureIterator(final Query original, final SessionOverlay overlay) throws DataStoreException {
+        final Id modifiedIds = overlay.getModifiedIds();
+        final SortBy[] sortBy = original.getSortBy();
+        //modified values may change the order, sort after merging in this case
+        final boolean sortInStore = modifiedIds == null
+                && sortBy != null && sortBy.length > 0
+                && !QueryBuilder.isNaturalSortBy(sortBy);
+
+        final QueryBuilder qb = new QueryBuilder(original);
+        Filter filter = original.getFilter();
+        if(modifiedIds != null && filter != Filter.INCLUDE){
+            filter = FF.or(filter, modifiedIds);
+        }
+        qb.setFilter(filter);
+        qb.setProperties((Name[])null);
+        qb.setSortBy(sortInStore ? sortBy : null);
+        qb.setCRS(null);
+        qb.setResolution(null);
+        qb.setStartIndex(0);
+        qb.setMaxFeatures(null);
+        final FeatureReader storeReader = store.getFeatureReader(qb.buildQuery());
+
+        final FeatureReader reader = overlay.wrap(storeReader,
+                sortInStore ? new SortByComparator(sortBy) : null);
+
+        final QueryBuilder remaining = new QueryBuilder(original);
+        if(sortInStore){
+            remaining.setSortBy(null);
+        }
+        return GenericQueryFeatureIterator.wrap(reader, remaining.buildQuery());
+    }
+
+    /**
+     * @return overlay of the query type, null if the session must use the deltas.
+     */
+    private SessionOverlay getOverlay(final Query query){
+        if(!query.isSimple()) return null;
+        return diff.getOverlay(query.getTypeName());
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -305,6 +362,22 @@ public class DefaultSession extends AbstractSession {
     @Override
     public long getCount(final Query original) throws DataStoreException {
         if(hasPendingChanges()){
+            final SessionOverlay overlay = getOverlay(original);
+            final Filter filter = original.getFilter();
+            if(overlay != null && (filter == null || filter == Filter.INCLUDE)){
+                //no need to iterate, removed and added features are known
+                final QueryBuilder qb = new QueryBuilder(original);
+                qb.setStartIndex(0);
+                qb.setMaxFeatures(null);
+                long count = store.getCount(qb.buildQuery())
+                        - overlay.getRemovedCount() + overlay.getAddedCount();
+                count = Math.max(0, count - original.getStartIndex());
+                final Integer max = original.getMaxFeatures();
+                if(max != null){
+                    count = Math.min(count, max);
+                }
+                return count;
+            }
             return FeatureStoreUtilities.calculateCount(getFeatureIterator(original));
         }else{
             return store.getCount(original);
@@ -317,6 +390,22 @@ public class DefaultSession extends AbstractSession {
     @Override
     public Envelope getEnvelope(Query original) throws DataStoreException {
         if(hasPendingChanges()){
+            final SessionOverlay overlay = getOverlay(original);
+            final Filter filter = original.getFilter();
+            if(overlay != null && overlay.isEnvelopeExact()
+                    && (filter == null || filter == Filter.INCLUDE)
+                    && original.getCoordinateSystemReproject() == null
+                    && original.getStartIndex() == 0
+                    && original.getMaxFeatures() == null){
+                //store envelope can only grow with the added features
+                final Envelope storeEnv = store.getEnvelope(original);
+                final Envelope addedEnv = overlay.getAddedEnvelope();
+                if(storeEnv == null) return addedEnv;
+                if(addedEnv == null) return storeEnv;
+                final GeneralEnvelope env = new GeneralEnvelope(storeEnv);
+                env.add(addedEnv);
+                return env;
+            }
             return FeatureStoreUtilities.calculateEnvelope(getFeatureIterator(original));
         }else{
             return store.getEnvelope(original);
@@ -18,18 +18,28 @@
 package org.geotoolkit.data.session;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.geotoolkit.data.FeatureStore;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.internal.util.UnmodifiableArrayList;
+import org.geotoolkit.data.FeatureIterator;
+import org.geotoolkit.feature.type.Name;
 
 /**
  * Contain a list of all modification, ensure concurrency when accesing
  * deltas and lock when commiting or reverting changes.
+ * <p>
+ * Add, modify and remove deltas are also merged in one {@link SessionOverlay}
+ * per feature type, this avoids chaining the deltas when reading. If a delta
+ * of another kind is added, the overlays are dropped until the next commit or
+ * rollback and the session falls back on the deltas.
  *
  * @author Johann Sorel (Geomatys)
  * @module pending
@@ -38,6 +48,8 @@ public class DefaultSessionDiff{
 
     private final List<Delta> deltas = new ArrayList<Delta>();
     private List<Delta> readCopy = null;
+    private final Map<Name,SessionOverlay> overlays = new HashMap<Name, SessionOverlay>();
+    private boolean overlaySupported = true;
 
     private final ReadWriteLock rwlock = new ReentrantReadWriteLock();
     private final Lock readLock = rwlock.readLock();
@@ -84,14 +96,82 @@ public class DefaultSessionDiff{
         try{
             deltas.add(alt);
             readCopy = null;
+            if(overlaySupported){
+                overlaySupported = updateOverlay(alt);
+                if(!overlaySupported){
+                    overlays.clear();
+                }
+            }
         }finally{
             writeLock.unlock();
         }
     }
 
+    /**
+     * Get the consolidated modifications of given type.
+     *
+     * @param type feature type name
+     * @return SessionOverlay, can be empty, null if the deltas can not be
+     *         expressed as an overlay.
+     */
+    public SessionOverlay getOverlay(final Name type){
+        readLock.lock();
+        try{
+            if(!overlaySupported) return null;
+            final SessionOverlay overlay = overlays.get(type);
+            return (overlay != null) ? overlay : new SessionOverlay(type);
+        }finally{
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Merge the delta in the overlay of it's type.
+     *
+     * @return false if the delta is not supported by the overlay.
+     */
+    private boolean updateOverlay(final Delta alt){
+        if(!(alt instanceof AbstractDelta)) return false;
+        final AbstractDelta delta = (AbstractDelta) alt;
+
+        SessionOverlay overlay = overlays.get(delta.type);
+        if(overlay == null){
+            overlay = new SessionOverlay(delta.type);
+            overlays.put(delta.type, overlay);
+        }
+
+        if(alt instanceof AddDelta){
+            final FeatureIterator ite = ((AddDelta)alt).features.iterator();
+            try{
+                overlay.add(ite);
+            }finally{
+                ite.close();
+            }
+        }else if(alt instanceof ModifyDelta){
+            final ModifyDelta md = (ModifyDelta) alt;
+            overlay.modify(md.filter.getIdentifiers(), md.values);
+        }else if(alt instanceof RemoveDelta){
+            try {
+                overlay.remove(((RemoveDelta)alt).removedIds.getIdentifiers(),
+                        delta.session.getFeatureStore());
+            } catch (DataStoreException ex) {
+                Logger.getLogger(DefaultSessionDiff.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+                return false;
+            }
+        }else{
+            return false;
+        }
+        return true;
+    }
+
     public void commit(final FeatureStore store) throws DataStoreException{
         writeLock.lock();
         try{
+            //deltas may be partially commited if an error occurs, overlays
+            //would not be accurate anymore
+            overlays.clear();
+            overlaySupported = false;
+
             for(int i=0,n=deltas.size();i<n;i++){
                 final Delta alt = deltas.get(i);
                 final Map<String,String> updates = alt.commit(store);
@@ -107,6 +187,8 @@ public class DefaultSessionDiff{
             }
             deltas.clear();
             readCopy = null;
+            overlays.clear();
+            overlaySupported = true;
         }finally{
             writeLock.unlock();
         }
@@ -117,6 +199,8 @@ public class DefaultSessionDiff{
         try{
             deltas.clear();
             readCopy = null;
+            overlays.clear();
+            overlaySupported = true;
         }finally{
             writeLock.unlock();
         }
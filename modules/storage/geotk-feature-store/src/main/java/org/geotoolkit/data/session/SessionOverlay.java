@@ -0,0 +1,350 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+
+package org.geotoolkit.data.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.FeatureStore;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
+import org.geotoolkit.data.memory.GenericModifyFeatureIterator;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.factory.FactoryFinder;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.FeatureUtilities;
+import org.geotoolkit.feature.type.AttributeDescriptor;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.feature.type.GeometryDescriptor;
+import org.geotoolkit.feature.type.Name;
+import org.geotoolkit.geometry.jts.JTSEnvelope2D;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Id;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.identity.Identifier;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.geometry.Envelope;
+
+/**
+ * Consolidated view of the pending modifications made on a feature type.
+ * <p>
+ * Instead of chaining the deltas, the overlay merges them in maps indexed by
+ * feature identifier : added features, removed identifiers and modified values.
+ * Reading a feature through the overlay costs one lookup whatever the number
+ * of modifications made in the session. The number of removed features and the
+ * bounds of the added features are maintained when deltas are applied.
+ * <p>
+ * The overlay is updated by {@link DefaultSessionDiff} under its write lock,
+ * readers may iterate concurrently and see a weakly consistent view.
+ *
+ * @author agent
+ * @module pending
+ */
+public class SessionOverlay {
+
+    private static final FilterFactory2 FF = (FilterFactory2)
+            FactoryFinder.getFilterFactory(new Hints(Hints.FILTER_FACTORY, FilterFactory2.class));
+
+    private final Name type;
+
+    /** Added features, ordered by insertion sequence. */
+    private final ConcurrentSkipListMap<Long,Feature> added = new ConcurrentSkipListMap<>();
+    /** Insertion sequence of each added feature identifier. */
+    private final ConcurrentMap<String,Long> addedIds = new ConcurrentHashMap<>();
+    /** Identifiers of the removed store features. */
+    private final Set<String> removed = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+    /** Merged modified values of store and added features. */
+    private final ConcurrentMap<String,Map<AttributeDescriptor,Object>> modified = new ConcurrentHashMap<>();
+
+    private long sequence = 0;
+    private volatile long removedCount = 0;
+    private volatile boolean geometryModified = false;
+    private volatile JTSEnvelope2D addedBounds = null;
+    private volatile boolean addedBoundsValid = true;
+
+    public SessionOverlay(final Name type){
+        this.type = type;
+    }
+
+    /**
+     * @return the type affected by this overlay
+     */
+    public Name getType() {
+        return type;
+    }
+
+    /**
+     * @return true if the overlay holds no modification.
+     */
+    public boolean isEmpty(){
+        return added.isEmpty() && removed.isEmpty() && modified.isEmpty();
+    }
+
+    /**
+     * @return number of added features
+     */
+    public long getAddedCount(){
+        return added.size();
+    }
+
+    /**
+     * @return number of store features removed
+     */
+    public long getRemovedCount(){
+        return removedCount;
+    }
+
+    /**
+     * @return identifiers of the modified features, null if there are none.
+     */
+    public Id getModifiedIds(){
+        if(modified.isEmpty()) return null;
+        final Set<FeatureId> ids = new HashSet<>();
+        for(String id : modified.keySet()){
+            ids.add(FF.featureId(id));
+        }
+        return FF.id(ids);
+    }
+
+    /**
+     * The envelope can be derivated from the store envelope only if no store
+     * feature has been removed or had its geometry modified.
+     *
+     * @return true if store envelope combined with {@link #getAddedEnvelope() }
+     *         is the exact envelope of the session.
+     */
+    public boolean isEnvelopeExact(){
+        return removedCount == 0 && !geometryModified;
+    }
+
+    /**
+     * @return bounds of the added features, null if there are none.
+     */
+    public Envelope getAddedEnvelope(){
+        if(!addedBoundsValid){
+            JTSEnvelope2D bounds = null;
+            for(Feature f : added.values()){
+                bounds = include(bounds, apply(f).getBounds());
+            }
+            addedBounds = bounds;
+            addedBoundsValid = true;
+        }
+        return addedBounds;
+    }
+
+    private static JTSEnvelope2D include(JTSEnvelope2D bounds, final BoundingBox bbox){
+        if(bbox == null || bbox.isEmpty()) return bounds;
+        if(bounds == null){
+            bounds = new JTSEnvelope2D(bbox);
+        }else{
+            bounds.expandToInclude(new JTSEnvelope2D(bbox));
+        }
+        return bounds;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // UPDATE METHODS, CALLED BY THE SESSION DIFF //////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    void add(final Iterator<? extends Feature> features){
+        while(features.hasNext()){
+            final Feature feature = features.next();
+            final String id = feature.getIdentifier().getID();
+            final Long seq = sequence++;
+            final Long previous = addedIds.put(id, seq);
+            if(previous != null){
+                added.remove(previous);
+            }
+            added.put(seq, feature);
+            if(addedBoundsValid){
+                addedBounds = include(addedBounds, feature.getBounds());
+            }
+        }
+    }
+
+    void modify(final Set<Identifier> ids, final Map<AttributeDescriptor,Object> values){
+        boolean geometry = false;
+        for(AttributeDescriptor desc : values.keySet()){
+            if(desc instanceof GeometryDescriptor){
+                geometry = true;
+                break;
+            }
+        }
+
+        for(Identifier identifier : ids){
+            final String id = identifier.getID().toString();
+            if(removed.contains(id)) continue;
+
+            final Map<AttributeDescriptor,Object> merged;
+            final Map<AttributeDescriptor,Object> previous = modified.get(id);
+            if(previous == null){
+                merged = new LinkedHashMap<>(values);
+            }else{
+                //never change a map which may be in use by a reader
+                merged = new LinkedHashMap<>(previous);
+                merged.putAll(values);
+            }
+            modified.put(id, Collections.unmodifiableMap(merged));
+
+            if(geometry){
+                if(addedIds.containsKey(id)){
+                    addedBoundsValid = false;
+                }else{
+                    geometryModified = true;
+                }
+            }
+        }
+    }
+
+    void remove(final Set<Identifier> ids, final FeatureStore store) throws DataStoreException{
+        final Set<Identifier> candidates = new HashSet<>();
+        for(Identifier identifier : ids){
+            final String id = identifier.getID().toString();
+            modified.remove(id);
+            final Long seq = addedIds.remove(id);
+            if(seq != null){
+                added.remove(seq);
+                addedBoundsValid = false;
+            }else if(removed.add(id)){
+                candidates.add(identifier);
+            }
+        }
+
+        if(!candidates.isEmpty()){
+            //count only the identifiers which exist in the store
+            removedCount += store.getCount(QueryBuilder.filtered(type, FF.id(candidates)));
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // READING /////////////////////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    private Feature apply(final Feature feature){
+        final Map<AttributeDescriptor,Object> values = modified.get(feature.getIdentifier().getID());
+        if(values != null){
+            return GenericModifyFeatureIterator.apply(feature, values);
+        }
+        return feature;
+    }
+
+    /**
+     * Wrap a store reader, removed features are skipped, modified features are
+     * updated and added features are returned at the end or merged using the
+     * given comparator.
+     *
+     * @param storeReader reader on the store features
+     * @param comparator if not null, the store reader is expected to be sorted
+     *        with this comparator and the added features will be merged in it.
+     * @return FeatureReader
+     */
+    public FeatureReader wrap(final FeatureReader storeReader, final Comparator<? super Feature> comparator){
+        return new OverlayFeatureReader(storeReader, comparator);
+    }
+
+    private final class OverlayFeatureReader implements FeatureReader<FeatureType,Feature>{
+
+        private final FeatureReader storeReader;
+        private final Comparator<? super Feature> comparator;
+        private final Iterator<Feature> addedIte;
+        private Feature nextStore = null;
+        private Feature nextAdded = null;
+
+        private OverlayFeatureReader(final FeatureReader storeReader, final Comparator<? super Feature> comparator) {
+            this.storeReader = storeReader;
+            this.comparator = comparator;
+            if(comparator == null){
+                addedIte = added.values().iterator();
+            }else{
+                final List<Feature> sorted = new ArrayList<>();
+                for(Feature f : added.values()){
+                    sorted.add(apply(f));
+                }
+                Collections.sort(sorted, comparator);
+                addedIte = sorted.iterator();
+            }
+        }
+
+        @Override
+        public FeatureType getFeatureType() {
+            return storeReader.getFeatureType();
+        }
+
+        private void findNext(){
+            while(nextStore == null && storeReader.hasNext()){
+                final Feature candidate = storeReader.next();
+                if(removed.contains(candidate.getIdentifier().getID())) continue;
+                nextStore = apply(candidate);
+            }
+            if(nextAdded == null && addedIte.hasNext()){
+                nextAdded = addedIte.next();
+                if(comparator == null){
+                    nextAdded = apply(nextAdded);
+                }
+            }
+        }
+
+        @Override
+        public Feature next() throws FeatureStoreRuntimeException {
+            findNext();
+            final Feature next;
+            if(nextStore != null && (nextAdded == null || comparator == null
+                    || comparator.compare(nextStore, nextAdded) <= 0)){
+                next = nextStore;
+                nextStore = null;
+            }else if(nextAdded != null){
+                //copy, added features must not be modified by the user
+                next = FeatureUtilities.copy(nextAdded);
+                nextAdded = null;
+            }else{
+                throw new NoSuchElementException("No more features.");
+            }
+            return next;
+        }
+
+        @Override
+        public boolean hasNext() throws FeatureStoreRuntimeException {
+            findNext();
+            return nextStore != null || nextAdded != null;
+        }
+
+        @Override
+        public void close() {
+            storeReader.close();
+        }
+
+        @Override
+        public void remove() {
+            throw new FeatureStoreRuntimeException("Not supported on reader.");
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2014, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.data.memory.MemoryFeatureStore;
+import org.geotoolkit.data.query.Query;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.factory.FactoryFinder;
+import org.geotoolkit.feature.Feature;
+import org.geotoolkit.feature.FeatureTypeBuilder;
+import org.geotoolkit.feature.simple.SimpleFeatureBuilder;
+import org.geotoolkit.feature.simple.SimpleFeatureType;
+import org.geotoolkit.feature.type.DefaultName;
+import org.geotoolkit.feature.type.Name;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory;
+import org.opengis.geometry.Envelope;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test count, envelope and attribute range cache.
+ *
+ * @author agent
+ * @module pending
+ */
+public class FeatureStoreStatisticsTest {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+    private static final FilterFactory FF = FactoryFinder.getFilterFactory(null);
+
+    @Test
+    public void testStatistics() throws DataStoreException {
+        final AtomicInteger nbRead = new AtomicInteger(0);
+        final FeatureStore store = new MemoryFeatureStore(){
+            @Override
+            protected boolean isStatisticsCached() {
+                return true;
+            }
+            @Override
+            public FeatureReader getFeatureReader(final Query query) throws DataStoreException {
+                nbRead.incrementAndGet();
+                return super.getFeatureReader(query);
+            }
+        };
+
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        final Name name = new DefaultName("test");
+        ftb.setName(name);
+        ftb.add("geom", Point.class, CommonCRS.WGS84.normalizedGeographic());
+        ftb.add("att", Integer.class);
+        final SimpleFeatureType type = ftb.buildSimpleFeatureType();
+        store.createFeatureType(name, type);
+
+        final SimpleFeatureBuilder sfb = new SimpleFeatureBuilder(type);
+        final List<Feature> features = new ArrayList<>();
+        for(int i=0;i<3;i++){
+            sfb.reset();
+            sfb.set("geom", GF.createPoint(new Coordinate(i, -i)));
+            sfb.set("att", 10+i);
+            features.add(sfb.buildFeature("id"+i));
+        }
+        store.addFeatures(name, features);
+
+        final Query all = QueryBuilder.all(name);
+        nbRead.set(0);
+        assertEquals(3, store.getCount(all));
+        assertEquals(3, store.getCount(all));
+        Envelope env = store.getEnvelope(all);
+        assertEquals(0, env.getMinimum(0), 0.0);
+        assertEquals(2, env.getMaximum(0), 0.0);
+        assertEquals(-2, env.getMinimum(1), 0.0);
+        assertEquals(0, env.getMaximum(1), 0.0);
+        //statistics computed only once
+        assertEquals(1, nbRead.get());
+
+        final FeatureStoreStatistics.TypeStatistics stats = ((AbstractFeatureStore)store).getStatistics().get(name);
+        assertEquals(10, stats.getMinimum(type.getDescriptor("att").getName()));
+        assertEquals(12, stats.getMaximum(type.getDescriptor("att").getName()));
+        assertNull(stats.getMinimum(type.getDescriptor("geom").getName()));
+
+        //filtered queries do not use the statistics
+        assertEquals(1, store.getCount(QueryBuilder.filtered(name, FF.equals(FF.property("att"), FF.literal(11)))));
+        assertEquals(2, nbRead.get());
+
+        //statistics are invalidated by store events
+        sfb.reset();
+        sfb.set("geom", GF.createPoint(new Coordinate(5, 5)));
+        sfb.set("att", 2);
+        store.addFeatures(name, Collections.singletonList(sfb.buildFeature("id3")));
+        assertEquals(4, store.getCount(all));
+        env = store.getEnvelope(all);
+        assertEquals(5, env.getMaximum(0), 0.0);
+        assertEquals(2, ((AbstractFeatureStore)store).getStatistics().get(name).getMinimum(type.getDescriptor("att").getName()));
+
+        store.removeFeatures(name, FF.equals(FF.property("att"), FF.literal(2)));
+        assertEquals(3, store.getCount(all));
+    }
+
+}
@@ -54,6 +54,7 @@ import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.sort.SortOrder;
 import org.opengis.filter.FilterFactory2;
+import org.opengis.geometry.Envelope;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
 import org.opengis.util.FactoryException;
 
@@ -620,4 +621,88 @@ public class SessionTest{
 
     }
 
+    /**
+     * Test a session with many modifications on the same features,
+     * count and envelope are computed from the session overlay.
+     */
+    @Test
+    public void testSessionOverlay() throws DataStoreException{
+        final Name name = store.getNames().iterator().next();
+        final SimpleFeatureType type = (SimpleFeatureType) store.getFeatureType(name);
+        final Query all = QueryBuilder.all(name);
+
+        //create an asynchrone session
+        final Session session = store.createSession(true);
+
+        //add features ---------------------------------------------------------
+        final SimpleFeatureBuilder sfb = new SimpleFeatureBuilder(type);
+        for(int i=0;i<20;i++){
+            sfb.reset();
+            sfb.set("geom", GF.createPoint(new Coordinate(10+i, 40)));
+            sfb.set("string", "add"+i);
+            sfb.set("double", 10d+i);
+            session.addFeatures(name, Collections.singletonList(sfb.buildFeature("temporary"+i)));
+        }
+
+        assertEquals(3,store.getCount(all));
+        assertEquals(23,session.getCount(all));
+        Envelope env = session.getEnvelope(all);
+        assertEquals(1, env.getMinimum(0), TOLERANCE);
+        assertEquals(29, env.getMaximum(0), TOLERANCE);
+        assertEquals(10, env.getMinimum(1), TOLERANCE);
+        assertEquals(40, env.getMaximum(1), TOLERANCE);
+
+        //modify store and added features several times -----------------------
+        final Map<AttributeDescriptor,Object> values = new HashMap<AttributeDescriptor, Object>();
+        for(int i=0;i<10;i++){
+            values.put(type.getDescriptor("double"), 100d+i);
+            session.updateFeatures(name, FF.equals(FF.property("string"), FF.literal("hop1")), values);
+        }
+        values.clear();
+        values.put(type.getDescriptor("string"), "modified");
+        session.updateFeatures(name, FF.greaterOrEqual(FF.property("double"), FF.literal(25d)), values);
+
+        Query query = QueryBuilder.filtered(name, FF.equals(FF.property("string"), FF.literal("modified")));
+        assertEquals(6,session.getCount(query));
+        query = QueryBuilder.filtered(name, FF.equals(FF.property("double"), FF.literal(109d)));
+        assertEquals(0,store.getCount(query));
+        assertEquals(1,session.getCount(query));
+        assertEquals(23,session.getCount(all));
+
+        //remove added and store features --------------------------------------
+        session.removeFeatures(name, FF.greaterOrEqual(FF.property("double"), FF.literal(20d)));
+        session.removeFeatures(name, FF.equals(FF.property("string"), FF.literal("hop3")));
+
+        assertEquals(3,store.getCount(all));
+        //hop2 and 10 added features remain
+        assertEquals(11,session.getCount(all));
+        assertEquals(0,session.getCount(QueryBuilder.filtered(name, FF.equals(FF.property("string"), FF.literal("modified")))));
+        env = session.getEnvelope(all);
+        assertEquals(2, env.getMinimum(0), TOLERANCE);
+        assertEquals(19, env.getMaximum(0), TOLERANCE);
+
+        //check sorting, start index and max features -------------------------
+        final QueryBuilder qb = new QueryBuilder(name);
+        qb.setSortBy(new SortBy[]{FF.sort("double", SortOrder.DESCENDING)});
+        qb.setStartIndex(1);
+        qb.setMaxFeatures(3);
+        query = qb.buildQuery();
+        assertEquals(3,session.getCount(query));
+
+        final FeatureIterator ite = session.getFeatureIterator(query);
+        try{
+            assertEquals(18d, ((SimpleFeature)ite.next()).getAttribute("double"));
+            assertEquals(17d, ((SimpleFeature)ite.next()).getAttribute("double"));
+            assertEquals(16d, ((SimpleFeature)ite.next()).getAttribute("double"));
+            assertFalse(ite.hasNext());
+        }finally{
+            ite.close();
+        }
+
+        session.commit();
+        assertFalse(session.hasPendingChanges());
+        assertEquals(11,store.getCount(all));
+        assertEquals(11,session.getCount(all));
+    }
+
 }